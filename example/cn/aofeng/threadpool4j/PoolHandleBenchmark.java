@@ -0,0 +1,129 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比按线程池名称提交任务、通过线程池句柄（{@link PoolHandle}）提交任务和不创建{@link java.util.concurrent.Future}的execute的开销。
+ * <p>
+ * 为了只衡量提交路径本身的开销（参数校验、按名称查找线程池等），测试时用一个在调用线程中直接执行任务的
+ * {@link java.util.concurrent.ExecutorService}替换线程池"default"，排除线程切换和队列的影响。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class PoolHandleBenchmark {
+
+    private final static int WARMUP_ROUND = 5;
+
+    private final static int MEASURE_ROUND = 5;
+
+    private final static int SUBMIT_COUNT = 5000000;
+
+    private static volatile long _sink;
+
+    public static void main(String[] args) {
+        ThreadPoolImpl threadPool = new ThreadPoolImpl();
+        threadPool.init();
+        threadPool._multiThreadPool.put("default", new CallerRunsExecutorService());
+
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                _sink++;
+            }
+        };
+        PoolHandle handle = threadPool.handle("default");
+
+        for (int i = 0; i < WARMUP_ROUND; i++) {
+            submitByName(threadPool, task);
+            submitByHandle(handle, task);
+            executeByHandle(handle, task);
+        }
+
+        long byName = 0;
+        long byHandle = 0;
+        long executeByHandle = 0;
+        for (int i = 0; i < MEASURE_ROUND; i++) {
+            byName += submitByName(threadPool, task);
+            byHandle += submitByHandle(handle, task);
+            executeByHandle += executeByHandle(handle, task);
+        }
+
+        long total = (long) SUBMIT_COUNT * MEASURE_ROUND;
+        System.out.println(String.format("submit(task, \"default\"): %.1f ns/op", (double) byName / total));
+        System.out.println(String.format("handle.submit(task)      : %.1f ns/op", (double) byHandle / total));
+        System.out.println(String.format("handle.execute(task)     : %.1f ns/op", (double) executeByHandle / total));
+
+        threadPool.destroy();
+    }
+
+    private static long submitByName(ThreadPool threadPool, Runnable task) {
+        long start = System.nanoTime();
+        for (int i = 0; i < SUBMIT_COUNT; i++) {
+            threadPool.submit(task, "default");
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static long submitByHandle(PoolHandle handle, Runnable task) {
+        long start = System.nanoTime();
+        for (int i = 0; i < SUBMIT_COUNT; i++) {
+            handle.submit(task);
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static long executeByHandle(PoolHandle handle, Runnable task) {
+        long start = System.nanoTime();
+        for (int i = 0; i < SUBMIT_COUNT; i++) {
+            handle.execute(task);
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * 在调用线程中直接执行任务。
+     */
+    private static class CallerRunsExecutorService extends AbstractExecutorService {
+
+        private volatile boolean _shutdown = false;
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            _shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            _shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return _shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return _shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比{@link HashedTimingWheel}和{@link ScheduledThreadPoolExecutor}在持有大量超时任务时添加和取消的耗时。
+ * <p>
+ * 先添加指定数量的超时任务（延迟1~60秒，都不会到期），再全部取消，统计每次操作的平均耗时。
+ * 运行参数（可选）：超时任务数
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class TimingWheelBenchmark {
+
+    private final static int ROUND = 3;
+
+    private final static Runnable TASK = new Runnable() {
+        @Override
+        public void run() {
+            // nothing
+        }
+    };
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+
+        System.out.println(String.format("timeout:%d", count));
+        for (int i = 0; i < ROUND; i++) {
+            runTimingWheel(count);
+            runScheduledThreadPool(count);
+        }
+    }
+
+    private static void runTimingWheel(int count) {
+        HashedTimingWheel timingWheel = new HashedTimingWheel("benchmark-timer", 10, TimeUnit.MILLISECONDS);
+        HashedTimingWheel.Timeout[] timeouts = new HashedTimingWheel.Timeout[count];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            timeouts[i] = timingWheel.newTimeout(TASK, 1000 + i % 59000, TimeUnit.MILLISECONDS);
+        }
+        long added = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            timeouts[i].cancel();
+        }
+        long cancelled = System.nanoTime();
+        timingWheel.stop();
+
+        print("timingwheel", count, added - start, cancelled - added);
+    }
+
+    private static void runScheduledThreadPool(int count) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        ScheduledFuture<?>[] futures = new ScheduledFuture<?>[count];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            futures[i] = executor.schedule(TASK, 1000 + i % 59000, TimeUnit.MILLISECONDS);
+        }
+        long added = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            futures[i].cancel(false);
+        }
+        long cancelled = System.nanoTime();
+        executor.shutdownNow();
+
+        print("scheduled", count, added - start, cancelled - added);
+    }
+
+    private static void print(String name, int count, long addNanos, long cancelNanos) {
+        System.out.println(String.format("%-12s add:%6d ns/op, cancel:%6d ns/op",
+                name, addNanos / count, cancelNanos / count));
+    }
+
+}
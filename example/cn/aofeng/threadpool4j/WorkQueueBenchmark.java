@@ -0,0 +1,97 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import cn.aofeng.common4j.thread.DefaultThreadFactory;
+
+/**
+ * 对比不同类型的线程池队列（{@link WorkQueueType}）在多个线程同时提交任务时的吞吐量。
+ * <p>
+ * 64个线程同时向同一个线程池提交空任务，任务被拒绝时让出CPU后重试，统计从开始提交到全部任务执行完成（线程池终止）的耗时。
+ * 运行参数（可选）：生产者线程数 工作线程数 每个生产者提交的任务数
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class WorkQueueBenchmark {
+
+    private final static String[] QUEUE_TYPES = {
+        WorkQueueType.ARRAY,
+        WorkQueueType.LINKED,
+        WorkQueueType.TRANSFER,
+        WorkQueueType.SYNCHRONOUS,
+        WorkQueueType.RING_BUFFER
+    };
+
+    private final static int ROUND = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int producerCount = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int taskPerProducer = args.length > 2 ? Integer.parseInt(args[2]) : 50000;
+
+        System.out.println(String.format("producer:%d, worker:%d, task:%d",
+                producerCount, workerCount, producerCount * taskPerProducer));
+        for (String queueType : QUEUE_TYPES) {
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < ROUND; i++) {
+                best = Math.min(best, run(queueType, producerCount, workerCount, taskPerProducer));
+            }
+            double throughput = (double) producerCount * taskPerProducer / best * TimeUnit.SECONDS.toNanos(1);
+            System.out.println(String.format("%-12s %,15.0f task/s", queueType, throughput));
+        }
+    }
+
+    private static long run(String queueType, int producerCount, int workerCount,
+            final int taskPerProducer) throws InterruptedException {
+        final ThreadPoolExecutor threadPool = new NamedThreadPoolExecutor(queueType, workerCount, workerCount,
+                15, TimeUnit.SECONDS, WorkQueueType.createWorkQueue(queueType, 100000),
+                new DefaultThreadFactory("benchmark-" + queueType));
+        threadPool.prestartAllCoreThreads();
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                // nothing
+            }
+        };
+        Thread[] producers = new Thread[producerCount];
+        for (int i = 0; i < producerCount; i++) {
+            producers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < taskPerProducer; j++) {
+                        while (true) {
+                            try {
+                                threadPool.execute(task);
+                                break;
+                            } catch (RejectedExecutionException e) {
+                                Thread.yield();
+                            }
+                        }
+                    }
+                }
+            });
+            producers[i].start();
+        }
+
+        long start = System.nanoTime();
+        startLatch.countDown();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.MINUTES);
+
+        return System.nanoTime() - start;
+    }
+
+}
@@ -0,0 +1,131 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按完成顺序返回一批异步任务的执行结果，由{@link ThreadPool#invokeAllStreaming(Collection, long, TimeUnit, String)}创建。
+ * <p>
+ * {@link #hasNext()}阻塞到下一个任务完成（成功、失败或被取消）或整批任务超时，
+ * 调用者可以先处理最快返回的结果，不需要等待所有任务完成。返回的{@link Future}都已完成，调用{@link Future#get()}不会阻塞。
+ * <p>
+ * 整批任务超时或等待被中断时，取消还未完成的任务，{@link #hasNext()}返回false；
+ * 已经得到足够的结果时，可以调用{@link #cancel()}取消剩下的任务。
+ * 本类不是线程安全的，只能在一个线程中迭代。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class CompletionOrderIterator<T> implements Iterator<Future<T>> {
+
+    private static Logger _logger = LoggerFactory.getLogger(CompletionOrderIterator.class);
+
+    private final CompletionService<T> _completionService;
+
+    private final List<Future<T>> _futures;
+
+    /** 整批任务的截止时间（{@link System#nanoTime()}） */
+    private final long _deadline;
+
+    private int _remaining;
+
+    private Future<T> _next;
+
+    private boolean _cancelled = false;
+
+    CompletionOrderIterator(ExecutorService threadPool, Collection<Callable<T>> tasks, long timeout, TimeUnit unit) {
+        _deadline = System.nanoTime() + unit.toNanos(timeout);
+        _completionService = new ExecutorCompletionService<T>(threadPool);
+        _futures = new ArrayList<Future<T>>(tasks.size());
+        try {
+            for (Callable<T> task : tasks) {
+                _futures.add(_completionService.submit(task));
+            }
+        } catch (RejectedExecutionException e) {
+            cancel();
+            throw e;
+        }
+        _remaining = _futures.size();
+    }
+
+    /**
+     * 等待下一个任务完成。
+     *
+     * @return 还有已完成的任务返回true；所有任务都已返回、整批任务超时、等待被中断或已取消返回false
+     */
+    @Override
+    public boolean hasNext() {
+        if (null != _next) {
+            return true;
+        }
+        if (0 == _remaining || _cancelled) {
+            return false;
+        }
+
+        try {
+            _next = _completionService.poll(_deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            _logger.warn("waiting for the next completed task was interrupted, cancel the remaining {} tasks", _remaining);
+        }
+        if (null == _next) {
+            cancel();
+            return false;
+        }
+
+        _remaining--;
+        return true;
+    }
+
+    /**
+     * @return 下一个已完成的任务
+     * @throws NoSuchElementException 没有已完成的任务（见{@link #hasNext()}）
+     */
+    @Override
+    public Future<T> next() {
+        if (! hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        Future<T> next = _next;
+        _next = null;
+
+        return next;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * 取消还未完成的任务（正在执行的任务会被中断），之后{@link #hasNext()}返回false。
+     */
+    public void cancel() {
+        _cancelled = true;
+        _next = null;
+        for (Future<T> future : _futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * @return 还未返回的任务数
+     */
+    public int getRemaining() {
+        return _remaining;
+    }
+
+}
@@ -0,0 +1,177 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 线程池的自适应并发限制器（配置见pool节点的limiter子节点）：按观测到的任务延迟调整同时在线程池中（排队 + 执行）的任务数上限。
+ * <p>
+ * 提交任务时先获取许可（{@link #tryAcquire()}），超过上限立即拒绝，由调用方走{@link FailHandler}，
+ * 而不是让任务在很长的队列中等待几秒。任务完成（或被取消）时释放许可，并用从提交到完成的延迟调整上限，
+ * 算法参考Netflix concurrency-limits的Gradient2：
+ * <ul>
+ *     <li>短期延迟和长期延迟分别取最近约{@link #SHORT_WINDOW}个和{@link #LONG_WINDOW}个任务的指数移动平均；</li>
+ *     <li>梯度 = {@link #TOLERANCE} × 长期延迟 / 短期延迟，限制在[0.5, 1]之间。延迟上升（任务开始排队）时梯度变小，上限随之下降；</li>
+ *     <li>新上限 = 上限 × 梯度 + √上限（允许少量排队以保持吞吐量），再与原上限做平滑；</li>
+ *     <li>同时在线程池中的任务数不到上限的一半时（负载不足）不调大上限；长期延迟远大于短期延迟时长期延迟快速回落，负载下降后上限可以尽快恢复。</li>
+ * </ul>
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ConcurrencyLimiter {
+
+    final static int SHORT_WINDOW = 10;
+
+    final static int LONG_WINDOW = 600;
+
+    /** 可以容忍的延迟增长比例 */
+    final static double TOLERANCE = 1.5;
+
+    /** 新上限的平滑系数 */
+    final static double SMOOTHING = 0.2;
+
+    private final String _name;
+
+    private final int _minLimit;
+
+    private final int _maxLimit;
+
+    /** 当前上限（带小数，便于平滑调整） */
+    private double _estimatedLimit;
+
+    private volatile int _limit;
+
+    private final AtomicInteger _inFlight = new AtomicInteger();
+
+    private final AtomicLong _rejectedCount = new AtomicLong();
+
+    /** 短期延迟和长期延迟（单位：纳秒），0表示还没有采样 */
+    private double _shortRtt;
+
+    private double _longRtt;
+
+    /**
+     * @param name 线程池名称
+     * @param initialLimit 初始上限
+     * @param minLimit 上限的最小值
+     * @param maxLimit 上限的最大值
+     * @throws IllegalArgumentException 不满足 1 &lt;= minLimit &lt;= initialLimit &lt;= maxLimit
+     */
+    public ConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException( String.format("invalid concurrency limit %d of range [%d, %d] of thread pool %s",
+                    initialLimit, minLimit, maxLimit, name) );
+        }
+
+        this._name = name;
+        this._minLimit = minLimit;
+        this._maxLimit = maxLimit;
+        this._estimatedLimit = initialLimit;
+        this._limit = initialLimit;
+    }
+
+    /**
+     * 获取一个许可。
+     *
+     * @return 同时在线程池中的任务数未达到上限返回true，否则返回false
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int inFlight = _inFlight.get();
+            if (inFlight >= _limit) {
+                _rejectedCount.incrementAndGet();
+                return false;
+            }
+            if (_inFlight.compareAndSet(inFlight, inFlight + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 获取一个许可，失败时抛出异常。
+     *
+     * @throws RejectedExecutionException 同时在线程池中的任务数已达到上限
+     */
+    void acquire() {
+        if (! tryAcquire()) {
+            throw new RejectedExecutionException( String.format("thread pool %s reached the concurrency limit %d", _name, _limit) );
+        }
+    }
+
+    /**
+     * 任务执行完成后释放许可，并用任务的延迟调整上限。
+     *
+     * @param startNanos 获取许可的时间（{@link System#nanoTime()}）
+     */
+    public void release(long startNanos) {
+        int inFlight = _inFlight.getAndDecrement();
+        onSample(System.nanoTime() - startNanos, inFlight);
+    }
+
+    /**
+     * 任务没有执行（如：线程池拒绝、任务被取消）时释放许可，不调整上限。
+     */
+    public void release() {
+        _inFlight.decrementAndGet();
+    }
+
+    synchronized void onSample(long rtt, int inFlight) {
+        if (rtt <= 0) {
+            return;
+        }
+        if (0 == _longRtt) {
+            _shortRtt = rtt;
+            _longRtt = rtt;
+        } else {
+            _shortRtt += (rtt - _shortRtt) / SHORT_WINDOW;
+            _longRtt += (rtt - _longRtt) / LONG_WINDOW;
+        }
+
+        // 负载下降后长期延迟快速回落
+        if (_longRtt > _shortRtt * 2) {
+            _longRtt *= 0.95;
+        }
+
+        // 负载不足时延迟不能说明线程池的处理能力，不调大上限
+        if (inFlight < _estimatedLimit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * _longRtt / _shortRtt));
+        double newLimit = _estimatedLimit * gradient + Math.sqrt(_estimatedLimit);
+        newLimit = _estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        _estimatedLimit = Math.max(_minLimit, Math.min(_maxLimit, newLimit));
+        _limit = (int) _estimatedLimit;
+    }
+
+    /**
+     * @return 线程池名称
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return 当前上限
+     */
+    public int getLimit() {
+        return _limit;
+    }
+
+    /**
+     * @return 同时在线程池中（排队 + 执行）的任务数
+     */
+    public int getInFlight() {
+        return _inFlight.get();
+    }
+
+    /**
+     * @return 因达到上限被拒绝的任务数
+     */
+    public long getRejectedCount() {
+        return _rejectedCount.get();
+    }
+
+}
@@ -0,0 +1,143 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 有超时时间或截止时间的{@link FutureTask}。
+ * <p>
+ * 超时时间（{@link ThreadPool#submit(Runnable, long, TimeUnit, String)}）：
+ * 放在共用的{@link HashedTimingWheel}中（添加和取消都是O(1)），不为每个任务创建定时线程或{@link java.util.concurrent.ScheduledFuture}。
+ * 到期时任务还没有完成则取消并中断执行任务的线程（还在队列中的任务不再执行），计入线程池的超时任务数。
+ * <p>
+ * 截止时间（{@link ThreadPool#submitWithDeadline(Runnable, long, String, FailHandler)}）：
+ * 工作线程从队列中取出任务执行（{@link #run()}）时检查，已超过截止时间的任务不执行，取消后交给过期处理动作，计入线程池的过期任务数。
+ * 不需要时间轮，检查只在出队时进行一次。
+ * <p>
+ * 任务完成、抛出异常或被取消时（{@link #done()}）从时间轮中取消超时时间，线程池配置了自适应并发限制器时同时归还许可。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+class DeadlineFutureTask<V> extends PriorityFutureTask<V> {
+
+    /** 没有配置自适应并发限制器时为null */
+    private final ConcurrencyLimiter _limiter;
+
+    /** 线程池的超时和过期任务数 */
+    private final DeadlineTaskCounter _counter;
+
+    /** 提交的时间（{@link System#nanoTime()}） */
+    private final long _startNanos = System.nanoTime();
+
+    private volatile HashedTimingWheel.Timeout _timeout;
+
+    /** 截止时间（{@link System#currentTimeMillis()}），0表示没有截止时间 */
+    private long _deadline;
+
+    /** 超过截止时间时的处理动作，可以为null */
+    private Runnable _expiredAction;
+
+    public DeadlineFutureTask(Callable<V> callable, ConcurrencyLimiter limiter, DeadlineTaskCounter counter) {
+        super(callable, Prioritized.NORM_PRIORITY);
+        this._limiter = limiter;
+        this._counter = counter;
+    }
+
+    public DeadlineFutureTask(Runnable runnable, V result, ConcurrencyLimiter limiter, DeadlineTaskCounter counter) {
+        super(runnable, result, Prioritized.NORM_PRIORITY);
+        this._limiter = limiter;
+        this._counter = counter;
+    }
+
+    /**
+     * 在时间轮中加入超时时间，在任务交给线程池执行之前调用。
+     *
+     * @param timingWheel 共用的时间轮
+     * @param timeoutNanos 从提交开始计算的超时时间（单位：纳秒）
+     */
+    void schedule(HashedTimingWheel timingWheel, long timeoutNanos) {
+        _timeout = timingWheel.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                timeout();
+            }
+        }, timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 设置截止时间，在任务交给线程池执行之前调用，入队和出队之间由队列保证可见性。
+     *
+     * @param deadline 截止时间（{@link System#currentTimeMillis()}）
+     * @param expiredAction 超过截止时间时的处理动作，在执行检查的线程中执行，可以为null
+     */
+    void setDeadline(long deadline, Runnable expiredAction) {
+        this._deadline = deadline;
+        this._expiredAction = expiredAction;
+    }
+
+    /**
+     * 从时间轮中取消超时时间，任务没有交给线程池时（如：被拒绝）调用。
+     */
+    void cancelTimeout() {
+        HashedTimingWheel.Timeout timeout = _timeout;
+        if (null != timeout) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * 超时时间到期：任务还没有完成则取消并中断执行任务的线程。在时间轮线程中执行。
+     */
+    void timeout() {
+        if (cancel(true)) {
+            _counter.incrementTimeoutTaskCount();
+        }
+    }
+
+    /**
+     * @return 设置了截止时间且已超过返回true；否则返回false
+     */
+    boolean isExpired() {
+        return _deadline > 0 && System.currentTimeMillis() >= _deadline;
+    }
+
+    /**
+     * 丢弃已超过截止时间的任务：取消任务，计入过期任务数并执行过期处理动作。
+     */
+    void expire() {
+        if (! cancel(false)) {
+            return;
+        }
+
+        _counter.incrementExpiredTaskCount();
+        if (null != _expiredAction) {
+            _expiredAction.run();
+        }
+    }
+
+    @Override
+    public void run() {
+        if (isExpired()) {
+            expire();
+            return;
+        }
+
+        super.run();
+    }
+
+    @Override
+    protected void done() {
+        cancelTimeout();
+        if (null == _limiter) {
+            return;
+        }
+
+        if (isCancelled()) {
+            _limiter.release();
+        } else {
+            _limiter.release(_startNanos);
+        }
+    }
+
+}
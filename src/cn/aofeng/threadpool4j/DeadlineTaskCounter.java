@@ -0,0 +1,38 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个线程池中因为超时或过期没有完成的任务数（见{@link DeadlineFutureTask}）。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class DeadlineTaskCounter {
+
+    private final AtomicLong _timeoutTaskCount = new AtomicLong();
+
+    private final AtomicLong _expiredTaskCount = new AtomicLong();
+
+    void incrementTimeoutTaskCount() {
+        _timeoutTaskCount.incrementAndGet();
+    }
+
+    void incrementExpiredTaskCount() {
+        _expiredTaskCount.incrementAndGet();
+    }
+
+    /**
+     * @return 执行超过超时时间被取消的任务数
+     */
+    public long getTimeoutTaskCount() {
+        return _timeoutTaskCount.get();
+    }
+
+    /**
+     * @return 出队时（或提交时）已超过截止时间、没有执行就被丢弃的任务数
+     */
+    public long getExpiredTaskCount() {
+        return _expiredTaskCount.get();
+    }
+
+}
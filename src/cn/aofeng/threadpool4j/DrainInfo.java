@@ -0,0 +1,48 @@
+package cn.aofeng.threadpool4j;
+
+/**
+ * 关闭线程池时一个线程池的排空结果（见{@link ThreadPoolImpl#destroy(long, java.util.concurrent.TimeUnit, FailHandler)}）。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class DrainInfo {
+
+    /** 从开始关闭到线程池终止（或超时）的时间（单位：毫秒） */
+    long drainTime;
+
+    boolean terminated;
+
+    /** 超时后从队列中取出、交给{@link FailHandler}处理的任务数 */
+    int unexecutedTaskCount;
+
+    /**
+     * @return 从开始关闭到线程池终止（或超时）的时间（单位：毫秒）
+     */
+    public long getDrainTime() {
+        return drainTime;
+    }
+
+    /**
+     * @return 在超时之前，队列中的任务和正在执行的任务都已完成返回true；超时被强制关闭返回false
+     */
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    /**
+     * @return 超时后没有执行、交给{@link FailHandler}处理的任务数
+     */
+    public int getUnexecutedTaskCount() {
+        return unexecutedTaskCount;
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(64)
+            .append("DrainInfo [drainTime=").append(drainTime)
+            .append(", terminated=").append(terminated)
+            .append(", unexecutedTaskCount=").append(unexecutedTaskCount).append("]")
+            .toString();
+    }
+
+}
@@ -0,0 +1,389 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 分层哈希时间轮。
+ * <p>
+ * 时间轮有{@link #LEVELS}层，每层2^{@link #WHEEL_BITS}个槽，第0层每个槽代表1个刻度（tick），第k层每个槽代表2^(8*k)个刻度。
+ * 定时任务按剩余刻度数放入能容纳它的最低层的槽（双向链表），添加和取消都是O(1)；
+ * 低层转完一圈时，把高层对应槽中的定时任务重新放入低层（逐层下沉），到期时执行到期动作。
+ * 与{@link java.util.concurrent.ScheduledThreadPoolExecutor}的堆相比，定时任务数量很大（几十万个超时）时添加和取消的开销不随数量增长。
+ * <p>
+ * 时间轮由一个守护线程推进，其他线程添加和取消的定时任务先放入无锁队列，在下一个刻度由时间轮线程处理，槽的链表只由时间轮线程访问。
+ * 到期动作在时间轮线程中执行，必须很快完成（如：把任务交给线程池），不能执行业务代码。
+ * 到期时间的精度为1个刻度，超出时间轮范围（约2^32个刻度）的定时任务放在最高层的最后一个槽中，下沉时再重新计算位置。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class HashedTimingWheel {
+
+    private static Logger _logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+
+    /** 每层槽数的位数：每层256个槽 */
+    final static int WHEEL_BITS = 8;
+
+    /** 层数 */
+    final static int LEVELS = 4;
+
+    private final static int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    private final static int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final static long MAX_TICKS = 1L << (WHEEL_BITS * LEVELS);
+
+    private final static int STATE_INIT = 0;
+
+    private final static int STATE_STARTED = 1;
+
+    private final static int STATE_STOPPED = 2;
+
+    private final String _name;
+
+    private final long _tickNanos;
+
+    private final Bucket[][] _wheel;
+
+    private final Queue<Timeout> _pendingAdds = new ConcurrentLinkedQueue<Timeout>();
+
+    private final Queue<Timeout> _pendingCancels = new ConcurrentLinkedQueue<Timeout>();
+
+    private final AtomicInteger _state = new AtomicInteger(STATE_INIT);
+
+    private final AtomicInteger _pendingCount = new AtomicInteger();
+
+    private volatile long _startTime;
+
+    /** 已经处理过的最后一个刻度，只由时间轮线程访问 */
+    private long _currentTick = 0;
+
+    private volatile Thread _workerThread;
+
+    /**
+     * @param name 时间轮名称，时间轮线程以此命名
+     * @param tickDuration 每个刻度的时长
+     * @param unit 刻度时长的单位
+     */
+    public HashedTimingWheel(String name, long tickDuration, TimeUnit unit) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration less than or equals zero");
+        }
+
+        this._name = name;
+        this._tickNanos = unit.toNanos(tickDuration);
+        this._wheel = new Bucket[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                _wheel[level][i] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * 添加一个定时任务，第一次添加时启动时间轮线程。
+     *
+     * @param expireAction 到期动作，在时间轮线程中执行，必须很快完成
+     * @param delay 延迟时长，小于等于0表示在下一个刻度到期
+     * @param unit 延迟时长的单位
+     * @return 定时任务，可用于取消
+     * @throws IllegalStateException 时间轮已停止
+     */
+    public Timeout newTimeout(Runnable expireAction, long delay, TimeUnit unit) {
+        return newTimeoutAt(expireAction, System.nanoTime() + unit.toNanos(delay));
+    }
+
+    /**
+     * 添加一个在指定时间（{@link System#nanoTime()}）到期的定时任务。
+     */
+    Timeout newTimeoutAt(Runnable expireAction, long deadline) {
+        if (null == expireAction) {
+            throw new IllegalArgumentException("expireAction is null");
+        }
+        start();
+
+        Timeout timeout = new Timeout(this, expireAction, deadline);
+        _pendingCount.incrementAndGet();
+        _pendingAdds.add(timeout);
+
+        return timeout;
+    }
+
+    private void start() {
+        int state = _state.get();
+        if (STATE_STARTED == state) {
+            return;
+        }
+        if (STATE_STOPPED == state) {
+            throw new IllegalStateException( String.format("timing wheel %s has been stopped", _name) );
+        }
+
+        if (_state.compareAndSet(STATE_INIT, STATE_STARTED)) {
+            _startTime = System.nanoTime();
+            _workerThread = new Thread(new Worker(), _name);
+            _workerThread.setDaemon(true);
+            _workerThread.start();
+        }
+    }
+
+    /**
+     * 停止时间轮线程，未到期的定时任务不再执行。
+     */
+    public void stop() {
+        if (STATE_STOPPED == _state.getAndSet(STATE_STOPPED)) {
+            return;
+        }
+
+        Thread workerThread = _workerThread;
+        if (null != workerThread) {
+            workerThread.interrupt();
+        }
+    }
+
+    /**
+     * @return 还未到期且未取消的定时任务数
+     */
+    public int getPendingCount() {
+        return _pendingCount.get();
+    }
+
+    /**
+     * @return 每个刻度的时长（单位：纳秒）
+     */
+    public long getTickNanos() {
+        return _tickNanos;
+    }
+
+    private void place(Timeout timeout) {
+        long remaining = timeout._deadlineTick - _currentTick;
+        if (remaining <= 0) {
+            expire(timeout);
+            return;
+        }
+
+        long slotTick = timeout._deadlineTick;
+        if (remaining >= MAX_TICKS) {
+            slotTick = _currentTick + MAX_TICKS - 1;
+            remaining = MAX_TICKS - 1;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (remaining < (1L << (WHEEL_BITS * (level + 1)))) {
+                int index = (int) (slotTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+                _wheel[level][index].add(timeout);
+                return;
+            }
+        }
+    }
+
+    private void expire(Timeout timeout) {
+        if (! timeout._state.compareAndSet(Timeout.ST_INIT, Timeout.ST_EXPIRED)) {
+            return;
+        }
+
+        _pendingCount.decrementAndGet();
+        try {
+            timeout._expireAction.run();
+        } catch (Throwable e) {
+            _logger.error(String.format("timing wheel %s execute expire action %s occurs error", _name, timeout._expireAction), e);
+        }
+    }
+
+    /**
+     * 推进一个刻度：先下沉高层的槽，再让第0层当前槽中的定时任务到期。
+     */
+    private void advance() {
+        long tick = ++_currentTick;
+        for (int level = 1; level < LEVELS; level++) {
+            long lowerMask = (1L << (WHEEL_BITS * level)) - 1;
+            if (0 != (tick & lowerMask)) {
+                break;
+            }
+            int index = (int) (tick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+            Timeout timeout;
+            while (null != (timeout = _wheel[level][index].poll())) {
+                place(timeout);
+            }
+        }
+
+        Bucket bucket = _wheel[0][(int) tick & WHEEL_MASK];
+        Timeout timeout;
+        while (null != (timeout = bucket.poll())) {
+            place(timeout);
+        }
+    }
+
+    private void transferPendingCancels() {
+        Timeout timeout;
+        while (null != (timeout = _pendingCancels.poll())) {
+            if (null != timeout._bucket) {
+                timeout._bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferPendingAdds() {
+        Timeout timeout;
+        while (null != (timeout = _pendingAdds.poll())) {
+            if (Timeout.ST_INIT != timeout._state.get()) {
+                continue;
+            }
+            long elapsed = timeout._deadline - _startTime;
+            timeout._deadlineTick = (elapsed <= 0) ? 0 : (elapsed + _tickNanos - 1) / _tickNanos;
+            place(timeout);
+        }
+    }
+
+    /**
+     * 时间轮线程。
+     */
+    private class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            while (STATE_STARTED == _state.get()) {
+                long sleepNanos = _tickNanos * (_currentTick + 1) - (System.nanoTime() - _startTime);
+                if (sleepNanos > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                    } catch (InterruptedException e) {
+                        // 被stop中断，由循环条件退出
+                    }
+                    continue;
+                }
+
+                transferPendingCancels();
+                transferPendingAdds();
+                advance();
+            }
+            _logger.info("timing wheel {} stopped", _name);
+        }
+
+    }
+
+    /**
+     * 槽：定时任务的双向链表，只由时间轮线程访问。
+     */
+    private static class Bucket {
+
+        private Timeout _head;
+
+        private Timeout _tail;
+
+        void add(Timeout timeout) {
+            timeout._bucket = this;
+            timeout._prev = _tail;
+            timeout._next = null;
+            if (null == _tail) {
+                _head = timeout;
+            } else {
+                _tail._next = timeout;
+            }
+            _tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (null == timeout._prev) {
+                _head = timeout._next;
+            } else {
+                timeout._prev._next = timeout._next;
+            }
+            if (null == timeout._next) {
+                _tail = timeout._prev;
+            } else {
+                timeout._next._prev = timeout._prev;
+            }
+            timeout._prev = null;
+            timeout._next = null;
+            timeout._bucket = null;
+        }
+
+        Timeout poll() {
+            Timeout timeout = _head;
+            if (null != timeout) {
+                remove(timeout);
+            }
+
+            return timeout;
+        }
+
+    }
+
+    /**
+     * 时间轮中的定时任务。
+     */
+    public static class Timeout {
+
+        private final static int ST_INIT = 0;
+
+        private final static int ST_CANCELLED = 1;
+
+        private final static int ST_EXPIRED = 2;
+
+        private final HashedTimingWheel _timingWheel;
+
+        private final Runnable _expireAction;
+
+        /** 到期时间（{@link System#nanoTime()}） */
+        private final long _deadline;
+
+        private final AtomicInteger _state = new AtomicInteger(ST_INIT);
+
+        /* 以下字段只由时间轮线程访问 */
+        private long _deadlineTick;
+
+        private Bucket _bucket;
+
+        private Timeout _prev;
+
+        private Timeout _next;
+
+        Timeout(HashedTimingWheel timingWheel, Runnable expireAction, long deadline) {
+            this._timingWheel = timingWheel;
+            this._expireAction = expireAction;
+            this._deadline = deadline;
+        }
+
+        /**
+         * 取消定时任务，在下一个刻度从槽中删除。
+         *
+         * @return 取消成功返回true；已到期或已取消返回false。
+         */
+        public boolean cancel() {
+            if (! _state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+
+            _timingWheel._pendingCount.decrementAndGet();
+            _timingWheel._pendingCancels.add(this);
+            return true;
+        }
+
+        /**
+         * @return 已取消返回true；否则返回false。
+         */
+        public boolean isCancelled() {
+            return ST_CANCELLED == _state.get();
+        }
+
+        /**
+         * @return 已到期（到期动作已执行）返回true；否则返回false。
+         */
+        public boolean isExpired() {
+            return ST_EXPIRED == _state.get();
+        }
+
+        /**
+         * @return 到期时间（{@link System#nanoTime()}）
+         */
+        public long getDeadline() {
+            return _deadline;
+        }
+
+    }
+
+}
@@ -0,0 +1,278 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按键串行执行任务：键相同的任务按提交顺序逐个执行，键不同的任务在线程池的多个线程中并行执行（多车道）。
+ * <p>
+ * 每个键对应一条车道（一个任务队列），车道有任务时才存在，任务执行完后立即删除，内存占用只与当前有任务的键数量有关，
+ * 与出现过的键数量无关。车道按键的哈希值分散到多个分段中，每个分段一把锁，减少不同键之间的锁竞争。
+ * <p>
+ * 同一时刻每条车道最多只有一个任务在线程池中执行。一条车道连续执行{@link #MAX_BATCH}个任务后，会重新提交到线程池的队列尾部，
+ * 避免任务多的键长时间占用线程，其他键的任务得不到执行。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class KeyedSerialExecutor {
+
+    private static Logger _logger = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+    /** 默认的分段数 */
+    public final static int DEFAULT_STRIPES = 64;
+
+    /** 车道每次占用线程连续执行的最大任务数 */
+    final static int MAX_BATCH = 32;
+
+    private final String _name;
+
+    private final Executor _executor;
+
+    private final Stripe[] _stripes;
+
+    private final int _mask;
+
+    /**
+     * @param name 线程池名称
+     * @param executor 执行任务的线程池
+     */
+    public KeyedSerialExecutor(String name, Executor executor) {
+        this(name, executor, DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param name 线程池名称
+     * @param executor 执行任务的线程池
+     * @param stripes 分段数，会向上取整为2的幂
+     */
+    public KeyedSerialExecutor(String name, Executor executor, int stripes) {
+        if (null == executor) {
+            throw new IllegalArgumentException("executor is null");
+        }
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes less than or equals zero");
+        }
+
+        this._name = name;
+        this._executor = executor;
+        int size = 1 << (32 - Integer.numberOfLeadingZeros(stripes - 1));
+        this._stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            _stripes[i] = new Stripe();
+        }
+        this._mask = size - 1;
+    }
+
+    /**
+     * 提交一个任务到指定键的车道执行。
+     *
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @param key 任务的键，键相同（{@link Object#equals(Object)}）的任务按提交顺序逐个执行
+     * @return 异步任务执行的结果
+     * @throws IllegalArgumentException 任务或键为null
+     * @throws RejectedExecutionException 车道没有在执行，且线程池拒绝执行车道时抛出此异常。
+     * 派发期间同键已提交到车道中的任务不再执行，以此异常结束其结果
+     */
+    public Future<?> submit(Runnable task, Object key) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        if (null == key) {
+            throw new IllegalArgumentException("key is null");
+        }
+
+        LaneTask future = new LaneTask(task);
+        Stripe stripe = stripeFor(key);
+        Lane lane;
+        boolean idle = false;
+        synchronized (stripe) {
+            lane = stripe._lanes.get(key);
+            if (null == lane) {
+                lane = new Lane(key, stripe);
+                stripe._lanes.put(key, lane);
+                idle = true;
+            }
+            lane._tasks.add(future);
+        }
+
+        if (idle) {
+            try {
+                _executor.execute(lane);
+            } catch (RejectedExecutionException e) {
+                List<Runnable> pending;
+                synchronized (stripe) {
+                    stripe._lanes.remove(key);
+                    lane._tasks.remove(future);
+                    pending = new ArrayList<Runnable>(lane._tasks);
+                    lane._tasks.clear();
+                }
+                // 派发期间排在车道中的同键任务没有线程执行，不在调用者线程中执行（可能长时间阻塞调用者），以拒绝异常结束
+                for (Runnable pendingTask : pending) {
+                    ((LaneTask) pendingTask).reject(e);
+                }
+                throw e;
+            }
+        }
+
+        return future;
+    }
+
+    /**
+     * @return 当前有任务的车道数（键的数量）
+     */
+    public int getLaneCount() {
+        int count = 0;
+        for (Stripe stripe : _stripes) {
+            synchronized (stripe) {
+                count += stripe._lanes.size();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * 线程池被强制关闭（{@link java.util.concurrent.ExecutorService#shutdownNow()}）后，取出所有车道中还未执行的任务。
+     * 车道中的任务不在线程池的队列中，线程池只返回车道本身：从<code>tasks</code>中删除车道，加入车道中的任务。
+     *
+     * @param tasks 线程池返回的没有执行的任务
+     * @return 加入车道中的任务后的<code>tasks</code>
+     */
+    List<Runnable> drainTo(List<Runnable> tasks) {
+        Iterator<Runnable> iterator = tasks.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() instanceof Lane) {
+                iterator.remove();
+            }
+        }
+
+        for (Stripe stripe : _stripes) {
+            synchronized (stripe) {
+                for (Lane lane : stripe._lanes.values()) {
+                    tasks.addAll(lane._tasks);
+                    lane._tasks.clear();
+                }
+                stripe._lanes.clear();
+            }
+        }
+
+        return tasks;
+    }
+
+    private Stripe stripeFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+
+        return _stripes[h & _mask];
+    }
+
+    /**
+     * 车道中的任务，车道被线程池拒绝时以拒绝异常结束。
+     */
+    private static class LaneTask extends FutureTask<Object> implements RejectableTask {
+
+        public LaneTask(Runnable runnable) {
+            super(runnable, null);
+        }
+
+        @Override
+        public void reject(RejectedExecutionException e) {
+            setException(e);
+        }
+
+    }
+
+    /**
+     * 分段：保护一组车道的锁及车道表。
+     */
+    private static class Stripe {
+
+        final Map<Object, Lane> _lanes = new HashMap<Object, Lane>();
+
+    }
+
+    /**
+     * 车道：一个键的待执行任务队列，由所在分段的锁保护。每次提交到线程池时记录入队时间（见{@link TimedTask}）。
+     */
+    private class Lane implements TimedTask {
+
+        private final Object _key;
+
+        private final Stripe _stripe;
+
+        private final ArrayDeque<Runnable> _tasks = new ArrayDeque<Runnable>();
+
+        /** 同一时刻车道最多只在线程池的队列中出现一次，入队时间不会被并发修改 */
+        private long _enqueueNanos;
+
+        public Lane(Object key, Stripe stripe) {
+            this._key = key;
+            this._stripe = stripe;
+        }
+
+        @Override
+        public long getEnqueueNanos() {
+            return _enqueueNanos;
+        }
+
+        @Override
+        public void setEnqueueNanos(long enqueueNanos) {
+            this._enqueueNanos = enqueueNanos;
+        }
+
+        @Override
+        public void run() {
+            for (int count = 0; ; count++) {
+                if (count >= MAX_BATCH) {
+                    if (redispatch()) {
+                        return;
+                    }
+                    count = 0;
+                }
+
+                Runnable task;
+                synchronized (_stripe) {
+                    task = _tasks.poll();
+                    if (null == task) {
+                        _stripe._lanes.remove(_key);
+                        return;
+                    }
+                }
+                task.run();
+            }
+        }
+
+        /**
+         * 将车道重新提交到线程池，让出当前线程。
+         *
+         * @return 提交成功返回true；线程池拒绝返回false，由当前线程继续执行
+         */
+        private boolean redispatch() {
+            try {
+                _executor.execute(this);
+                return true;
+            } catch (RejectedExecutionException e) {
+                _logger.debug("redispatch lane {} to thread pool {} was rejected, continue in current thread", _key, _name);
+                return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Lane[" + _key + "]";
+        }
+
+    }
+
+}
@@ -0,0 +1,191 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 固定内存、无锁的对数线性直方图（与HdrHistogram的分桶方式相同），记录任务的延迟（单位：纳秒）。
+ * <p>
+ * 0 ~ 63纳秒每个值一个桶；之后每个2的幂区间平均分为{@link #SUB_BUCKET_COUNT}个桶，相对误差不超过1/32（约3%）。
+ * 可以记录的最大值为2^40 - 1纳秒（约18分钟），更大的值按最大值记录。
+ * 所有桶在创建时分配（约9KB），{@link #record(long)}只做一次原子自增，不分配内存。
+ * 统计百分位数时先通过{@link #snapshot()}复制一份计数。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class LatencyHistogram {
+
+    final static int SUB_BUCKET_BITS = 5;
+
+    final static int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    final static int MAX_VALUE_BITS = 40;
+
+    /** 可以记录的最大值 */
+    public final static long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    final static int BUCKET_COUNT = (MAX_VALUE_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * 记录一个值。
+     *
+     * @param value 延迟（单位：纳秒），小于0按0记录，大于{@link #MAX_VALUE}按{@link #MAX_VALUE}记录
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+
+        _counts.incrementAndGet(indexOf(value));
+    }
+
+    static int indexOf(long value) {
+        if (value < (SUB_BUCKET_COUNT << 1)) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (value >>> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * @return 指定桶的计数，用于不复制计数直接遍历所有桶
+     */
+    long getCount(int index) {
+        return _counts.get(index);
+    }
+
+    /**
+     * @return 桶中最大的值
+     */
+    static long highestValueOf(int index) {
+        if (index < (SUB_BUCKET_COUNT << 1)) {
+            return index;
+        }
+
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @return 当前所有计数的快照
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = _counts.get(i);
+        }
+
+        return new Snapshot(counts);
+    }
+
+    /**
+     * 直方图的快照，不再变化。
+     */
+    public static class Snapshot {
+
+        private final long[] _counts;
+
+        private final long _totalCount;
+
+        Snapshot(long[] counts) {
+            this._counts = counts;
+            long totalCount = 0;
+            for (long count : counts) {
+                totalCount += count;
+            }
+            this._totalCount = totalCount;
+        }
+
+        /**
+         * @param earlier 同一个直方图更早的快照
+         * @return 两个快照之间记录的值组成的快照
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] counts = new long[_counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = _counts[i] - earlier._counts[i];
+            }
+
+            return new Snapshot(counts);
+        }
+
+        /**
+         * @return 记录的值的个数
+         */
+        public long getTotalCount() {
+            return _totalCount;
+        }
+
+        /**
+         * @param percentile 百分位，范围为[0, 100]，如：99.9
+         * @return 不小于该百分位的值（桶的上界，单位：纳秒）；没有记录任何值返回0
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (0 == _totalCount) {
+                return 0;
+            }
+
+            long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * _totalCount));
+            long count = 0;
+            for (int i = 0; i < _counts.length; i++) {
+                count += _counts[i];
+                if (count >= countAtPercentile) {
+                    return highestValueOf(i);
+                }
+            }
+
+            return MAX_VALUE;
+        }
+
+        /**
+         * @return 最大值（桶的上界，单位：纳秒）；没有记录任何值返回0
+         */
+        public long getMax() {
+            for (int i = _counts.length - 1; i >= 0; i--) {
+                if (_counts[i] > 0) {
+                    return highestValueOf(i);
+                }
+            }
+
+            return 0;
+        }
+
+        public long getP50() {
+            return getValueAtPercentile(50);
+        }
+
+        public long getP99() {
+            return getValueAtPercentile(99);
+        }
+
+        public long getP999() {
+            return getValueAtPercentile(99.9);
+        }
+
+        /**
+         * @return 如："count=100, p50=12us, p99=80us, p999=1530us, max=2010us"
+         */
+        @Override
+        public String toString() {
+            return new StringBuilder(80)
+                .append("count=").append(_totalCount)
+                .append(", p50=").append(toMicros(getP50())).append("us")
+                .append(", p99=").append(toMicros(getP99())).append("us")
+                .append(", p999=").append(toMicros(getP999())).append("us")
+                .append(", max=").append(toMicros(getMax())).append("us")
+                .toString();
+        }
+
+        private static long toMicros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+
+    }
+
+}
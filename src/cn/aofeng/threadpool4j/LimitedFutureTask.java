@@ -0,0 +1,38 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 已从{@link ConcurrencyLimiter}获取许可的{@link FutureTask}，任务完成、抛出异常或被取消时（{@link #done()}）释放许可。
+ * 被取消的任务不会执行，所以不能在任务体中释放许可。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+class LimitedFutureTask<V> extends PriorityFutureTask<V> {
+
+    private final ConcurrencyLimiter _limiter;
+
+    /** 获取许可的时间（{@link System#nanoTime()}） */
+    private final long _startNanos = System.nanoTime();
+
+    public LimitedFutureTask(Callable<V> callable, int priority, ConcurrencyLimiter limiter) {
+        super(callable, priority);
+        this._limiter = limiter;
+    }
+
+    public LimitedFutureTask(Runnable runnable, V result, int priority, ConcurrencyLimiter limiter) {
+        super(runnable, result, priority);
+        this._limiter = limiter;
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            _limiter.release();
+        } else {
+            _limiter.release(_startNanos);
+        }
+    }
+
+}
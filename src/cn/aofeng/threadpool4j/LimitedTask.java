@@ -0,0 +1,81 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 通过execute提交、不需要返回值的任务的包装，记录入队时间（见{@link TimedTask}）。
+ * 线程池配置了自适应并发限制器时，任务已从{@link ConcurrencyLimiter}获取许可，执行完成后归还许可；
+ * 线程池被强制关闭后没有执行时（{@link #reject(RejectedExecutionException)}、{@link #unwrap()}）同样归还许可。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+class LimitedTask implements RejectableTask, TimedTask {
+
+    private final Runnable _task;
+
+    /** 没有配置自适应并发限制器时为null */
+    private final ConcurrencyLimiter _limiter;
+
+    /** 获取许可的时间（{@link System#nanoTime()}） */
+    private final long _startNanos = System.nanoTime();
+
+    private long _enqueueNanos;
+
+    public LimitedTask(Runnable task, ConcurrencyLimiter limiter) {
+        this._task = task;
+        this._limiter = limiter;
+    }
+
+    @Override
+    public void run() {
+        if (null == _limiter) {
+            _task.run();
+            return;
+        }
+
+        try {
+            _task.run();
+        } finally {
+            _limiter.release(_startNanos);
+        }
+    }
+
+    @Override
+    public void reject(RejectedExecutionException e) {
+        if (null != _limiter) {
+            _limiter.release();
+        }
+        if (_task instanceof RejectableTask) {
+            ((RejectableTask) _task).reject(e);
+        }
+    }
+
+    /**
+     * 任务不会再执行、交给调用者处理（如：{@link FailHandler}）时调用，归还许可。
+     *
+     * @return 包装的任务
+     */
+    Runnable unwrap() {
+        if (null != _limiter) {
+            _limiter.release();
+        }
+
+        return _task;
+    }
+
+    @Override
+    public long getEnqueueNanos() {
+        return _enqueueNanos;
+    }
+
+    @Override
+    public void setEnqueueNanos(long enqueueNanos) {
+        this._enqueueNanos = enqueueNanos;
+    }
+
+    @Override
+    public String toString() {
+        return _task.toString();
+    }
+
+}
@@ -0,0 +1,274 @@
+package cn.aofeng.threadpool4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import cn.aofeng.common4j.ILifeCycle;
+
+/**
+ * 内嵌的Prometheus指标HTTP服务（配置见metrics节点），通过GET /metrics按Prometheus文本格式输出：
+ * <ul>
+ *     <li>每个线程池的线程数、队列长度等gauge，任务数counter，标签为pool；</li>
+ *     <li>每个线程池的等待时间和执行时间histogram（单位：秒），由{@link LatencyHistogram}的桶累加得到，_sum为近似值；</li>
+ *     <li>每个线程组（虚拟线程按线程池）各状态的线程数，标签为group和state。</li>
+ * </ul>
+ * 请求由HTTP服务的调度线程逐个处理，所有请求共用一个输出缓冲区，每次请求不重新分配缓冲区，也不复制直方图的计数。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class MetricsServer implements HttpHandler, ILifeCycle {
+
+    private static Logger _logger = LoggerFactory.getLogger(MetricsServer.class);
+
+    public final static String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /** histogram的桶上界（单位：纳秒） */
+    private final static long[] BUCKET_BOUNDS = {
+        TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MICROSECONDS.toNanos(500),
+        TimeUnit.MILLISECONDS.toNanos(1), TimeUnit.MILLISECONDS.toNanos(5),
+        TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(50),
+        TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(500),
+        TimeUnit.SECONDS.toNanos(1), TimeUnit.SECONDS.toNanos(5),
+        TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(60)
+    };
+
+    /** 与{@link #BUCKET_BOUNDS}对应的le标签值（单位：秒），最后一个为+Inf */
+    private final static String[] BUCKET_LABELS = {
+        "0.0001", "0.0005", "0.001", "0.005", "0.01", "0.05", "0.1", "0.5", "1", "5", "10", "60", "+Inf"
+    };
+
+    /** 线程池gauge和counter：名称、类型、说明 */
+    private final static String[][] POOL_METRICS = {
+        {"threadpool4j_pool_core_size", "gauge", "Core pool size (parallelism of forkjoin, max concurrency of virtual)."},
+        {"threadpool4j_pool_max_size", "gauge", "Maximum pool size."},
+        {"threadpool4j_pool_threads", "gauge", "Current number of threads."},
+        {"threadpool4j_pool_active_threads", "gauge", "Number of threads executing tasks."},
+        {"threadpool4j_pool_largest_threads", "gauge", "Largest number of threads that have ever been in the pool."},
+        {"threadpool4j_pool_queue_size", "gauge", "Number of tasks waiting in the work queue."},
+        {"threadpool4j_pool_queue_remaining_capacity", "gauge", "Remaining capacity of the work queue."},
+        {"threadpool4j_pool_concurrency_limit", "gauge", "Current limit of the adaptive concurrency limiter."},
+        {"threadpool4j_pool_tasks_submitted_total", "counter", "Tasks submitted to the pool."},
+        {"threadpool4j_pool_tasks_completed_total", "counter", "Tasks completed by the pool."},
+        {"threadpool4j_pool_tasks_failed_total", "counter", "Tasks that threw an exception."},
+        {"threadpool4j_pool_tasks_rejected_total", "counter", "Tasks rejected by the pool or the concurrency limiter."},
+        {"threadpool4j_pool_tasks_timeout_total", "counter", "Tasks cancelled because their timeout expired."},
+        {"threadpool4j_pool_tasks_expired_total", "counter", "Tasks dropped because their deadline had passed before they ran."}
+    };
+
+    private final static String[] THREAD_STATES = {
+        "new", "runnable", "blocked", "waiting", "timed_waiting", "terminated"
+    };
+
+    private final int _port;
+
+    /** 所有线程池的JMX管理接口，key为线程池名称，配置文件热加载时会新增其中的元素 */
+    private final Map<String, ThreadPoolMXBeanImpl> _mxBeans;
+
+    private final PrometheusTextWriter _writer = new PrometheusTextWriter(16 * 1024);
+
+    /** 每个histogram桶的计数（不累加） */
+    private final long[] _bucketCounts = new long[BUCKET_LABELS.length];
+
+    private HttpServer _server;
+
+    /**
+     * @param port 监听端口，0表示由系统分配
+     * @param mxBeans 所有线程池的JMX管理接口，key为线程池名称
+     */
+    public MetricsServer(int port, Map<String, ThreadPoolMXBeanImpl> mxBeans) {
+        this._port = port;
+        this._mxBeans = mxBeans;
+    }
+
+    /**
+     * 启动HTTP服务。
+     *
+     * @throws IllegalStateException 监听端口失败
+     */
+    @Override
+    public void init() {
+        try {
+            _server = HttpServer.create(new InetSocketAddress(_port), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException( String.format("start metrics server on port %d failed", _port), e);
+        }
+        _server.createContext("/metrics", this);
+        _server.setExecutor(null);   // 由调度线程逐个处理请求，输出缓冲区不需要同步
+        _server.start();
+    }
+
+    @Override
+    public void destroy() {
+        if (null != _server) {
+            _server.stop(0);
+            _server = null;
+        }
+    }
+
+    /**
+     * @return 实际监听的端口
+     */
+    public int getPort() {
+        return (null == _server) ? _port : _server.getAddress().getPort();
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            if (! "GET".equals(method) && ! "HEAD".equals(method)) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            render();
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(method)) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, _writer.size());
+            OutputStream output = exchange.getResponseBody();
+            output.write(_writer.buffer(), 0, _writer.size());
+            output.flush();
+        } catch (RuntimeException e) {
+            _logger.error("render metrics occurs error", e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * 把所有指标输出到{@link #_writer}。
+     */
+    synchronized PrometheusTextWriter render() {
+        _writer.reset();
+        for (int metric = 0; metric < POOL_METRICS.length; metric++) {
+            _writer.header(POOL_METRICS[metric][0], POOL_METRICS[metric][1], POOL_METRICS[metric][2]);
+            for (ThreadPoolMXBeanImpl mxBean : _mxBeans.values()) {
+                long value = poolMetricValue(mxBean, metric);
+                if (value >= 0) {   // 线程池类型不支持的指标不输出
+                    _writer.write(POOL_METRICS[metric][0]).write("{pool=\"").writeLabelValue(mxBean.getName())
+                        .write("\"} ").write(value).write('\n');
+                }
+            }
+        }
+
+        renderHistograms("threadpool4j_pool_queue_wait_seconds", "Time tasks spent waiting in the work queue.", true);
+        renderHistograms("threadpool4j_pool_execution_seconds", "Time tasks spent executing.", false);
+        renderThreadStates();
+
+        return _writer;
+    }
+
+    private long poolMetricValue(ThreadPoolMXBeanImpl mxBean, int metric) {
+        switch (metric) {
+            case 0: return mxBean.getCorePoolSize();
+            case 1: return mxBean.getMaximumPoolSize();
+            case 2: return mxBean.getPoolSize();
+            case 3: return mxBean.getActiveCount();
+            case 4: return mxBean.getLargestPoolSize();
+            case 5: return mxBean.getQueueSize();
+            case 6: return mxBean.getQueueRemainingCapacity();
+            case 7: return mxBean.getConcurrencyLimit();
+            case 8: return mxBean.getTaskCount();
+            case 9: return mxBean.getCompletedTaskCount();
+            case 10: return mxBean.getFailedTaskCount();
+            case 11: return mxBean.getRejectedTaskCount();
+            case 12: return mxBean.getTimeoutTaskCount();
+            case 13: return mxBean.getExpiredTaskCount();
+            default: return -1;
+        }
+    }
+
+    private void renderHistograms(String name, String help, boolean queueWait) {
+        _writer.header(name, "histogram", help);
+        for (ThreadPoolMXBeanImpl mxBean : _mxBeans.values()) {
+            if (mxBean.getThreadPool() instanceof TimedExecutor) {
+                TimedExecutor threadPool = (TimedExecutor) mxBean.getThreadPool();
+                renderHistogram(name, mxBean.getName(),
+                        queueWait ? threadPool.getQueueWaitHistogram() : threadPool.getExecutionHistogram());
+            }
+        }
+    }
+
+    /**
+     * 遍历一次直方图的所有桶，按桶的上界把计数归入{@link #BUCKET_BOUNDS}的区间，再输出累计计数。
+     */
+    private void renderHistogram(String name, String pool, LatencyHistogram histogram) {
+        for (int i = 0; i < _bucketCounts.length; i++) {
+            _bucketCounts[i] = 0;
+        }
+        long totalCount = 0;
+        long sum = 0;
+        int bound = 0;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long count = histogram.getCount(i);
+            if (0 == count) {
+                continue;
+            }
+            long value = LatencyHistogram.highestValueOf(i);
+            while (bound < BUCKET_BOUNDS.length && value > BUCKET_BOUNDS[bound]) {
+                bound++;
+            }
+            _bucketCounts[bound] += count;
+            totalCount += count;
+            sum += count * value;
+        }
+
+        long cumulativeCount = 0;
+        for (int i = 0; i < BUCKET_LABELS.length; i++) {
+            cumulativeCount += _bucketCounts[i];
+            _writer.write(name).write("_bucket{pool=\"").writeLabelValue(pool).write("\",le=\"")
+                .write(BUCKET_LABELS[i]).write("\"} ").write(cumulativeCount).write('\n');
+        }
+        _writer.write(name).write("_sum{pool=\"").writeLabelValue(pool).write("\"} ").writeNanosAsSeconds(sum).write('\n');
+        _writer.write(name).write("_count{pool=\"").writeLabelValue(pool).write("\"} ").write(totalCount).write('\n');
+    }
+
+    private void renderThreadStates() {
+        Map<String, ThreadStateInfo> statMap = ThreadUtil.statAllGroupThreadState();
+        for (ThreadPoolMXBeanImpl mxBean : _mxBeans.values()) {
+            ExecutorService threadPool = mxBean.getThreadPool();
+            if (threadPool instanceof VirtualThreadExecutor) {
+                statMap.put(mxBean.getName(), ThreadUtil.statThreadState(((VirtualThreadExecutor) threadPool).getThreads()));
+            }
+        }
+
+        _writer.header("threadpool4j_thread_group_threads", "gauge", "Number of threads in each state of each thread group.");
+        for (Entry<String, ThreadStateInfo> entry : statMap.entrySet()) {
+            ThreadStateInfo stateInfo = entry.getValue();
+            for (int state = 0; state < THREAD_STATES.length; state++) {
+                _writer.write("threadpool4j_thread_group_threads{group=\"").writeLabelValue(entry.getKey())
+                    .write("\",state=\"").write(THREAD_STATES[state]).write("\"} ")
+                    .write(threadStateCount(stateInfo, state)).write('\n');
+            }
+        }
+    }
+
+    private int threadStateCount(ThreadStateInfo stateInfo, int state) {
+        switch (state) {
+            case 0: return stateInfo.getNewCount();
+            case 1: return stateInfo.getRunnableCount();
+            case 2: return stateInfo.getBlockedCount();
+            case 3: return stateInfo.getWaitingCount();
+            case 4: return stateInfo.getTimedWaitingCount();
+            case 5: return stateInfo.getTerminatedCount();
+            default: return 0;
+        }
+    }
+
+}
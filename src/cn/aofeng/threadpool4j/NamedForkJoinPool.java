@@ -0,0 +1,226 @@
+package cn.aofeng.threadpool4j;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 带名称的工作窃取线程池，在{@link ForkJoinPool}的基础上统计执行失败（抛出异常）的任务数，以及任务在队列中的等待时间和执行时间的分布。
+ * <p>
+ * 工作线程以"线程池名称-序号"命名。通过{@link #execute(Runnable)}提交的任务抛出的异常会输出错误日志并计数。
+ * <p>
+ * {@link ForkJoinPool}没有执行任务前后的回调，通过{@link #execute(Runnable)}和submit提交的{@link Runnable}、{@link Callable}
+ * 由{@link TimedRunnable}、{@link TimedCallable}包装，记录提交时间、开始执行的时间和执行时间（ForkJoinPool本身也会为这些任务创建包装）。
+ * 直接提交的{@link ForkJoinTask}及其fork的子任务不统计。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class NamedForkJoinPool extends ForkJoinPool implements TimedExecutor {
+
+    private final String _name;
+
+    private final FailedTaskCounter _failedTaskCounter;
+
+    /** 任务在队列中的等待时间 */
+    private final LatencyHistogram _queueWaitHistogram = new LatencyHistogram();
+
+    /** 任务的执行时间 */
+    private final LatencyHistogram _executionHistogram = new LatencyHistogram();
+
+    /**
+     * @param name 线程池名称
+     * @param parallelism 并行度（工作线程数）
+     */
+    public NamedForkJoinPool(String name, int parallelism) {
+        this(name, parallelism, new FailedTaskCounter(name));
+    }
+
+    private NamedForkJoinPool(String name, int parallelism, FailedTaskCounter failedTaskCounter) {
+        super(parallelism, new NamedWorkerThreadFactory(name), failedTaskCounter, false);
+        this._name = name;
+        this._failedTaskCounter = failedTaskCounter;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (null == task) {
+            throw new NullPointerException();
+        }
+
+        super.execute(new TimedRunnable(task));
+    }
+
+    @Override
+    public ForkJoinTask<?> submit(Runnable task) {
+        if (null == task) {
+            throw new NullPointerException();
+        }
+
+        return super.submit(new TimedRunnable(task));
+    }
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Runnable task, T result) {
+        if (null == task) {
+            throw new NullPointerException();
+        }
+
+        return super.submit(new TimedRunnable(task), result);
+    }
+
+    @Override
+    public <T> ForkJoinTask<T> submit(Callable<T> task) {
+        if (null == task) {
+            throw new NullPointerException();
+        }
+
+        return super.submit(new TimedCallable<T>(task));
+    }
+
+    /**
+     * @return 线程池名称
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return 执行失败（抛出异常）的任务数
+     */
+    public long getFailedTaskCount() {
+        return _failedTaskCounter._count.get();
+    }
+
+    @Override
+    public LatencyHistogram getQueueWaitHistogram() {
+        return _queueWaitHistogram;
+    }
+
+    @Override
+    public LatencyHistogram getExecutionHistogram() {
+        return _executionHistogram;
+    }
+
+    /**
+     * 记录从提交到开始执行的等待时间，返回开始执行的时间。
+     */
+    private long recordQueueWait(long enqueueNanos) {
+        long now = System.nanoTime();
+        _queueWaitHistogram.record(now - enqueueNanos);
+
+        return now;
+    }
+
+    /**
+     * 记录提交时间和执行时间的{@link Runnable}。
+     */
+    private class TimedRunnable implements Runnable {
+
+        private final Runnable _task;
+
+        private final long _enqueueNanos = System.nanoTime();
+
+        public TimedRunnable(Runnable task) {
+            this._task = task;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = recordQueueWait(_enqueueNanos);
+            try {
+                _task.run();
+            } finally {
+                _executionHistogram.record(System.nanoTime() - startNanos);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return _task.toString();
+        }
+
+    }
+
+    /**
+     * 记录提交时间和执行时间的{@link Callable}。
+     */
+    private class TimedCallable<T> implements Callable<T> {
+
+        private final Callable<T> _task;
+
+        private final long _enqueueNanos = System.nanoTime();
+
+        public TimedCallable(Callable<T> task) {
+            this._task = task;
+        }
+
+        @Override
+        public T call() throws Exception {
+            long startNanos = recordQueueWait(_enqueueNanos);
+            try {
+                return _task.call();
+            } finally {
+                _executionHistogram.record(System.nanoTime() - startNanos);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return _task.toString();
+        }
+
+    }
+
+    /**
+     * 以"线程池名称-序号"命名工作线程。
+     */
+    private static class NamedWorkerThreadFactory implements ForkJoinWorkerThreadFactory {
+
+        private final String _name;
+
+        private final AtomicLong _count = new AtomicLong(1);
+
+        public NamedWorkerThreadFactory(String name) {
+            this._name = name;
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(_name + "-" + _count.getAndIncrement());
+
+            return thread;
+        }
+
+    }
+
+    /**
+     * 记录工作线程中未被捕获的任务异常。
+     */
+    private static class FailedTaskCounter implements UncaughtExceptionHandler {
+
+        private static Logger _logger = LoggerFactory.getLogger(NamedForkJoinPool.class);
+
+        private final String _name;
+
+        private final AtomicLong _count = new AtomicLong();
+
+        public FailedTaskCounter(String name) {
+            this._name = name;
+        }
+
+        @Override
+        public void uncaughtException(Thread t, Throwable e) {
+            _count.incrementAndGet();
+            _logger.error(String.format("execute task in thread pool %s occurs error", _name), e);
+        }
+
+    }
+
+}
@@ -0,0 +1,178 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 带名称的线程池，在{@link ThreadPoolExecutor}的基础上统计执行失败（抛出异常）和被拒绝的任务数，以及任务在队列中的等待时间和执行时间的分布。
+ * <p>
+ * 通过{@link #execute(Runnable)}提交的任务没有{@link Future}承载异常，任务抛出的异常由{@link #afterExecute(Runnable, Throwable)}
+ * 记录错误日志并计数；通过submit提交的任务，异常由{@link Future#get()}返回给调用方，这里只计数。
+ * <p>
+ * 等待时间和执行时间记录在{@link LatencyHistogram}中。入队时间记录在任务自身（见{@link TimedTask}）：
+ * 带{@link Future}的任务为{@link TimedFutureTask}，通过{@link ThreadPool}或{@link PoolHandle}的execute提交的任务由{@link LimitedTask}包装，
+ * 按键提交的任务记录车道的入队时间。直接调用{@link #execute(Runnable)}提交的其他{@link Runnable}没有地方存放入队时间，只统计执行时间。
+ * <p>
+ * 每个工作线程正在执行的任务和开始时间记录在该线程的{@link WorkerSlot}中，供{@link TaskWatchdog}检查执行时间过长的任务。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class NamedThreadPoolExecutor extends ThreadPoolExecutor implements TimedExecutor {
+
+    private static Logger _logger = LoggerFactory.getLogger(NamedThreadPoolExecutor.class);
+
+    private final String _name;
+
+    /** 执行失败（抛出异常）的任务数 */
+    private final AtomicLong _failedTaskCount = new AtomicLong();
+
+    /** 被拒绝的任务数 */
+    private final AtomicLong _rejectedTaskCount = new AtomicLong();
+
+    /** 任务在队列中的等待时间 */
+    private final LatencyHistogram _queueWaitHistogram = new LatencyHistogram();
+
+    /** 任务的执行时间 */
+    private final LatencyHistogram _executionHistogram = new LatencyHistogram();
+
+    /** 所有工作线程的槽位，已结束线程的槽位在新线程分配槽位时删除 */
+    private final Collection<WorkerSlot> _workerSlots = new ConcurrentLinkedQueue<WorkerSlot>();
+
+    /** 当前工作线程的槽位，记录正在执行的任务和开始时间 */
+    private final ThreadLocal<WorkerSlot> _workerSlot = new ThreadLocal<WorkerSlot>() {
+        @Override
+        protected WorkerSlot initialValue() {
+            Iterator<WorkerSlot> iterator = _workerSlots.iterator();
+            while (iterator.hasNext()) {
+                if (! iterator.next().getThread().isAlive()) {
+                    iterator.remove();
+                }
+            }
+            WorkerSlot slot = new WorkerSlot(Thread.currentThread());
+            _workerSlots.add(slot);
+            return slot;
+        }
+    };
+
+    public NamedThreadPoolExecutor(String name, int corePoolSize, int maximumPoolSize,
+            long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue,
+            ThreadFactory threadFactory) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory);
+        this._name = name;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new TimedFutureTask<T>(runnable, value);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new TimedFutureTask<T>(callable);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof TimedTask) {
+            ((TimedTask) command).setEnqueueNanos(System.nanoTime());
+        }
+
+        try {
+            super.execute(command);
+        } catch (RejectedExecutionException e) {
+            _rejectedTaskCount.incrementAndGet();
+            throw e;
+        }
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+
+        long now = System.nanoTime();
+        if (r instanceof TimedTask) {
+            _queueWaitHistogram.record(now - ((TimedTask) r).getEnqueueNanos());
+        }
+        _workerSlot.get().start(r, now);
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        WorkerSlot slot = _workerSlot.get();
+        _executionHistogram.record(System.nanoTime() - slot.getStartNanos());
+        slot.finish();
+        super.afterExecute(r, t);
+
+        if (null != t) {
+            _failedTaskCount.incrementAndGet();
+            _logger.error(String.format("execute task %s in thread pool %s occurs error", r, _name), t);
+        } else if (r instanceof Future<?>) {
+            Future<?> future = (Future<?>) r;
+            if (future.isDone() && ! future.isCancelled()) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    _failedTaskCount.incrementAndGet();
+                } catch (CancellationException e) {
+                    // nothing
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 线程池名称
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return 执行失败（抛出异常）的任务数
+     */
+    public long getFailedTaskCount() {
+        return _failedTaskCount.get();
+    }
+
+    /**
+     * @return 被拒绝（队列满或线程池已关闭）的任务数
+     */
+    public long getRejectedTaskCount() {
+        return _rejectedTaskCount.get();
+    }
+
+    @Override
+    public LatencyHistogram getQueueWaitHistogram() {
+        return _queueWaitHistogram;
+    }
+
+    @Override
+    public LatencyHistogram getExecutionHistogram() {
+        return _executionHistogram;
+    }
+
+    /**
+     * @return 工作线程的槽位（可能包含已结束的线程）
+     */
+    Collection<WorkerSlot> getWorkerSlots() {
+        return _workerSlots;
+    }
+
+}
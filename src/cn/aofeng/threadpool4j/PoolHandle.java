@@ -0,0 +1,143 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 预先解析好的线程池句柄。
+ * <p>
+ * 通过{@link ThreadPool#handle(String)}获取，获取时已完成线程池名称的校验和查找，
+ * 之后每次提交任务都直接交给对应的线程池，省去按名称查找线程池的开销。
+ * 线程池配置了自适应并发限制器（limiter）时，与{@link ThreadPool}的提交方法一样先获取许可，达到上限时拒绝任务；
+ * 句柄持有线程池的限制器引用，重新加载配置替换限制器后仍然有效。适合提交频率很高的场景：
+ * <pre>
+ * PoolHandle handle = threadPool.handle("default");   // 在初始化阶段获取一次
+ * handle.submit(task);   // 在调用频繁的代码中反复使用
+ * </pre>
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public final class PoolHandle {
+
+    private final String _name;
+
+    private final ExecutorService _threadPool;
+
+    /** 线程池的自适应并发限制器，重新加载配置时替换其中的值，值为null表示没有配置 */
+    private final AtomicReference<ConcurrencyLimiter> _limiterRef;
+
+    PoolHandle(String name, ExecutorService threadPool, AtomicReference<ConcurrencyLimiter> limiterRef) {
+        this._name = name;
+        this._threadPool = threadPool;
+        this._limiterRef = limiterRef;
+    }
+
+    /**
+     * @return 线程池名称
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * 提交一个不需要返回值的异步任务给句柄对应的线程池执行。
+     *
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @return 异步任务执行的结果
+     * @throws IllegalArgumentException 指定的任务（<code>task</code>）为null
+     * @throws RejectedExecutionException 当队列满或达到并发限制器的上限，异步任务无法提交给线程池执行时抛出此异常
+     */
+    public Future<?> submit(Runnable task) {
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(task);
+        if (null == limiter) {
+            return _threadPool.submit(task);
+        }
+
+        return executeFutureTask(new LimitedFutureTask<Object>(task, null, Prioritized.NORM_PRIORITY, limiter), limiter);
+    }
+
+    /**
+     * 提交一个需要返回值的异步任务给句柄对应的线程池执行。
+     *
+     * @param task 实现了{@link Callable}接口的异步任务
+     * @return 异步任务执行的结果
+     * @throws IllegalArgumentException 指定的任务（<code>task</code>）为null
+     * @throws RejectedExecutionException 当队列满或达到并发限制器的上限，异步任务无法提交给线程池执行时抛出此异常
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(task);
+        if (null == limiter) {
+            return _threadPool.submit(task);
+        }
+
+        return executeFutureTask(new LimitedFutureTask<T>(task, Prioritized.NORM_PRIORITY, limiter), limiter);
+    }
+
+    /**
+     * 提交一个不需要返回值的异步任务给句柄对应的线程池执行，不创建{@link Future}。
+     *
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @throws IllegalArgumentException 指定的任务（<code>task</code>）为null
+     * @throws RejectedExecutionException 当队列满或达到并发限制器的上限，异步任务无法提交给线程池执行时抛出此异常
+     */
+    public void execute(Runnable task) {
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(task);
+        if (null == limiter && ! (_threadPool instanceof NamedThreadPoolExecutor)) {
+            _threadPool.execute(task);   // forkjoin和virtual类型的线程池自己记录入队时间
+            return;
+        }
+
+        try {
+            _threadPool.execute(new LimitedTask(task, limiter));   // 入队时间记录在包装中
+        } catch (RejectedExecutionException e) {
+            if (null != limiter) {
+                limiter.release();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 线程池配置了自适应并发限制器时获取一个许可。
+     *
+     * @return 线程池的并发限制器，没有配置返回null
+     * @throws IllegalArgumentException 指定的任务为null
+     * @throws RejectedExecutionException 同时在线程池中的任务数已达到上限
+     */
+    private ConcurrencyLimiter acquireConcurrencyLimit(Object task) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+
+        ConcurrencyLimiter limiter = _limiterRef.get();
+        if (null != limiter) {
+            limiter.acquire();
+        }
+
+        return limiter;
+    }
+
+    /**
+     * 把任务交给线程池执行，线程池拒绝时归还并发限制器的许可。
+     */
+    private <T> Future<T> executeFutureTask(FutureTask<T> futureTask, ConcurrencyLimiter limiter) {
+        try {
+            _threadPool.execute(futureTask);
+        } catch (RejectedExecutionException e) {
+            limiter.release();
+            throw e;
+        }
+
+        return futureTask;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolHandle [name=" + _name + "]";
+    }
+
+}
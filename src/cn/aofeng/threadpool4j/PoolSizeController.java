@@ -0,0 +1,196 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 按任务在队列中的等待时间自动调整线程池的核心线程数（配置见pool节点的autosize子节点）。
+ * <p>
+ * 每次采样（{@link #adjust()}）读取线程池的提交任务数、完成任务数、队列长度和活动线程数，按Little定律估算：
+ * <ul>
+ *     <li>任务在队列中的平均等待时间 W = 平均队列长度 / 吞吐量；</li>
+ *     <li>单个任务的平均执行时间 S = 活动线程数 / 吞吐量；</li>
+ *     <li>需要的线程数 N = 到达率 × S，队列中超出目标等待时间的积压任务需要在一个采样间隔内消化完，再加上积压任务数 × S / 采样间隔。</li>
+ * </ul>
+ * 等待时间超过目标值时立即调大核心线程数（每次最多翻倍）；等待时间低于目标值的一半，且连续{@link #SHRINK_SAMPLES}次采样都如此，
+ * 才逐步调小核心线程数（每次最多减少1/4）；介于两者之间时不调整。增加线程的条件和减少线程的条件之间留有间隔，避免线程数来回振荡。
+ * <p>
+ * 核心线程数只在配置的corePoolSize（下限）和maxPoolSize（上限）之间调整，且不超过线程池当前的最大线程数（可能已通过JMX调小）。{@link ThreadPoolExecutor}只有在队列满时才会创建超过核心线程数的线程，
+ * 队列容量很大时maxPoolSize形同虚设，由本类调整核心线程数后，maxPoolSize才真正起作用。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class PoolSizeController {
+
+    private static Logger _logger = LoggerFactory.getLogger(PoolSizeController.class);
+
+    /** 等待时间低于目标值的这个比例时才考虑减少线程 */
+    final static double LOW_WATERMARK = 0.5;
+
+    /** 连续多少次采样的等待时间都低于{@link #LOW_WATERMARK}才减少线程 */
+    final static int SHRINK_SAMPLES = 3;
+
+    /** 减少线程时在需要的线程数基础上保留的余量 */
+    final static double HEADROOM = 0.2;
+
+    private final String _name;
+
+    private final ThreadPoolExecutor _threadPool;
+
+    /** 目标等待时间（单位：毫秒） */
+    private final long _targetWait;
+
+    private final int _minSize;
+
+    private final int _maxSize;
+
+    private long _lastNanos;
+
+    private long _lastTaskCount;
+
+    private long _lastCompletedCount;
+
+    private int _lastQueueSize;
+
+    /** 连续低于{@link #LOW_WATERMARK}的采样次数 */
+    private int _lowSamples;
+
+    /** 最近一次采样估算的平均等待时间（单位：毫秒） */
+    private volatile double _lastWait;
+
+    private volatile boolean _stopped = false;
+
+    /**
+     * @param name 线程池名称
+     * @param threadPool 线程池
+     * @param targetWait 目标等待时间（单位：毫秒）
+     * @param minSize 核心线程数的下限
+     * @param maxSize 核心线程数的上限
+     * @throws IllegalArgumentException 目标等待时间小于1或下限大于上限
+     */
+    public PoolSizeController(String name, ThreadPoolExecutor threadPool, long targetWait, int minSize, int maxSize) {
+        if (targetWait < 1) {
+            throw new IllegalArgumentException( String.format("target wait %d less than 1 of thread pool %s", targetWait, name) );
+        }
+        if (minSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException( String.format("invalid core size range [%d, %d] of thread pool %s", minSize, maxSize, name) );
+        }
+
+        this._name = name;
+        this._threadPool = threadPool;
+        this._targetWait = targetWait;
+        this._minSize = minSize;
+        this._maxSize = maxSize;
+    }
+
+    /**
+     * 采样一次，需要时调整核心线程数。第一次调用只记录采样值。
+     */
+    public void adjust() {
+        adjust(System.nanoTime());
+    }
+
+    void adjust(long nowNanos) {
+        synchronized (_threadPool) {   // 与配置文件热加载调整线程池互斥
+            if (_stopped) {
+                return;
+            }
+
+            long taskCount = _threadPool.getTaskCount();
+            long completedCount = _threadPool.getCompletedTaskCount();
+            int queueSize = _threadPool.getQueue().size();
+            int activeCount = _threadPool.getActiveCount();
+            long elapsedNanos = nowNanos - _lastNanos;
+            boolean first = (0 == _lastNanos);
+            double arrivalRate = (taskCount - _lastTaskCount) * 1e9 / elapsedNanos;
+            double throughput = (completedCount - _lastCompletedCount) * 1e9 / elapsedNanos;
+            double avgQueueSize = (queueSize + _lastQueueSize) / 2.0;
+            _lastNanos = nowNanos;
+            _lastTaskCount = taskCount;
+            _lastCompletedCount = completedCount;
+            _lastQueueSize = queueSize;
+            if (first || elapsedNanos <= 0) {
+                return;
+            }
+
+            // Little定律：W = L / λ，没有任务完成而队列中有任务时视为等待时间无穷大
+            double wait;
+            if (throughput > 0) {
+                wait = avgQueueSize / throughput * 1000;
+            } else {
+                wait = (avgQueueSize > 0) ? Double.POSITIVE_INFINITY : 0;
+            }
+            _lastWait = wait;
+
+            int current = _threadPool.getCorePoolSize();
+            int target = computeCoreSize(current, wait, arrivalRate, throughput, queueSize, activeCount, elapsedNanos / 1e9);
+            // 通过JMX调整后线程池的最大线程数可能小于配置的上限，核心线程数超过最大线程数时setCorePoolSize会抛出IllegalArgumentException
+            int upper = Math.min(_maxSize, _threadPool.getMaximumPoolSize());
+            target = Math.min(upper, Math.max(_minSize, target));
+            if (target != current) {
+                _threadPool.setCorePoolSize(target);
+                _logger.info("autosize thread pool {}: core size {} -> {}, wait:{}ms, target wait:{}ms, arrival rate:{}/s, throughput:{}/s",
+                        _name, current, target, format(wait), _targetWait, format(arrivalRate), format(throughput));
+            }
+        }
+    }
+
+    private int computeCoreSize(int current, double wait, double arrivalRate, double throughput,
+            int queueSize, int activeCount, double seconds) {
+        if (wait > _targetWait) {
+            _lowSamples = 0;
+            if (throughput <= 0) {
+                return current * 2;   // 所有线程都阻塞在执行时间很长的任务上
+            }
+
+            double serviceTime = activeCount / throughput;
+            double rate = Math.max(arrivalRate, throughput);
+            double backlog = Math.max(0, queueSize - rate * _targetWait / 1000);
+            int needed = (int) Math.ceil(rate * serviceTime + backlog * serviceTime / seconds);
+            return Math.max(current + 1, Math.min(needed, current * 2));
+        }
+
+        if (wait < _targetWait * LOW_WATERMARK) {
+            if (++_lowSamples < SHRINK_SAMPLES) {
+                return current;
+            }
+
+            _lowSamples = 0;
+            int needed = (throughput > 0) ? (int) Math.ceil(arrivalRate * (activeCount / throughput) * (1 + HEADROOM)) : 0;
+            return Math.min(current, Math.max(needed, current - Math.max(1, current / 4)));
+        }
+
+        _lowSamples = 0;
+        return current;
+    }
+
+    private static String format(double value) {
+        return Double.isInfinite(value) ? "infinity" : String.format("%.1f", value);
+    }
+
+    /**
+     * 停止调整（线程池配置热加载或线程池关闭时调用）。
+     */
+    public void stop() {
+        synchronized (_threadPool) {
+            _stopped = true;
+        }
+    }
+
+    /**
+     * @return 线程池名称
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return 最近一次采样估算的任务在队列中的平均等待时间（单位：毫秒）
+     */
+    public double getLastWait() {
+        return _lastWait;
+    }
+
+}
@@ -0,0 +1,26 @@
+package cn.aofeng.threadpool4j;
+
+/**
+ * 带优先级的任务。优先级的取值范围与{@link Thread}的优先级一致：1（最低）~ 10（最高）。
+ * <p>
+ * 线程池的队列类型为{@link WorkQueueType#PRIORITY}时，优先级高的任务先出队；其他类型的队列忽略优先级。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public interface Prioritized {
+
+    /** 最低优先级 */
+    public final static int MIN_PRIORITY = 1;
+
+    /** 默认优先级（没有实现本接口的任务也按此优先级排队） */
+    public final static int NORM_PRIORITY = 5;
+
+    /** 最高优先级 */
+    public final static int MAX_PRIORITY = 10;
+
+    /**
+     * @return 任务的优先级
+     */
+    public int getPriority();
+
+}
@@ -0,0 +1,348 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按优先级分桶的有界阻塞队列。
+ * <p>
+ * 每个优先级（{@link Prioritized#MIN_PRIORITY} ~ {@link Prioritized#MAX_PRIORITY}）一个无锁的FIFO队列（桶），
+ * 入队放入元素优先级对应的桶，出队从优先级最高的非空桶开始取，同一优先级的元素保持先进先出。
+ * 没有实现{@link Prioritized}接口的元素按{@link Prioritized#NORM_PRIORITY}排队，超出范围的优先级按最近的边界值处理。
+ * <p>
+ * 与{@link java.util.concurrent.PriorityBlockingQueue}的堆相比，入队和出队不需要竞争同一把锁，也不需要比较元素；
+ * 容量通过原子计数控制。阻塞操作只在队列空或满时才进入锁等待（与{@link RingBufferBlockingQueue}的做法相同）。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class PriorityBucketBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>, ResizableQueue {
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicIntegerFieldUpdater<PriorityBucketBlockingQueue> WAITING_CONSUMERS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(PriorityBucketBlockingQueue.class, "_waitingConsumers");
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicIntegerFieldUpdater<PriorityBucketBlockingQueue> WAITING_PRODUCERS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(PriorityBucketBlockingQueue.class, "_waitingProducers");
+
+    private volatile int _capacity;
+
+    /** 下标为优先级，0不使用 */
+    private final ConcurrentLinkedQueue<E>[] _buckets;
+
+    private final AtomicInteger _count = new AtomicInteger();
+
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    private final Condition _notEmpty = _lock.newCondition();
+
+    private final Condition _notFull = _lock.newCondition();
+
+    /** 正在等待队列非空的消费者数 */
+    private volatile int _waitingConsumers;
+
+    /** 正在等待队列非满的生产者数 */
+    private volatile int _waitingProducers;
+
+    /**
+     * @param capacity 队列容量
+     * @throws IllegalArgumentException 容量小于1
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PriorityBucketBlockingQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException( String.format("capacity %d less than 1", capacity) );
+        }
+
+        _capacity = capacity;
+        _buckets = new ConcurrentLinkedQueue[Prioritized.MAX_PRIORITY + 1];
+        for (int i = Prioritized.MIN_PRIORITY; i <= Prioritized.MAX_PRIORITY; i++) {
+            _buckets[i] = new ConcurrentLinkedQueue<E>();
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * 调整队列容量。容量调小时已在队列中的元素不会丢弃；容量调大时唤醒等待入队的生产者。
+     *
+     * @param capacity 新的队列容量
+     * @throws IllegalArgumentException 容量小于1
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException( String.format("capacity %d less than 1", capacity) );
+        }
+
+        _capacity = capacity;
+        _lock.lock();
+        try {
+            _notFull.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    private static int priorityOf(Object e) {
+        if (! (e instanceof Prioritized)) {
+            return Prioritized.NORM_PRIORITY;
+        }
+
+        int priority = ((Prioritized) e).getPriority();
+        return Math.max(Prioritized.MIN_PRIORITY, Math.min(Prioritized.MAX_PRIORITY, priority));
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+
+        if (! tryOffer(e)) {
+            return false;
+        }
+        if (_waitingConsumers > 0) {
+            signal(_notEmpty);
+        }
+
+        return true;
+    }
+
+    private boolean tryOffer(E e) {
+        while (true) {
+            int count = _count.get();
+            if (count >= _capacity) {
+                return false;   // 队列满
+            }
+            if (_count.compareAndSet(count, count + 1)) {
+                break;
+            }
+        }
+        _buckets[priorityOf(e)].offer(e);
+
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        E e = tryPoll();
+        if (null != e && _waitingProducers > 0) {
+            signal(_notFull);
+        }
+
+        return e;
+    }
+
+    private E tryPoll() {
+        for (int i = Prioritized.MAX_PRIORITY; i >= Prioritized.MIN_PRIORITY; i--) {
+            E e = _buckets[i].poll();
+            if (null != e) {
+                _count.decrementAndGet();
+                return e;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public E peek() {
+        for (int i = Prioritized.MAX_PRIORITY; i >= Prioritized.MIN_PRIORITY; i--) {
+            E e = _buckets[i].peek();
+            if (null != e) {
+                return e;
+            }
+        }
+
+        return null;
+    }
+
+    private void signal(Condition condition) {
+        _lock.lock();
+        try {
+            condition.signal();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (offer(e)) {
+            return;
+        }
+
+        _lock.lockInterruptibly();
+        WAITING_PRODUCERS_UPDATER.incrementAndGet(this);
+        try {
+            while (! tryOffer(e)) {
+                _notFull.await();
+            }
+        } finally {
+            WAITING_PRODUCERS_UPDATER.decrementAndGet(this);
+            _lock.unlock();
+        }
+        if (_waitingConsumers > 0) {
+            signal(_notEmpty);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(e)) {
+            return true;
+        }
+
+        long nanos = unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        WAITING_PRODUCERS_UPDATER.incrementAndGet(this);
+        try {
+            while (! tryOffer(e)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = _notFull.awaitNanos(nanos);
+            }
+        } finally {
+            WAITING_PRODUCERS_UPDATER.decrementAndGet(this);
+            _lock.unlock();
+        }
+        if (_waitingConsumers > 0) {
+            signal(_notEmpty);
+        }
+
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = poll();
+        if (null != e) {
+            return e;
+        }
+
+        _lock.lockInterruptibly();
+        WAITING_CONSUMERS_UPDATER.incrementAndGet(this);
+        try {
+            while (null == (e = tryPoll())) {
+                _notEmpty.await();
+            }
+        } finally {
+            WAITING_CONSUMERS_UPDATER.decrementAndGet(this);
+            _lock.unlock();
+        }
+        if (_waitingProducers > 0) {
+            signal(_notFull);
+        }
+
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (null != e) {
+            return e;
+        }
+
+        long nanos = unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        WAITING_CONSUMERS_UPDATER.incrementAndGet(this);
+        try {
+            while (null == (e = tryPoll())) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = _notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            WAITING_CONSUMERS_UPDATER.decrementAndGet(this);
+            _lock.unlock();
+        }
+        if (_waitingProducers > 0) {
+            signal(_notFull);
+        }
+
+        return e;
+    }
+
+    @Override
+    public int size() {
+        return _count.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, _capacity - _count.get());
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (null == o) {
+            return false;
+        }
+
+        if (_buckets[priorityOf(o)].remove(o)) {
+            _count.decrementAndGet();
+            if (_waitingProducers > 0) {
+                signal(_notFull);
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (null == c) {
+            throw new NullPointerException();
+        }
+        if (this == c) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = 0;
+        E e;
+        while (count < maxElements && null != (e = poll())) {
+            c.add(e);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return 队列中元素的快照迭代器（按出队顺序），不支持remove
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<E>(size());
+        for (int i = Prioritized.MAX_PRIORITY; i >= Prioritized.MIN_PRIORITY; i--) {
+            snapshot.addAll(_buckets[i]);
+        }
+
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+}
@@ -0,0 +1,31 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 带优先级的{@link FutureTask}，由{@link ThreadPool#submit(Runnable, int, String)}创建后直接交给线程池执行，
+ * 队列类型为{@link WorkQueueType#PRIORITY}的线程池按优先级出队。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+class PriorityFutureTask<V> extends TimedFutureTask<V> implements Prioritized {
+
+    private final int _priority;
+
+    public PriorityFutureTask(Callable<V> callable, int priority) {
+        super(callable);
+        this._priority = priority;
+    }
+
+    public PriorityFutureTask(Runnable runnable, V result, int priority) {
+        super(runnable, result);
+        this._priority = priority;
+    }
+
+    @Override
+    public int getPriority() {
+        return _priority;
+    }
+
+}
@@ -0,0 +1,165 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.Arrays;
+
+/**
+ * 按Prometheus文本格式（version 0.0.4）输出指标，内容以UTF-8编码写入可重复使用的字节缓冲区。
+ * <p>
+ * 字符串逐个字符编码，整数逐位写入，输出过程不创建中间对象；缓冲区只在容量不足时扩大，
+ * {@link #reset()}后下一次输出继续使用。非线程安全。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+class PrometheusTextWriter {
+
+    private byte[] _buffer;
+
+    private int _size;
+
+    /** 输出整数时暂存各位数字 */
+    private final byte[] _digits = new byte[20];
+
+    public PrometheusTextWriter(int initialCapacity) {
+        this._buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * 清空已输出的内容，保留缓冲区。
+     */
+    public void reset() {
+        _size = 0;
+    }
+
+    /**
+     * @return 缓冲区，有效内容为[0, {@link #size()})
+     */
+    public byte[] buffer() {
+        return _buffer;
+    }
+
+    /**
+     * @return 已输出的字节数
+     */
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * 输出指标的HELP和TYPE行。
+     *
+     * @param name 指标名称
+     * @param type 指标类型：gauge、counter或histogram
+     * @param help 指标说明
+     */
+    public PrometheusTextWriter header(String name, String type, String help) {
+        return write("# HELP ").write(name).write(' ').write(help).write('\n')
+                .write("# TYPE ").write(name).write(' ').write(type).write('\n');
+    }
+
+    /**
+     * 输出标签值，转义反斜杠、双引号和换行符。
+     */
+    public PrometheusTextWriter writeLabelValue(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ('\\' == c || '"' == c) {
+                write('\\').write(c);
+            } else if ('\n' == c) {
+                write('\\').write('n');
+            } else {
+                writeChar(value, i);
+                if (Character.isHighSurrogate(c)) {
+                    i++;
+                }
+            }
+        }
+
+        return this;
+    }
+
+    public PrometheusTextWriter write(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            writeChar(value, i);
+            if (Character.isHighSurrogate(value.charAt(i))) {
+                i++;
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * 输出一个ASCII字符。
+     */
+    public PrometheusTextWriter write(char c) {
+        ensureCapacity(1);
+        _buffer[_size++] = (byte) c;
+
+        return this;
+    }
+
+    public PrometheusTextWriter write(long value) {
+        if (Long.MIN_VALUE == value) {
+            return write("-9223372036854775808");
+        }
+        if (value < 0) {
+            write('-');
+            value = -value;
+        }
+
+        int count = 0;
+        do {
+            _digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        ensureCapacity(count);
+        while (count > 0) {
+            _buffer[_size++] = _digits[--count];
+        }
+
+        return this;
+    }
+
+    /**
+     * 把纳秒输出为秒，保留9位小数，如：1500000纳秒输出为0.001500000。
+     */
+    public PrometheusTextWriter writeNanosAsSeconds(long nanos) {
+        write(nanos / 1000000000L).write('.');
+        long fraction = nanos % 1000000000L;
+        for (long unit = 100000000L; unit > 0; unit /= 10) {
+            write((char) ('0' + fraction / unit % 10));
+        }
+
+        return this;
+    }
+
+    /**
+     * 按UTF-8编码输出字符串中指定位置的字符（代理对按一个码点输出）。
+     */
+    private void writeChar(String value, int index) {
+        int codePoint = value.codePointAt(index);
+        ensureCapacity(4);
+        if (codePoint < 0x80) {
+            _buffer[_size++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            _buffer[_size++] = (byte) (0xC0 | (codePoint >> 6));
+            _buffer[_size++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            _buffer[_size++] = (byte) (0xE0 | (codePoint >> 12));
+            _buffer[_size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            _buffer[_size++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            _buffer[_size++] = (byte) (0xF0 | (codePoint >> 18));
+            _buffer[_size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            _buffer[_size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            _buffer[_size++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (_size + length > _buffer.length) {
+            _buffer = Arrays.copyOf(_buffer, Math.max(_buffer.length * 2, _size + length));
+        }
+    }
+
+}
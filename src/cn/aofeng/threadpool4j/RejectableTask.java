@@ -0,0 +1,20 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 包装后交给线程池执行、自身不是{@link java.util.concurrent.Future}的任务（如：{@link ThreadPool#submitAsync(java.util.concurrent.Callable, String)}
+ * 的任务），线程池被强制关闭后没有执行时，通过{@link #reject(RejectedExecutionException)}让等待结果的调用者结束等待，并归还占用的资源。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+interface RejectableTask extends Runnable {
+
+    /**
+     * 任务不会再执行：以异常结束任务的结果，归还任务占用的资源（如：自适应并发限制器的许可）。
+     *
+     * @param e 任务没有执行的原因
+     */
+    void reject(RejectedExecutionException e);
+
+}
@@ -0,0 +1,399 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 容量可以在运行时调整的有界链表阻塞队列。
+ * <p>
+ * 与{@link java.util.concurrent.LinkedBlockingQueue}一样，生产者和消费者各用一把锁（入队锁和出队锁）；
+ * 不同的是容量不是final的，可以通过{@link #setCapacity(int)}调整，用于配置文件热加载时调整线程池队列的大小。
+ * 容量调小到比当前元素数还小时，已在队列中的元素不会丢弃，只是在元素数降到新容量以下之前不能再入队。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ResizableLinkedBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E>, ResizableQueue {
+
+    private volatile int _capacity;
+
+    private final AtomicInteger _count = new AtomicInteger();
+
+    /** 头节点，不存放元素，由出队锁保护 */
+    private Node<E> _head;
+
+    /** 尾节点，由入队锁保护 */
+    private Node<E> _last;
+
+    private final ReentrantLock _takeLock = new ReentrantLock();
+
+    private final Condition _notEmpty = _takeLock.newCondition();
+
+    private final ReentrantLock _putLock = new ReentrantLock();
+
+    private final Condition _notFull = _putLock.newCondition();
+
+    /**
+     * @param capacity 队列容量
+     * @throws IllegalArgumentException 容量小于1
+     */
+    public ResizableLinkedBlockingQueue(int capacity) {
+        checkCapacity(capacity);
+        _capacity = capacity;
+        _last = _head = new Node<E>(null);
+    }
+
+    private static void checkCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException( String.format("capacity %d less than 1", capacity) );
+        }
+    }
+
+    @Override
+    public int getCapacity() {
+        return _capacity;
+    }
+
+    /**
+     * 调整队列容量。容量调大时唤醒等待入队的生产者。
+     *
+     * @param capacity 新的队列容量
+     * @throws IllegalArgumentException 容量小于1
+     */
+    @Override
+    public void setCapacity(int capacity) {
+        checkCapacity(capacity);
+
+        _putLock.lock();
+        try {
+            _capacity = capacity;
+            if (_count.get() < capacity) {
+                _notFull.signalAll();
+            }
+        } finally {
+            _putLock.unlock();
+        }
+    }
+
+    private void enqueue(Node<E> node) {
+        _last = _last._next = node;
+    }
+
+    private E dequeue() {
+        Node<E> h = _head;
+        Node<E> first = h._next;
+        h._next = h;   // 帮助GC
+        _head = first;
+        E e = first._item;
+        first._item = null;
+
+        return e;
+    }
+
+    private void signalNotEmpty() {
+        _takeLock.lock();
+        try {
+            _notEmpty.signal();
+        } finally {
+            _takeLock.unlock();
+        }
+    }
+
+    private void signalNotFull() {
+        _putLock.lock();
+        try {
+            _notFull.signal();
+        } finally {
+            _putLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+        if (_count.get() >= _capacity) {
+            return false;
+        }
+
+        int c = -1;
+        _putLock.lock();
+        try {
+            if (_count.get() < _capacity) {
+                enqueue(new Node<E>(e));
+                c = _count.getAndIncrement();
+                if (c + 1 < _capacity) {
+                    _notFull.signal();
+                }
+            }
+        } finally {
+            _putLock.unlock();
+        }
+        if (0 == c) {
+            signalNotEmpty();
+        }
+
+        return c >= 0;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+
+        int c;
+        _putLock.lockInterruptibly();
+        try {
+            while (_count.get() >= _capacity) {
+                _notFull.await();
+            }
+            enqueue(new Node<E>(e));
+            c = _count.getAndIncrement();
+            if (c + 1 < _capacity) {
+                _notFull.signal();
+            }
+        } finally {
+            _putLock.unlock();
+        }
+        if (0 == c) {
+            signalNotEmpty();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+
+        long nanos = unit.toNanos(timeout);
+        int c;
+        _putLock.lockInterruptibly();
+        try {
+            while (_count.get() >= _capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = _notFull.awaitNanos(nanos);
+            }
+            enqueue(new Node<E>(e));
+            c = _count.getAndIncrement();
+            if (c + 1 < _capacity) {
+                _notFull.signal();
+            }
+        } finally {
+            _putLock.unlock();
+        }
+        if (0 == c) {
+            signalNotEmpty();
+        }
+
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        if (0 == _count.get()) {
+            return null;
+        }
+
+        E e = null;
+        int c = -1;
+        _takeLock.lock();
+        try {
+            if (_count.get() > 0) {
+                e = dequeue();
+                c = _count.getAndDecrement();
+                if (c > 1) {
+                    _notEmpty.signal();
+                }
+            }
+        } finally {
+            _takeLock.unlock();
+        }
+        if (c >= _capacity) {
+            signalNotFull();
+        }
+
+        return e;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e;
+        int c;
+        _takeLock.lockInterruptibly();
+        try {
+            while (0 == _count.get()) {
+                _notEmpty.await();
+            }
+            e = dequeue();
+            c = _count.getAndDecrement();
+            if (c > 1) {
+                _notEmpty.signal();
+            }
+        } finally {
+            _takeLock.unlock();
+        }
+        if (c >= _capacity) {
+            signalNotFull();
+        }
+
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        E e;
+        int c;
+        _takeLock.lockInterruptibly();
+        try {
+            while (0 == _count.get()) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = _notEmpty.awaitNanos(nanos);
+            }
+            e = dequeue();
+            c = _count.getAndDecrement();
+            if (c > 1) {
+                _notEmpty.signal();
+            }
+        } finally {
+            _takeLock.unlock();
+        }
+        if (c >= _capacity) {
+            signalNotFull();
+        }
+
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        if (0 == _count.get()) {
+            return null;
+        }
+
+        _takeLock.lock();
+        try {
+            Node<E> first = _head._next;
+            return (null == first) ? null : first._item;
+        } finally {
+            _takeLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return _count.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, _capacity - _count.get());
+    }
+
+    private void fullyLock() {
+        _putLock.lock();
+        _takeLock.lock();
+    }
+
+    private void fullyUnlock() {
+        _takeLock.unlock();
+        _putLock.unlock();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (null == o) {
+            return false;
+        }
+
+        fullyLock();
+        try {
+            for (Node<E> trail = _head, p = trail._next; null != p; trail = p, p = p._next) {
+                if (o.equals(p._item)) {
+                    p._item = null;
+                    trail._next = p._next;
+                    if (_last == p) {
+                        _last = trail;
+                    }
+                    if (_count.getAndDecrement() >= _capacity) {
+                        _notFull.signal();
+                    }
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            fullyUnlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (null == c) {
+            throw new NullPointerException();
+        }
+        if (this == c) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = 0;
+        E e;
+        while (count < maxElements && null != (e = poll())) {
+            c.add(e);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return 队列中元素的快照迭代器，不支持remove
+     */
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<E>(size());
+        fullyLock();
+        try {
+            for (Node<E> p = _head._next; null != p; p = p._next) {
+                snapshot.add(p._item);
+            }
+        } finally {
+            fullyUnlock();
+        }
+
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    private static class Node<E> {
+
+        E _item;
+
+        Node<E> _next;
+
+        Node(E item) {
+            this._item = item;
+        }
+
+    }
+
+}
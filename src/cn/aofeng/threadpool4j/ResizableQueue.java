@@ -0,0 +1,25 @@
+package cn.aofeng.threadpool4j;
+
+/**
+ * 容量可以在运行时调整的线程池队列。配置文件热加载时，线程池的workQueueSize变化通过本接口应用到正在使用的队列。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ * @see ResizableLinkedBlockingQueue
+ * @see PriorityBucketBlockingQueue
+ */
+public interface ResizableQueue {
+
+    /**
+     * @return 队列容量
+     */
+    public int getCapacity();
+
+    /**
+     * 调整队列容量。容量调小时已在队列中的元素不会丢弃。
+     *
+     * @param capacity 新的队列容量
+     * @throws IllegalArgumentException 容量小于1
+     */
+    public void setCapacity(int capacity);
+
+}
@@ -0,0 +1,465 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于环形数组的有界无锁多生产者多消费者队列（参考Dmitry Vyukov的Bounded MPMC Queue）。
+ * <p>
+ * 数组的每个槽位带一个序号，生产者和消费者各自通过CAS推进写位置（tail）和读位置（head），
+ * 再根据槽位序号判断槽位是否可写、可读，入队和出队都不需要加锁。写位置和读位置之间做了缓存行填充，避免伪共享。
+ * <p>
+ * 阻塞操作（{@link #take()}，{@link #poll(long, TimeUnit)}，{@link #put(Object)}，{@link #offer(Object, long, TimeUnit)}）
+ * 只在队列空或满时才进入锁等待，有线程在等待时，入队和出队成功后会唤醒对方，满足{@link java.util.concurrent.ThreadPoolExecutor}
+ * 工作线程对{@link BlockingQueue}的要求。
+ * <p>
+ * {@link #remove(Object)}通过CAS把元素所在的槽位替换为删除标记，出队时跳过带删除标记的槽位，
+ * 满足{@link java.util.concurrent.ThreadPoolExecutor}在关闭时移除刚入队的任务以及{@code purge()}的要求。
+ * <p>
+ * 注意：
+ * <ul>
+ *     <li>容量会向上取整为2的幂且最小为2（容量为1时槽位的可读序号与下一轮的可写序号相同），如：100000取整为131072；</li>
+ *     <li>被删除的元素在出队跳过之前仍然占用槽位，{@link #remainingCapacity()}不包括这些槽位；</li>
+ *     <li>迭代器是某一时刻的快照，不支持remove。</li>
+ * </ul>
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class RingBufferBlockingQueue<E> extends RingBufferPad2<E> implements BlockingQueue<E> {
+
+    /** 最大容量 */
+    public final static int MAX_CAPACITY = 1 << 30;
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicIntegerFieldUpdater<RingBufferBlockingQueue> WAITING_CONSUMERS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(RingBufferBlockingQueue.class, "_waitingConsumers");
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicIntegerFieldUpdater<RingBufferBlockingQueue> WAITING_PRODUCERS_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(RingBufferBlockingQueue.class, "_waitingProducers");
+
+    @SuppressWarnings("rawtypes")
+    private final static AtomicIntegerFieldUpdater<RingBufferBlockingQueue> REMOVED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(RingBufferBlockingQueue.class, "_removed");
+
+    /** 删除标记：槽位中的元素已被{@link #remove(Object)}删除，出队时跳过 */
+    private final static Object REMOVED = new Object();
+
+    private final int _capacity;
+
+    private final int _mask;
+
+    /** 槽位中的元素：生产者写入，消费者取出时置为null，删除时替换为{@link #REMOVED} */
+    private final AtomicReferenceArray<Object> _buffer;
+
+    /** 槽位序号：等于写位置表示可写，等于写位置+1表示可读 */
+    private final AtomicLongArray _sequences;
+
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    private final Condition _notEmpty = _lock.newCondition();
+
+    private final Condition _notFull = _lock.newCondition();
+
+    /** 正在等待队列非空的消费者数 */
+    private volatile int _waitingConsumers;
+
+    /** 正在等待队列非满的生产者数 */
+    private volatile int _waitingProducers;
+
+    /** 带删除标记还未被出队跳过的槽位数 */
+    private volatile int _removed;
+
+    /**
+     * @param capacity 队列容量，会向上取整为2的幂，最小为2
+     * @throws IllegalArgumentException 容量小于1或大于{@link #MAX_CAPACITY}
+     */
+    public RingBufferBlockingQueue(int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException( String.format("capacity %d out of range [1, %d]", capacity, MAX_CAPACITY) );
+        }
+
+        _capacity = roundUpToPowerOfTwo(capacity);
+        _mask = _capacity - 1;
+        _buffer = new AtomicReferenceArray<Object>(_capacity);
+        _sequences = new AtomicLongArray(_capacity);
+        for (int i = 0; i < _capacity; i++) {
+            _sequences.set(i, i);
+        }
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        return Math.max(2, 1 << (32 - Integer.numberOfLeadingZeros(value - 1)));
+    }
+
+    /**
+     * @return 队列容量（2的幂）
+     */
+    public int capacity() {
+        return _capacity;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (null == e) {
+            throw new NullPointerException();
+        }
+
+        if (! tryOffer(e)) {
+            return false;
+        }
+        if (_waitingConsumers > 0) {
+            signal(_notEmpty);
+        }
+
+        return true;
+    }
+
+    private boolean tryOffer(E e) {
+        long pos = _tail;
+        while (true) {
+            int index = (int) pos & _mask;
+            long diff = _sequences.get(index) - pos;
+            if (0 == diff) {
+                if (TAIL_UPDATER.compareAndSet(this, pos, pos + 1)) {
+                    _buffer.lazySet(index, e);
+                    // 使用volatile写发布元素，保证之后读取等待的消费者数时不会被重排序到发布之前
+                    _sequences.set(index, pos + 1);
+                    return true;
+                }
+                pos = _tail;
+            } else if (diff < 0) {
+                return false;   // 队列满
+            } else {
+                pos = _tail;   // 槽位已被其他生产者占用
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        E e = tryPoll();
+        if (null != e && _waitingProducers > 0) {
+            signal(_notFull);
+        }
+
+        return e;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E tryPoll() {
+        long pos = _head;
+        while (true) {
+            int index = (int) pos & _mask;
+            long diff = _sequences.get(index) - (pos + 1);
+            if (0 == diff) {
+                if (HEAD_UPDATER.compareAndSet(this, pos, pos + 1)) {
+                    // 与remove竞争槽位中的元素，只有一方能拿到
+                    Object e = _buffer.getAndSet(index, null);
+                    _sequences.set(index, pos + _capacity);
+                    if (REMOVED != e) {
+                        return (E) e;
+                    }
+
+                    // 元素已被删除，释放出的槽位可能是等待中的生产者需要的
+                    REMOVED_UPDATER.decrementAndGet(this);
+                    if (_waitingProducers > 0) {
+                        signal(_notFull);
+                    }
+                }
+                pos = _head;
+            } else if (diff < 0) {
+                return null;   // 队列空
+            } else {
+                pos = _head;   // 槽位已被其他消费者取走
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public E peek() {
+        long tail = _tail;
+        for (long pos = _head; pos < tail; pos++) {
+            int index = (int) pos & _mask;
+            // 先读元素再检查槽位序号：序号仍等于位置+1说明读到的元素还在队列中（取出时先置null再推进序号）
+            Object e = _buffer.get(index);
+            if (isLive(e) && _sequences.get(index) == pos + 1) {
+                return (E) e;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return 槽位中的元素既不是null也不是删除标记时返回true
+     */
+    private static boolean isLive(Object e) {
+        return null != e && REMOVED != e;
+    }
+
+    private void signal(Condition condition) {
+        _lock.lock();
+        try {
+            condition.signal();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (offer(e)) {
+            return;
+        }
+
+        _lock.lockInterruptibly();
+        WAITING_PRODUCERS_UPDATER.incrementAndGet(this);
+        try {
+            while (! tryOffer(e)) {
+                _notFull.await();
+            }
+        } finally {
+            WAITING_PRODUCERS_UPDATER.decrementAndGet(this);
+            _lock.unlock();
+        }
+        if (_waitingConsumers > 0) {
+            signal(_notEmpty);
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (offer(e)) {
+            return true;
+        }
+
+        long nanos = unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        WAITING_PRODUCERS_UPDATER.incrementAndGet(this);
+        try {
+            while (! tryOffer(e)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = _notFull.awaitNanos(nanos);
+            }
+        } finally {
+            WAITING_PRODUCERS_UPDATER.decrementAndGet(this);
+            _lock.unlock();
+        }
+        if (_waitingConsumers > 0) {
+            signal(_notEmpty);
+        }
+
+        return true;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        E e = poll();
+        if (null != e) {
+            return e;
+        }
+
+        _lock.lockInterruptibly();
+        WAITING_CONSUMERS_UPDATER.incrementAndGet(this);
+        try {
+            while (null == (e = tryPoll())) {
+                _notEmpty.await();
+            }
+        } finally {
+            WAITING_CONSUMERS_UPDATER.decrementAndGet(this);
+            _lock.unlock();
+        }
+        if (_waitingProducers > 0) {
+            signal(_notFull);
+        }
+
+        return e;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        E e = poll();
+        if (null != e) {
+            return e;
+        }
+
+        long nanos = unit.toNanos(timeout);
+        _lock.lockInterruptibly();
+        WAITING_CONSUMERS_UPDATER.incrementAndGet(this);
+        try {
+            while (null == (e = tryPoll())) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = _notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            WAITING_CONSUMERS_UPDATER.decrementAndGet(this);
+            _lock.unlock();
+        }
+        if (_waitingProducers > 0) {
+            signal(_notFull);
+        }
+
+        return e;
+    }
+
+    /**
+     * @return 已占用的槽位数（包括带删除标记的槽位）
+     */
+    private int occupied() {
+        while (true) {
+            long head = _head;
+            long tail = _tail;
+            if (head == _head) {
+                long size = tail - head;
+                return (int) Math.max(0, Math.min(size, _capacity));
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return Math.max(0, occupied() - _removed);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return 0 == size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return _capacity - occupied();
+    }
+
+    /**
+     * 从读位置开始查找第一个与o相等的元素，把它所在的槽位替换为删除标记。
+     *
+     * @return 找到并删除了元素返回true；否则返回false
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (null == o) {
+            return false;
+        }
+
+        long tail = _tail;
+        for (long pos = _head; pos < tail; pos++) {
+            int index = (int) pos & _mask;
+            Object e = _buffer.get(index);
+            if (isLive(e) && _sequences.get(index) == pos + 1 && o.equals(e)
+                    && _buffer.compareAndSet(index, e, REMOVED)) {
+                REMOVED_UPDATER.incrementAndGet(this);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (null == c) {
+            throw new NullPointerException();
+        }
+        if (this == c) {
+            throw new IllegalArgumentException();
+        }
+
+        int count = 0;
+        E e;
+        while (count < maxElements && null != (e = poll())) {
+            c.add(e);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * @return 队列中元素的快照迭代器，不支持remove
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<E>(size());
+        long tail = _tail;
+        for (long pos = _head; pos < tail; pos++) {
+            int index = (int) pos & _mask;
+            Object e = _buffer.get(index);
+            if (isLive(e) && _sequences.get(index) == pos + 1) {
+                snapshot.add((E) e);
+            }
+        }
+
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+}
+
+/**
+ * 缓存行填充，隔开对象头与写位置。
+ */
+abstract class RingBufferPad0<E> extends AbstractQueue<E> {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+/**
+ * 写位置（生产者竞争）。
+ */
+abstract class RingBufferTail<E> extends RingBufferPad0<E> {
+
+    @SuppressWarnings("rawtypes")
+    protected final static AtomicLongFieldUpdater<RingBufferTail> TAIL_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(RingBufferTail.class, "_tail");
+
+    protected volatile long _tail;
+}
+
+/**
+ * 缓存行填充，隔开写位置与读位置。
+ */
+abstract class RingBufferPad1<E> extends RingBufferTail<E> {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+/**
+ * 读位置（消费者竞争）。
+ */
+abstract class RingBufferHead<E> extends RingBufferPad1<E> {
+
+    @SuppressWarnings("rawtypes")
+    protected final static AtomicLongFieldUpdater<RingBufferHead> HEAD_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(RingBufferHead.class, "_head");
+
+    protected volatile long _head;
+}
+
+/**
+ * 缓存行填充，隔开读位置与其他字段。
+ */
+abstract class RingBufferPad2<E> extends RingBufferHead<E> {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+}
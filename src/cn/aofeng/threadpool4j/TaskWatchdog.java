@@ -0,0 +1,123 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.aofeng.common4j.lang.SystemUtil;
+
+/**
+ * 检查线程池中执行时间过长的任务（配置见pool节点的watchdog子节点）。
+ * <p>
+ * 每次检查（{@link #check()}）遍历线程池所有工作线程的槽位（{@link WorkerSlot}），任务的执行时间超过阈值时，
+ * 输出任务、执行时间和线程当前的堆栈，配置了interrupt时中断执行任务的线程。同一个任务只报告（中断）一次。
+ * <p>
+ * 中断只对响应中断的任务（如：阻塞在IO、锁、sleep上，或检查中断状态）有效。中断前再次确认线程还在执行同一个任务；
+ * 任务恰好在确认之后结束时，中断状态会在线程执行下一个任务之前由{@link java.util.concurrent.ThreadPoolExecutor}清除。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class TaskWatchdog {
+
+    private static Logger _logger = LoggerFactory.getLogger(TaskWatchdog.class);
+
+    private String _lineSeparator = SystemUtil.getEndLine();
+
+    private final String _name;
+
+    private final NamedThreadPoolExecutor _threadPool;
+
+    /** 任务执行时间的阈值（单位：毫秒） */
+    private final long _threshold;
+
+    private final boolean _interrupt;
+
+    /** 执行时间超过阈值的任务数 */
+    private final AtomicLong _stuckTaskCount = new AtomicLong();
+
+    /**
+     * @param name 线程池名称
+     * @param threadPool 线程池
+     * @param threshold 任务执行时间的阈值（单位：毫秒）
+     * @param interrupt 任务执行时间超过阈值时是否中断执行任务的线程
+     * @throws IllegalArgumentException 阈值小于1
+     */
+    public TaskWatchdog(String name, NamedThreadPoolExecutor threadPool, long threshold, boolean interrupt) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException( String.format("threshold %d less than 1 of thread pool %s", threshold, name) );
+        }
+
+        this._name = name;
+        this._threadPool = threadPool;
+        this._threshold = threshold;
+        this._interrupt = interrupt;
+    }
+
+    /**
+     * 检查一次线程池中正在执行的任务。
+     *
+     * @return 本次新发现的执行时间超过阈值的任务数
+     */
+    public synchronized int check() {
+        int count = 0;
+        long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(_threshold);
+        Iterator<WorkerSlot> iterator = _threadPool.getWorkerSlots().iterator();
+        while (iterator.hasNext()) {
+            WorkerSlot slot = iterator.next();
+            Runnable task = slot.getTask();
+            if (null == task) {
+                continue;
+            }
+            long startNanos = slot.getStartNanos();
+            long elapsedNanos = System.nanoTime() - startNanos;
+            if (elapsedNanos < thresholdNanos || startNanos == slot._reportedStartNanos) {
+                continue;
+            }
+
+            slot._reportedStartNanos = startNanos;
+            count++;
+            _stuckTaskCount.incrementAndGet();
+            report(slot.getThread(), task, TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+            if (_interrupt && task == slot.getTask() && startNanos == slot.getStartNanos()) {
+                slot.getThread().interrupt();
+                _logger.warn("interrupt thread {} of thread pool {} which runs task {}", slot.getThread().getName(), _name, task);
+            }
+        }
+
+        return count;
+    }
+
+    private void report(Thread thread, Runnable task, long elapsed) {
+        StringBuilder buffer = new StringBuilder(4096);
+        for (StackTraceElement ste : thread.getStackTrace()) {
+            buffer.append("\tat ").append(ste).append(_lineSeparator);
+        }
+        _logger.warn("task {} of thread pool {} has been running for {}ms (threshold {}ms), thread {} stack:{}{}",
+                task, _name, elapsed, _threshold, thread.getName(), _lineSeparator, buffer);
+    }
+
+    /**
+     * @return 线程池名称
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return 任务执行时间的阈值（单位：毫秒）
+     */
+    public long getThreshold() {
+        return _threshold;
+    }
+
+    /**
+     * @return 执行时间超过阈值的任务数（累计值）
+     */
+    public long getStuckTaskCount() {
+        return _stuckTaskCount.get();
+    }
+
+}
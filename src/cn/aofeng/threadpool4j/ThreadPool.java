@@ -5,8 +5,12 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * 线程池。
@@ -59,6 +63,133 @@ public interface ThreadPool {
     public Future<?> submit(Runnable task, String threadpoolName, 
             FailHandler<Runnable> failHandler);
     
+    /**
+     * 提交一个不需要返回值的异步任务给指定的线程池执行，键相同的任务按提交顺序逐个执行，键不同的任务并行执行。
+     * 
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @param key 任务的键（如：账号ID），键相同（{@link Object#equals(Object)}）的任务串行执行
+     * @param threadpoolName 线程池名称
+     * @return 异步任务执行的结果
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）或键（<code>key</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     * @see KeyedSerialExecutor
+     */
+    public Future<?> submit(Runnable task, Object key, String threadpoolName);
+    
+    /**
+     * 按优先级提交一个不需要返回值的异步任务给指定的线程池执行。
+     * 线程池的队列类型为{@link WorkQueueType#PRIORITY}时，优先级高的任务先执行，同一优先级的任务按提交顺序执行；
+     * 其他类型的队列忽略优先级。
+     * 
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @param priority 优先级，取值范围：{@link Prioritized#MIN_PRIORITY} ~ {@link Prioritized#MAX_PRIORITY}
+     * @param threadpoolName 线程池名称
+     * @return 异步任务执行的结果
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的优先级（<code>priority</code>）超出取值范围；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     */
+    public Future<?> submit(Runnable task, int priority, String threadpoolName);
+    
+    /**
+     * 提交一个不需要返回值的异步任务给指定的线程池执行，并设置超时时间。
+     * 超时时间从提交开始计算（包括在队列中的等待时间），到期时任务还没有完成则被取消并中断执行任务的线程，
+     * 调用{@link Future#get()}抛出{@link CancellationException}，计入线程池的超时任务数（{@link ThreadPoolMXBean#getTimeoutTaskCount()}）。
+     * 所有任务的截止时间放在一个共用的时间轮中，精度为10毫秒。
+     * 
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @param timeout 超时时间
+     * @param unit 超时时间的单位
+     * @param threadpoolName 线程池名称
+     * @return 异步任务执行的结果
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的超时时间（<code>timeout</code>）小于等于0；</li>
+     *     <li>指定的时间单位（<code>unit</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     */
+    public Future<?> submit(Runnable task, long timeout, TimeUnit unit, String threadpoolName);
+    
+    /**
+     * 提交一个有截止时间的、不需要返回值的异步任务给指定的线程池执行。
+     * 工作线程从队列中取出任务时检查截止时间，已超过截止时间的任务（如：调用方已放弃等待的请求）不执行，
+     * 任务被取消并交给"失败处理器"，计入线程池的过期任务数（{@link ThreadPoolMXBean#getExpiredTaskCount()}）。
+     * 提交时已超过截止时间的任务不放入队列，直接按过期处理。线程池过载、队列很长时，线程只用于执行还有意义的任务。
+     * <p>
+     * 与{@link #submit(Runnable, long, TimeUnit, String)}不同，已开始执行的任务不会因为超过截止时间被中断。
+     * 
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @param deadline 截止时间（{@link System#currentTimeMillis()}）
+     * @param threadpoolName 线程池名称
+     * @param failHandler 过期任务的"失败处理器"，在工作线程（或提交时已过期时在调用者线程）中执行，可以为null
+     * @return 异步任务执行的结果，过期的任务已被取消
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     */
+    public Future<?> submitWithDeadline(Runnable task, long deadline, String threadpoolName, 
+            FailHandler<Runnable> failHandler);
+    
+    /**
+     * 将一个不需要返回值的异步任务交给默认的线程池执行，不创建{@link Future}。
+     * 
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @throws IllegalArgumentException 指定的任务（<code>task</code>）为null
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     * @see #execute(Runnable, String)
+     */
+    public void execute(Runnable task);
+    
+    /**
+     * 将一个不需要返回值的异步任务交给指定的线程池执行，不创建{@link Future}。
+     * 任务执行时抛出的异常会输出错误日志，并计入线程池的执行失败任务数。
+     * 
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @param threadpoolName 线程池名称
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     */
+    public void execute(Runnable task, String threadpoolName);
+    
+    /**
+     * 将一个不需要返回值的异步任务交给指定的线程池执行，不创建{@link Future}。
+     * 
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @param threadpoolName 线程池名称
+     * @param failHandler 当队列满，异步任务无法提交给线程池执行的"失败处理器"
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     */
+    public void execute(Runnable task, String threadpoolName, 
+            FailHandler<Runnable> failHandler);
+    
     /**
      * 提交一个需要返回值的异步任务给默认的线程池执行。
      * 
@@ -86,6 +217,66 @@ public interface ThreadPool {
      */
     public <T> Future<T> submit(Callable<T> task, String threadpoolName);
     
+    /**
+     * 按优先级提交一个需要返回值的异步任务给指定的线程池执行。
+     * 
+     * @param task 实现了{@link Callable}接口的异步任务
+     * @param priority 优先级，取值范围：{@link Prioritized#MIN_PRIORITY} ~ {@link Prioritized#MAX_PRIORITY}
+     * @param threadpoolName 线程池名称
+     * @return 异步任务执行的结果
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的优先级（<code>priority</code>）超出取值范围；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     * @see #submit(Runnable, int, String)
+     */
+    public <T> Future<T> submit(Callable<T> task, int priority, String threadpoolName);
+    
+    /**
+     * 提交一个需要返回值的异步任务给指定的线程池执行，并设置超时时间。
+     * 
+     * @param task 实现了{@link Callable}接口的异步任务
+     * @param timeout 超时时间
+     * @param unit 超时时间的单位
+     * @param threadpoolName 线程池名称
+     * @return 异步任务执行的结果
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的超时时间（<code>timeout</code>）小于等于0；</li>
+     *     <li>指定的时间单位（<code>unit</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     * @see #submit(Runnable, long, TimeUnit, String)
+     */
+    public <T> Future<T> submit(Callable<T> task, long timeout, TimeUnit unit, String threadpoolName);
+    
+    /**
+     * 提交一个有截止时间的、需要返回值的异步任务给指定的线程池执行。
+     * 
+     * @param task 实现了{@link Callable}接口的异步任务
+     * @param deadline 截止时间（{@link System#currentTimeMillis()}）
+     * @param threadpoolName 线程池名称
+     * @param failHandler 过期任务的"失败处理器"，可以为null
+     * @return 异步任务执行的结果，过期的任务已被取消
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     * @see #submitWithDeadline(Runnable, long, String, FailHandler)
+     */
+    public <T> Future<T> submitWithDeadline(Callable<T> task, long deadline, String threadpoolName, 
+            FailHandler<Callable<T>> failHandler);
+    
     /**
      * 提交一个需要返回值的异步任务给指定的线程池执行。
      * 
@@ -103,6 +294,52 @@ public interface ThreadPool {
     public <T> Future<T> submit(Callable<T> task, String threadpoolName, 
             FailHandler<Callable<T>> failHandler);
     
+    /**
+     * 提交一个需要返回值的异步任务给默认的线程池执行。
+     * 
+     * @param task 实现了{@link Callable}接口的异步任务
+     * @return 异步任务执行的结果，后续阶段默认在同一个线程池中执行
+     * @throws IllegalArgumentException 指定的任务（<code>task</code>）为null
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     * @see #submitAsync(Callable, String)
+     */
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task);
+    
+    /**
+     * 提交一个需要返回值的异步任务给指定的线程池执行。调用者不需要阻塞在{@link Future#get()}上等待结果，
+     * 可以通过{@link CompletableFuture}的方法组合多个异步任务的结果；
+     * 不指定{@link java.util.concurrent.Executor}的异步阶段（如：thenApplyAsync）默认也在这个线程池中执行。
+     * 
+     * @param task 实现了{@link Callable}接口的异步任务
+     * @param threadpoolName 线程池名称
+     * @return 异步任务执行的结果（{@link PoolCompletableFuture}）
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常
+     */
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task, String threadpoolName);
+    
+    /**
+     * 提交一个需要返回值的异步任务给指定的线程池执行。
+     * 
+     * @param task 实现了{@link Callable}接口的异步任务
+     * @param threadpoolName 线程池名称
+     * @param failHandler 当队列满，异步任务无法提交给线程池执行的"失败处理器"
+     * @return 异步任务执行的结果。如果队列满导致任务无法提交，执行"失败处理器"后返回以{@link RejectedExecutionException}异常完成的结果（不会返回null）
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     */
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task, String threadpoolName, 
+            FailHandler<Callable<T>> failHandler);
+    
     /**
      * 在线程池"default"中执行多个需要返回值的异步任务，并设置超时时间。
      * 
@@ -139,7 +376,121 @@ public interface ThreadPool {
      */
     public <T> List<Future<T>> invokeAll(Collection<Callable<T>> tasks,  
             long timeout, TimeUnit timeoutUnit, String threadpoolName);
+    
+    /**
+     * 在线程池"default"中执行多个需要返回值的异步任务，按完成顺序返回执行结果。
+     * 
+     * @see #invokeAllStreaming(Collection, long, TimeUnit, String)
+     */
+    public <T> CompletionOrderIterator<T> invokeAllStreaming(Collection<Callable<T>> tasks, 
+            long timeout, TimeUnit timeoutUnit);
+    
+    /**
+     * 在指定的线程池中执行多个需要返回值的异步任务，按完成顺序返回执行结果。
+     * 与{@link #invokeAll(Collection, long, TimeUnit, String)}等待所有任务完成不同，先完成的任务先返回，调用者可以立即处理，
+     * 整批任务的耗时取决于调用者需要的结果，而不是最慢的任务。
+     * 
+     * @param tasks 实现了{@link Callable}接口的异步任务列表
+     * @param timeout 整批任务的超时时间，超时后取消还未完成的任务
+     * @param timeoutUnit 超时时间的单位
+     * @param threadpoolName 线程池名称
+     * @return 按完成顺序返回已完成{@link Future}的迭代器
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务列表（<code>tasks</code>）为null或是空列表；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     *     <li>指定的超时时间（<code>timeout</code>）小于或等于0</li>
+     * </ul>
+     * @throws RejectedExecutionException 当队列满，异步任务无法提交给线程池执行时抛出此异常（已提交的任务会被取消）
+     */
+    public <T> CompletionOrderIterator<T> invokeAllStreaming(Collection<Callable<T>> tasks, 
+            long timeout, TimeUnit timeoutUnit, String threadpoolName);
+    
+    /**
+     * 在线程池"default"中执行多个需要返回值的异步任务，返回最先成功完成的任务的结果。
+     * 
+     * @see #invokeAny(Collection, long, TimeUnit, String)
+     */
+    public <T> T invokeAny(Collection<Callable<T>> tasks, long timeout, TimeUnit timeoutUnit) 
+            throws InterruptedException, ExecutionException, TimeoutException;
+    
+    /**
+     * 在指定的线程池中执行多个需要返回值的异步任务，返回最先成功完成（没有抛出异常）的任务的结果，
+     * 返回前取消其他还未完成的任务（正在执行的任务会被中断）。
+     * 
+     * @param tasks 实现了{@link Callable}接口的异步任务列表
+     * @param timeout 超时时间
+     * @param timeoutUnit 超时时间的单位
+     * @param threadpoolName 线程池名称
+     * @return 最先成功完成的任务的结果
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务列表（<code>tasks</code>）为null或是空列表；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     *     <li>指定的超时时间（<code>timeout</code>）小于或等于0</li>
+     * </ul>
+     * @throws InterruptedException 等待时被中断
+     * @throws ExecutionException 所有任务都执行失败
+     * @throws TimeoutException 在指定的时间内没有任务成功完成
+     */
+    public <T> T invokeAny(Collection<Callable<T>> tasks, long timeout, TimeUnit timeoutUnit, 
+            String threadpoolName) throws InterruptedException, ExecutionException, TimeoutException;
 
+    /**
+     * 延迟指定的时长后，将一个不需要返回值的异步任务交给指定的线程池执行。
+     * 计时由线程池共用的时间轮（{@link HashedTimingWheel}）完成，时间轮线程只负责在到期时提交任务，不执行任务。
+     * 
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @param delay 延迟时长，精度为时间轮的刻度（10毫秒）
+     * @param unit 延迟时长的单位
+     * @param threadpoolName 线程池名称
+     * @return 定时任务执行的结果，可用于取消
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）或时间单位（<code>unit</code>）为null；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit, String threadpoolName);
+    
+    /**
+     * 按固定频率周期执行一个异步任务：第一次在延迟<code>initialDelay</code>后执行，之后每隔<code>period</code>执行一次。
+     * 本次执行完成后才提交下一次，执行时间超过周期时，下一次在本次完成后立即提交，同一个任务不会并发执行。
+     * 某次执行抛出异常或任务被取消后，不再继续执行。
+     * 
+     * @param task 实现了{@link Runnable}接口的异步任务
+     * @param initialDelay 第一次执行的延迟时长
+     * @param period 执行周期
+     * @param unit 延迟时长和执行周期的单位
+     * @param threadpoolName 线程池名称
+     * @return 定时任务执行的结果，可用于取消
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的任务（<code>task</code>）或时间单位（<code>unit</code>）为null；</li>
+     *     <li>指定的执行周期（<code>period</code>）小于等于0；</li>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, 
+            TimeUnit unit, String threadpoolName);
+    
+    /**
+     * 获取指定线程池的句柄。句柄在获取时就完成了线程池的查找，通过句柄提交任务不再按名称查找线程池。
+     * 
+     * @param threadpoolName 线程池名称
+     * @return 线程池句柄（{@link PoolHandle}）
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     */
+    public PoolHandle handle(String threadpoolName);
+    
     /**
      * 查询指定名称的线程池是否存在。
      * 
@@ -156,5 +507,33 @@ public interface ThreadPool {
      * @return 线程池的信息({@link ThreadInfo})
      */
     public ThreadPoolInfo getThreadPoolInfo(String threadpoolName);
+    
+    /**
+     * 获取指定线程池中任务在队列中等待时间的分布（从线程池启动开始累计）。
+     * 通过本接口提交的任务都统计等待时间，按键提交的任务统计车道在队列中的等待时间；
+     * virtual类型的线程池统计任务从提交到拿到信号量的时间。
+     * 
+     * @param threadpoolName 线程池名称
+     * @return 等待时间（单位：纳秒）直方图的快照，可以获取p50、p99、p999等百分位数；线程池没有统计（见{@link TimedExecutor}）时返回null
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     */
+    public LatencyHistogram.Snapshot getQueueWaitLatency(String threadpoolName);
+    
+    /**
+     * 获取指定线程池中任务执行时间的分布（从线程池启动开始累计）。
+     * 
+     * @param threadpoolName 线程池名称
+     * @return 执行时间（单位：纳秒）直方图的快照，可以获取p50、p99、p999等百分位数；线程池没有统计（见{@link TimedExecutor}）时返回null
+     * @throws IllegalArgumentException 出现以下情况时抛出：
+     * <ul>
+     *     <li>指定的线程池名称（<code>threadpoolName</code>）为null，""或全是空白字符；</li>
+     *     <li>指定的线程池不存在。</li>
+     * </ul>
+     */
+    public LatencyHistogram.Snapshot getExecutionLatency(String threadpoolName);
 
 }
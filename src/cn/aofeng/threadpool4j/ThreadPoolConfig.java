@@ -1,9 +1,12 @@
 package cn.aofeng.threadpool4j;
 
+import java.io.File;
+import java.net.URL;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -23,10 +26,13 @@ public class ThreadPoolConfig implements ILifeCycle {
     public final static String DEFAULT_CONFIG_FILE = "/biz/threadpool4j.xml";
     protected String _configFile =DEFAULT_CONFIG_FILE;
     
+    public final static String THREAD_STACK_MODE_DUMP = "dump";
+    public final static String THREAD_STACK_MODE_SAMPLE = "sample";
+    
     /**
      * key为线程池名称，value为{@link ThreadPoolInfo}实例。
      */
-    protected Map<String, ThreadPoolInfo> _multiThreadPoolInfo = new HashMap<String, ThreadPoolInfo>();
+    protected Map<String, ThreadPoolInfo> _multiThreadPoolInfo = new ConcurrentHashMap<String, ThreadPoolInfo>();
     
     /** 线程池状态收集开关 */
     protected boolean _threadPoolStateSwitch = false;
@@ -40,13 +46,30 @@ public class ThreadPoolConfig implements ILifeCycle {
     protected boolean _threadStackSwitch = false;
     protected int _threadStackInterval = 60;   // 单位：秒
     
+    /** 线程堆栈收集方式：dump-输出所有线程的完整堆栈到日志；sample-采样线程池线程的堆栈，输出collapsed stack文件 */
+    protected String _threadStackMode = THREAD_STACK_MODE_DUMP;
+    protected int _threadStackRate = 100;   // 每秒采样次数
+    protected int _threadStackDepth = 64;
+    protected String _threadStackDir = System.getProperty("java.io.tmpdir");
+    
+    /** 死锁和锁竞争检测开关 */
+    protected boolean _deadlockSwitch = false;
+    protected int _deadlockInterval = 60;   // 单位：秒
+    
+    /** 配置文件热加载开关 */
+    protected boolean _configReloadSwitch = false;
+    protected int _configReloadInterval = 10;   // 单位：秒
+    
+    /** Prometheus指标HTTP服务的端口，小于0表示不启动，0表示由系统分配 */
+    protected int _metricsPort = -1;
+    
     @Override
     public void init() {
         initConfig();
     }
     
     private void initConfig() {
-        Document document = DomUtil.createDocument(_configFile);
+        Document document = loadDocument();
         
         Element root = document.getDocumentElement();
         NodeParser rootParser = new NodeParser(root);
@@ -54,13 +77,7 @@ public class ThreadPoolConfig implements ILifeCycle {
         for (Node node : nodeList) {
             NodeParser nodeParser = new NodeParser(node);
             if ( "pool".equals(node.getNodeName()) ) {
-                ThreadPoolInfo info = new ThreadPoolInfo();
-                info.setName(nodeParser.getAttributeValue("name"));
-                info.setCoreSize(Integer.parseInt(nodeParser.getChildNodeValue("corePoolSize")));
-                info.setMaxSize(Integer.parseInt(nodeParser.getChildNodeValue("maxPoolSize")));
-                info.setThreadKeepAliveTime(Long.parseLong(nodeParser.getChildNodeValue("keepAliveTime")));
-                info.setQueueSize(Integer.parseInt(nodeParser.getChildNodeValue("workQueueSize")));
-                
+                ThreadPoolInfo info = parseThreadPoolInfo(nodeParser);
                 _multiThreadPoolInfo.put(info.getName(), info);
             } else if ( "threadpoolstate".equals(node.getNodeName()) ) {
                 _threadPoolStateSwitch = computeSwitchValue(nodeParser);
@@ -71,10 +88,215 @@ public class ThreadPoolConfig implements ILifeCycle {
             } else if ( "threadstack".equals(node.getNodeName()) ) {
                 _threadStackSwitch = computeSwitchValue(nodeParser);
                 _threadStackInterval = computeIntervalValue(nodeParser);
+                parseThreadStackSample(nodeParser);
+            } else if ( "deadlock".equals(node.getNodeName()) ) {
+                _deadlockSwitch = computeSwitchValue(nodeParser);
+                _deadlockInterval = computeIntervalValue(nodeParser);
+            } else if ( "configreload".equals(node.getNodeName()) ) {
+                _configReloadSwitch = computeSwitchValue(nodeParser);
+                _configReloadInterval = computeIntervalValue(nodeParser);
+            } else if ( "metrics".equals(node.getNodeName()) ) {
+                _metricsPort = parseMetricsPort(nodeParser);
             }
         } // end of for
     }
     
+    private Document loadDocument() {
+        Document document = DomUtil.createDocument(_configFile);
+        if (null == document) {
+            throw new IllegalStateException( String.format("load config file '%s' failed", _configFile) );
+        }
+        
+        return document;
+    }
+    
+    /**
+     * 重新读取配置文件中所有线程池的配置信息，不修改当前的配置信息。
+     * 
+     * @return key为线程池名称，value为{@link ThreadPoolInfo}实例
+     * @throws IllegalStateException 读取配置文件失败
+     * @throws IllegalArgumentException 线程池配置有误
+     */
+    public Map<String, ThreadPoolInfo> loadThreadPoolConfig() {
+        Map<String, ThreadPoolInfo> multiThreadPoolInfo = new HashMap<String, ThreadPoolInfo>();
+        NodeParser rootParser = new NodeParser(loadDocument().getDocumentElement());
+        for (Node node : rootParser.getChildNodes()) {
+            if ( "pool".equals(node.getNodeName()) ) {
+                ThreadPoolInfo info = parseThreadPoolInfo(new NodeParser(node));
+                multiThreadPoolInfo.put(info.getName(), info);
+            }
+        }
+        
+        return multiThreadPoolInfo;
+    }
+    
+    /**
+     * 更新指定线程池的配置信息（配置文件热加载后，新的配置已应用到线程池时调用）。
+     * 
+     * @param info 线程池配置信息
+     */
+    void updateThreadPoolConfig(ThreadPoolInfo info) {
+        _multiThreadPoolInfo.put(info.getName(), info);
+    }
+    
+    /**
+     * @return 配置文件的最后修改时间。如果配置文件不是文件系统中的文件（如：打包在jar中），返回0
+     */
+    public long getConfigFileLastModified() {
+        URL url = ThreadPoolConfig.class.getResource(_configFile);
+        if (null == url || ! "file".equals(url.getProtocol())) {
+            return 0;
+        }
+        
+        try {
+            return new File(url.toURI()).lastModified();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+    
+    /**
+     * 解析pool节点。不同类型的线程池需要的配置不同：
+     * <ul>
+     *     <li>standard：corePoolSize，maxPoolSize，keepAliveTime，workQueueSize，workQueueType（可选），autosize（可选），limiter（可选），watchdog（可选）；</li>
+     *     <li>forkjoin：parallelism（可选）；</li>
+     *     <li>virtual：maxConcurrency（可选）。</li>
+     * </ul>
+     */
+    private ThreadPoolInfo parseThreadPoolInfo(NodeParser nodeParser) {
+        ThreadPoolInfo info = new ThreadPoolInfo();
+        info.setName(nodeParser.getAttributeValue("name"));
+        String type = nodeParser.getAttributeValue("type");
+        if (null != type) {
+            type = type.trim();
+            if (! ThreadPoolType.isSupported(type)) {
+                throw new IllegalArgumentException( String.format("unsupported thread pool type %s of thread pool %s", type, info.getName()) );
+            }
+            info.setType(type);
+        }
+        
+        if (ThreadPoolType.FORK_JOIN.equals(info.getType())) {
+            String parallelism = nodeParser.getChildNodeValue("parallelism");
+            if (null != parallelism) {
+                info.setParallelism(Integer.parseInt(parallelism.trim()));
+            }
+        } else if (ThreadPoolType.VIRTUAL.equals(info.getType())) {
+            String maxConcurrency = nodeParser.getChildNodeValue("maxConcurrency");
+            if (null != maxConcurrency) {
+                info.setMaxConcurrency(Integer.parseInt(maxConcurrency.trim()));
+            }
+        } else {
+            info.setCoreSize(Integer.parseInt(nodeParser.getChildNodeValue("corePoolSize")));
+            info.setMaxSize(Integer.parseInt(nodeParser.getChildNodeValue("maxPoolSize")));
+            info.setThreadKeepAliveTime(Long.parseLong(nodeParser.getChildNodeValue("keepAliveTime")));
+            info.setQueueSize(Integer.parseInt(nodeParser.getChildNodeValue("workQueueSize")));
+            String queueType = nodeParser.getChildNodeValue("workQueueType");
+            if (null != queueType) {
+                queueType = queueType.trim();
+                if (! WorkQueueType.isSupported(queueType)) {
+                    throw new IllegalArgumentException( String.format("unsupported work queue type %s of thread pool %s", queueType, info.getName()) );
+                }
+                info.setQueueType(queueType);
+            }
+            Node autoSize = nodeParser.getChildNode("autosize");
+            if (null != autoSize) {
+                info.setAutoSizeTargetWait(parseAutoSizeTargetWait(new NodeParser(autoSize), info.getName()));
+            }
+            Node limiter = nodeParser.getChildNode("limiter");
+            if (null != limiter) {
+                parseLimiter(new NodeParser(limiter), info);
+            }
+            Node watchdog = nodeParser.getChildNode("watchdog");
+            if (null != watchdog) {
+                parseWatchdog(new NodeParser(watchdog), info);
+            }
+        }
+        
+        return info;
+    }
+    
+    private long parseAutoSizeTargetWait(NodeParser nodeParser, String poolName) {
+        String targetWait = nodeParser.getAttributeValue("target-wait-ms");
+        if (null == targetWait || Long.parseLong(targetWait.trim()) < 1) {
+            throw new IllegalArgumentException( String.format("target-wait-ms of autosize is missing or less than 1 of thread pool %s", poolName) );
+        }
+        
+        return Long.parseLong(targetWait.trim());
+    }
+    
+    private void parseLimiter(NodeParser nodeParser, ThreadPoolInfo info) {
+        String initialLimit = nodeParser.getAttributeValue("initial-limit");
+        if (null == initialLimit) {
+            throw new IllegalArgumentException( String.format("initial-limit of limiter is missing of thread pool %s", info.getName()) );
+        }
+        info.setLimiterInitialLimit(Integer.parseInt(initialLimit.trim()));
+        String minLimit = nodeParser.getAttributeValue("min-limit");
+        if (null != minLimit) {
+            info.setLimiterMinLimit(Integer.parseInt(minLimit.trim()));
+        }
+        String maxLimit = nodeParser.getAttributeValue("max-limit");
+        if (null != maxLimit) {
+            info.setLimiterMaxLimit(Integer.parseInt(maxLimit.trim()));
+        }
+        if (info.getLimiterMinLimit() < 1 || info.getLimiterMinLimit() > info.getLimiterInitialLimit() 
+                || info.getLimiterInitialLimit() > info.getLimiterMaxLimit()) {
+            throw new IllegalArgumentException( String.format("limiter of thread pool %s must satisfy 1 <= min-limit <= initial-limit <= max-limit", info.getName()) );
+        }
+    }
+    
+    private void parseWatchdog(NodeParser nodeParser, ThreadPoolInfo info) {
+        String threshold = nodeParser.getAttributeValue("threshold-ms");
+        if (null == threshold || Long.parseLong(threshold.trim()) < 1) {
+            throw new IllegalArgumentException( String.format("threshold-ms of watchdog is missing or less than 1 of thread pool %s", info.getName()) );
+        }
+        info.setWatchdogThreshold(Long.parseLong(threshold.trim()));
+        info.setWatchdogInterrupt("true".equalsIgnoreCase(nodeParser.getAttributeValue("interrupt")));
+    }
+    
+    private void parseThreadStackSample(NodeParser nodeParser) {
+        String mode = nodeParser.getAttributeValue("mode");
+        if (null == mode) {
+            return;
+        }
+        mode = mode.trim();
+        if (! THREAD_STACK_MODE_DUMP.equals(mode) && ! THREAD_STACK_MODE_SAMPLE.equals(mode)) {
+            throw new IllegalArgumentException( String.format("unsupported mode %s of threadstack", mode) );
+        }
+        _threadStackMode = mode;
+        
+        String rate = nodeParser.getAttributeValue("rate");
+        if (null != rate) {
+            _threadStackRate = Integer.parseInt(rate.trim());
+            if (_threadStackRate < 1 || _threadStackRate > 1000) {
+                throw new IllegalArgumentException( String.format("rate %d of threadstack out of range [1, 1000]", _threadStackRate) );
+            }
+        }
+        String depth = nodeParser.getAttributeValue("depth");
+        if (null != depth) {
+            _threadStackDepth = Integer.parseInt(depth.trim());
+            if (_threadStackDepth < 1) {
+                throw new IllegalArgumentException( String.format("depth %d of threadstack less than 1", _threadStackDepth) );
+            }
+        }
+        String dir = nodeParser.getAttributeValue("dir");
+        if (null != dir) {
+            _threadStackDir = dir.trim();
+        }
+    }
+    
+    private int parseMetricsPort(NodeParser nodeParser) {
+        String port = nodeParser.getAttributeValue("port");
+        if (null == port) {
+            throw new IllegalArgumentException("port of metrics is missing");
+        }
+        int value = Integer.parseInt(port.trim());
+        if (value < 0 || value > 65535) {
+            throw new IllegalArgumentException( String.format("port %d of metrics out of range [0, 65535]", value) );
+        }
+        
+        return value;
+    }
+    
     private boolean computeSwitchValue(NodeParser nodeParser) {
         return "on".equalsIgnoreCase(
                 nodeParser.getAttributeValue("switch"));
@@ -158,10 +380,76 @@ public class ThreadPoolConfig implements ILifeCycle {
         return _threadStackInterval;
     }
     
+    /**
+     * @return 线程堆栈收集方式：{@link #THREAD_STACK_MODE_DUMP}或{@link #THREAD_STACK_MODE_SAMPLE}
+     */
+    public String getThreadStackMode() {
+        return _threadStackMode;
+    }
+    
+    /**
+     * @return 采样方式下每秒采样的次数
+     */
+    public int getThreadStackRate() {
+        return _threadStackRate;
+    }
+    
+    /**
+     * @return 采样方式下每个堆栈最多采集的方法数
+     */
+    public int getThreadStackDepth() {
+        return _threadStackDepth;
+    }
+    
+    /**
+     * @return 采样方式下collapsed stack文件的输出目录
+     */
+    public String getThreadStackDir() {
+        return _threadStackDir;
+    }
+    
+    /**
+     * @return 死锁和锁竞争检测的开关，true表示开，false表示关
+     */
+    public boolean getDeadlockSwitch() {
+        return _deadlockSwitch;
+    }
+    
+    /**
+     * @return 死锁和锁竞争检测的间隔时间（单位：秒）
+     */
+    public int getDeadlockInterval() {
+        return _deadlockInterval;
+    }
+    
+    /**
+     * @return 配置文件热加载的开关，true表示开，false表示关
+     */
+    public boolean getConfigReloadSwitch() {
+        return _configReloadSwitch;
+    }
+    
+    /**
+     * @return 检查配置文件是否修改的间隔时间（单位：秒）
+     */
+    public int getConfigReloadInterval() {
+        return _configReloadInterval;
+    }
+    
+    /**
+     * @return Prometheus指标HTTP服务的端口，小于0表示不启动，0表示由系统分配
+     */
+    public int getMetricsPort() {
+        return _metricsPort;
+    }
+    
     @Override
     public void destroy() {
         _threadPoolStateSwitch = false;
         _threadStateSwitch = false;
+        _deadlockSwitch = false;
+        _configReloadSwitch = false;
+        _metricsPort = -1;
         _multiThreadPoolInfo.clear();
     }
 
@@ -1,18 +1,31 @@
 package cn.aofeng.threadpool4j;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,9 +33,16 @@ import org.slf4j.LoggerFactory;
 import cn.aofeng.common4j.ILifeCycle;
 import cn.aofeng.common4j.lang.StringUtil;
 import cn.aofeng.common4j.thread.DefaultThreadFactory;
+import cn.aofeng.threadpool4j.job.AbstractJob;
+import cn.aofeng.threadpool4j.job.AutoSizeJob;
+import cn.aofeng.threadpool4j.job.ConfigReloadJob;
+import cn.aofeng.threadpool4j.job.DeadlockJob;
+import cn.aofeng.threadpool4j.job.JobScheduler;
+import cn.aofeng.threadpool4j.job.StackProfilerJob;
 import cn.aofeng.threadpool4j.job.ThreadPoolStateJob;
 import cn.aofeng.threadpool4j.job.ThreadStackJob;
 import cn.aofeng.threadpool4j.job.ThreadStateJob;
+import cn.aofeng.threadpool4j.job.WatchdogJob;
 
 /**
  * 多线程池。
@@ -33,16 +53,45 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
 
     /** 默认的线程池名称 */
     private static final String DEFAULT_THREAD_POOL = "default";
+    
+    /** 定时任务时间轮的刻度（单位：毫秒） */
+    private static final long TIMING_WHEEL_TICK = 10;
+    
+    /** 自动调整核心线程数的采样间隔（单位：秒） */
+    private static final int AUTO_SIZE_INTERVAL = 1;
+    
+    /** 检查执行时间过长任务的间隔（单位：秒） */
+    private static final int WATCHDOG_INTERVAL = 1;
+    
+    /** 关闭时等待线程池排空，检查线程池是否终止的最长间隔（单位：纳秒） */
+    private static final long DRAIN_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
 
     private static Logger _logger = LoggerFactory.getLogger(ThreadPoolImpl.class);    
     
     protected ThreadPoolConfig _threadPoolConfig = new ThreadPoolConfig();
     protected int _status = ThreadPoolStatus.UNINITIALIZED;
     
-    Map<String, ExecutorService> _multiThreadPool = new HashMap<String, ExecutorService>();
+    Map<String, ExecutorService> _multiThreadPool = new ConcurrentHashMap<String, ExecutorService>();
+    Map<String, KeyedSerialExecutor> _keyedExecutors = new ConcurrentHashMap<String, KeyedSerialExecutor>();
+    Map<String, PoolSizeController> _poolSizeControllers = new ConcurrentHashMap<String, PoolSizeController>();
+    Map<String, ConcurrencyLimiter> _concurrencyLimiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+    /** 每个线程池当前的自适应并发限制器，{@link PoolHandle}直接持有，重新加载配置时替换其中的值 */
+    ConcurrentMap<String, AtomicReference<ConcurrencyLimiter>> _concurrencyLimiterRefs = new ConcurrentHashMap<String, AtomicReference<ConcurrencyLimiter>>();
+    Map<String, TaskWatchdog> _taskWatchdogs = new ConcurrentHashMap<String, TaskWatchdog>();
+    ConcurrentMap<String, DeadlineTaskCounter> _deadlineTaskCounters = new ConcurrentHashMap<String, DeadlineTaskCounter>();
+    Map<String, ThreadPoolMXBeanImpl> _mxBeans = new ConcurrentHashMap<String, ThreadPoolMXBeanImpl>();
+    HashedTimingWheel _timingWheel;
+    /** 还未结束的定时任务，关闭时取消 */
+    Set<TimingWheelScheduledTask<?>> _scheduledTasks = Collections.newSetFromMap(new ConcurrentHashMap<TimingWheelScheduledTask<?>, Boolean>());
+    JobScheduler _jobScheduler;
     ThreadPoolStateJob _threadPoolStateJob;
     ThreadStateJob _threadStateJob;
-    ThreadStackJob _threadStackJob;
+    AbstractJob _threadStackJob;
+    DeadlockJob _deadlockJob;
+    ConfigReloadJob _configReloadJob;
+    AutoSizeJob _autoSizeJob;
+    WatchdogJob _watchdogJob;
+    MetricsServer _metricsServer;
     
     public ThreadPoolImpl() {
         // nothing
@@ -57,9 +106,17 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
         
         try {
             initThreadPool();
+            _timingWheel = new HashedTimingWheel("threadpool4j-timer", TIMING_WHEEL_TICK, TimeUnit.MILLISECONDS);
+            _jobScheduler = new JobScheduler();
+            _jobScheduler.init();
             startThreadPoolStateJob();
             startThreadStateJob();
             startThreadStackJob();
+            startDeadlockJob();
+            startConfigReloadJob();
+            startAutoSizeJob();
+            startWatchdogJob();
+            startMetricsServer();
             _status = ThreadPoolStatus.INITIALITION_SUCCESSFUL;
         } catch (RuntimeException e) {
             _status = ThreadPoolStatus.INITIALITION_FAILED;
@@ -77,15 +134,148 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
         }
         Collection<ThreadPoolInfo> threadPoolInfoList = _threadPoolConfig.getThreadPoolConfig();
         for (ThreadPoolInfo threadPoolInfo : threadPoolInfoList) {
-            BlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<Runnable>(threadPoolInfo.getQueueSize());
-            ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threadPoolInfo.getCoreSize(), threadPoolInfo.getMaxSize(), 
-                    threadPoolInfo.getThreadKeepAliveTime(), TimeUnit.SECONDS, workQueue, 
-                    new DefaultThreadFactory(threadPoolInfo.getName()));
+            ExecutorService threadPool = createThreadPool(threadPoolInfo);
             _multiThreadPool.put(threadPoolInfo.getName(), threadPool);
+            _keyedExecutors.put(threadPoolInfo.getName(), new KeyedSerialExecutor(threadPoolInfo.getName(), threadPool));
+            updatePoolSizeController(threadPoolInfo, threadPool);
+            updateConcurrencyLimiter(threadPoolInfo);
+            updateTaskWatchdog(threadPoolInfo, threadPool);
+            registerMXBean(threadPoolInfo, threadPool);
             _logger.info("initialization thread pool {} success", threadPoolInfo.getName());
         }
     }
     
+    /**
+     * 按线程池类型创建线程池。
+     * 
+     * @param threadPoolInfo 线程池配置信息
+     * @return 线程池
+     */
+    private ExecutorService createThreadPool(ThreadPoolInfo threadPoolInfo) {
+        if (ThreadPoolType.FORK_JOIN.equals(threadPoolInfo.getType())) {
+            return new NamedForkJoinPool(threadPoolInfo.getName(), threadPoolInfo.getParallelism());
+        }
+        if (ThreadPoolType.VIRTUAL.equals(threadPoolInfo.getType())) {
+            if (VirtualThreadExecutor.isSupported()) {
+                return new VirtualThreadExecutor(threadPoolInfo.getName(), threadPoolInfo.getMaxConcurrency());
+            }
+            
+            // 运行环境不支持虚拟线程，退化为线程数等于maxConcurrency、队列无界的普通线程池
+            _logger.warn("virtual thread is not supported by the current java runtime, thread pool {} falls back to {} platform threads", 
+                    threadPoolInfo.getName(), threadPoolInfo.getMaxConcurrency());
+            NamedThreadPoolExecutor threadPool = new NamedThreadPoolExecutor(threadPoolInfo.getName(), 
+                    threadPoolInfo.getMaxConcurrency(), threadPoolInfo.getMaxConcurrency(), 
+                    threadPoolInfo.getThreadKeepAliveTime(), TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), 
+                    new DefaultThreadFactory(threadPoolInfo.getName()));
+            threadPool.allowCoreThreadTimeOut(true);
+            return threadPool;
+        }
+        
+        BlockingQueue<Runnable> workQueue = WorkQueueType.createWorkQueue(threadPoolInfo.getQueueType(), threadPoolInfo.getQueueSize());
+        return new NamedThreadPoolExecutor(threadPoolInfo.getName(), 
+                threadPoolInfo.getCoreSize(), threadPoolInfo.getMaxSize(), 
+                threadPoolInfo.getThreadKeepAliveTime(), TimeUnit.SECONDS, workQueue, 
+                new DefaultThreadFactory(threadPoolInfo.getName()));
+    }
+    
+    /**
+     * 按线程池的autosize配置创建（替换）或删除自动调整核心线程数的控制器。
+     */
+    private void updatePoolSizeController(ThreadPoolInfo threadPoolInfo, ExecutorService threadPool) {
+        PoolSizeController old = _poolSizeControllers.remove(threadPoolInfo.getName());
+        if (null != old) {
+            old.stop();
+        }
+        if (threadPoolInfo.getAutoSizeTargetWait() <= 0 || ! (threadPool instanceof ThreadPoolExecutor)) {
+            return;
+        }
+        
+        _poolSizeControllers.put(threadPoolInfo.getName(), new PoolSizeController(threadPoolInfo.getName(), 
+                (ThreadPoolExecutor) threadPool, threadPoolInfo.getAutoSizeTargetWait(), 
+                threadPoolInfo.getCoreSize(), threadPoolInfo.getMaxSize()));
+    }
+    
+    /**
+     * 按线程池的limiter配置创建（替换）或删除自适应并发限制器。替换前已提交的任务完成时归还旧限制器的许可。
+     */
+    private void updateConcurrencyLimiter(ThreadPoolInfo threadPoolInfo) {
+        if (threadPoolInfo.getLimiterInitialLimit() <= 0) {
+            _concurrencyLimiters.remove(threadPoolInfo.getName());
+            getConcurrencyLimiterRef(threadPoolInfo.getName()).set(null);
+            return;
+        }
+        
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(threadPoolInfo.getName(), 
+                threadPoolInfo.getLimiterInitialLimit(), threadPoolInfo.getLimiterMinLimit(), 
+                threadPoolInfo.getLimiterMaxLimit());
+        _concurrencyLimiters.put(threadPoolInfo.getName(), limiter);
+        getConcurrencyLimiterRef(threadPoolInfo.getName()).set(limiter);
+    }
+    
+    /**
+     * @return 线程池的并发限制器引用，不存在时创建，值为null表示没有配置并发限制器
+     */
+    private AtomicReference<ConcurrencyLimiter> getConcurrencyLimiterRef(String threadpoolName) {
+        AtomicReference<ConcurrencyLimiter> limiterRef = _concurrencyLimiterRefs.get(threadpoolName);
+        if (null == limiterRef) {
+            AtomicReference<ConcurrencyLimiter> newLimiterRef = new AtomicReference<ConcurrencyLimiter>();
+            limiterRef = _concurrencyLimiterRefs.putIfAbsent(threadpoolName, newLimiterRef);
+            if (null == limiterRef) {
+                limiterRef = newLimiterRef;
+            }
+        }
+        
+        return limiterRef;
+    }
+    
+    /**
+     * 按线程池的watchdog配置创建（替换）或删除检查执行时间过长任务的watchdog。
+     */
+    private void updateTaskWatchdog(ThreadPoolInfo threadPoolInfo, ExecutorService threadPool) {
+        if (threadPoolInfo.getWatchdogThreshold() <= 0 || ! (threadPool instanceof NamedThreadPoolExecutor)) {
+            _taskWatchdogs.remove(threadPoolInfo.getName());
+            return;
+        }
+        
+        _taskWatchdogs.put(threadPoolInfo.getName(), new TaskWatchdog(threadPoolInfo.getName(), 
+                (NamedThreadPoolExecutor) threadPool, threadPoolInfo.getWatchdogThreshold(), 
+                threadPoolInfo.isWatchdogInterrupt()));
+    }
+    
+    /**
+     * 把线程池的JMX管理接口注册到JVM的MBeanServer。
+     */
+    private void registerMXBean(ThreadPoolInfo threadPoolInfo, ExecutorService threadPool) {
+        ThreadPoolMXBeanImpl mxBean = new ThreadPoolMXBeanImpl(threadPoolInfo.getName(), threadPoolInfo.getType(), 
+                threadPool, _concurrencyLimiters, _deadlineTaskCounters);
+        mxBean.register();
+        _mxBeans.put(threadPoolInfo.getName(), mxBean);
+    }
+    
+    /**
+     * 有线程池配置了autosize时，初始化并启动自动调整核心线程数的Job。
+     */
+    private void startAutoSizeJob() {
+        if (_poolSizeControllers.isEmpty() || null != _autoSizeJob) {
+            return;
+        }
+        
+        _autoSizeJob = new AutoSizeJob(_poolSizeControllers, AUTO_SIZE_INTERVAL);
+        _jobScheduler.schedule("threadpool4j-autosize", _autoSizeJob);
+    }
+    
+    /**
+     * 有线程池配置了watchdog时，初始化并启动检查执行时间过长任务的Job。
+     */
+    private void startWatchdogJob() {
+        if (_taskWatchdogs.isEmpty() || null != _watchdogJob) {
+            return;
+        }
+        
+        _watchdogJob = new WatchdogJob(_taskWatchdogs, WATCHDOG_INTERVAL);
+        _jobScheduler.schedule("threadpool4j-watchdog", _watchdogJob);
+    }
+    
     /**
      * 初始化并启动线程池状态统计Job。
      */
@@ -97,12 +287,7 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
         _threadPoolStateJob = new ThreadPoolStateJob(
                 _multiThreadPool,
                 _threadPoolConfig.getThreadPoolStateInterval() );
-        _threadPoolStateJob.init();
-        Thread jobThread = new Thread(_threadPoolStateJob);
-        jobThread.setName("threadpool4j-threadpoolstate");
-        jobThread.start();
-        
-        _logger.info("start job 'threadpool4j-threadpoolstate' success");
+        _jobScheduler.schedule("threadpool4j-threadpoolstate", _threadPoolStateJob);
     }
     
     /**
@@ -113,13 +298,8 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
             return;
         }
         
-        _threadStateJob = new ThreadStateJob(_threadPoolConfig.getThreadStateInterval());
-        _threadStateJob.init();
-        Thread jobThread = new Thread(_threadStateJob);
-        jobThread.setName("threadpool4j-threadstate");
-        jobThread.start();
-        
-        _logger.info("start job 'threadpool4j-threadstate' success");
+        _threadStateJob = new ThreadStateJob(_multiThreadPool, _threadPoolConfig.getThreadStateInterval());
+        _jobScheduler.schedule("threadpool4j-threadstate", _threadStateJob);
     }
     
     private void startThreadStackJob() {
@@ -127,13 +307,241 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
             return;
         }
         
-        _threadStackJob = new ThreadStackJob(_threadPoolConfig.getThreadStackInterval());
-        _threadStackJob.init();
-        Thread jobThread = new Thread(_threadStackJob);
-        jobThread.setName("threadpool4j-threadstack");
-        jobThread.start();
+        if (ThreadPoolConfig.THREAD_STACK_MODE_SAMPLE.equals(_threadPoolConfig.getThreadStackMode())) {
+            _threadStackJob = new StackProfilerJob(_multiThreadPool, _threadPoolConfig.getThreadStackRate(), 
+                    _threadPoolConfig.getThreadStackDepth(), _threadPoolConfig.getThreadStackInterval(), 
+                    _threadPoolConfig.getThreadStackDir());
+        } else {
+            _threadStackJob = new ThreadStackJob(_threadPoolConfig.getThreadStackInterval());
+        }
+        _jobScheduler.schedule("threadpool4j-threadstack", _threadStackJob);
+    }
+    
+    /**
+     * 初始化并启动死锁和锁竞争检测Job。
+     */
+    private void startDeadlockJob() {
+        if (! _threadPoolConfig.getDeadlockSwitch()) {
+            return;
+        }
+        
+        _deadlockJob = new DeadlockJob(_multiThreadPool, _threadPoolConfig.getDeadlockInterval());
+        _jobScheduler.schedule("threadpool4j-deadlock", _deadlockJob);
+    }
+    
+    /**
+     * 初始化并启动配置文件热加载Job。
+     */
+    private void startConfigReloadJob() {
+        if (! _threadPoolConfig.getConfigReloadSwitch()) {
+            return;
+        }
+        
+        _configReloadJob = new ConfigReloadJob(this, _threadPoolConfig, _threadPoolConfig.getConfigReloadInterval());
+        _jobScheduler.schedule("threadpool4j-configreload", _configReloadJob);
+    }
+    
+    /**
+     * 把自定义的Job（如：新的状态收集器）加入共用的调度线程，不需要为每个Job单独创建线程。
+     * 线程池销毁时Job随之停止并销毁。
+     * 
+     * @param name Job的名称，用于日志
+     * @param job Job实例，按{@link AbstractJob#getPeriodNanos()}的间隔执行
+     * @throws IllegalStateException 线程池未初始化成功或已销毁
+     * @throws IllegalArgumentException Job的执行间隔小于等于0
+     */
+    public void scheduleJob(String name, AbstractJob job) {
+        if (ThreadPoolStatus.INITIALITION_SUCCESSFUL != _status) {
+            throw new IllegalStateException( String.format("schedule job %s failed, because the status was wrong, current status was %d", name, _status) );
+        }
+        
+        _jobScheduler.schedule(name, job);
+    }
+    
+    /**
+     * 停止并销毁通过{@link #scheduleJob(String, AbstractJob)}加入的Job。
+     * 
+     * @param job Job实例
+     */
+    public void cancelJob(AbstractJob job) {
+        if (null != _jobScheduler) {
+            _jobScheduler.cancel(job);
+        }
+    }
+    
+    /**
+     * 配置了metrics节点时启动Prometheus指标HTTP服务。启动失败只输出错误日志，不影响线程池的使用。
+     */
+    private void startMetricsServer() {
+        if (_threadPoolConfig.getMetricsPort() < 0) {
+            return;
+        }
+        
+        MetricsServer metricsServer = new MetricsServer(_threadPoolConfig.getMetricsPort(), _mxBeans);
+        try {
+            metricsServer.init();
+        } catch (IllegalStateException e) {
+            _logger.error("start metrics server failed", e);
+            return;
+        }
+        _metricsServer = metricsServer;
+        
+        _logger.info("start metrics server on port {} success", _metricsServer.getPort());
+    }
+    
+    /**
+     * 重新读取配置文件，把变化的配置应用到正在运行的线程池：
+     * <ul>
+     *     <li>新增的线程池：创建并加入线程池集合；</li>
+     *     <li>standard类型的线程池：在原线程池上调整corePoolSize，maxPoolSize，keepAliveTime；
+     *     队列为可调整容量的队列（{@link ResizableQueue}，如：linked、priority）时同时调整队列容量。
+     *     队列中的任务和正在执行的任务不受影响；</li>
+     *     <li>线程池类型或队列类型有变化、forkjoin和virtual类型线程池的配置有变化、删除的线程池：不能在运行时调整，
+     *     输出警告日志后保持原配置，重启后生效。</li>
+     * </ul>
+     * 读取配置文件失败或配置有误时，输出错误日志后保持原配置。
+     */
+    public synchronized void reload() {
+        if (ThreadPoolStatus.INITIALITION_SUCCESSFUL != _status) {
+            _logger.warn("reload config failed, because the status was wrong, current status was {}", _status);
+            return;
+        }
+        
+        Map<String, ThreadPoolInfo> multiThreadPoolInfo;
+        try {
+            multiThreadPoolInfo = _threadPoolConfig.loadThreadPoolConfig();
+        } catch (RuntimeException e) {
+            _logger.error( String.format("reload config file '%s' failed, keep the current config", _threadPoolConfig._configFile), e);
+            return;
+        }
+        if (! multiThreadPoolInfo.containsKey(DEFAULT_THREAD_POOL)) {
+            _logger.error("the default thread pool not exists in the config file '{}', keep the current config", _threadPoolConfig._configFile);
+            return;
+        }
+        
+        for (ThreadPoolInfo newInfo : multiThreadPoolInfo.values()) {
+            ThreadPoolInfo oldInfo = _threadPoolConfig.getThreadPoolConfig(newInfo.getName());
+            try {
+                if (null == oldInfo) {
+                    ExecutorService threadPool = createThreadPool(newInfo);
+                    _keyedExecutors.put(newInfo.getName(), new KeyedSerialExecutor(newInfo.getName(), threadPool));
+                    _multiThreadPool.put(newInfo.getName(), threadPool);
+                    updatePoolSizeController(newInfo, threadPool);
+                    updateConcurrencyLimiter(newInfo);
+                    updateTaskWatchdog(newInfo, threadPool);
+                    registerMXBean(newInfo, threadPool);
+                    _threadPoolConfig.updateThreadPoolConfig(newInfo);
+                    _logger.info("reload config: create thread pool {} success", newInfo.getName());
+                } else if (resizeThreadPool(oldInfo, newInfo)) {
+                    _threadPoolConfig.updateThreadPoolConfig(newInfo);
+                }
+            } catch (RuntimeException e) {
+                _logger.error( String.format("reload config: apply the config of thread pool %s failed", newInfo.getName()), e);
+            }
+        }
+        
+        for (ThreadPoolInfo oldInfo : _threadPoolConfig.getThreadPoolConfig()) {
+            if (! multiThreadPoolInfo.containsKey(oldInfo.getName())) {
+                _logger.warn("reload config: thread pool {} was removed from the config file, it keeps running until restart", oldInfo.getName());
+            }
+        }
+        startAutoSizeJob();
+        startWatchdogJob();
+    }
+    
+    /**
+     * 按新的配置调整线程池。
+     * 
+     * @return 新的配置已应用到线程池返回true；配置没有变化或不能在运行时调整返回false
+     */
+    private boolean resizeThreadPool(ThreadPoolInfo oldInfo, ThreadPoolInfo newInfo) {
+        String name = newInfo.getName();
+        if (! oldInfo.getType().equals(newInfo.getType()) 
+                || ! ThreadPoolType.STANDARD.equals(newInfo.getType())) {
+            if (! sameConfig(oldInfo, newInfo)) {
+                _logger.warn("reload config: the type of thread pool {} was changed or it is not a standard thread pool, the new config takes effect after restart", name);
+            }
+            return false;
+        }
+        if (! oldInfo.getQueueType().equals(newInfo.getQueueType())) {
+            _logger.warn("reload config: the work queue type of thread pool {} was changed, the new config takes effect after restart", name);
+            return false;
+        }
+        if (sameConfig(oldInfo, newInfo)) {
+            return false;
+        }
+        if (newInfo.getCoreSize() > newInfo.getMaxSize()) {
+            _logger.error("reload config: corePoolSize {} greater than maxPoolSize {} of thread pool {}, keep the current config", 
+                    newInfo.getCoreSize(), newInfo.getMaxSize(), name);
+            return false;
+        }
+        
+        ExecutorService executor = _multiThreadPool.get(name);
+        if (! (executor instanceof ThreadPoolExecutor)) {
+            return false;
+        }
+        ThreadPoolExecutor threadPool = (ThreadPoolExecutor) executor;
+        
+        synchronized (threadPool) {   // 与自动调整核心线程数互斥
+            setPoolSize(threadPool, newInfo.getCoreSize(), newInfo.getMaxSize());
+            threadPool.setKeepAliveTime(newInfo.getThreadKeepAliveTime(), TimeUnit.SECONDS);
+            updatePoolSizeController(newInfo, threadPool);
+        }
+        if (oldInfo.getLimiterInitialLimit() != newInfo.getLimiterInitialLimit()
+                || oldInfo.getLimiterMinLimit() != newInfo.getLimiterMinLimit()
+                || oldInfo.getLimiterMaxLimit() != newInfo.getLimiterMaxLimit()) {
+            updateConcurrencyLimiter(newInfo);
+        }
+        if (oldInfo.getWatchdogThreshold() != newInfo.getWatchdogThreshold()
+                || oldInfo.isWatchdogInterrupt() != newInfo.isWatchdogInterrupt()) {
+            updateTaskWatchdog(newInfo, threadPool);
+        }
+        
+        BlockingQueue<Runnable> workQueue = threadPool.getQueue();
+        if (workQueue instanceof ResizableQueue) {
+            ((ResizableQueue) workQueue).setCapacity(newInfo.getQueueSize());
+        } else if (oldInfo.getQueueSize() != newInfo.getQueueSize()) {
+            _logger.warn("reload config: the capacity of {} work queue of thread pool {} can not be changed at runtime, workQueueSize takes effect after restart", 
+                    newInfo.getQueueType(), name);
+            newInfo.setQueueSize(oldInfo.getQueueSize());
+        }
+        _logger.info("reload config: resize thread pool {} success, corePoolSize:{}, maxPoolSize:{}, keepAliveTime:{}, workQueueSize:{}", 
+                name, newInfo.getCoreSize(), newInfo.getMaxSize(), newInfo.getThreadKeepAliveTime(), newInfo.getQueueSize());
         
-        _logger.info("start job 'threadpool4j-threadstack' success");
+        return true;
+    }
+    
+    /**
+     * 调整线程池的核心线程数和最大线程数，与自动调整核心线程数互斥。
+     */
+    static void setPoolSize(ThreadPoolExecutor threadPool, int corePoolSize, int maximumPoolSize) {
+        synchronized (threadPool) {
+            // 先调大再调小，保证任何时刻corePoolSize都不大于maximumPoolSize
+            if (maximumPoolSize >= threadPool.getCorePoolSize()) {
+                threadPool.setMaximumPoolSize(maximumPoolSize);
+                threadPool.setCorePoolSize(corePoolSize);
+            } else {
+                threadPool.setCorePoolSize(corePoolSize);
+                threadPool.setMaximumPoolSize(maximumPoolSize);
+            }
+        }
+    }
+    
+    private boolean sameConfig(ThreadPoolInfo oldInfo, ThreadPoolInfo newInfo) {
+        return oldInfo.getType().equals(newInfo.getType())
+                && oldInfo.getQueueType().equals(newInfo.getQueueType())
+                && oldInfo.getParallelism() == newInfo.getParallelism()
+                && oldInfo.getMaxConcurrency() == newInfo.getMaxConcurrency()
+                && oldInfo.getCoreSize() == newInfo.getCoreSize()
+                && oldInfo.getMaxSize() == newInfo.getMaxSize()
+                && oldInfo.getThreadKeepAliveTime() == newInfo.getThreadKeepAliveTime()
+                && oldInfo.getQueueSize() == newInfo.getQueueSize()
+                && oldInfo.getAutoSizeTargetWait() == newInfo.getAutoSizeTargetWait()
+                && oldInfo.getLimiterInitialLimit() == newInfo.getLimiterInitialLimit()
+                && oldInfo.getLimiterMinLimit() == newInfo.getLimiterMinLimit()
+                && oldInfo.getLimiterMaxLimit() == newInfo.getLimiterMaxLimit()
+                && oldInfo.getWatchdogThreshold() == newInfo.getWatchdogThreshold()
+                && oldInfo.isWatchdogInterrupt() == newInfo.isWatchdogInterrupt();
     }
     
     public Future<?> submit(Runnable task) {
@@ -148,7 +556,13 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
         ExecutorService threadPool = getExistsThreadPool(threadpoolName);
         _logger.debug("submit a task to thread pool {}", threadpoolName);
         
-        return threadPool.submit(task);
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(threadpoolName);
+        if (null == limiter) {
+            return threadPool.submit(task);
+        }
+        
+        return executeFutureTask(threadPool, 
+                new LimitedFutureTask<Object>(task, null, Prioritized.NORM_PRIORITY, limiter), limiter);
     }
     
     @Override
@@ -165,6 +579,302 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
         return null;
     }
     
+    @Override
+    public Future<?> submit(Runnable task, int priority, String threadpoolName) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        
+        checkPriority(priority);
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        _logger.debug("submit a task with priority {} to thread pool {}", priority, threadpoolName);
+        
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(threadpoolName);
+        PriorityFutureTask<Object> futureTask = (null == limiter) 
+                ? new PriorityFutureTask<Object>(task, null, priority) 
+                : new LimitedFutureTask<Object>(task, null, priority, limiter);
+        
+        return executeFutureTask(threadPool, futureTask, limiter);
+    }
+    
+    @Override
+    public <T> Future<T> submit(Callable<T> task, int priority, String threadpoolName) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        
+        checkPriority(priority);
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        _logger.debug("submit a task with priority {} to thread pool {}", priority, threadpoolName);
+        
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(threadpoolName);
+        PriorityFutureTask<T> futureTask = (null == limiter) 
+                ? new PriorityFutureTask<T>(task, priority) 
+                : new LimitedFutureTask<T>(task, priority, limiter);
+        
+        return executeFutureTask(threadPool, futureTask, limiter);
+    }
+    
+    @Override
+    public Future<?> submit(Runnable task, long timeout, TimeUnit unit, String threadpoolName) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        
+        checkTimeout(timeout, unit);
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        _logger.debug("submit a task with timeout {} {} to thread pool {}", timeout, unit, threadpoolName);
+        
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(threadpoolName);
+        DeadlineFutureTask<Object> futureTask = new DeadlineFutureTask<Object>(task, null, limiter, 
+                getDeadlineTaskCounter(threadpoolName));
+        
+        return executeTimeoutTask(threadPool, futureTask, unit.toNanos(timeout), limiter, threadpoolName);
+    }
+    
+    @Override
+    public <T> Future<T> submit(Callable<T> task, long timeout, TimeUnit unit, String threadpoolName) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        
+        checkTimeout(timeout, unit);
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        _logger.debug("submit a task with timeout {} {} to thread pool {}", timeout, unit, threadpoolName);
+        
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(threadpoolName);
+        DeadlineFutureTask<T> futureTask = new DeadlineFutureTask<T>(task, limiter, 
+                getDeadlineTaskCounter(threadpoolName));
+        
+        return executeTimeoutTask(threadPool, futureTask, unit.toNanos(timeout), limiter, threadpoolName);
+    }
+    
+    @Override
+    public Future<?> submitWithDeadline(final Runnable task, long deadline, final String threadpoolName, 
+            final FailHandler<Runnable> failHandler) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        _logger.debug("submit a task with deadline {} to thread pool {}", deadline, threadpoolName);
+        
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(threadpoolName);
+        DeadlineFutureTask<Object> futureTask = new DeadlineFutureTask<Object>(task, null, limiter, 
+                getDeadlineTaskCounter(threadpoolName));
+        futureTask.setDeadline(deadline, (null == failHandler) ? null : new Runnable() {
+            @Override
+            public void run() {
+                handleExpiredTask(task, threadpoolName, failHandler);
+            }
+        });
+        
+        return executeDeadlineTask(threadPool, futureTask, limiter);
+    }
+    
+    @Override
+    public <T> Future<T> submitWithDeadline(final Callable<T> task, long deadline, final String threadpoolName, 
+            final FailHandler<Callable<T>> failHandler) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        _logger.debug("submit a task with deadline {} to thread pool {}", deadline, threadpoolName);
+        
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(threadpoolName);
+        DeadlineFutureTask<T> futureTask = new DeadlineFutureTask<T>(task, limiter, 
+                getDeadlineTaskCounter(threadpoolName));
+        futureTask.setDeadline(deadline, (null == failHandler) ? null : new Runnable() {
+            @Override
+            public void run() {
+                handleExpiredTask(task, threadpoolName, failHandler);
+            }
+        });
+        
+        return executeDeadlineTask(threadPool, futureTask, limiter);
+    }
+    
+    /**
+     * 把过期的任务交给"失败处理器"，处理器抛出的异常只输出错误日志，不影响工作线程。
+     */
+    private <T> void handleExpiredTask(T task, String threadpoolName, FailHandler<T> failHandler) {
+        try {
+            failHandler.execute(task);
+        } catch (RuntimeException e) {
+            _logger.error( String.format("handle the expired task of thread pool %s occurs error", threadpoolName), e);
+        }
+    }
+    
+    /**
+     * 把有截止时间的任务交给线程池执行，提交时已超过截止时间的任务不放入队列，直接丢弃。
+     */
+    private <T> Future<T> executeDeadlineTask(ExecutorService threadPool, DeadlineFutureTask<T> futureTask, 
+            ConcurrencyLimiter limiter) {
+        if (futureTask.isExpired()) {
+            futureTask.expire();
+            return futureTask;
+        }
+        
+        return executeFutureTask(threadPool, futureTask, limiter);
+    }
+    
+    private void checkTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout less than or equals zero");
+        }
+        if (null == unit) {
+            throw new IllegalArgumentException("time unit is null");
+        }
+    }
+    
+    /**
+     * @return 线程池的超时和过期任务数计数器，第一次使用时创建。重新加载配置时保留，计数不清零
+     */
+    private DeadlineTaskCounter getDeadlineTaskCounter(String threadpoolName) {
+        DeadlineTaskCounter counter = _deadlineTaskCounters.get(threadpoolName);
+        if (null == counter) {
+            DeadlineTaskCounter newCounter = new DeadlineTaskCounter();
+            counter = _deadlineTaskCounters.putIfAbsent(threadpoolName, newCounter);
+            if (null == counter) {
+                counter = newCounter;
+            }
+        }
+        
+        return counter;
+    }
+    
+    /**
+     * 在时间轮中加入任务的截止时间后把任务交给线程池执行，线程池拒绝时取消截止时间。
+     * 多线程池已关闭（时间轮已停止）时归还并发限制器的许可，抛出RejectedExecutionException。
+     */
+    private <T> Future<T> executeTimeoutTask(ExecutorService threadPool, DeadlineFutureTask<T> futureTask, 
+            long timeoutNanos, ConcurrencyLimiter limiter, String threadpoolName) {
+        try {
+            futureTask.schedule(_timingWheel, timeoutNanos);
+        } catch (IllegalStateException e) {
+            // 多线程池已关闭，时间轮已停止
+            if (null != limiter) {
+                limiter.release();
+            }
+            throw new RejectedExecutionException( String.format("thread pool %s was shutdown, can not submit a task with timeout", 
+                    threadpoolName), e );
+        }
+        try {
+            return executeFutureTask(threadPool, futureTask, limiter);
+        } catch (RejectedExecutionException e) {
+            futureTask.cancelTimeout();
+            throw e;
+        }
+    }
+    
+    private int checkPriority(int priority) {
+        if (priority < Prioritized.MIN_PRIORITY || priority > Prioritized.MAX_PRIORITY) {
+            throw new IllegalArgumentException( String.format("priority %d out of range [%d, %d]", 
+                    priority, Prioritized.MIN_PRIORITY, Prioritized.MAX_PRIORITY) );
+        }
+        
+        return priority;
+    }
+    
+    /**
+     * 线程池配置了自适应并发限制器时获取一个许可。
+     * 
+     * @return 线程池的并发限制器，没有配置返回null
+     * @throws RejectedExecutionException 同时在线程池中的任务数已达到上限
+     */
+    private ConcurrencyLimiter acquireConcurrencyLimit(String threadpoolName) {
+        ConcurrencyLimiter limiter = _concurrencyLimiters.get(threadpoolName);
+        if (null != limiter) {
+            limiter.acquire();
+        }
+        
+        return limiter;
+    }
+    
+    /**
+     * 把任务交给线程池执行，线程池拒绝时归还并发限制器的许可。
+     */
+    private <T> Future<T> executeFutureTask(ExecutorService threadPool, FutureTask<T> futureTask, 
+            ConcurrencyLimiter limiter) {
+        try {
+            threadPool.execute(futureTask);
+        } catch (RejectedExecutionException e) {
+            if (null != limiter) {
+                limiter.release();
+            }
+            throw e;
+        }
+        
+        return futureTask;
+    }
+    
+    /**
+     * 把不需要返回值的任务交给线程池执行，线程池配置了自适应并发限制器时任务执行完成后归还许可。
+     * standard类型的线程池用{@link LimitedTask}包装任务，记录入队时间（见{@link NamedThreadPoolExecutor}）。
+     */
+    private void executeTask(ExecutorService threadPool, Runnable task, String threadpoolName) {
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(threadpoolName);
+        if (null == limiter && ! (threadPool instanceof NamedThreadPoolExecutor)) {
+            threadPool.execute(task);   // forkjoin和virtual类型的线程池自己记录入队时间
+            return;
+        }
+        
+        try {
+            threadPool.execute(new LimitedTask(task, limiter));   // 入队时间记录在包装中
+        } catch (RejectedExecutionException e) {
+            if (null != limiter) {
+                limiter.release();
+            }
+            throw e;
+        }
+    }
+    
+    @Override
+    public Future<?> submit(Runnable task, Object key, String threadpoolName) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        if (null == key) {
+            throw new IllegalArgumentException("key is null");
+        }
+        
+        getExistsThreadPool(threadpoolName);
+        KeyedSerialExecutor keyedExecutor = _keyedExecutors.get(threadpoolName);
+        _logger.debug("submit a task with key {} to thread pool {}", key, threadpoolName);
+        
+        return keyedExecutor.submit(task, key);
+    }
+    
+    @Override
+    public void execute(Runnable task) {
+        execute(task, DEFAULT_THREAD_POOL);
+    }
+    
+    @Override
+    public void execute(Runnable task, String threadpoolName) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        _logger.debug("execute a task in thread pool {}", threadpoolName);
+        
+        executeTask(threadPool, task, threadpoolName);
+    }
+    
+    @Override
+    public void execute(Runnable task, String threadpoolName, 
+            FailHandler<Runnable> failHandler) {
+        try {
+            execute(task, threadpoolName);
+        } catch (RejectedExecutionException e) {
+            if (null != failHandler) {
+                failHandler.execute(task);
+            }
+        }
+    }
+    
     ExecutorService getThreadPool(String threadpoolName) {
         if (StringUtil.isBlank(threadpoolName)) {
             throw new IllegalArgumentException("thread pool name is empty");
@@ -198,7 +908,13 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
         ExecutorService threadPool = getExistsThreadPool(threadpoolName);
         _logger.debug("submit a task to thread pool {}", threadpoolName);
         
-        return threadPool.submit(task);
+        ConcurrencyLimiter limiter = acquireConcurrencyLimit(threadpoolName);
+        if (null == limiter) {
+            return threadPool.submit(task);
+        }
+        
+        return executeFutureTask(threadPool, 
+                new LimitedFutureTask<T>(task, Prioritized.NORM_PRIORITY, limiter), limiter);
     }
     
     @Override
@@ -215,6 +931,42 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
         return null;
     }
     
+    @Override
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task) {
+        return submitAsync(task, DEFAULT_THREAD_POOL);
+    }
+    
+    @Override
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task, String threadpoolName) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        _logger.debug("submit an async task to thread pool {}", threadpoolName);
+        
+        PoolCompletableFuture<T> future = new PoolCompletableFuture<T>(threadPool);
+        executeTask(threadPool, new AsyncTask<T>(task, future), threadpoolName);
+        
+        return future;
+    }
+    
+    @Override
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task, String threadpoolName, 
+            FailHandler<Callable<T>> failHandler) {
+        try {
+            return submitAsync(task, threadpoolName);
+        } catch (RejectedExecutionException e) {
+            if (null != failHandler) {
+                failHandler.execute(task);
+            }
+            
+            CompletableFuture<T> future = new PoolCompletableFuture<T>(getExistsThreadPool(threadpoolName));
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+    
     @Override
     public <T> List<Future<T>> invokeAll(Collection<Callable<T>> tasks, 
             long timeout, TimeUnit timeoutUnit) {
@@ -224,6 +976,50 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
     @Override
     public <T> List<Future<T>> invokeAll(Collection<Callable<T>> tasks,
             long timeout, TimeUnit timeoutUnit, String threadpoolName) {
+        ExecutorService threadPool = checkInvokeArgs(tasks, timeout, threadpoolName);
+        _logger.debug("invoke task list in thread pool {}", threadpoolName);
+        
+        try {
+            return threadPool.invokeAll(tasks, timeout, timeoutUnit);
+        } catch (InterruptedException e) {
+            _logger.error("invoke task list occurs error", e);
+        }
+        
+        return null;
+    }
+    
+    @Override
+    public <T> CompletionOrderIterator<T> invokeAllStreaming(Collection<Callable<T>> tasks, 
+            long timeout, TimeUnit timeoutUnit) {
+        return invokeAllStreaming(tasks, timeout, timeoutUnit, DEFAULT_THREAD_POOL);
+    }
+    
+    @Override
+    public <T> CompletionOrderIterator<T> invokeAllStreaming(Collection<Callable<T>> tasks, 
+            long timeout, TimeUnit timeoutUnit, String threadpoolName) {
+        ExecutorService threadPool = checkInvokeArgs(tasks, timeout, threadpoolName);
+        _logger.debug("invoke task list in thread pool {} and return results in completion order", threadpoolName);
+        
+        return new CompletionOrderIterator<T>(threadPool, tasks, timeout, timeoutUnit);
+    }
+    
+    @Override
+    public <T> T invokeAny(Collection<Callable<T>> tasks, long timeout, TimeUnit timeoutUnit) 
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return invokeAny(tasks, timeout, timeoutUnit, DEFAULT_THREAD_POOL);
+    }
+    
+    @Override
+    public <T> T invokeAny(Collection<Callable<T>> tasks, long timeout, TimeUnit timeoutUnit, 
+            String threadpoolName) throws InterruptedException, ExecutionException, TimeoutException {
+        ExecutorService threadPool = checkInvokeArgs(tasks, timeout, threadpoolName);
+        _logger.debug("invoke any task of the list in thread pool {}", threadpoolName);
+        
+        // 返回前会取消其他还未完成的任务
+        return threadPool.invokeAny(tasks, timeout, timeoutUnit);
+    }
+    
+    private ExecutorService checkInvokeArgs(Collection<?> tasks, long timeout, String threadpoolName) {
         if (null == tasks || tasks.isEmpty()) {
             throw new IllegalArgumentException("task list is null or empty");
         }
@@ -231,16 +1027,48 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
             throw new IllegalArgumentException("timeout less than or equals zero");
         }
         
-        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
-        _logger.debug("invoke task list in thread pool {}", threadpoolName);
+        return getExistsThreadPool(threadpoolName);
+    }
+    
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit, String threadpoolName) {
+        return scheduleTask(task, delay, 0, unit, threadpoolName);
+    }
+    
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, 
+            TimeUnit unit, String threadpoolName) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period less than or equals zero");
+        }
         
-        try {
-            return threadPool.invokeAll(tasks, timeout, timeoutUnit);
-        } catch (InterruptedException e) {
-            _logger.error("invoke task list occurs error", e);
+        return scheduleTask(task, initialDelay, period, unit, threadpoolName);
+    }
+    
+    private ScheduledFuture<?> scheduleTask(Runnable task, long delay, long period, 
+            TimeUnit unit, String threadpoolName) {
+        if (null == task) {
+            throw new IllegalArgumentException("task is null");
+        }
+        if (null == unit) {
+            throw new IllegalArgumentException("time unit is null");
         }
         
-        return null;
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        _logger.debug("schedule a task to thread pool {} after {} {}", threadpoolName, delay, unit);
+        
+        TimingWheelScheduledTask<Object> scheduledTask = new TimingWheelScheduledTask<Object>(task, _timingWheel, 
+                threadPool, threadpoolName, System.nanoTime() + unit.toNanos(delay), unit.toNanos(period), _scheduledTasks);
+        scheduledTask.start();
+        
+        return scheduledTask;
+    }
+    
+    @Override
+    public PoolHandle handle(String threadpoolName) {
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        
+        return new PoolHandle(threadpoolName, threadPool, getConcurrencyLimiterRef(threadpoolName));
     }
     
     @Override
@@ -257,37 +1085,284 @@ public class ThreadPoolImpl implements ILifeCycle, ThreadPool {
         return info.clone();
     }
     
+    @Override
+    public LatencyHistogram.Snapshot getQueueWaitLatency(String threadpoolName) {
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        if (! (threadPool instanceof TimedExecutor)) {
+            return null;
+        }
+        
+        return ((TimedExecutor) threadPool).getQueueWaitHistogram().snapshot();
+    }
+    
+    @Override
+    public LatencyHistogram.Snapshot getExecutionLatency(String threadpoolName) {
+        ExecutorService threadPool = getExistsThreadPool(threadpoolName);
+        if (! (threadPool instanceof TimedExecutor)) {
+            return null;
+        }
+        
+        return ((TimedExecutor) threadPool).getExecutionHistogram().snapshot();
+    }
+    
     @Override
     public void destroy() {
         if (ThreadPoolStatus.DESTROYED == _status) {
             return;
         }
         
+        destroy(true);
+    }
+    
+    /**
+     * @param stopTimingWheel 是否停止时间轮。等待线程池排空时（{@link #destroy(long, TimeUnit, FailHandler)}）时间轮继续运行，
+     * 排空期间任务的超时时间仍然有效，线程池终止或被强制关闭后再停止
+     */
+    private void destroy(boolean stopTimingWheel) {        
+        if (null != _metricsServer) {
+            _metricsServer.destroy();
+            _logger.info("stop metrics server success");
+            _metricsServer = null;
+        }
+        
+        for (ThreadPoolMXBeanImpl mxBean : _mxBeans.values()) {
+            mxBean.unregister();
+        }
+        _mxBeans.clear();
+        
+        if (null != _configReloadJob) {
+            _jobScheduler.cancel(_configReloadJob);
+            _configReloadJob = null;
+        }
+        
+        if (null != _autoSizeJob) {
+            _jobScheduler.cancel(_autoSizeJob);
+            _autoSizeJob = null;
+        }
+        for (PoolSizeController controller : _poolSizeControllers.values()) {
+            controller.stop();
+        }
+        _poolSizeControllers.clear();
+        
+        if (null != _watchdogJob) {
+            _jobScheduler.cancel(_watchdogJob);
+            _watchdogJob = null;
+        }
+        _taskWatchdogs.clear();
+        
+        cancelScheduledTasks();
+        if (stopTimingWheel) {
+            stopTimingWheel();
+        }
+        
         for (Entry<String, ExecutorService> entry : _multiThreadPool.entrySet()) {
             _logger.info("shutdown the thread pool {}", entry.getKey());
             entry.getValue().shutdown();
         }
         
         if (null != _threadPoolStateJob) {
-            _threadPoolStateJob.destroy();
-            _logger.info("stop job 'threadpool4j-threadpoolstate' success");
+            _jobScheduler.cancel(_threadPoolStateJob);
             _threadPoolStateJob = null;
         }
         
         if (null != _threadStateJob) {
-            _threadStateJob.destroy();
-            _logger.info("stop job 'threadpool4j-threadstate' success");
+            _jobScheduler.cancel(_threadStateJob);
             _threadStateJob = null;
         }
         
         if (null != _threadStackJob) {
-            _threadStackJob.destroy();
-            _logger.info("stop job 'threadpool4j-threadstack' success");
+            _jobScheduler.cancel(_threadStackJob);
             _threadStackJob = null;
         }
         
+        if (null != _deadlockJob) {
+            _jobScheduler.cancel(_deadlockJob);
+            _deadlockJob = null;
+        }
+        
+        if (null != _jobScheduler) {
+            _jobScheduler.destroy();
+            _jobScheduler = null;
+        }
+        
         _threadPoolConfig.destroy();
         _status = ThreadPoolStatus.DESTROYED;
     }
+    
+    /**
+     * 关闭多线程池，并在指定的时间内等待所有线程池排空（执行完队列中的任务和正在执行的任务）。超时后强制关闭仍未终止的线程池，
+     * 队列中没有执行的任务输出错误日志并被取消。
+     * 
+     * @see #destroy(long, TimeUnit, FailHandler)
+     */
+    public Map<String, DrainInfo> destroy(long timeout, TimeUnit unit) {
+        return destroy(timeout, unit, null);
+    }
+    
+    /**
+     * 关闭多线程池，并在指定的时间内等待所有线程池排空（执行完队列中的任务和正在执行的任务）。
+     * <p>
+     * 所有线程池同时关闭，共用一个截止时间，总的等待时间不会超过<code>timeout</code>。超时后仍未终止的线程池被强制关闭
+     * （{@link ExecutorService#shutdownNow()}，中断正在执行的任务），队列中没有执行的任务逐个交给<code>failHandler</code>处理
+     * （转交给其他执行器执行或者取消）。<code>failHandler</code>为null时输出错误日志，取消其中的{@link Future}，
+     * {@link #submitAsync(Callable, String)}的结果以{@link RejectedExecutionException}异常完成，等待结果的调用者不会一直阻塞。
+     * 
+     * @param timeout 等待所有线程池排空的最长时间
+     * @param unit <code>timeout</code>的时间单位
+     * @param failHandler 超时后没有执行的任务的处理器，可以为null
+     * @return 每个线程池的排空结果，key为线程池名称。多线程池已关闭时返回空Map
+     */
+    public Map<String, DrainInfo> destroy(long timeout, TimeUnit unit, FailHandler<? super Runnable> failHandler) {
+        Map<String, DrainInfo> result = new LinkedHashMap<String, DrainInfo>();
+        if (ThreadPoolStatus.DESTROYED == _status) {
+            return result;
+        }
+        
+        long start = System.nanoTime();
+        long deadline = start + unit.toNanos(timeout);
+        Map<String, ExecutorService> pending = new LinkedHashMap<String, ExecutorService>(_multiThreadPool);
+        Map<String, KeyedSerialExecutor> keyedExecutors = new HashMap<String, KeyedSerialExecutor>(_keyedExecutors);
+        for (String name : pending.keySet()) {
+            result.put(name, new DrainInfo());
+        }
+        destroy(false);
+        
+        boolean interrupted = false;
+        while (! pending.isEmpty() && ! interrupted) {
+            Iterator<Entry<String, ExecutorService>> it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                Entry<String, ExecutorService> entry = it.next();
+                if (entry.getValue().isTerminated()) {
+                    DrainInfo info = result.get(entry.getKey());
+                    info.terminated = true;
+                    info.drainTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    it.remove();
+                }
+            }
+            
+            long remaining = deadline - System.nanoTime();
+            if (pending.isEmpty() || remaining <= 0) {
+                break;
+            }
+            try {
+                // 所有线程池同时排空，每次只在其中一个线程池上短暂等待，及时记录其他线程池的终止时间
+                pending.values().iterator().next().awaitTermination(Math.min(remaining, DRAIN_POLL_NANOS), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        
+        for (Entry<String, ExecutorService> entry : pending.entrySet()) {
+            List<Runnable> tasks = entry.getValue().shutdownNow();
+            KeyedSerialExecutor keyedExecutor = keyedExecutors.get(entry.getKey());
+            if (null != keyedExecutor) {
+                tasks = keyedExecutor.drainTo(new ArrayList<Runnable>(tasks));
+            }
+            DrainInfo info = result.get(entry.getKey());
+            info.drainTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            info.unexecutedTaskCount = tasks.size();
+            for (Runnable task : tasks) {
+                handleUnexecutedTask(entry.getKey(), task, failHandler);
+            }
+            _logger.warn("thread pool {} was not drained in {} ms, shutdown now and {} task(s) in the queue were not executed", 
+                    entry.getKey(), info.drainTime, tasks.size());
+        }
+        for (Entry<String, DrainInfo> entry : result.entrySet()) {
+            if (entry.getValue().terminated) {
+                _logger.info("thread pool {} was drained in {} ms", entry.getKey(), entry.getValue().drainTime);
+            }
+        }
+        
+        stopTimingWheel();
+        
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        
+        return result;
+    }
+    
+    private void stopTimingWheel() {
+        if (null != _timingWheel) {
+            _timingWheel.stop();
+            _logger.info("stop timing wheel 'threadpool4j-timer' success");
+        }
+    }
+    
+    /**
+     * 取消所有还未结束的定时任务，等待结果的调用者不会一直阻塞。
+     */
+    private void cancelScheduledTasks() {
+        int count = 0;
+        for (TimingWheelScheduledTask<?> scheduledTask : _scheduledTasks) {
+            if (scheduledTask.cancel(false)) {
+                count++;
+            }
+        }
+        _scheduledTasks.clear();
+        if (count > 0) {
+            _logger.info("cancel {} scheduled task(s) that were not finished", count);
+        }
+    }
+    
+    private void handleUnexecutedTask(String threadpoolName, Runnable task, FailHandler<? super Runnable> failHandler) {
+        if (null == failHandler) {
+            _logger.error("thread pool {} was shutdown, the task {} was not executed", threadpoolName, task);
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            } else if (task instanceof RejectableTask) {
+                ((RejectableTask) task).reject(new RejectedExecutionException( 
+                        String.format("thread pool %s was shutdown before the task was executed", threadpoolName) ));
+            }
+            return;
+        }
+        
+        if (task instanceof LimitedTask) {
+            task = ((LimitedTask) task).unwrap();   // 交给失败处理器的是提交的任务，而不是包装
+        }
+        try {
+            failHandler.execute(task);
+        } catch (RuntimeException e) {
+            _logger.error( String.format("handle the unexecuted task of thread pool %s occurs error", threadpoolName), e);
+        }
+    }
+    
+    /**
+     * {@link #submitAsync(Callable, String)}的任务：执行结果写入{@link PoolCompletableFuture}。
+     */
+    private static class AsyncTask<T> implements RejectableTask {
+        
+        private final Callable<T> _task;
+        
+        private final CompletableFuture<T> _future;
+        
+        public AsyncTask(Callable<T> task, CompletableFuture<T> future) {
+            this._task = task;
+            this._future = future;
+        }
+        
+        @Override
+        public void run() {
+            if (_future.isDone()) {
+                return;   // 执行前已被取消
+            }
+            try {
+                _future.complete(_task.call());
+            } catch (Throwable e) {
+                _future.completeExceptionally(e);
+            }
+        }
+        
+        @Override
+        public void reject(RejectedExecutionException e) {
+            _future.completeExceptionally(e);
+        }
+        
+        @Override
+        public String toString() {
+            return _task.toString();
+        }
+        
+    }
 
 }
@@ -14,6 +14,15 @@ public class ThreadPoolInfo implements Serializable, Cloneable {
     // 线程池名称
     private String name;
     
+    // 线程池类型，见{@link ThreadPoolType}
+    private String type = ThreadPoolType.STANDARD;
+    
+    // 并行度（工作线程数），只用于forkjoin类型的线程池
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    
+    // 同时执行的最大任务数，只用于virtual类型的线程池
+    private int maxConcurrency = 1000;
+    
     // 核心线程数
     private int coreSize = 5;
     
@@ -25,6 +34,27 @@ public class ThreadPoolInfo implements Serializable, Cloneable {
     
     // 线程池队列的容量
     private int queueSize = 10000;
+    
+    // 线程池队列的类型，见{@link WorkQueueType}
+    private String queueType = WorkQueueType.LINKED;
+    
+    // 自动调整核心线程数的目标等待时间（任务在队列中的平均等待时间）。单位：毫秒，0表示不自动调整
+    private long autoSizeTargetWait = 0;
+    
+    // 自适应并发限制器的初始上限，0表示不限制
+    private int limiterInitialLimit = 0;
+    
+    // 自适应并发限制器上限的最小值
+    private int limiterMinLimit = 1;
+    
+    // 自适应并发限制器上限的最大值
+    private int limiterMaxLimit = 1000;
+    
+    // 任务执行时间的报警阈值。单位：毫秒，0表示不检查
+    private long watchdogThreshold = 0;
+    
+    // 任务执行时间超过阈值时是否中断执行任务的线程
+    private boolean watchdogInterrupt = false;
 
     public String getName() {
         return name;
@@ -34,6 +64,30 @@ public class ThreadPoolInfo implements Serializable, Cloneable {
         this.name = name;
     }
 
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
     public int getCoreSize() {
         return coreSize;
     }
@@ -66,13 +120,79 @@ public class ThreadPoolInfo implements Serializable, Cloneable {
         this.queueSize = queueSize;
     }
 
+    public String getQueueType() {
+        return queueType;
+    }
+
+    public void setQueueType(String queueType) {
+        this.queueType = queueType;
+    }
+
+    public long getAutoSizeTargetWait() {
+        return autoSizeTargetWait;
+    }
+
+    public void setAutoSizeTargetWait(long autoSizeTargetWait) {
+        this.autoSizeTargetWait = autoSizeTargetWait;
+    }
+
+    public int getLimiterInitialLimit() {
+        return limiterInitialLimit;
+    }
+
+    public void setLimiterInitialLimit(int limiterInitialLimit) {
+        this.limiterInitialLimit = limiterInitialLimit;
+    }
+
+    public int getLimiterMinLimit() {
+        return limiterMinLimit;
+    }
+
+    public void setLimiterMinLimit(int limiterMinLimit) {
+        this.limiterMinLimit = limiterMinLimit;
+    }
+
+    public int getLimiterMaxLimit() {
+        return limiterMaxLimit;
+    }
+
+    public void setLimiterMaxLimit(int limiterMaxLimit) {
+        this.limiterMaxLimit = limiterMaxLimit;
+    }
+
+    public long getWatchdogThreshold() {
+        return watchdogThreshold;
+    }
+
+    public void setWatchdogThreshold(long watchdogThreshold) {
+        this.watchdogThreshold = watchdogThreshold;
+    }
+
+    public boolean isWatchdogInterrupt() {
+        return watchdogInterrupt;
+    }
+
+    public void setWatchdogInterrupt(boolean watchdogInterrupt) {
+        this.watchdogInterrupt = watchdogInterrupt;
+    }
+
     public ThreadPoolInfo clone() {
         ThreadPoolInfo obj = new ThreadPoolInfo();
         obj.name = this.name;
+        obj.type = this.type;
+        obj.parallelism = this.parallelism;
+        obj.maxConcurrency = this.maxConcurrency;
         obj.coreSize = this.coreSize;
         obj.maxSize = this.maxSize;
         obj.threadKeepAliveTime = this.threadKeepAliveTime;
         obj.queueSize = this.queueSize;
+        obj.queueType = this.queueType;
+        obj.autoSizeTargetWait = this.autoSizeTargetWait;
+        obj.limiterInitialLimit = this.limiterInitialLimit;
+        obj.limiterMinLimit = this.limiterMinLimit;
+        obj.limiterMaxLimit = this.limiterMaxLimit;
+        obj.watchdogThreshold = this.watchdogThreshold;
+        obj.watchdogInterrupt = this.watchdogInterrupt;
         
         return obj;
     }
@@ -111,10 +231,20 @@ public class ThreadPoolInfo implements Serializable, Cloneable {
     public String toString() {
         StringBuilder buffer = new StringBuilder(160)
             .append("ThreadPoolInfo [name=").append(name)
+            .append(", type=").append(type)
+            .append(", parallelism=").append(parallelism)
+            .append(", maxConcurrency=").append(maxConcurrency)
             .append(", coreSize=").append(coreSize)
             .append(", maxSize=").append(maxSize)
             .append(", threadKeepAliveTime=").append(threadKeepAliveTime)
-            .append(", queueSize=").append(queueSize).append("]");
+            .append(", queueSize=").append(queueSize)
+            .append(", queueType=").append(queueType)
+            .append(", autoSizeTargetWait=").append(autoSizeTargetWait)
+            .append(", limiterInitialLimit=").append(limiterInitialLimit)
+            .append(", limiterMinLimit=").append(limiterMinLimit)
+            .append(", limiterMaxLimit=").append(limiterMaxLimit)
+            .append(", watchdogThreshold=").append(watchdogThreshold)
+            .append(", watchdogInterrupt=").append(watchdogInterrupt).append("]");
         
         return buffer.toString();
     }
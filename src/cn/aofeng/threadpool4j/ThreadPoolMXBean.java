@@ -0,0 +1,158 @@
+package cn.aofeng.threadpool4j;
+
+/**
+ * 线程池的JMX管理接口，每个线程池注册一个，ObjectName为：cn.aofeng.threadpool4j:type=ThreadPool,name=线程池名称。
+ * <p>
+ * 监控系统可以直接按秒轮询线程池的状态，不需要解析{@link cn.aofeng.threadpool4j.job.ThreadPoolStateJob}输出的日志。
+ * 线程池类型不支持的指标返回-1。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public interface ThreadPoolMXBean {
+
+    /**
+     * @return 线程池名称
+     */
+    public String getName();
+
+    /**
+     * @return 线程池类型：standard、forkjoin或virtual
+     */
+    public String getType();
+
+    /**
+     * @return 核心线程数。forkjoin类型为并行度，virtual类型为最大并发数
+     */
+    public int getCorePoolSize();
+
+    /**
+     * 调整核心线程数，只支持standard类型的线程池。
+     *
+     * @see #resize(int, int)
+     */
+    public void setCorePoolSize(int corePoolSize);
+
+    /**
+     * @return 最大线程数。forkjoin类型为并行度，virtual类型为最大并发数
+     */
+    public int getMaximumPoolSize();
+
+    /**
+     * 调整最大线程数，只支持standard类型的线程池。
+     *
+     * @see #resize(int, int)
+     */
+    public void setMaximumPoolSize(int maximumPoolSize);
+
+    /**
+     * 同时调整核心线程数和最大线程数，只支持standard类型的线程池。
+     * 调整只对运行中的线程池有效，重启后以配置文件为准；线程池配置了autosize时，核心线程数之后仍会被自动调整。
+     *
+     * @param corePoolSize 核心线程数
+     * @param maximumPoolSize 最大线程数
+     * @throws IllegalArgumentException corePoolSize小于0，maximumPoolSize小于1，或corePoolSize大于maximumPoolSize
+     * @throws UnsupportedOperationException 不是standard类型的线程池
+     */
+    public void resize(int corePoolSize, int maximumPoolSize);
+
+    /**
+     * @return 当前的线程数
+     */
+    public int getPoolSize();
+
+    /**
+     * @return 正在执行任务的线程数
+     */
+    public int getActiveCount();
+
+    /**
+     * @return 曾经达到的最大线程数
+     */
+    public int getLargestPoolSize();
+
+    /**
+     * @return 队列中等待执行的任务数。virtual类型为等待并发许可的线程数
+     */
+    public int getQueueSize();
+
+    /**
+     * @return 队列的剩余容量，无界队列返回{@link Integer#MAX_VALUE}
+     */
+    public int getQueueRemainingCapacity();
+
+    /**
+     * @return 提交的任务总数
+     */
+    public long getTaskCount();
+
+    /**
+     * @return 执行完成的任务总数
+     */
+    public long getCompletedTaskCount();
+
+    /**
+     * @return 执行失败（抛出异常）的任务数
+     */
+    public long getFailedTaskCount();
+
+    /**
+     * @return 被拒绝的任务数（线程池拒绝的任务数 + 自适应并发限制器拒绝的任务数）
+     */
+    public long getRejectedTaskCount();
+
+    /**
+     * @return 超过超时时间被取消的任务数（见{@link ThreadPool#submit(Runnable, long, java.util.concurrent.TimeUnit, String)}）
+     */
+    public long getTimeoutTaskCount();
+
+    /**
+     * @return 出队时（或提交时）已超过截止时间、没有执行就被丢弃的任务数（见{@link ThreadPool#submitWithDeadline(Runnable, long, String, FailHandler)}）
+     */
+    public long getExpiredTaskCount();
+
+    /**
+     * @return 每秒提交的任务数（最近一个统计周期的平均值，统计周期不小于1秒）
+     */
+    public double getSubmitRate();
+
+    /**
+     * @return 每秒完成的任务数（最近一个统计周期的平均值，统计周期不小于1秒）
+     */
+    public double getCompletionRate();
+
+    /**
+     * @return 自适应并发限制器的当前上限，没有配置limiter返回-1
+     */
+    public int getConcurrencyLimit();
+
+    /**
+     * @return 最近一个统计周期内任务在队列中等待时间的50百分位数（单位：微秒）
+     */
+    public long getQueueWaitP50();
+
+    /**
+     * @return 最近一个统计周期内任务在队列中等待时间的99百分位数（单位：微秒）
+     */
+    public long getQueueWaitP99();
+
+    /**
+     * @return 最近一个统计周期内任务在队列中等待时间的99.9百分位数（单位：微秒）
+     */
+    public long getQueueWaitP999();
+
+    /**
+     * @return 最近一个统计周期内任务执行时间的50百分位数（单位：微秒）
+     */
+    public long getExecutionP50();
+
+    /**
+     * @return 最近一个统计周期内任务执行时间的99百分位数（单位：微秒）
+     */
+    public long getExecutionP99();
+
+    /**
+     * @return 最近一个统计周期内任务执行时间的99.9百分位数（单位：微秒）
+     */
+    public long getExecutionP999();
+
+}
@@ -0,0 +1,458 @@
+package cn.aofeng.threadpool4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ThreadPoolMXBean}的实现，读取线程池的实时状态。
+ * <p>
+ * 速率和延迟百分位数按统计周期计算：距离上一次计算超过{@link #SAMPLE_INTERVAL}秒时，用两次计算之间的任务数差值
+ * 和直方图快照的差值重新计算，否则返回上一次的结果。多个监控系统同时轮询时互不影响。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ThreadPoolMXBeanImpl implements ThreadPoolMXBean {
+
+    private static Logger _logger = LoggerFactory.getLogger(ThreadPoolMXBeanImpl.class);
+
+    public final static String DOMAIN = "cn.aofeng.threadpool4j";
+
+    /** 统计周期的最小值（单位：秒） */
+    final static int SAMPLE_INTERVAL = 1;
+
+    /** 已注册的MBean，同名的线程池重复注册时后注册的替换先注册的，注销时只注销自己注册的 */
+    private final static Map<ObjectName, ThreadPoolMXBeanImpl> _registered = new ConcurrentHashMap<ObjectName, ThreadPoolMXBeanImpl>();
+
+    private final String _name;
+
+    private final String _type;
+
+    private final ExecutorService _threadPool;
+
+    /** 所有线程池的自适应并发限制器，重新加载配置时会被替换，每次按名称读取 */
+    private final Map<String, ConcurrencyLimiter> _concurrencyLimiters;
+
+    /** 所有线程池的超时和过期任务数，第一次提交有超时时间或截止时间的任务时创建，每次按名称读取 */
+    private final Map<String, DeadlineTaskCounter> _deadlineTaskCounters;
+
+    private final ObjectName _objectName;
+
+    private long _lastSampleNanos;
+
+    private long _lastTaskCount;
+
+    private long _lastCompletedTaskCount;
+
+    private double _submitRate;
+
+    private double _completionRate;
+
+    private LatencyHistogram.Snapshot _lastQueueWait;
+
+    private LatencyHistogram.Snapshot _lastExecution;
+
+    private LatencyHistogram.Snapshot _intervalQueueWait;
+
+    private LatencyHistogram.Snapshot _intervalExecution;
+
+    /**
+     * @param name 线程池名称
+     * @param type 线程池类型
+     * @param threadPool 线程池
+     * @param concurrencyLimiters 所有线程池的自适应并发限制器，key为线程池名称
+     */
+    public ThreadPoolMXBeanImpl(String name, String type, ExecutorService threadPool,
+            Map<String, ConcurrencyLimiter> concurrencyLimiters) {
+        this(name, type, threadPool, concurrencyLimiters, new ConcurrentHashMap<String, DeadlineTaskCounter>());
+    }
+
+    /**
+     * @param name 线程池名称
+     * @param type 线程池类型
+     * @param threadPool 线程池
+     * @param concurrencyLimiters 所有线程池的自适应并发限制器，key为线程池名称
+     * @param deadlineTaskCounters 所有线程池的超时和过期任务数，key为线程池名称
+     */
+    public ThreadPoolMXBeanImpl(String name, String type, ExecutorService threadPool,
+            Map<String, ConcurrencyLimiter> concurrencyLimiters, Map<String, DeadlineTaskCounter> deadlineTaskCounters) {
+        this._name = name;
+        this._type = type;
+        this._threadPool = threadPool;
+        this._concurrencyLimiters = concurrencyLimiters;
+        this._deadlineTaskCounters = deadlineTaskCounters;
+        this._objectName = createObjectName(name);
+
+        _lastSampleNanos = System.nanoTime();
+        _lastTaskCount = Math.max(0, getTaskCount());
+        _lastCompletedTaskCount = Math.max(0, getCompletedTaskCount());
+        if (threadPool instanceof TimedExecutor) {
+            _lastQueueWait = ((TimedExecutor) threadPool).getQueueWaitHistogram().snapshot();
+            _lastExecution = ((TimedExecutor) threadPool).getExecutionHistogram().snapshot();
+            _intervalQueueWait = _lastQueueWait.since(_lastQueueWait);
+            _intervalExecution = _intervalQueueWait;
+        }
+    }
+
+    /**
+     * @return ObjectName，如：cn.aofeng.threadpool4j:type=ThreadPool,name=default。线程池名称中有特殊字符时加引号
+     */
+    static ObjectName createObjectName(String name) {
+        String value = name;
+        for (int i = 0; i < name.length(); i++) {
+            if (",=:\"*?\n".indexOf(name.charAt(i)) >= 0) {
+                value = ObjectName.quote(name);
+                break;
+            }
+        }
+
+        try {
+            return new ObjectName(DOMAIN + ":type=ThreadPool,name=" + value);
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException( String.format("invalid thread pool name %s", name), e);
+        }
+    }
+
+    /**
+     * 注册到JVM的MBeanServer。同名的MBean已存在时（如：同一个JVM中重新初始化线程池）替换。注册失败只输出警告日志。
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (_registered) {
+            try {
+                try {
+                    server.registerMBean(this, _objectName);
+                } catch (InstanceAlreadyExistsException e) {
+                    server.unregisterMBean(_objectName);
+                    server.registerMBean(this, _objectName);
+                }
+                _registered.put(_objectName, this);
+            } catch (JMException e) {
+                _logger.warn( String.format("register mbean %s of thread pool %s failed", _objectName, _name), e);
+            }
+        }
+    }
+
+    /**
+     * 从JVM的MBeanServer注销。已被同名的MBean替换时不注销。
+     */
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (_registered) {
+            if (! _registered.remove(_objectName, this)) {
+                return;
+            }
+            try {
+                server.unregisterMBean(_objectName);
+            } catch (JMException e) {
+                _logger.warn( String.format("unregister mbean %s of thread pool %s failed", _objectName, _name), e);
+            }
+        }
+    }
+
+    /**
+     * @return 注册使用的ObjectName
+     */
+    public ObjectName getObjectName() {
+        return _objectName;
+    }
+
+    /**
+     * @return 线程池
+     */
+    ExecutorService getThreadPool() {
+        return _threadPool;
+    }
+
+    @Override
+    public String getName() {
+        return _name;
+    }
+
+    @Override
+    public String getType() {
+        return _type;
+    }
+
+    @Override
+    public int getCorePoolSize() {
+        if (_threadPool instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) _threadPool).getCorePoolSize();
+        } else if (_threadPool instanceof ForkJoinPool) {
+            return ((ForkJoinPool) _threadPool).getParallelism();
+        } else if (_threadPool instanceof VirtualThreadExecutor) {
+            return ((VirtualThreadExecutor) _threadPool).getMaxConcurrency();
+        }
+
+        return -1;
+    }
+
+    @Override
+    public void setCorePoolSize(int corePoolSize) {
+        resize(corePoolSize, Math.max(corePoolSize, getMaximumPoolSize()));
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        if (_threadPool instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) _threadPool).getMaximumPoolSize();
+        }
+
+        return getCorePoolSize();
+    }
+
+    @Override
+    public void setMaximumPoolSize(int maximumPoolSize) {
+        resize(Math.min(getCorePoolSize(), maximumPoolSize), maximumPoolSize);
+    }
+
+    @Override
+    public void resize(int corePoolSize, int maximumPoolSize) {
+        if (! (_threadPool instanceof ThreadPoolExecutor)) {
+            throw new UnsupportedOperationException( String.format("thread pool %s is a %s thread pool, can not be resized", _name, _type) );
+        }
+        if (corePoolSize < 0 || maximumPoolSize < 1 || corePoolSize > maximumPoolSize) {
+            throw new IllegalArgumentException( String.format("invalid corePoolSize %d and maxPoolSize %d of thread pool %s",
+                    corePoolSize, maximumPoolSize, _name) );
+        }
+
+        ThreadPoolImpl.setPoolSize((ThreadPoolExecutor) _threadPool, corePoolSize, maximumPoolSize);
+        _logger.info("resize thread pool {} by jmx success, corePoolSize:{}, maxPoolSize:{}", _name, corePoolSize, maximumPoolSize);
+    }
+
+    @Override
+    public int getPoolSize() {
+        if (_threadPool instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) _threadPool).getPoolSize();
+        } else if (_threadPool instanceof ForkJoinPool) {
+            return ((ForkJoinPool) _threadPool).getPoolSize();
+        } else if (_threadPool instanceof VirtualThreadExecutor) {
+            VirtualThreadExecutor pool = (VirtualThreadExecutor) _threadPool;
+            return pool.getActiveCount() + pool.getWaitingCount();
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int getActiveCount() {
+        if (_threadPool instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) _threadPool).getActiveCount();
+        } else if (_threadPool instanceof ForkJoinPool) {
+            return ((ForkJoinPool) _threadPool).getActiveThreadCount();
+        } else if (_threadPool instanceof VirtualThreadExecutor) {
+            return ((VirtualThreadExecutor) _threadPool).getActiveCount();
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int getLargestPoolSize() {
+        if (_threadPool instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) _threadPool).getLargestPoolSize();
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int getQueueSize() {
+        if (_threadPool instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) _threadPool).getQueue().size();
+        } else if (_threadPool instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) _threadPool;
+            return (int) Math.min(Integer.MAX_VALUE, pool.getQueuedTaskCount() + pool.getQueuedSubmissionCount());
+        } else if (_threadPool instanceof VirtualThreadExecutor) {
+            return ((VirtualThreadExecutor) _threadPool).getWaitingCount();
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int getQueueRemainingCapacity() {
+        if (_threadPool instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) _threadPool).getQueue().remainingCapacity();
+        } else if (_threadPool instanceof ForkJoinPool || _threadPool instanceof VirtualThreadExecutor) {
+            return Integer.MAX_VALUE;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public long getTaskCount() {
+        if (_threadPool instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) _threadPool).getTaskCount();
+        } else if (_threadPool instanceof VirtualThreadExecutor) {
+            return ((VirtualThreadExecutor) _threadPool).getTaskCount();
+        }
+
+        return -1;
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        if (_threadPool instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) _threadPool).getCompletedTaskCount();
+        } else if (_threadPool instanceof VirtualThreadExecutor) {
+            return ((VirtualThreadExecutor) _threadPool).getCompletedTaskCount();
+        }
+
+        return -1;
+    }
+
+    @Override
+    public long getFailedTaskCount() {
+        if (_threadPool instanceof NamedThreadPoolExecutor) {
+            return ((NamedThreadPoolExecutor) _threadPool).getFailedTaskCount();
+        } else if (_threadPool instanceof NamedForkJoinPool) {
+            return ((NamedForkJoinPool) _threadPool).getFailedTaskCount();
+        } else if (_threadPool instanceof VirtualThreadExecutor) {
+            return ((VirtualThreadExecutor) _threadPool).getFailedTaskCount();
+        }
+
+        return -1;
+    }
+
+    @Override
+    public long getRejectedTaskCount() {
+        long rejectedCount = 0;
+        if (_threadPool instanceof NamedThreadPoolExecutor) {
+            rejectedCount += ((NamedThreadPoolExecutor) _threadPool).getRejectedTaskCount();
+        }
+        ConcurrencyLimiter limiter = _concurrencyLimiters.get(_name);
+        if (null != limiter) {
+            rejectedCount += limiter.getRejectedCount();
+        }
+
+        return rejectedCount;
+    }
+
+    @Override
+    public long getTimeoutTaskCount() {
+        DeadlineTaskCounter counter = _deadlineTaskCounters.get(_name);
+
+        return (null == counter) ? 0 : counter.getTimeoutTaskCount();
+    }
+
+    @Override
+    public long getExpiredTaskCount() {
+        DeadlineTaskCounter counter = _deadlineTaskCounters.get(_name);
+
+        return (null == counter) ? 0 : counter.getExpiredTaskCount();
+    }
+
+    @Override
+    public double getSubmitRate() {
+        sample(System.nanoTime());
+        return _submitRate;
+    }
+
+    @Override
+    public double getCompletionRate() {
+        sample(System.nanoTime());
+        return _completionRate;
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        ConcurrencyLimiter limiter = _concurrencyLimiters.get(_name);
+
+        return (null == limiter) ? -1 : limiter.getLimit();
+    }
+
+    @Override
+    public long getQueueWaitP50() {
+        return toMicros(intervalQueueWait(), 50);
+    }
+
+    @Override
+    public long getQueueWaitP99() {
+        return toMicros(intervalQueueWait(), 99);
+    }
+
+    @Override
+    public long getQueueWaitP999() {
+        return toMicros(intervalQueueWait(), 99.9);
+    }
+
+    @Override
+    public long getExecutionP50() {
+        return toMicros(intervalExecution(), 50);
+    }
+
+    @Override
+    public long getExecutionP99() {
+        return toMicros(intervalExecution(), 99);
+    }
+
+    @Override
+    public long getExecutionP999() {
+        return toMicros(intervalExecution(), 99.9);
+    }
+
+    private LatencyHistogram.Snapshot intervalQueueWait() {
+        sample(System.nanoTime());
+        return _intervalQueueWait;
+    }
+
+    private LatencyHistogram.Snapshot intervalExecution() {
+        sample(System.nanoTime());
+        return _intervalExecution;
+    }
+
+    private static long toMicros(LatencyHistogram.Snapshot snapshot, double percentile) {
+        if (null == snapshot) {
+            return -1;
+        }
+
+        return TimeUnit.NANOSECONDS.toMicros(snapshot.getValueAtPercentile(percentile));
+    }
+
+    /**
+     * 距离上一次计算超过统计周期时，重新计算速率和延迟百分位数。
+     *
+     * @param nowNanos 当前时间（{@link System#nanoTime()}）
+     */
+    synchronized void sample(long nowNanos) {
+        long elapsed = nowNanos - _lastSampleNanos;
+        if (elapsed < TimeUnit.SECONDS.toNanos(SAMPLE_INTERVAL)) {
+            return;
+        }
+
+        long taskCount = getTaskCount();
+        long completedTaskCount = getCompletedTaskCount();
+        double seconds = (double) elapsed / TimeUnit.SECONDS.toNanos(1);
+        _submitRate = (taskCount < 0) ? -1 : (taskCount - _lastTaskCount) / seconds;
+        _completionRate = (completedTaskCount < 0) ? -1 : (completedTaskCount - _lastCompletedTaskCount) / seconds;
+        _lastTaskCount = taskCount;
+        _lastCompletedTaskCount = completedTaskCount;
+        _lastSampleNanos = nowNanos;
+
+        if (_threadPool instanceof TimedExecutor) {
+            TimedExecutor pool = (TimedExecutor) _threadPool;
+            LatencyHistogram.Snapshot queueWait = pool.getQueueWaitHistogram().snapshot();
+            LatencyHistogram.Snapshot execution = pool.getExecutionHistogram().snapshot();
+            _intervalQueueWait = queueWait.since(_lastQueueWait);
+            _intervalExecution = execution.since(_lastExecution);
+            _lastQueueWait = queueWait;
+            _lastExecution = execution;
+        }
+    }
+
+}
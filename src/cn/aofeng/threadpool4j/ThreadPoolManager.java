@@ -1,5 +1,9 @@
 package cn.aofeng.threadpool4j;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import cn.aofeng.common4j.ILifeCycle;
 
 /**
@@ -50,5 +54,39 @@ public class ThreadPoolManager implements ILifeCycle {
             _destroyStatus = true;
         }
     }
+    
+    /**
+     * 关闭多线程池，并在指定的时间内等待所有线程池排空，超时后强制关闭（见{@link ThreadPoolImpl#destroy(long, TimeUnit)}）。
+     * 
+     * @return 每个线程池的排空结果，key为线程池名称。已关闭或者多线程池不支持排空时返回空Map
+     */
+    public Map<String, DrainInfo> destroy(long timeout, TimeUnit unit) {
+        return destroy(timeout, unit, null);
+    }
+    
+    /**
+     * 关闭多线程池，并在指定的时间内等待所有线程池排空，超时后强制关闭，没有执行的任务交给<code>failHandler</code>处理
+     * （见{@link ThreadPoolImpl#destroy(long, TimeUnit, FailHandler)}）。
+     * 
+     * @param failHandler 超时后没有执行的任务的处理器，可以为null
+     * @return 每个线程池的排空结果，key为线程池名称。已关闭或者多线程池不支持排空时返回空Map
+     */
+    public Map<String, DrainInfo> destroy(long timeout, TimeUnit unit, FailHandler<? super Runnable> failHandler) {
+        synchronized (_lock) {
+            if (_destroyStatus) {
+                return Collections.emptyMap();
+            }
+            Map<String, DrainInfo> result;
+            if (_threadPool instanceof ThreadPoolImpl) {
+                result = ((ThreadPoolImpl) _threadPool).destroy(timeout, unit, failHandler);
+            } else {
+                _threadPool.destroy();
+                result = Collections.emptyMap();
+            }
+            _destroyStatus = true;
+            
+            return result;
+        }
+    }
 
 }
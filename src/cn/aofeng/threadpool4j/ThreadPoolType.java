@@ -0,0 +1,29 @@
+package cn.aofeng.threadpool4j;
+
+/**
+ * 线程池类型，对应配置文件中pool节点的type属性。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ThreadPoolType {
+
+    /** {@link NamedThreadPoolExecutor}：所有线程共享一个队列（默认） */
+    public final static String STANDARD = "standard";
+
+    /** {@link NamedForkJoinPool}：每个线程一个双端队列，空闲线程从其他线程的队列窃取任务，适合分治和大量小任务 */
+    public final static String FORK_JOIN = "forkjoin";
+
+    /** {@link VirtualThreadExecutor}：每个任务一个虚拟线程，用信号量限制同时执行的任务数，适合阻塞I/O（需要Java 21及以上） */
+    public final static String VIRTUAL = "virtual";
+
+    /**
+     * 是否支持指定的线程池类型。
+     *
+     * @param type 线程池类型
+     * @return 支持返回true；否则返回false。
+     */
+    public static boolean isSupported(String type) {
+        return STANDARD.equals(type) || FORK_JOIN.equals(type) || VIRTUAL.equals(type);
+    }
+
+}
@@ -0,0 +1,82 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池的线程在两次采样之间消耗的CPU时间和分配的内存（见{@link ThreadUsageSampler}）。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ThreadUsageInfo {
+
+    int threadCount;
+
+    /** 两次采样之间的时间（单位：纳秒） */
+    long elapsedTime;
+
+    /** CPU时间（单位：纳秒），-1表示JVM不支持或未开启 */
+    long cpuTime;
+
+    /** 用户态CPU时间（单位：纳秒），-1表示JVM不支持或未开启 */
+    long userTime;
+
+    /** 分配的内存（单位：字节），-1表示JVM不支持或未开启 */
+    long allocatedBytes;
+
+    /**
+     * @return 采样时线程池的线程数
+     */
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    public long getUserTime() {
+        return userTime;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return CPU使用率（相对于1个CPU核，如：250表示平均占用2.5个核），-1表示不支持
+     */
+    public double getCpuUsage() {
+        return usage(cpuTime);
+    }
+
+    /**
+     * @return 用户态CPU使用率（相对于1个CPU核），-1表示不支持
+     */
+    public double getUserUsage() {
+        return usage(userTime);
+    }
+
+    /**
+     * @return 每秒分配的内存（单位：字节），-1表示不支持
+     */
+    public double getAllocationRate() {
+        if (allocatedBytes < 0 || elapsedTime <= 0) {
+            return -1;
+        }
+
+        return (double) allocatedBytes * TimeUnit.SECONDS.toNanos(1) / elapsedTime;
+    }
+
+    private double usage(long time) {
+        if (time < 0 || elapsedTime <= 0) {
+            return -1;
+        }
+
+        return time * 100.0 / elapsedTime;
+    }
+
+}
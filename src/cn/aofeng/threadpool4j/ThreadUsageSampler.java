@@ -0,0 +1,181 @@
+package cn.aofeng.threadpool4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 按线程池统计线程消耗的CPU时间、用户态CPU时间和分配的内存。
+ * <p>
+ * 每次采样通过{@link ThreadMXBean}（HotSpot等JVM上使用{@link com.sun.management.ThreadMXBean}的批量接口和
+ * getThreadAllocatedBytes）读取线程池所有线程的累计值，与上一次采样的值相减后按线程池汇总。
+ * 上一次采样之后创建的线程按全部累计值计入；两次采样之间结束的线程，最后一段时间的消耗无法统计。
+ * 线程列表和线程id使用可重复使用的数组，只在容量不足时扩大。非线程安全。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ThreadUsageSampler {
+
+    private final static int CPU_TIME = 0;
+    private final static int USER_TIME = 1;
+    private final static int ALLOCATED_BYTES = 2;
+
+    private final ThreadMXBean _threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /** JVM不提供{@link com.sun.management.ThreadMXBean}时为null */
+    private final com.sun.management.ThreadMXBean _sunThreadMXBean;
+
+    /** key为线程池名称，配置文件热加载时会新增其中的元素 */
+    private final Map<String, ExecutorService> _multiThreadPool;
+
+    private Thread[] _threads = new Thread[64];
+
+    private long[] _threadIds = new long[64];
+
+    private String[] _poolNames = new String[64];
+
+    /** 上一次采样时每个线程的累计值，value依次为CPU时间、用户态CPU时间、分配的内存，以及采样序号 */
+    private Map<Long, long[]> _lastUsage = new HashMap<Long, long[]>();
+
+    private long _sampleCount;
+
+    private long _lastSampleNanos;
+
+    public ThreadUsageSampler(Map<String, ExecutorService> multiThreadPool) {
+        this._multiThreadPool = multiThreadPool;
+        this._sunThreadMXBean = (_threadMXBean instanceof com.sun.management.ThreadMXBean)
+                ? (com.sun.management.ThreadMXBean) _threadMXBean : null;
+    }
+
+    /**
+     * 采样一次。
+     *
+     * @param nowNanos 当前时间（{@link System#nanoTime()}）
+     * @return 与上一次采样相比每个线程池的消耗，key为线程池名称；第一次采样只记录基准值，返回空集合
+     */
+    public Map<String, ThreadUsageInfo> sample(long nowNanos) {
+        int threadNum = collectPoolThreads();
+        long[] threadIds = (_threadIds.length == threadNum) ? _threadIds : Arrays.copyOf(_threadIds, threadNum);
+        long[] cpuTimes = readCpuTime(threadIds, false);
+        long[] userTimes = readCpuTime(threadIds, true);
+        long[] allocatedBytes = readAllocatedBytes(threadIds);
+
+        boolean first = (0 == _sampleCount);
+        long elapsedTime = nowNanos - _lastSampleNanos;
+        _sampleCount++;
+        _lastSampleNanos = nowNanos;
+        Map<String, ThreadUsageInfo> usageMap = new HashMap<String, ThreadUsageInfo>();
+        for (int i = 0; i < threadNum; i++) {
+            ThreadUsageInfo usage = usageMap.get(_poolNames[i]);
+            if (null == usage) {
+                usage = new ThreadUsageInfo();
+                usage.elapsedTime = elapsedTime;
+                usage.cpuTime = (null == cpuTimes) ? -1 : 0;
+                usage.userTime = (null == userTimes) ? -1 : 0;
+                usage.allocatedBytes = (null == allocatedBytes) ? -1 : 0;
+                usageMap.put(_poolNames[i], usage);
+            }
+            usage.threadCount++;
+
+            long[] last = _lastUsage.get(threadIds[i]);
+            if (null == last) {
+                last = new long[4];
+                _lastUsage.put(threadIds[i], last);
+            }
+            usage.cpuTime += delta(cpuTimes, i, last, CPU_TIME);
+            usage.userTime += delta(userTimes, i, last, USER_TIME);
+            usage.allocatedBytes += delta(allocatedBytes, i, last, ALLOCATED_BYTES);
+            last[3] = _sampleCount;
+        }
+
+        // 删除已结束的线程
+        Iterator<long[]> iterator = _lastUsage.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next()[3] != _sampleCount) {
+                iterator.remove();
+            }
+        }
+
+        if (first) {
+            usageMap.clear();
+        }
+        return usageMap;
+    }
+
+    /**
+     * @return 本次的值与上一次的值之差，并把本次的值记录为上一次的值；值不可用时返回0
+     */
+    private long delta(long[] values, int index, long[] last, int type) {
+        if (null == values || values[index] < 0) {
+            return 0;
+        }
+
+        long delta = values[index] - last[type];
+        last[type] = values[index];
+        return Math.max(0, delta);
+    }
+
+    /**
+     * 把线程池的线程收集到{@link #_threads}、{@link #_threadIds}和{@link #_poolNames}中。
+     *
+     * @return 线程池的线程数
+     */
+    private int collectPoolThreads() {
+        ThreadGroup root = ThreadUtil.getRootThreadGroup();
+        int capacity = root.activeCount() * 2;
+        if (_threads.length < capacity) {
+            _threads = new Thread[capacity];
+            _threadIds = new long[capacity];
+            _poolNames = new String[capacity];
+        }
+        int threadNum = root.enumerate(_threads, true);
+
+        int count = 0;
+        for (int i = 0; i < threadNum; i++) {
+            String poolName = ThreadUtil.getPoolName(_threads[i], _multiThreadPool);
+            if (null != poolName) {
+                _threadIds[count] = _threads[i].getId();
+                _poolNames[count] = poolName;
+                count++;
+            }
+            _threads[i] = null;   // 不持有已结束线程的引用
+        }
+
+        return count;
+    }
+
+    /**
+     * @return 每个线程的CPU时间（单位：纳秒，线程已结束为-1）；JVM不支持或未开启时返回null
+     */
+    private long[] readCpuTime(long[] threadIds, boolean user) {
+        if (! _threadMXBean.isThreadCpuTimeSupported() || ! _threadMXBean.isThreadCpuTimeEnabled()) {
+            return null;
+        }
+        if (null != _sunThreadMXBean) {
+            return user ? _sunThreadMXBean.getThreadUserTime(threadIds) : _sunThreadMXBean.getThreadCpuTime(threadIds);
+        }
+
+        long[] times = new long[threadIds.length];
+        for (int i = 0; i < threadIds.length; i++) {
+            times[i] = user ? _threadMXBean.getThreadUserTime(threadIds[i]) : _threadMXBean.getThreadCpuTime(threadIds[i]);
+        }
+        return times;
+    }
+
+    /**
+     * @return 每个线程分配的内存（单位：字节，线程已结束为-1）；JVM不支持或未开启时返回null
+     */
+    private long[] readAllocatedBytes(long[] threadIds) {
+        if (null == _sunThreadMXBean || ! _sunThreadMXBean.isThreadAllocatedMemorySupported()
+                || ! _sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+
+        return _sunThreadMXBean.getThreadAllocatedBytes(threadIds);
+    }
+
+}
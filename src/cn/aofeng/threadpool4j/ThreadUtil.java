@@ -1,7 +1,11 @@
 package cn.aofeng.threadpool4j;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 /**
  * 线程实用操作方法集合。
@@ -58,33 +62,81 @@ public class ThreadUtil {
         
         ThreadStateInfo stateInfo = new ThreadStateInfo();
         for (int j = 0; j < threadNum; j++) {
-            Thread thread = threadList[j];
-            switch (thread.getState()) {
-                case NEW:
-                    stateInfo.newCount += 1;
-                    break;
-                case RUNNABLE:   
-                    stateInfo.runnableCount += 1;
-                    break;
-                case BLOCKED:   
-                    stateInfo.blockedCount += 1;
-                    break;
-                case WAITING:   
-                    stateInfo.waitingCount += 1;
-                    break;
-                case TIMED_WAITING:   
-                    stateInfo.timedWaitingCount += 1;
-                    break;
-                case TERMINATED:   
-                    stateInfo.terminatedCount += 1;
-                    break;
-                default:
-                    // nothing
-                    break;
-            }
+            countThreadState(stateInfo, threadList[j]);
+        }
+        
+        return stateInfo;
+    }
+
+    /**
+     * 收集指定线程集合中所有线程的状态信息。用于不属于任何可枚举线程组的线程，如：虚拟线程。
+     * 
+     * @param threads 线程集合
+     * @return {@link ThreadStateInfo}实例
+     */
+    public static ThreadStateInfo statThreadState(Collection<Thread> threads) {
+        if (null == threads) {
+            throw new IllegalArgumentException("threads is null");
+        }
+        
+        ThreadStateInfo stateInfo = new ThreadStateInfo();
+        for (Thread thread : threads) {
+            countThreadState(stateInfo, thread);
         }
         
         return stateInfo;
     }
+    
+    /**
+     * 获取线程所属的线程池：standard类型线程池的线程属于以线程池名称命名的线程组，forkjoin类型线程池的线程属于该线程池。
+     * 
+     * @param thread 线程
+     * @param multiThreadPool 所有线程池，key为线程池名称
+     * @return 线程池名称，不属于任何线程池返回null
+     */
+    public static String getPoolName(Thread thread, Map<String, ExecutorService> multiThreadPool) {
+        if (thread instanceof ForkJoinWorkerThread) {
+            ExecutorService pool = ((ForkJoinWorkerThread) thread).getPool();
+            for (Entry<String, ExecutorService> entry : multiThreadPool.entrySet()) {
+                if (entry.getValue() == pool) {
+                    return entry.getKey();
+                }
+            }
+            return null;
+        }
+        
+        ThreadGroup group = thread.getThreadGroup();
+        if (null != group && multiThreadPool.containsKey(group.getName())) {
+            return group.getName();
+        }
+        
+        return null;
+    }
+    
+    private static void countThreadState(ThreadStateInfo stateInfo, Thread thread) {
+        switch (thread.getState()) {
+            case NEW:
+                stateInfo.newCount += 1;
+                break;
+            case RUNNABLE:   
+                stateInfo.runnableCount += 1;
+                break;
+            case BLOCKED:   
+                stateInfo.blockedCount += 1;
+                break;
+            case WAITING:   
+                stateInfo.waitingCount += 1;
+                break;
+            case TIMED_WAITING:   
+                stateInfo.timedWaitingCount += 1;
+                break;
+            case TERMINATED:   
+                stateInfo.terminatedCount += 1;
+                break;
+            default:
+                // nothing
+                break;
+        }
+    }
 
 }
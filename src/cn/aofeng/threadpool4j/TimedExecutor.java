@@ -0,0 +1,23 @@
+package cn.aofeng.threadpool4j;
+
+/**
+ * 记录任务在队列中的等待时间和执行时间的线程池，standard、forkjoin和virtual类型的线程池都实现了本接口。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ * @see NamedThreadPoolExecutor
+ * @see NamedForkJoinPool
+ * @see VirtualThreadExecutor
+ */
+public interface TimedExecutor {
+
+    /**
+     * @return 任务在队列中的等待时间的直方图（单位：纳秒）
+     */
+    public LatencyHistogram getQueueWaitHistogram();
+
+    /**
+     * @return 任务执行时间的直方图（单位：纳秒）
+     */
+    public LatencyHistogram getExecutionHistogram();
+
+}
@@ -0,0 +1,37 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * 记录入队时间的{@link FutureTask}，用于统计任务在队列中的等待时间（见{@link NamedThreadPoolExecutor}）。
+ * <p>
+ * {@link NamedThreadPoolExecutor#newTaskFor(Callable)}用本类代替{@link FutureTask}，入队时间存放在任务自身，
+ * 统计等待时间不需要为每个任务额外分配对象。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+class TimedFutureTask<V> extends FutureTask<V> implements TimedTask {
+
+    /** 入队时间（{@link System#nanoTime()}），入队和出队之间由队列保证可见性 */
+    private long _enqueueNanos;
+
+    public TimedFutureTask(Callable<V> callable) {
+        super(callable);
+    }
+
+    public TimedFutureTask(Runnable runnable, V result) {
+        super(runnable, result);
+    }
+
+    @Override
+    public long getEnqueueNanos() {
+        return _enqueueNanos;
+    }
+
+    @Override
+    public void setEnqueueNanos(long enqueueNanos) {
+        this._enqueueNanos = enqueueNanos;
+    }
+
+}
@@ -0,0 +1,23 @@
+package cn.aofeng.threadpool4j;
+
+/**
+ * 记录入队时间的任务，用于统计任务在队列中的等待时间（见{@link NamedThreadPoolExecutor}）。
+ * 入队时间存放在任务（或包装任务的对象）自身，统计等待时间不需要为每个任务额外分配对象。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ * @see TimedFutureTask
+ * @see LimitedTask
+ */
+interface TimedTask extends Runnable {
+
+    /**
+     * @return 入队时间（{@link System#nanoTime()}）
+     */
+    long getEnqueueNanos();
+
+    /**
+     * @param enqueueNanos 入队时间（{@link System#nanoTime()}），入队和出队之间由队列保证可见性
+     */
+    void setEnqueueNanos(long enqueueNanos);
+
+}
@@ -0,0 +1,161 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.Collection;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 由{@link HashedTimingWheel}计时、到期后交给线程池执行的定时任务。
+ * <p>
+ * 时间轮线程只负责在到期时把任务交给线程池（{@link #dispatch()}），任务本身在线程池的线程中执行。
+ * 周期任务在本次执行完成后才按固定频率计算下一次的到期时间并重新放入时间轮，同一个周期任务不会并发执行；
+ * 某次执行抛出异常后不再继续执行（与{@link java.util.concurrent.ScheduledThreadPoolExecutor}一致）。
+ * <p>
+ * 还未结束的定时任务登记在创建者提供的集合中，任务结束（完成、抛出异常或被取消）或一次性任务交给线程池后删除，
+ * 时间轮停止时创建者据此取消所有未结束的定时任务，等待结果的调用者不会一直阻塞。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+class TimingWheelScheduledTask<V> extends TimedFutureTask<V> implements ScheduledFuture<V> {
+
+    private static Logger _logger = LoggerFactory.getLogger(TimingWheelScheduledTask.class);
+
+    private final HashedTimingWheel _timingWheel;
+
+    private final Executor _executor;
+
+    private final String _threadpoolName;
+
+    /** 执行周期（单位：纳秒），0表示只执行一次 */
+    private final long _period;
+
+    /** 本次的到期时间（{@link System#nanoTime()}） */
+    private volatile long _deadline;
+
+    private volatile HashedTimingWheel.Timeout _timeout;
+
+    /** 还未结束的定时任务 */
+    private final Collection<TimingWheelScheduledTask<?>> _scheduledTasks;
+
+    public TimingWheelScheduledTask(Runnable task, HashedTimingWheel timingWheel, Executor executor,
+            String threadpoolName, long deadline, long period, Collection<TimingWheelScheduledTask<?>> scheduledTasks) {
+        super(task, null);
+        this._timingWheel = timingWheel;
+        this._executor = executor;
+        this._threadpoolName = threadpoolName;
+        this._deadline = deadline;
+        this._period = period;
+        this._scheduledTasks = scheduledTasks;
+    }
+
+    /**
+     * 登记到未结束的定时任务中，并放入时间轮开始计时。
+     */
+    void start() {
+        _scheduledTasks.add(this);
+        try {
+            schedule();
+        } catch (IllegalStateException e) {
+            _scheduledTasks.remove(this);
+            throw e;
+        }
+    }
+
+    /**
+     * 放入时间轮开始计时。
+     */
+    private void schedule() {
+        _timeout = _timingWheel.newTimeoutAt(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        }, _deadline);
+    }
+
+    /**
+     * 到期后在时间轮线程中调用：把任务交给线程池执行。
+     */
+    private void dispatch() {
+        if (isDone()) {
+            return;
+        }
+
+        try {
+            _executor.execute(this);
+            if (0 == _period) {
+                // 已交给线程池，由线程池负责执行（关闭时执行完队列中的任务）
+                _scheduledTasks.remove(this);
+            }
+        } catch (RejectedExecutionException e) {
+            _logger.error(String.format("thread pool %s rejected the scheduled task %s", _threadpoolName, this), e);
+            setException(e);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (0 == _period) {
+            super.run();
+            return;
+        }
+
+        if (runAndReset()) {
+            _deadline += _period;
+            try {
+                schedule();
+            } catch (IllegalStateException e) {
+                // 时间轮已停止（线程池关闭），不再继续执行
+                cancel(false);
+            }
+            if (isCancelled() && null != _timeout) {
+                _timeout.cancel();
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        HashedTimingWheel.Timeout timeout = _timeout;
+        if (cancelled && null != timeout) {
+            timeout.cancel();
+        }
+
+        return cancelled;
+    }
+
+    @Override
+    protected void done() {
+        _scheduledTasks.remove(this);
+    }
+
+    /**
+     * @return 是否为周期任务
+     */
+    public boolean isPeriodic() {
+        return _period > 0;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(_deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (this == other) {
+            return 0;
+        }
+
+        long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+        return (diff < 0) ? -1 : ((diff > 0) ? 1 : 0);
+    }
+
+}
@@ -0,0 +1,340 @@
+package cn.aofeng.threadpool4j;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 每个任务一个虚拟线程的线程池，适合大部分时间阻塞在I/O（如：JDBC，HTTP调用）上的任务。
+ * <p>
+ * 不再用核心线程数、最大线程数和队列容量控制资源，而是用信号量限制同时执行的任务数（maxConcurrency）：
+ * 超出限制的任务在各自的虚拟线程中等待信号量，等待的虚拟线程几乎不占用资源。
+ * <p>
+ * 任务从提交到拿到信号量的时间计入等待时间，之后计入执行时间。
+ * <p>
+ * 虚拟线程需要Java 21及以上的运行环境，这里通过反射调用<code>Thread.ofVirtual()</code>，类库本身仍可在低版本的Java上编译和运行，
+ * 运行环境不支持时可通过{@link #isSupported()}判断。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService implements TimedExecutor {
+
+    private static Logger _logger = LoggerFactory.getLogger(VirtualThreadExecutor.class);
+
+    private final static boolean SUPPORTED = (null != createVirtualThreadFactory("threadpool4j-probe"));
+
+    private final String _name;
+
+    private final int _maxConcurrency;
+
+    private final ThreadFactory _threadFactory;
+
+    private final Semaphore _permits;
+
+    /** 已提交、还未开始执行的任务（包括线程还未启动和正在等待信号量的任务），{@link #shutdownNow()}时从中取出返回 */
+    private final Set<Worker> _pendingWorkers = Collections.newSetFromMap(new ConcurrentHashMap<Worker, Boolean>());
+
+    /** 还未结束的任务线程（包括正在等待信号量的线程） */
+    private final Set<Thread> _threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+
+    private final AtomicInteger _liveCount = new AtomicInteger();
+
+    private final AtomicInteger _activeCount = new AtomicInteger();
+
+    private final AtomicLong _taskCount = new AtomicLong();
+
+    private final AtomicLong _completedTaskCount = new AtomicLong();
+
+    private final AtomicLong _failedTaskCount = new AtomicLong();
+
+    /** 任务从提交到拿到信号量的等待时间 */
+    private final LatencyHistogram _queueWaitHistogram = new LatencyHistogram();
+
+    /** 任务的执行时间 */
+    private final LatencyHistogram _executionHistogram = new LatencyHistogram();
+
+    private volatile boolean _shutdown = false;
+
+    private final ReentrantLock _terminationLock = new ReentrantLock();
+
+    private final Condition _termination = _terminationLock.newCondition();
+
+    /**
+     * @param name 线程池名称，虚拟线程以"线程池名称-序号"命名
+     * @param maxConcurrency 同时执行的最大任务数
+     * @throws UnsupportedOperationException 当前的Java运行环境不支持虚拟线程
+     */
+    public VirtualThreadExecutor(String name, int maxConcurrency) {
+        this(name, maxConcurrency, createVirtualThreadFactory(name));
+    }
+
+    VirtualThreadExecutor(String name, int maxConcurrency, ThreadFactory threadFactory) {
+        if (null == threadFactory) {
+            throw new UnsupportedOperationException("virtual thread is not supported by the current java runtime");
+        }
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency less than or equals zero");
+        }
+
+        this._name = name;
+        this._maxConcurrency = maxConcurrency;
+        this._threadFactory = threadFactory;
+        this._permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * @return 当前的Java运行环境支持虚拟线程返回true；否则返回false。
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * 通过反射创建虚拟线程工厂：<code>Thread.ofVirtual().name(name + "-", 1).factory()</code>。
+     *
+     * @return 虚拟线程工厂。如果当前的Java运行环境不支持虚拟线程，返回null
+     */
+    static ThreadFactory createVirtualThreadFactory(String name) {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 1L);
+
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (null == command) {
+            throw new NullPointerException();
+        }
+
+        _liveCount.incrementAndGet();
+        if (_shutdown) {
+            finishThread();
+            throw new RejectedExecutionException( String.format("thread pool %s has been shutdown", _name) );
+        }
+
+        _taskCount.incrementAndGet();
+        Worker worker = new Worker(command);
+        _pendingWorkers.add(worker);
+        Thread thread = _threadFactory.newThread(worker);
+        thread.start();
+    }
+
+    private void finishThread() {
+        if (0 == _liveCount.decrementAndGet() && _shutdown) {
+            _terminationLock.lock();
+            try {
+                _termination.signalAll();
+            } finally {
+                _terminationLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        _shutdown = true;
+        if (0 == _liveCount.get()) {
+            _terminationLock.lock();
+            try {
+                _termination.signalAll();
+            } finally {
+                _terminationLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 停止接收新任务，并中断所有任务线程。还未开始执行的任务（包括线程还未启动和正在等待信号量的任务）不会再执行。
+     *
+     * @return 还未开始执行的任务
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        List<Runnable> tasks = new ArrayList<Runnable>();
+        for (Worker worker : _pendingWorkers) {
+            if (_pendingWorkers.remove(worker)) {
+                tasks.add(worker._task);
+            }
+        }
+        for (Thread thread : _threads) {
+            thread.interrupt();
+        }
+
+        return tasks;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return _shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return _shutdown && 0 == _liveCount.get();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        _terminationLock.lock();
+        try {
+            while (! isTerminated()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = _termination.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            _terminationLock.unlock();
+        }
+    }
+
+    /**
+     * @return 线程池名称
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * @return 同时执行的最大任务数
+     */
+    public int getMaxConcurrency() {
+        return _maxConcurrency;
+    }
+
+    /**
+     * @return 正在执行的任务数
+     */
+    public int getActiveCount() {
+        return _activeCount.get();
+    }
+
+    /**
+     * @return 正在等待信号量的任务数
+     */
+    public int getWaitingCount() {
+        return Math.max(0, _liveCount.get() - _activeCount.get());
+    }
+
+    /**
+     * @return 提交的任务总数
+     */
+    public long getTaskCount() {
+        return _taskCount.get();
+    }
+
+    /**
+     * @return 执行完成的任务数（包括执行失败的任务）
+     */
+    public long getCompletedTaskCount() {
+        return _completedTaskCount.get();
+    }
+
+    /**
+     * @return 执行失败（抛出异常）的任务数
+     */
+    public long getFailedTaskCount() {
+        return _failedTaskCount.get();
+    }
+
+    @Override
+    public LatencyHistogram getQueueWaitHistogram() {
+        return _queueWaitHistogram;
+    }
+
+    @Override
+    public LatencyHistogram getExecutionHistogram() {
+        return _executionHistogram;
+    }
+
+    /**
+     * @return 还未结束的任务线程（包括正在等待信号量的线程），用于统计线程状态
+     */
+    public Collection<Thread> getThreads() {
+        return Collections.unmodifiableSet(_threads);
+    }
+
+    /**
+     * 在虚拟线程中等待信号量，再执行任务。
+     * 拿到信号量后从{@link #_pendingWorkers}中删除自己才执行任务，已被{@link #shutdownNow()}取出的任务不再执行。
+     */
+    private class Worker implements Runnable {
+
+        private final Runnable _task;
+
+        /** 提交的时间（{@link System#nanoTime()}） */
+        private final long _enqueueNanos = System.nanoTime();
+
+        public Worker(Runnable task) {
+            this._task = task;
+        }
+
+        @Override
+        public void run() {
+            Thread current = Thread.currentThread();
+            _threads.add(current);
+            try {
+                if (! _pendingWorkers.contains(this)) {
+                    return;
+                }
+                _permits.acquire();
+                if (! _pendingWorkers.remove(this)) {
+                    _permits.release();
+                    return;
+                }
+                _activeCount.incrementAndGet();
+                long startNanos = System.nanoTime();
+                _queueWaitHistogram.record(startNanos - _enqueueNanos);
+                try {
+                    _task.run();
+                } catch (Throwable e) {
+                    _failedTaskCount.incrementAndGet();
+                    _logger.error(String.format("execute task %s in thread pool %s occurs error", _task, _name), e);
+                } finally {
+                    _executionHistogram.record(System.nanoTime() - startNanos);
+                    _completedTaskCount.incrementAndGet();
+                    _activeCount.decrementAndGet();
+                    _permits.release();
+                }
+            } catch (InterruptedException e) {
+                // 已被shutdownNow取出的任务由调用者处理；否则取消任务，等待结果的调用者不会一直阻塞
+                if (_pendingWorkers.remove(this) && _task instanceof Future) {
+                    ((Future<?>) _task).cancel(false);
+                }
+                _logger.debug("task {} in thread pool {} was interrupted before execution", _task, _name);
+            } finally {
+                _threads.remove(current);
+                finishThread();
+            }
+        }
+
+    }
+
+}
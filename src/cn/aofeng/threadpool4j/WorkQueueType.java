@@ -0,0 +1,72 @@
+package cn.aofeng.threadpool4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.SynchronousQueue;
+
+/**
+ * 线程池队列类型，对应配置文件中pool节点下的workQueueType。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class WorkQueueType {
+
+    /** {@link ArrayBlockingQueue}：生产者和消费者共用一把锁，容量不能在运行时调整 */
+    public final static String ARRAY = "array";
+
+    /** {@link ResizableLinkedBlockingQueue}：生产者和消费者各用一把锁（同{@link LinkedBlockingQueue}），配置热加载时可调整容量（默认） */
+    public final static String LINKED = "linked";
+
+    /** {@link LinkedTransferQueue}：无锁，无界（忽略workQueueSize，线程数不会超过corePoolSize，任务也不会被拒绝） */
+    public final static String TRANSFER = "transfer";
+
+    /** {@link SynchronousQueue}：不存储任务，直接交给空闲线程（忽略workQueueSize，没有空闲线程且线程数已达maxPoolSize时拒绝任务） */
+    public final static String SYNCHRONOUS = "synchronous";
+
+    /** {@link RingBufferBlockingQueue}：有界无锁环形队列（容量向上取整为2的幂），容量不能在运行时调整 */
+    public final static String RING_BUFFER = "ringbuffer";
+
+    /** {@link PriorityBucketBlockingQueue}：有界优先级队列，优先级高的任务先执行，同一优先级先进先出，配置热加载时可调整容量 */
+    public final static String PRIORITY = "priority";
+
+    /**
+     * 是否支持指定的队列类型。
+     *
+     * @param type 队列类型
+     * @return 支持返回true；否则返回false。
+     */
+    public static boolean isSupported(String type) {
+        return ARRAY.equals(type) || LINKED.equals(type)
+                || TRANSFER.equals(type) || SYNCHRONOUS.equals(type)
+                || RING_BUFFER.equals(type) || PRIORITY.equals(type);
+    }
+
+    /**
+     * 创建指定类型的线程池队列。
+     *
+     * @param type 队列类型
+     * @param capacity 队列容量
+     * @return 线程池队列
+     * @throws IllegalArgumentException 不支持指定的队列类型
+     */
+    public static BlockingQueue<Runnable> createWorkQueue(String type, int capacity) {
+        if (ARRAY.equals(type)) {
+            return new ArrayBlockingQueue<Runnable>(capacity);
+        } else if (LINKED.equals(type)) {
+            return new ResizableLinkedBlockingQueue<Runnable>(capacity);
+        } else if (TRANSFER.equals(type)) {
+            return new LinkedTransferQueue<Runnable>();
+        } else if (SYNCHRONOUS.equals(type)) {
+            return new SynchronousQueue<Runnable>();
+        } else if (RING_BUFFER.equals(type)) {
+            return new RingBufferBlockingQueue<Runnable>(capacity);
+        } else if (PRIORITY.equals(type)) {
+            return new PriorityBucketBlockingQueue<Runnable>(capacity);
+        }
+
+        throw new IllegalArgumentException( String.format("unsupported work queue type %s", type) );
+    }
+
+}
@@ -0,0 +1,50 @@
+package cn.aofeng.threadpool4j;
+
+/**
+ * 线程池工作线程的槽位，记录线程正在执行的任务和任务的开始时间。
+ * 每个工作线程第一次执行任务时分配一个槽位，之后执行任务时重复使用，不创建对象（见{@link NamedThreadPoolExecutor}）。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+class WorkerSlot {
+
+    private final Thread _thread;
+
+    /** 正在执行的任务，null表示空闲 */
+    private volatile Runnable _task;
+
+    /** 正在执行的任务的开始时间（{@link System#nanoTime()}） */
+    private volatile long _startNanos;
+
+    /** 已报告过执行超时的任务的开始时间，只由{@link TaskWatchdog}读写 */
+    long _reportedStartNanos;
+
+    WorkerSlot(Thread thread) {
+        this._thread = thread;
+    }
+
+    /**
+     * 任务开始执行。先写开始时间再写任务，读到任务时开始时间一定是这个任务（或之后的任务）的。
+     */
+    void start(Runnable task, long startNanos) {
+        _startNanos = startNanos;
+        _task = task;
+    }
+
+    void finish() {
+        _task = null;
+    }
+
+    Thread getThread() {
+        return _thread;
+    }
+
+    Runnable getTask() {
+        return _task;
+    }
+
+    long getStartNanos() {
+        return _startNanos;
+    }
+
+}
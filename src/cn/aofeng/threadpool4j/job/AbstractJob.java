@@ -2,25 +2,41 @@ package cn.aofeng.threadpool4j.job;
 
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import cn.aofeng.common4j.ILifeCycle;
 
 /**
  * 抽象job类。
- * 
+ * <p>
+ * Job不单独占用线程，由{@link JobScheduler}按{@link #getPeriodNanos()}返回的间隔以固定频率调度，每次调度执行一次{@link #execute()}。
+ * 新增的收集器继承本类，通过{@link JobScheduler#schedule(String, AbstractJob)}加入调度即可。
+ *
  * @author <a href="mailto:aofengblog@163.com">聂勇</a>
  */
 public abstract class AbstractJob implements Runnable, ILifeCycle {
 
+    private static Logger _logger = LoggerFactory.getLogger(AbstractJob.class);
+
+    /** 所有Job在调度线程中执行，每个线程一个格式化实例，不在每次执行时创建 */
+    private final static ThreadLocal<DateFormat> DATE_FORMAT = new ThreadLocal<DateFormat>() {
+        @Override
+        protected DateFormat initialValue() {
+            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        }
+    };
+
     protected String _lineSeparator = System.getProperty("line.separator"); 
     
     /** 运行状态：true表示正在运行；false表示已停止 */
     protected volatile AtomicBoolean _run = new AtomicBoolean(true);
     
-    /** 线程休眠时间（单位：秒） */
+    /** 执行间隔（单位：秒） */
     protected int _interval = 60;
 
     @Override
@@ -28,34 +44,36 @@ public abstract class AbstractJob implements Runnable, ILifeCycle {
         _run.set(true);
     }
 
+    /**
+     * 执行一次。抛出的异常只输出错误日志，不影响后续的调度。
+     */
     @Override
     public void run() {
-        while (_run.get()) {
+        if (! _run.get()) {
+            return;
+        }
+
+        try {
             execute();
+        } catch (RuntimeException e) {
+            _logger.error( String.format("execute job %s occurs error", getClass().getName()), e);
         }
     }
     
     protected abstract void execute();
     
     /**
-     * 休眠<code>_interval</code>指定的时间。
+     * @return 执行间隔（单位：纳秒），默认为<code>_interval</code>秒
      */
-    protected void sleep() {
-        try {
-            Thread.sleep(_interval * 1000);
-        } catch (InterruptedException e) {
-            // nothing
-        }
+    public long getPeriodNanos() {
+        return TimeUnit.SECONDS.toNanos(_interval);
     }
     
     /**
      * @return 返回"yyyy-MM-dd HH:mm:ss"格式的当前日期时间字符串
      */
     protected String currentTime() {
-        DateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        Date date = Calendar.getInstance().getTime();
-        
-        return format.format(date);
+        return DATE_FORMAT.get().format(new Date());
     }
     
     @Override
@@ -0,0 +1,38 @@
+package cn.aofeng.threadpool4j.job;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.aofeng.threadpool4j.PoolSizeController;
+
+/**
+ * 定时采样配置了autosize的线程池，按任务在队列中的等待时间调整核心线程数（见{@link PoolSizeController}）。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class AutoSizeJob extends AbstractJob {
+
+    private static Logger _logger = LoggerFactory.getLogger(AutoSizeJob.class);
+
+    /** key为线程池名称，配置文件热加载时会增删其中的元素 */
+    private Map<String, PoolSizeController> _controllers;
+
+    public AutoSizeJob(Map<String, PoolSizeController> controllers, int interval) {
+        this._controllers = controllers;
+        super._interval = interval;
+    }
+
+    @Override
+    protected void execute() {
+        for (PoolSizeController controller : _controllers.values()) {
+            try {
+                controller.adjust();
+            } catch (RuntimeException e) {
+                _logger.error(String.format("autosize thread pool %s occurs error", controller.getName()), e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package cn.aofeng.threadpool4j.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.aofeng.threadpool4j.ThreadPoolConfig;
+import cn.aofeng.threadpool4j.ThreadPoolImpl;
+
+/**
+ * 定时检查配置文件的最后修改时间，配置文件有修改时重新加载配置并应用到正在运行的线程池（见{@link ThreadPoolImpl#reload()}）。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ConfigReloadJob extends AbstractJob {
+
+    private static Logger _logger = LoggerFactory.getLogger(ConfigReloadJob.class);
+
+    private ThreadPoolImpl _threadPool;
+
+    private ThreadPoolConfig _threadPoolConfig;
+
+    /** 上一次加载时配置文件的最后修改时间 */
+    private long _lastModified;
+
+    public ConfigReloadJob(ThreadPoolImpl threadPool, ThreadPoolConfig threadPoolConfig, int interval) {
+        this._threadPool = threadPool;
+        this._threadPoolConfig = threadPoolConfig;
+        super._interval = interval;
+    }
+
+    @Override
+    public void init() {
+        super.init();
+        _lastModified = _threadPoolConfig.getConfigFileLastModified();
+        if (0 == _lastModified) {
+            _logger.warn("the config file is not a file in the file system or not exists, changes of the config file can not be detected");
+        }
+    }
+
+    @Override
+    protected void execute() {
+        long lastModified = _threadPoolConfig.getConfigFileLastModified();
+        if (0 != lastModified && lastModified != _lastModified) {
+            _logger.info("the config file was modified, reload it");
+            _lastModified = lastModified;
+            _threadPool.reload();
+        }
+    }
+
+}
@@ -0,0 +1,357 @@
+package cn.aofeng.threadpool4j.job;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.aofeng.common4j.lang.SystemUtil;
+import cn.aofeng.threadpool4j.ThreadUtil;
+
+/**
+ * 检测死锁和锁竞争：
+ * <ul>
+ *     <li>通过{@link ThreadMXBean#findDeadlockedThreads()}检测死锁（包括synchronized和{@link java.util.concurrent.locks}中的锁），
+ *     有死锁时输出死锁线程的堆栈、持有的锁和等待的锁；</li>
+ *     <li>开启线程竞争监控（{@link ThreadMXBean#setThreadContentionMonitoringEnabled(boolean)}），按线程池输出
+ *     本次与上次输出之间线程阻塞（BLOCKED）和等待（WAITING、TIMED_WAITING）的次数和时间；</li>
+ *     <li>按线程池输出当前等待线程数最多的锁及持有锁的线程（只统计被其他线程持有的锁，线程空闲时等待任务不计入）。</li>
+ * </ul>
+ * 线程池的线程按线程组（standard类型）和所属线程池（forkjoin类型）识别，虚拟线程不支持。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class DeadlockJob extends AbstractJob {
+
+    private static Logger _logger = LoggerFactory.getLogger(DeadlockJob.class);
+
+    /** 每个线程池最多输出的锁数量 */
+    final static int TOP_LOCKS = 5;
+
+    /** 死锁线程最多输出的堆栈深度 */
+    private final static int MAX_DEPTH = 32;
+
+    private String _lineSeparator = SystemUtil.getEndLine();
+
+    private final ThreadMXBean _threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /** key为线程池名称，配置文件热加载时会新增其中的元素 */
+    private Map<String, ExecutorService> _multiThreadPool;
+
+    /** 线程竞争监控是否由本Job开启，是则在销毁时关闭 */
+    private boolean _contentionMonitoringEnabled;
+
+    /** 上一次输出时每个线程的累计值，value依次为阻塞次数、阻塞时间、等待次数、等待时间，以及统计序号 */
+    private Map<Long, long[]> _lastContention = new HashMap<Long, long[]>();
+
+    private long _statCount;
+
+    /**
+     * @param multiThreadPool 所有线程池，key为线程池名称
+     * @param interval 检测间隔（单位：秒）
+     */
+    public DeadlockJob(Map<String, ExecutorService> multiThreadPool, int interval) {
+        this._multiThreadPool = multiThreadPool;
+        super._interval = interval;
+    }
+
+    @Override
+    public void init() {
+        super.init();
+        if (_threadMXBean.isThreadContentionMonitoringSupported() && ! _threadMXBean.isThreadContentionMonitoringEnabled()) {
+            _threadMXBean.setThreadContentionMonitoringEnabled(true);
+            _contentionMonitoringEnabled = true;
+        }
+    }
+
+    @Override
+    protected void execute() {
+        try {
+            ThreadInfo[] deadlockedThreads = findDeadlockedThreads();
+            if (null != deadlockedThreads) {
+                _logger.error("found {} deadlocked threads:{}{}", deadlockedThreads.length, _lineSeparator,
+                        formatDeadlock(deadlockedThreads));
+            }
+
+            Map<String, ContentionInfo> contentionMap = statContention();
+            for (Entry<String, ContentionInfo> entry : contentionMap.entrySet()) {
+                ContentionInfo contention = entry.getValue();
+                _logger.info("ThreadPool:{}, Thread:{}, Blocked:{}, BlockedTime:{}ms, Waited:{}, WaitedTime:{}ms",
+                        entry.getKey(), contention.getThreadCount(), contention.getBlockedCount(),
+                        format(contention.getBlockedTime()), contention.getWaitedCount(), format(contention.getWaitedTime()));
+                for (LockWaiters lock : contention.getTopLocks(TOP_LOCKS)) {
+                    _logger.info("ThreadPool:{}, Lock:{}, Owner:{}, Waiters:{}",
+                            entry.getKey(), lock.getLockName(), lock.getOwnerName(), lock.getWaiters());
+                }
+            }
+        } catch (RuntimeException e) {
+            _logger.error("detect deadlock and lock contention occurs error", e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (_contentionMonitoringEnabled) {
+            _threadMXBean.setThreadContentionMonitoringEnabled(false);
+            _contentionMonitoringEnabled = false;
+        }
+    }
+
+    /**
+     * @return 死锁线程的信息（包括持有的锁），没有死锁返回null
+     */
+    ThreadInfo[] findDeadlockedThreads() {
+        long[] threadIds = _threadMXBean.isSynchronizerUsageSupported()
+                ? _threadMXBean.findDeadlockedThreads() : _threadMXBean.findMonitorDeadlockedThreads();
+        if (null == threadIds) {
+            return null;
+        }
+
+        return _threadMXBean.getThreadInfo(threadIds, _threadMXBean.isObjectMonitorUsageSupported(),
+                _threadMXBean.isSynchronizerUsageSupported());
+    }
+
+    private String formatDeadlock(ThreadInfo[] threadInfos) {
+        StringBuilder buffer = new StringBuilder(4096);
+        for (ThreadInfo threadInfo : threadInfos) {
+            if (null == threadInfo) {
+                continue;
+            }
+
+            buffer.append("name:").append(threadInfo.getThreadName())
+                .append(", id:").append(threadInfo.getThreadId())
+                .append(", status:").append(threadInfo.getThreadState())
+                .append(", waiting for:").append(threadInfo.getLockName())
+                .append(", owned by:").append(threadInfo.getLockOwnerName())
+                .append(_lineSeparator);
+            StackTraceElement[] stackTrace = threadInfo.getStackTrace();
+            for (int i = 0; i < stackTrace.length && i < MAX_DEPTH; i++) {
+                buffer.append("\tat ").append(stackTrace[i]).append(_lineSeparator);
+                for (MonitorInfo monitor : threadInfo.getLockedMonitors()) {
+                    if (monitor.getLockedStackDepth() == i) {
+                        buffer.append("\t- locked ").append(monitor).append(_lineSeparator);
+                    }
+                }
+            }
+            for (LockInfo synchronizer : threadInfo.getLockedSynchronizers()) {
+                buffer.append("\t- locked ").append(synchronizer).append(_lineSeparator);
+            }
+        }
+
+        return buffer.toString();
+    }
+
+    /**
+     * 统计每个线程池的线程与上一次统计相比的阻塞、等待次数和时间，以及当前等待的锁。
+     * 第一次统计时阻塞、等待次数和时间为线程启动以来的累计值。
+     *
+     * @return key为线程池名称
+     */
+    synchronized Map<String, ContentionInfo> statContention() {
+        ThreadGroup root = ThreadUtil.getRootThreadGroup();
+        Thread[] threads = new Thread[root.activeCount() * 2];
+        int threadNum = root.enumerate(threads, true);
+        long[] threadIds = new long[threadNum];
+        String[] poolNames = new String[threadNum];
+        int count = 0;
+        for (int i = 0; i < threadNum; i++) {
+            String poolName = ThreadUtil.getPoolName(threads[i], _multiThreadPool);
+            if (null != poolName) {
+                threadIds[count] = threads[i].getId();
+                poolNames[count] = poolName;
+                count++;
+            }
+        }
+
+        _statCount++;
+        Map<String, ContentionInfo> contentionMap = new TreeMap<String, ContentionInfo>();
+        ThreadInfo[] threadInfos = _threadMXBean.getThreadInfo((count == threadNum) ? threadIds : Arrays.copyOf(threadIds, count));
+        for (int i = 0; i < threadInfos.length; i++) {
+            ThreadInfo threadInfo = threadInfos[i];
+            if (null == threadInfo) {
+                continue;
+            }
+
+            ContentionInfo contention = contentionMap.get(poolNames[i]);
+            if (null == contention) {
+                contention = new ContentionInfo();
+                contentionMap.put(poolNames[i], contention);
+            }
+            contention.add(threadInfo, delta(threadInfo));
+        }
+
+        // 删除已结束的线程
+        Iterator<long[]> iterator = _lastContention.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next()[4] != _statCount) {
+                iterator.remove();
+            }
+        }
+
+        return contentionMap;
+    }
+
+    /**
+     * @return 阻塞次数、阻塞时间（单位：毫秒，不支持为-1）、等待次数、等待时间（单位：毫秒，不支持为-1）与上一次统计的差值
+     */
+    private long[] delta(ThreadInfo threadInfo) {
+        long[] current = new long[] {threadInfo.getBlockedCount(), threadInfo.getBlockedTime(),
+                threadInfo.getWaitedCount(), threadInfo.getWaitedTime()};
+        long[] last = _lastContention.get(threadInfo.getThreadId());
+        if (null == last) {
+            last = new long[5];
+            _lastContention.put(threadInfo.getThreadId(), last);
+        }
+
+        long[] delta = new long[4];
+        for (int i = 0; i < delta.length; i++) {
+            if (current[i] < 0) {
+                delta[i] = -1;
+            } else {
+                delta[i] = Math.max(0, current[i] - last[i]);
+                last[i] = current[i];
+            }
+        }
+        last[4] = _statCount;
+
+        return delta;
+    }
+
+    /**
+     * @return 不支持（小于0）时返回"-"
+     */
+    private String format(long value) {
+        return (value < 0) ? "-" : String.valueOf(value);
+    }
+
+    /**
+     * 一个线程池的锁竞争统计。
+     */
+    static class ContentionInfo {
+
+        private int _threadCount;
+
+        private long _blockedCount;
+
+        private long _blockedTime;
+
+        private long _waitedCount;
+
+        private long _waitedTime;
+
+        /** key为锁的名称（类名@identityHashCode） */
+        private Map<String, LockWaiters> _locks = new HashMap<String, LockWaiters>();
+
+        void add(ThreadInfo threadInfo, long[] delta) {
+            _threadCount++;
+            _blockedCount += delta[0];
+            _blockedTime = (delta[1] < 0 || _blockedTime < 0) ? -1 : _blockedTime + delta[1];
+            _waitedCount += delta[2];
+            _waitedTime = (delta[3] < 0 || _waitedTime < 0) ? -1 : _waitedTime + delta[3];
+
+            // 等待没有被其他线程持有的锁（如：线程空闲时在队列的Condition上等待任务）不是锁竞争
+            if (null == threadInfo.getLockName() || threadInfo.getLockOwnerId() < 0) {
+                return;
+            }
+            LockWaiters lock = _locks.get(threadInfo.getLockName());
+            if (null == lock) {
+                lock = new LockWaiters(threadInfo.getLockName(), threadInfo.getLockOwnerName());
+                _locks.put(threadInfo.getLockName(), lock);
+            }
+            lock._waiters++;
+        }
+
+        public int getThreadCount() {
+            return _threadCount;
+        }
+
+        public long getBlockedCount() {
+            return _blockedCount;
+        }
+
+        /**
+         * @return 阻塞时间（单位：毫秒），-1表示JVM不支持线程竞争监控
+         */
+        public long getBlockedTime() {
+            return _blockedTime;
+        }
+
+        public long getWaitedCount() {
+            return _waitedCount;
+        }
+
+        /**
+         * @return 等待时间（单位：毫秒），-1表示JVM不支持线程竞争监控
+         */
+        public long getWaitedTime() {
+            return _waitedTime;
+        }
+
+        /**
+         * @param limit 最多返回的锁数量
+         * @return 按等待线程数从多到少排序的锁
+         */
+        public List<LockWaiters> getTopLocks(int limit) {
+            List<LockWaiters> locks = new ArrayList<LockWaiters>(_locks.values());
+            Collections.sort(locks, new Comparator<LockWaiters>() {
+                @Override
+                public int compare(LockWaiters o1, LockWaiters o2) {
+                    return o2._waiters - o1._waiters;
+                }
+            });
+
+            return (locks.size() > limit) ? locks.subList(0, limit) : locks;
+        }
+
+    }
+
+    /**
+     * 一个锁及等待它的线程数。
+     */
+    static class LockWaiters {
+
+        private final String _lockName;
+
+        private final String _ownerName;
+
+        private int _waiters;
+
+        LockWaiters(String lockName, String ownerName) {
+            this._lockName = lockName;
+            this._ownerName = ownerName;
+        }
+
+        public String getLockName() {
+            return _lockName;
+        }
+
+        /**
+         * @return 采样时持有锁的线程名称
+         */
+        public String getOwnerName() {
+            return _ownerName;
+        }
+
+        public int getWaiters() {
+            return _waiters;
+        }
+
+    }
+
+}
@@ -0,0 +1,123 @@
+package cn.aofeng.threadpool4j.job;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.aofeng.common4j.ILifeCycle;
+
+/**
+ * 所有Job共用的调度器：只有一个守护线程，按每个Job的执行间隔以固定频率（{@link ScheduledThreadPoolExecutor#scheduleAtFixedRate}）
+ * 执行，执行时间不会累积到间隔中。
+ * <p>
+ * 取消Job（{@link #cancel(AbstractJob)}）和销毁调度器（{@link #destroy()}）立即生效，不需要等待Job的下一次执行。
+ * 所有Job在同一个线程中执行，单次执行耗时较长的Job会推迟其他Job的执行。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class JobScheduler implements ILifeCycle {
+
+    private static Logger _logger = LoggerFactory.getLogger(JobScheduler.class);
+
+    final static String THREAD_NAME = "threadpool4j-scheduler";
+
+    private ScheduledThreadPoolExecutor _executor;
+
+    /** key为Job，value为Job的名称和调度结果 */
+    private Map<AbstractJob, ScheduledJob> _jobs = new ConcurrentHashMap<AbstractJob, ScheduledJob>();
+
+    @Override
+    public void init() {
+        _executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        _executor.setRemoveOnCancelPolicy(true);
+        _executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        _executor.setContinueExistingPeriodicTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * 初始化Job（{@link AbstractJob#init()}）并加入调度，立即执行第一次。
+     *
+     * @param name Job的名称，用于日志
+     * @param job Job实例
+     * @throws IllegalArgumentException Job的执行间隔小于等于0
+     * @throws IllegalStateException 调度器未初始化或已销毁
+     */
+    public void schedule(String name, AbstractJob job) {
+        long period = job.getPeriodNanos();
+        if (period <= 0) {
+            throw new IllegalArgumentException( String.format("period %d of job %s less than or equal to 0", period, name) );
+        }
+        if (null == _executor || _executor.isShutdown()) {
+            throw new IllegalStateException( String.format("schedule job %s failed, because the scheduler was not initialized or destroyed", name) );
+        }
+
+        job.init();
+        ScheduledFuture<?> future = _executor.scheduleAtFixedRate(job, 0, period, TimeUnit.NANOSECONDS);
+        _jobs.put(job, new ScheduledJob(name, future));
+        _logger.info("start job '{}' success", name);
+    }
+
+    /**
+     * 取消Job的调度并销毁Job（{@link AbstractJob#destroy()}）。正在执行的Job执行完本次后不再执行。
+     *
+     * @param job Job实例
+     */
+    public void cancel(AbstractJob job) {
+        ScheduledJob scheduledJob = _jobs.remove(job);
+        if (null == scheduledJob) {
+            return;
+        }
+
+        scheduledJob._future.cancel(false);
+        job.destroy();
+        _logger.info("stop job '{}' success", scheduledJob._name);
+    }
+
+    /**
+     * @return 正在调度的Job数
+     */
+    public int getJobCount() {
+        return _jobs.size();
+    }
+
+    /**
+     * 取消并销毁所有Job，停止调度线程（中断正在执行的Job）。
+     */
+    @Override
+    public void destroy() {
+        for (Entry<AbstractJob, ScheduledJob> entry : _jobs.entrySet()) {
+            cancel(entry.getKey());
+        }
+        if (null != _executor) {
+            _executor.shutdownNow();
+        }
+    }
+
+    private static class ScheduledJob {
+
+        private final String _name;
+
+        private final ScheduledFuture<?> _future;
+
+        public ScheduledJob(String name, ScheduledFuture<?> future) {
+            this._name = name;
+            this._future = future;
+        }
+
+    }
+
+}
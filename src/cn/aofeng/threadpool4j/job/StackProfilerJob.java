@@ -0,0 +1,314 @@
+package cn.aofeng.threadpool4j.job;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.aofeng.threadpool4j.ThreadUtil;
+
+/**
+ * 按固定频率采样线程池线程的堆栈，相同的堆栈在内存中累加计数，每隔一段时间输出一个collapsed stack格式的文件，
+ * 可以直接用FlameGraph（flamegraph.pl）等工具生成火焰图。
+ * <p>
+ * 与{@link ThreadStackJob}输出所有线程的完整堆栈不同：
+ * <ul>
+ *     <li>只采样线程池的线程（standard类型按线程组，forkjoin类型按所属线程池识别；虚拟线程不支持），
+ *     通过{@link ThreadMXBean#getThreadInfo(long[], int)}一次获取，堆栈深度有上限；</li>
+ *     <li>空闲（阻塞在队列上等待任务）的线程不计入；</li>
+ *     <li>文件中每行为一个堆栈：线程池名称;最外层方法;...;最内层方法 采样次数。</li>
+ * </ul>
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class StackProfilerJob extends AbstractJob {
+
+    private static Logger _logger = LoggerFactory.getLogger(StackProfilerJob.class);
+
+    /** 线程列表的刷新间隔（单位：毫秒） */
+    final static long REFRESH_INTERVAL = 1000;
+
+    /** 内存中最多保存的不同堆栈数，超过后新的堆栈计入{@link #OVERFLOW_FRAME} */
+    final static int MAX_STACKS = 10000;
+
+    final static String OVERFLOW_FRAME = "[overflow]";
+
+    /** 线程空闲时位于堆栈中的方法 */
+    private final static String[][] IDLE_FRAMES = {
+        {"java.util.concurrent.ThreadPoolExecutor", "getTask"},
+        {"java.util.concurrent.ForkJoinPool", "awaitWork"}
+    };
+
+    private final ThreadMXBean _threadMXBean = ManagementFactory.getThreadMXBean();
+
+    /** key为线程池名称，配置文件热加载时会新增其中的元素 */
+    private Map<String, ExecutorService> _multiThreadPool;
+
+    /** 采样间隔（单位：纳秒） */
+    private long _samplePeriod;
+
+    private int _depth;
+
+    private File _dir;
+
+    /** 线程池的线程id和对应的线程池名称 */
+    private long[] _threadIds = new long[0];
+
+    private String[] _poolNames = new String[0];
+
+    private long _lastRefreshNanos;
+
+    /** 上一次采样的时间（{@link System#nanoTime()}），0表示还没有采样 */
+    private long _lastSampleNanos;
+
+    private long _lastFlushNanos = System.nanoTime();
+
+    /** 相同的堆栈累加计数，value为长度为1的数组，累加时不创建对象 */
+    private Map<StackKey, long[]> _stacks = new HashMap<StackKey, long[]>();
+
+    private long _sampleCount;
+
+    /** 输出文件名中的时间，只在{@link #flush(Date)}中使用 */
+    private final DateFormat _fileNameFormat = new SimpleDateFormat("yyyyMMdd-HHmmss");
+
+    /**
+     * @param multiThreadPool 所有线程池，key为线程池名称
+     * @param rate 每秒采样次数
+     * @param depth 每个堆栈最多采集的方法数（从最内层开始）
+     * @param interval 输出文件的间隔（单位：秒）
+     * @param dir 输出文件的目录
+     */
+    public StackProfilerJob(Map<String, ExecutorService> multiThreadPool, int rate, int depth, int interval, String dir) {
+        this._multiThreadPool = multiThreadPool;
+        this._samplePeriod = TimeUnit.SECONDS.toNanos(1) / rate;
+        this._depth = depth;
+        this._dir = new File(dir);
+        super._interval = interval;
+    }
+
+    /**
+     * @return 采样间隔（单位：纳秒），每次执行采样一次，每隔<code>_interval</code>秒输出一次文件。
+     * 共用的调度器以固定频率调度，被其他Job延迟后会连续补执行，距上一次采样不足一个采样间隔时跳过，避免集中采样使结果失真
+     */
+    @Override
+    public long getPeriodNanos() {
+        return _samplePeriod;
+    }
+
+    @Override
+    protected void execute() {
+        long nowNanos = System.nanoTime();
+        if (0 == _lastSampleNanos || nowNanos - _lastSampleNanos >= _samplePeriod) {
+            sample(nowNanos);
+            _lastSampleNanos = nowNanos;
+        }
+        if (nowNanos - _lastFlushNanos >= TimeUnit.SECONDS.toNanos(_interval)) {
+            flush(new Date());
+            _lastFlushNanos = nowNanos;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        synchronized (this) {
+            if (! _stacks.isEmpty()) {
+                flush(new Date());
+            }
+        }
+    }
+
+    /**
+     * 采样一次所有线程池线程的堆栈。
+     *
+     * @param nowNanos 当前时间（{@link System#nanoTime()}）
+     */
+    synchronized void sample(long nowNanos) {
+        if (nowNanos - _lastRefreshNanos >= TimeUnit.MILLISECONDS.toNanos(REFRESH_INTERVAL) || 0 == _lastRefreshNanos) {
+            refreshThreads();
+            _lastRefreshNanos = nowNanos;
+        }
+        if (0 == _threadIds.length) {
+            return;
+        }
+
+        ThreadInfo[] threadInfos = _threadMXBean.getThreadInfo(_threadIds, _depth);
+        for (int i = 0; i < threadInfos.length; i++) {
+            ThreadInfo threadInfo = threadInfos[i];
+            if (null == threadInfo || isIdle(threadInfo.getStackTrace())) {
+                continue;
+            }
+
+            StackKey key = new StackKey(_poolNames[i], threadInfo.getStackTrace());
+            long[] count = _stacks.get(key);
+            if (null == count) {
+                if (_stacks.size() >= MAX_STACKS) {
+                    key = new StackKey(_poolNames[i], new StackTraceElement[] {
+                        new StackTraceElement(OVERFLOW_FRAME, "", null, -1)});
+                    count = _stacks.get(key);
+                }
+                if (null == count) {
+                    count = new long[1];
+                    _stacks.put(key, count);
+                }
+            }
+            count[0]++;
+            _sampleCount++;
+        }
+    }
+
+    /**
+     * 重新识别线程池的线程（见{@link ThreadUtil#getPoolName(Thread, Map)}）。
+     */
+    private void refreshThreads() {
+        ThreadGroup root = ThreadUtil.getRootThreadGroup();
+        Thread[] threads = new Thread[root.activeCount() * 2];
+        int threadNum = root.enumerate(threads, true);
+
+        long[] threadIds = new long[threadNum];
+        String[] poolNames = new String[threadNum];
+        int count = 0;
+        for (int i = 0; i < threadNum; i++) {
+            String poolName = ThreadUtil.getPoolName(threads[i], _multiThreadPool);
+            if (null != poolName) {
+                threadIds[count] = threads[i].getId();
+                poolNames[count] = poolName;
+                count++;
+            }
+        }
+        _threadIds = Arrays.copyOf(threadIds, count);
+        _poolNames = Arrays.copyOf(poolNames, count);
+    }
+
+    private boolean isIdle(StackTraceElement[] stackTrace) {
+        for (StackTraceElement element : stackTrace) {
+            for (String[] idleFrame : IDLE_FRAMES) {
+                if (idleFrame[1].equals(element.getMethodName()) && idleFrame[0].equals(element.getClassName())) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * 把内存中累加的堆栈输出到文件（threadpool4j-yyyyMMdd-HHmmss.collapsed），然后清空。没有采样到堆栈时不输出。
+     *
+     * @param now 当前时间，用于文件名
+     * @return 输出的文件，没有输出返回null
+     */
+    synchronized File flush(Date now) {
+        if (_stacks.isEmpty()) {
+            return null;
+        }
+
+        // 只有行号不同的堆栈合并为一行
+        Map<String, Long> collapsed = new TreeMap<String, Long>();
+        StringBuilder buffer = new StringBuilder(1024);
+        for (Entry<StackKey, long[]> entry : _stacks.entrySet()) {
+            buffer.setLength(0);
+            buffer.append(entry.getKey()._poolName);
+            StackTraceElement[] stackTrace = entry.getKey()._stackTrace;
+            for (int i = stackTrace.length - 1; i >= 0; i--) {
+                buffer.append(';').append(stackTrace[i].getClassName());
+                if (! stackTrace[i].getMethodName().isEmpty()) {
+                    buffer.append('.').append(stackTrace[i].getMethodName());
+                }
+            }
+            String stack = buffer.toString();
+            Long count = collapsed.get(stack);
+            collapsed.put(stack, (null == count ? 0 : count) + entry.getValue()[0]);
+        }
+        long sampleCount = _sampleCount;
+        _stacks.clear();
+        _sampleCount = 0;
+
+        File file = new File(_dir, "threadpool4j-" + _fileNameFormat.format(now) + ".collapsed");
+        if (! _dir.isDirectory() && ! _dir.mkdirs()) {
+            _logger.error("create stack profiler output directory {} failed", _dir.getAbsolutePath());
+            return null;
+        }
+        Writer writer = null;
+        try {
+            writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+            for (Entry<String, Long> entry : collapsed.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write(' ');
+                writer.write(String.valueOf(entry.getValue()));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            _logger.error( String.format("write stack profile file %s failed", file.getAbsolutePath()), e);
+            return null;
+        } finally {
+            if (null != writer) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // nothing
+                }
+            }
+        }
+        _logger.info("write {} samples of {} stacks to file {}", sampleCount, collapsed.size(), file.getAbsolutePath());
+
+        return file;
+    }
+
+    /**
+     * 线程池名称和堆栈组成的key，{@link StackTraceElement}实现了equals和hashCode。
+     */
+    private static class StackKey {
+
+        private final String _poolName;
+
+        private final StackTraceElement[] _stackTrace;
+
+        private final int _hashCode;
+
+        public StackKey(String poolName, StackTraceElement[] stackTrace) {
+            this._poolName = poolName;
+            this._stackTrace = stackTrace;
+            this._hashCode = 31 * poolName.hashCode() + Arrays.hashCode(stackTrace);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (! (obj instanceof StackKey)) {
+                return false;
+            }
+
+            StackKey other = (StackKey) obj;
+            return _hashCode == other._hashCode && _poolName.equals(other._poolName)
+                    && Arrays.equals(_stackTrace, other._stackTrace);
+        }
+
+    }
+
+}
@@ -1,16 +1,24 @@
 package cn.aofeng.threadpool4j.job;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import cn.aofeng.threadpool4j.LatencyHistogram;
+import cn.aofeng.threadpool4j.NamedForkJoinPool;
+import cn.aofeng.threadpool4j.NamedThreadPoolExecutor;
+import cn.aofeng.threadpool4j.VirtualThreadExecutor;
+
 /**
  * 收集所有线程池的状态信息，统计并输出汇总信息。
+ * standard类型的线程池同时输出本次与上次输出之间任务在队列中的等待时间和执行时间的百分位数。
  * 
  * @author <a href="mailto:aofengblog@163.com">聂勇</a>
  */
@@ -20,6 +28,12 @@ public class ThreadPoolStateJob extends AbstractJob {
     
     private Map<String, ExecutorService> _multiThreadPool;
     
+    /** 上一次输出时的等待时间快照，key为线程池名称 */
+    private Map<String, LatencyHistogram.Snapshot> _lastQueueWait = new HashMap<String, LatencyHistogram.Snapshot>();
+    
+    /** 上一次输出时的执行时间快照，key为线程池名称 */
+    private Map<String, LatencyHistogram.Snapshot> _lastExecution = new HashMap<String, LatencyHistogram.Snapshot>();
+    
     public ThreadPoolStateJob(Map<String, ExecutorService> multiThreadPool, int interval) {
         this._multiThreadPool = multiThreadPool;
         super._interval = interval;
@@ -29,12 +43,67 @@ public class ThreadPoolStateJob extends AbstractJob {
     protected void execute() {
         Set<Entry<String, ExecutorService>> poolSet = _multiThreadPool.entrySet();
         for (Entry<String, ExecutorService> entry : poolSet) {
-            ThreadPoolExecutor pool = (ThreadPoolExecutor) entry.getValue();
+            ExecutorService executor = entry.getValue();
+            if (executor instanceof ThreadPoolExecutor) {
+                logThreadPoolExecutorState(entry.getKey(), (ThreadPoolExecutor) executor);
+            } else if (executor instanceof ForkJoinPool) {
+                logForkJoinPoolState(entry.getKey(), (ForkJoinPool) executor);
+            } else if (executor instanceof VirtualThreadExecutor) {
+                logVirtualThreadExecutorState(entry.getKey(), (VirtualThreadExecutor) executor);
+            } else {
+                _logger.debug("ThreadPool:{}, unsupported type {}", entry.getKey(), executor.getClass().getName());
+            }
+        }
+    }
+    
+    private void logThreadPoolExecutorState(String name, ThreadPoolExecutor pool) {
+        if (! (pool instanceof NamedThreadPoolExecutor)) {
             _logger.info("ThreadPool:{}, ActiveThread:{}, TotalTask:{}, CompletedTask:{}, Queue:{}", 
-                    entry.getKey(), pool.getActiveCount(), pool.getTaskCount(), pool.getCompletedTaskCount(), pool.getQueue().size());
+                    name, pool.getActiveCount(), pool.getTaskCount(), pool.getCompletedTaskCount(), pool.getQueue().size());
+            return;
         }
         
-        super.sleep();
+        NamedThreadPoolExecutor namedPool = (NamedThreadPoolExecutor) pool;
+        _logger.info("ThreadPool:{}, ActiveThread:{}, TotalTask:{}, CompletedTask:{}, Queue:{}, FailedTask:{}, RejectedTask:{}, QueueWait:[{}], Execution:[{}]", 
+                name, pool.getActiveCount(), pool.getTaskCount(), pool.getCompletedTaskCount(), pool.getQueue().size(), 
+                namedPool.getFailedTaskCount(), namedPool.getRejectedTaskCount(), 
+                intervalSnapshot(_lastQueueWait, name, namedPool.getQueueWaitHistogram()), 
+                intervalSnapshot(_lastExecution, name, namedPool.getExecutionHistogram()));
+    }
+    
+    /**
+     * @return 上一次输出到现在记录的值组成的快照
+     */
+    private LatencyHistogram.Snapshot intervalSnapshot(Map<String, LatencyHistogram.Snapshot> lastSnapshots, 
+            String name, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot current = histogram.snapshot();
+        LatencyHistogram.Snapshot last = lastSnapshots.put(name, current);
+        
+        return (null == last) ? current : current.since(last);
+    }
+    
+    private void logForkJoinPoolState(String name, ForkJoinPool pool) {
+        if (! (pool instanceof NamedForkJoinPool)) {
+            _logger.info("ThreadPool:{}, Type:forkjoin, Parallelism:{}, PoolSize:{}, ActiveThread:{}, RunningThread:{}, QueuedTask:{}, QueuedSubmission:{}, Steal:{}", 
+                    name, pool.getParallelism(), pool.getPoolSize(), pool.getActiveThreadCount(), pool.getRunningThreadCount(), 
+                    pool.getQueuedTaskCount(), pool.getQueuedSubmissionCount(), pool.getStealCount());
+            return;
+        }
+        
+        NamedForkJoinPool namedPool = (NamedForkJoinPool) pool;
+        _logger.info("ThreadPool:{}, Type:forkjoin, Parallelism:{}, PoolSize:{}, ActiveThread:{}, RunningThread:{}, QueuedTask:{}, QueuedSubmission:{}, Steal:{}, FailedTask:{}, QueueWait:[{}], Execution:[{}]", 
+                name, pool.getParallelism(), pool.getPoolSize(), pool.getActiveThreadCount(), pool.getRunningThreadCount(), 
+                pool.getQueuedTaskCount(), pool.getQueuedSubmissionCount(), pool.getStealCount(), namedPool.getFailedTaskCount(), 
+                intervalSnapshot(_lastQueueWait, name, namedPool.getQueueWaitHistogram()), 
+                intervalSnapshot(_lastExecution, name, namedPool.getExecutionHistogram()));
+    }
+    
+    private void logVirtualThreadExecutorState(String name, VirtualThreadExecutor pool) {
+        _logger.info("ThreadPool:{}, Type:virtual, MaxConcurrency:{}, ActiveThread:{}, WaitingThread:{}, TotalTask:{}, CompletedTask:{}, FailedTask:{}, QueueWait:[{}], Execution:[{}]", 
+                name, pool.getMaxConcurrency(), pool.getActiveCount(), pool.getWaitingCount(), pool.getTaskCount(), 
+                pool.getCompletedTaskCount(), pool.getFailedTaskCount(), 
+                intervalSnapshot(_lastQueueWait, name, pool.getQueueWaitHistogram()), 
+                intervalSnapshot(_lastExecution, name, pool.getExecutionHistogram()));
     }
 
 }
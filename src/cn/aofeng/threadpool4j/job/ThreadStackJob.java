@@ -47,8 +47,6 @@ public class ThreadStackJob extends AbstractJob {
             
             _logger.info(buffer.toString());
         }
-        
-        super.sleep();
     }
 
 }
@@ -1,16 +1,22 @@
 package cn.aofeng.threadpool4j.job;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import cn.aofeng.threadpool4j.ThreadStateInfo;
+import cn.aofeng.threadpool4j.ThreadUsageInfo;
+import cn.aofeng.threadpool4j.ThreadUsageSampler;
 import cn.aofeng.threadpool4j.ThreadUtil;
+import cn.aofeng.threadpool4j.VirtualThreadExecutor;
 
 /**
  * 收集所有线程组中所有线程的状态信息，统计并输出汇总信息。
+ * 同时按线程池输出本次与上次输出之间线程的CPU使用率（相对于1个CPU核）、用户态CPU使用率和每秒分配的内存（见{@link ThreadUsageSampler}）。
  * 
  * @author <a href="mailto:aofengblog@163.com">聂勇</a>
  */
@@ -18,7 +24,21 @@ public class ThreadStateJob extends AbstractJob {
 
     private static Logger _logger = LoggerFactory.getLogger(ThreadStateJob.class);
     
+    private Map<String, ExecutorService> _multiThreadPool;
+    
+    private ThreadUsageSampler _threadUsageSampler;
+    
     public ThreadStateJob(int interval) {
+        this(Collections.<String, ExecutorService>emptyMap(), interval);
+    }
+    
+    /**
+     * @param multiThreadPool 所有线程池。虚拟线程不属于任何可枚举的线程组，按线程池单独统计
+     * @param interval 统计间隔（单位：秒）
+     */
+    public ThreadStateJob(Map<String, ExecutorService> multiThreadPool, int interval) {
+        this._multiThreadPool = multiThreadPool;
+        this._threadUsageSampler = new ThreadUsageSampler(multiThreadPool);
         super._interval = interval;
     }
 
@@ -26,6 +46,13 @@ public class ThreadStateJob extends AbstractJob {
     protected void execute() {
         Map<String, ThreadStateInfo> statMap = ThreadUtil.statAllGroupThreadState();
         
+        for (Entry<String, ExecutorService> entry : _multiThreadPool.entrySet()) {
+            if (entry.getValue() instanceof VirtualThreadExecutor) {
+                VirtualThreadExecutor pool = (VirtualThreadExecutor) entry.getValue();
+                statMap.put(entry.getKey(), ThreadUtil.statThreadState(pool.getThreads()));
+            }
+        }
+        
         for (Entry<String, ThreadStateInfo> entry : statMap.entrySet()) {
             ThreadStateInfo stateInfo = entry.getValue();
             _logger.info("ThreadGroup:{}, New:{},  Runnable:{}, Blocked:{}, Waiting:{}, TimedWaiting:{}, Terminated:{}", 
@@ -33,7 +60,20 @@ public class ThreadStateJob extends AbstractJob {
                     stateInfo.getWaitingCount(), stateInfo.getTimedWaitingCount(), stateInfo.getTerminatedCount());
         }
         
-        super.sleep();
+        Map<String, ThreadUsageInfo> usageMap = _threadUsageSampler.sample(System.nanoTime());
+        for (Entry<String, ThreadUsageInfo> entry : usageMap.entrySet()) {
+            ThreadUsageInfo usage = entry.getValue();
+            _logger.info("ThreadPool:{}, Thread:{}, Cpu:{}%, User:{}%, Alloc:{}KB/s", 
+                    entry.getKey(), usage.getThreadCount(), format(usage.getCpuUsage()), 
+                    format(usage.getUserUsage()), format(usage.getAllocationRate() / 1024));
+        }
     } // end of execute
+    
+    /**
+     * @return 保留1位小数，不支持（小于0）时返回"-"
+     */
+    private String format(double value) {
+        return (value < 0) ? "-" : String.format("%.1f", value);
+    }
 
 }
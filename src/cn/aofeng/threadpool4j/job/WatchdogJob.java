@@ -0,0 +1,38 @@
+package cn.aofeng.threadpool4j.job;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import cn.aofeng.threadpool4j.TaskWatchdog;
+
+/**
+ * 定时检查配置了watchdog的线程池中执行时间过长的任务（见{@link TaskWatchdog}）。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class WatchdogJob extends AbstractJob {
+
+    private static Logger _logger = LoggerFactory.getLogger(WatchdogJob.class);
+
+    /** key为线程池名称，配置文件热加载时会增删其中的元素 */
+    private Map<String, TaskWatchdog> _watchdogs;
+
+    public WatchdogJob(Map<String, TaskWatchdog> watchdogs, int interval) {
+        this._watchdogs = watchdogs;
+        super._interval = interval;
+    }
+
+    @Override
+    protected void execute() {
+        for (TaskWatchdog watchdog : _watchdogs.values()) {
+            try {
+                watchdog.check();
+            } catch (RuntimeException e) {
+                _logger.error(String.format("check the running tasks of thread pool %s occurs error", watchdog.getName()), e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,149 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link ConcurrencyLimiter}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ConcurrencyLimiterTest {
+
+    private final static long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Rule
+    public ExpectedException _expectedEx = ExpectedException.none();
+
+    /**
+     * 测试用例：获取和释放许可 <br/>
+     * 前置条件：
+     * <pre>
+     * 上限为2，连续获取3次许可，释放1次后再获取
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 第3次获取失败，拒绝数为1；释放后获取成功
+     * </pre>
+     */
+    @Test
+    public void testTryAcquire() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 2, 1, 10);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1, limiter.getRejectedCount());
+
+        limiter.release();
+        assertEquals(1, limiter.getInFlight());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testAcquire4ReachLimit() {
+        _expectedEx.expect(RejectedExecutionException.class);
+        _expectedEx.expectMessage("thread pool test reached the concurrency limit 1");
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 1, 10);
+        limiter.acquire();
+        limiter.acquire();
+    }
+
+    /**
+     * 测试用例：延迟稳定时调大上限 <br/>
+     * 前置条件：
+     * <pre>
+     * 初始上限为10，同时在线程池中的任务数一直等于上限，延迟一直为10毫秒
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 上限逐步调大，不超过最大值100
+     * </pre>
+     */
+    @Test
+    public void testGrow() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 1, 100);
+        for (int i = 0; i < 5; i++) {
+            limiter.onSample(10 * MILLIS, limiter.getLimit());
+        }
+        assertTrue(limiter.getLimit() > 10);
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.onSample(10 * MILLIS, limiter.getLimit());
+        }
+        assertEquals(100, limiter.getLimit());
+    }
+
+    /**
+     * 测试用例：负载不足时不调大上限 <br/>
+     * 前置条件：
+     * <pre>
+     * 初始上限为10，同时在线程池中的任务数一直为2（小于上限的一半）
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 上限保持为10
+     * </pre>
+     */
+    @Test
+    public void testGrow4AppLimited() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 10, 1, 100);
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(10 * MILLIS, 2);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    /**
+     * 测试用例：延迟上升时调小上限 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、初始上限为50，先以10毫秒的延迟采样600次
+     * 2、任务开始排队，延迟上升为100毫秒
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 上限逐步调小到最小值5
+     * </pre>
+     */
+    @Test
+    public void testShrink() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 50, 5, 50);
+        for (int i = 0; i < 600; i++) {
+            limiter.onSample(10 * MILLIS, 50);
+        }
+        assertEquals(50, limiter.getLimit());
+
+        int limit = limiter.getLimit();
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(100 * MILLIS, limiter.getLimit());
+        }
+        assertTrue(limiter.getLimit() < limit);
+
+        for (int i = 0; i < 80; i++) {
+            limiter.onSample(100 * MILLIS, limiter.getLimit());
+        }
+        assertEquals(5, limiter.getLimit());
+    }
+
+    @Test
+    public void testInit4InvalidLimit() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("invalid concurrency limit 20 of range [1, 10] of thread pool test");
+
+        new ConcurrencyLimiter("test", 20, 1, 10);
+    }
+
+}
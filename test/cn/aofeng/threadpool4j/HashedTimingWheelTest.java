@@ -0,0 +1,134 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link HashedTimingWheel}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class HashedTimingWheelTest {
+
+    private HashedTimingWheel _timingWheel;
+
+    @Before
+    public void setUp() throws Exception {
+        _timingWheel = new HashedTimingWheel("timingwheel-test", 1, TimeUnit.MILLISECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _timingWheel.stop();
+    }
+
+    /**
+     * 测试用例：定时任务到期 <br/>
+     * 前置条件：
+     * <pre>
+     * 刻度为1毫秒，分别添加延迟为0、50、600毫秒（超出第0层的范围，需要从第1层下沉）的定时任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 每个定时任务都在到期时间之后执行，且按到期时间的先后顺序执行
+     * </pre>
+     */
+    @Test
+    public void testExpire() throws InterruptedException {
+        final List<Long> delays = new ArrayList<Long>();
+        final List<Long> actuals = new ArrayList<Long>();
+        final CountDownLatch latch = new CountDownLatch(3);
+        final long start = System.nanoTime();
+        for (final long delay : new long[] {600, 0, 50}) {
+            _timingWheel.newTimeout(new Runnable() {
+                @Override
+                public void run() {
+                    delays.add(delay);
+                    actuals.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    latch.countDown();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(0L, delays.get(0).longValue());
+        assertEquals(50L, delays.get(1).longValue());
+        assertEquals(600L, delays.get(2).longValue());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(actuals.get(i) >= delays.get(i));
+        }
+        assertEquals(0, _timingWheel.getPendingCount());
+    }
+
+    /**
+     * 测试用例：取消定时任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 添加1000个延迟100毫秒的定时任务，取消其中的偶数个
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 只有未取消的500个定时任务到期；重复取消和取消已到期的任务返回false
+     * </pre>
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        final AtomicInteger expired = new AtomicInteger();
+        List<HashedTimingWheel.Timeout> timeouts = new ArrayList<HashedTimingWheel.Timeout>();
+        for (int i = 0; i < 1000; i++) {
+            timeouts.add(_timingWheel.newTimeout(new Runnable() {
+                @Override
+                public void run() {
+                    expired.incrementAndGet();
+                }
+            }, 100, TimeUnit.MILLISECONDS));
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(timeouts.get(i).cancel());
+            assertFalse(timeouts.get(i).cancel());
+            assertTrue(timeouts.get(i).isCancelled());
+        }
+        assertEquals(500, _timingWheel.getPendingCount());
+
+        Thread.sleep(500);
+        assertEquals(500, expired.get());
+        assertTrue(timeouts.get(1).isExpired());
+        assertFalse(timeouts.get(1).cancel());
+        assertEquals(0, _timingWheel.getPendingCount());
+    }
+
+    /**
+     * 测试用例：停止时间轮 <br/>
+     * 前置条件：
+     * <pre>
+     * 停止时间轮后添加定时任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 抛出IllegalStateException
+     * </pre>
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testStop() {
+        _timingWheel.stop();
+        _timingWheel.newTimeout(new Runnable() {
+            @Override
+            public void run() {
+                // nothing
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+    }
+
+}
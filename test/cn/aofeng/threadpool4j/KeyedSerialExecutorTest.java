@@ -0,0 +1,225 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * {@link KeyedSerialExecutor}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class KeyedSerialExecutorTest {
+
+    private ExecutorService _threadPool;
+
+    private KeyedSerialExecutor _keyedExecutor;
+
+    @Before
+    public void setUp() throws Exception {
+        _threadPool = Executors.newFixedThreadPool(4);
+        _keyedExecutor = new KeyedSerialExecutor("keyed-test", _threadPool, 4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _threadPool.shutdownNow();
+    }
+
+    /**
+     * 测试用例：键相同的任务串行执行 <br/>
+     * 前置条件：
+     * <pre>
+     * 4个工作线程，20个键（多个键落在同一个分段），每个键提交200个任务（超过车道连续执行的最大任务数）
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、每个键的任务按提交顺序执行，同一时刻每个键最多只有1个任务在执行
+     * 2、全部执行完成后车道数为0
+     * </pre>
+     */
+    @Test
+    public void testSerialPerKey() throws Exception {
+        final int keyCount = 20;
+        final int taskPerKey = 200;
+        final List<List<Integer>> results = new ArrayList<List<Integer>>();
+        final AtomicInteger[] running = new AtomicInteger[keyCount];
+        final AtomicInteger overlapped = new AtomicInteger();
+        for (int k = 0; k < keyCount; k++) {
+            results.add(new ArrayList<Integer>());
+            running[k] = new AtomicInteger();
+        }
+
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < taskPerKey; i++) {
+            for (int k = 0; k < keyCount; k++) {
+                final int key = k;
+                final int seq = i;
+                futures.add(_keyedExecutor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (running[key].incrementAndGet() > 1) {
+                            overlapped.incrementAndGet();
+                        }
+                        results.get(key).add(seq);
+                        running[key].decrementAndGet();
+                    }
+                }, "account-" + key));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(0, overlapped.get());
+        for (List<Integer> result : results) {
+            assertEquals(taskPerKey, result.size());
+            for (int i = 0; i < taskPerKey; i++) {
+                assertEquals(i, result.get(i).intValue());
+            }
+        }
+        Thread.sleep(100);
+        assertEquals(0, _keyedExecutor.getLaneCount());
+    }
+
+    /**
+     * 测试用例：键不同的任务并行执行 <br/>
+     * 前置条件：
+     * <pre>
+     * 键"A"的任务阻塞，再提交键"B"的任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 键"B"的任务不受键"A"阻塞的影响，正常执行完成
+     * </pre>
+     */
+    @Test
+    public void testParallelAcrossKeys() throws Exception {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        Future<?> blocked = _keyedExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    releaseLatch.await();
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        }, "A");
+        Future<?> queued = _keyedExecutor.submit(createRunnable(), "A");
+        _keyedExecutor.submit(createRunnable(), "B").get(5, TimeUnit.SECONDS);
+        Thread.sleep(100);
+
+        assertFalse(blocked.isDone());
+        assertFalse(queued.isDone());
+        assertEquals(1, _keyedExecutor.getLaneCount());
+
+        releaseLatch.countDown();
+        queued.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 测试用例：线程池拒绝执行车道 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池已关闭
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 抛出RejectedExecutionException，不残留车道
+     * </pre>
+     */
+    @Test
+    public void testSubmit4Rejected() {
+        _threadPool.shutdown();
+        try {
+            _keyedExecutor.submit(createRunnable(), "A");
+            fail("expect RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(0, _keyedExecutor.getLaneCount());
+    }
+
+    /**
+     * 测试用例：线程池拒绝执行车道时，车道中已有同键的任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池执行车道时，先提交1个同键的任务（排在车道中），再拒绝执行车道
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、提交车道的调用抛出RejectedExecutionException
+     * 2、排在车道中的任务没有在调用者线程中执行，其结果以RejectedExecutionException结束
+     * 3、不残留车道
+     * </pre>
+     */
+    @Test
+    public void testSubmit4RejectedWithPendingTask() throws Exception {
+        final List<Future<?>> pending = new ArrayList<Future<?>>();
+        final AtomicInteger executed = new AtomicInteger();
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                executed.incrementAndGet();
+            }
+        };
+        final KeyedSerialExecutor[] holder = new KeyedSerialExecutor[1];
+        holder[0] = new KeyedSerialExecutor("keyed-test", new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                pending.add(holder[0].submit(task, "A"));
+                throw new RejectedExecutionException("rejected");
+            }
+        }, 4);
+
+        try {
+            holder[0].submit(task, "A");
+            fail("expect RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(1, pending.size());
+        try {
+            pending.get(0).get(1, TimeUnit.SECONDS);
+            fail("expect ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(0, executed.get());
+        assertEquals(0, holder[0].getLaneCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSubmit4KeyIsNull() {
+        _keyedExecutor.submit(createRunnable(), null);
+    }
+
+    private Runnable createRunnable() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                // nothing
+            }
+        };
+    }
+
+}
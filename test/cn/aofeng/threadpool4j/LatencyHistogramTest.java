@@ -0,0 +1,124 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * {@link LatencyHistogram}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * 测试用例：值与桶的对应关系 <br/>
+     * 前置条件：
+     * <pre>
+     * 从0到{@link LatencyHistogram#MAX_VALUE}按约1%的步长取值
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、桶的下标随值单调递增，不超出桶的数量
+     * 2、值不大于所在桶的上界，相对误差不超过1/32
+     * 3、0 ~ 63每个值一个桶
+     * </pre>
+     */
+    @Test
+    public void testIndexOf() {
+        int lastIndex = -1;
+        for (long value = 0; value <= LatencyHistogram.MAX_VALUE; value += Math.max(1, value / 100)) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index >= lastIndex);
+            assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+            long highest = LatencyHistogram.highestValueOf(index);
+            assertTrue(value <= highest);
+            assertTrue((highest - value) <= value / LatencyHistogram.SUB_BUCKET_COUNT);
+            lastIndex = index;
+        }
+
+        for (int value = 0; value < 64; value++) {
+            assertEquals(value, LatencyHistogram.indexOf(value));
+            assertEquals(value, LatencyHistogram.highestValueOf(value));
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE));
+        assertEquals(LatencyHistogram.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.BUCKET_COUNT - 1));
+    }
+
+    /**
+     * 测试用例：百分位数 <br/>
+     * 前置条件：
+     * <pre>
+     * 记录1 ~ 1000微秒各1次，再记录1次负数和1次超出最大值的值
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、共1002个值
+     * 2、p50约为500微秒，p99约为990微秒，p999约为1000微秒，误差不超过1/32
+     * 3、最大值为{@link LatencyHistogram#MAX_VALUE}
+     * </pre>
+     */
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1002, snapshot.getTotalCount());
+        assertNear(500000, snapshot.getP50());
+        assertNear(990000, snapshot.getP99());
+        assertNear(1000000, snapshot.getP999());
+        assertEquals(LatencyHistogram.MAX_VALUE, snapshot.getMax());
+        assertEquals(0, snapshot.getValueAtPercentile(0));
+    }
+
+    private void assertNear(long expected, long actual) {
+        assertTrue(String.format("expected %d but was %d", expected, actual),
+                Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * 测试用例：两个快照之间的值 <br/>
+     * 前置条件：
+     * <pre>
+     * 记录100个1毫秒后取快照，再记录100个10毫秒后取快照
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 两个快照之间有100个值，p50约为10毫秒
+     * </pre>
+     */
+    @Test
+    public void testSince() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(1000000);
+        }
+        LatencyHistogram.Snapshot first = histogram.snapshot();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(10000000);
+        }
+
+        LatencyHistogram.Snapshot interval = histogram.snapshot().since(first);
+        assertEquals(100, interval.getTotalCount());
+        assertNear(10000000, interval.getP50());
+        assertEquals(interval.getP50(), interval.getMax());
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getTotalCount());
+        assertEquals(0, snapshot.getP99());
+        assertEquals(0, snapshot.getMax());
+        assertEquals("count=0, p50=0us, p99=0us, p999=0us, max=0us", snapshot.toString());
+    }
+
+}
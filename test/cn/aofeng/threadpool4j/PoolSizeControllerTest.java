@@ -0,0 +1,222 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link PoolSizeController}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class PoolSizeControllerTest {
+
+    private final static long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private ThreadPoolExecutor _threadPool;
+
+    private BlockingQueue<Runnable> _queue;
+
+    private PoolSizeController _controller;
+
+    @Rule
+    public ExpectedException _expectedEx = ExpectedException.none();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        _threadPool = mock(ThreadPoolExecutor.class);
+        _queue = mock(BlockingQueue.class);
+        when(_threadPool.getQueue()).thenReturn(_queue);
+        when(_threadPool.getMaximumPoolSize()).thenReturn(100);
+        _controller = new PoolSizeController("test", _threadPool, 5, 10, 100);
+    }
+
+    /**
+     * 设置下一次采样读取到的线程池状态，然后采样。
+     */
+    private void sample(long nowNanos, long taskCount, long completedCount, int queueSize,
+            int activeCount, int coreSize) {
+        when(_threadPool.getTaskCount()).thenReturn(taskCount);
+        when(_threadPool.getCompletedTaskCount()).thenReturn(completedCount);
+        when(_queue.size()).thenReturn(queueSize);
+        when(_threadPool.getActiveCount()).thenReturn(activeCount);
+        when(_threadPool.getCorePoolSize()).thenReturn(coreSize);
+        _controller.adjust(nowNanos);
+    }
+
+    /**
+     * 测试用例：等待时间超过目标值 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、目标等待时间为5毫秒，核心线程数范围为[10, 100]，当前核心线程数为10
+     * 2、1秒内提交1100个任务，完成100个，队列中积压1000个任务，10个线程都在执行任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、估算的等待时间为5000毫秒（平均队列长度500 / 吞吐量100）
+     * 2、需要约210个线程，每次最多翻倍，核心线程数调整为20
+     * </pre>
+     */
+    @Test
+    public void testAdjust4Grow() {
+        sample(SECOND, 0, 0, 0, 0, 10);
+        verify(_threadPool, never()).setCorePoolSize(anyInt());
+
+        sample(2 * SECOND, 1100, 100, 1000, 10, 10);
+        assertEquals(5000, _controller.getLastWait(), 0.001);
+        verify(_threadPool).setCorePoolSize(20);
+    }
+
+    /**
+     * 测试用例：等待时间超过目标值，没有任务完成 <br/>
+     * 前置条件：
+     * <pre>
+     * 核心线程数为80，所有线程都阻塞在执行时间很长的任务上，队列中有任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 核心线程数翻倍，但不超过上限100
+     * </pre>
+     */
+    @Test
+    public void testAdjust4GrowToMax() {
+        sample(SECOND, 100, 0, 20, 80, 80);
+        sample(2 * SECOND, 110, 0, 30, 80, 80);
+        assertTrue(Double.isInfinite(_controller.getLastWait()));
+        verify(_threadPool).setCorePoolSize(100);
+    }
+
+    /**
+     * 测试用例：通过JMX调小最大线程数后，等待时间超过目标值 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、核心线程数范围为[10, 100]，线程池的最大线程数被调整为50
+     * 2、核心线程数为40，所有线程都阻塞在执行时间很长的任务上，队列中有任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 核心线程数调整为50，不超过线程池当前的最大线程数
+     * </pre>
+     */
+    @Test
+    public void testAdjust4GrowToPoolMax() {
+        when(_threadPool.getMaximumPoolSize()).thenReturn(50);
+        sample(SECOND, 100, 0, 20, 40, 40);
+        sample(2 * SECOND, 110, 0, 30, 40, 40);
+        verify(_threadPool).setCorePoolSize(50);
+    }
+
+    /**
+     * 测试用例：等待时间低于目标值 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、当前核心线程数为40，队列为空，每秒执行100个任务，每个任务执行10毫秒（平均1个活动线程）
+     * 2、连续采样4次
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、前2次采样不调整（连续3次低于目标值的一半才减少线程）
+     * 2、第3次采样把核心线程数调小1/4，调整为30
+     * </pre>
+     */
+    @Test
+    public void testAdjust4Shrink() {
+        sample(SECOND, 0, 0, 0, 1, 40);
+        sample(2 * SECOND, 100, 100, 0, 1, 40);
+        sample(3 * SECOND, 200, 200, 0, 1, 40);
+        verify(_threadPool, never()).setCorePoolSize(anyInt());
+
+        sample(4 * SECOND, 300, 300, 0, 1, 40);
+        assertEquals(0, _controller.getLastWait(), 0.001);
+        verify(_threadPool).setCorePoolSize(30);
+    }
+
+    /**
+     * 测试用例：等待时间在目标值的一半和目标值之间 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、先采样2次等待时间低于目标值的一半
+     * 2、再采样2次等待时间为4毫秒（平均队列长度4 / 吞吐量1000）
+     * 3、再采样2次等待时间低于目标值的一半
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 不调整核心线程数（等待时间介于两者之间时清零连续计数）
+     * </pre>
+     */
+    @Test
+    public void testAdjust4Hysteresis() {
+        sample(SECOND, 0, 0, 0, 1, 40);
+        sample(2 * SECOND, 100, 100, 0, 1, 40);
+        sample(3 * SECOND, 200, 200, 0, 1, 40);
+        sample(4 * SECOND, 1200, 1200, 8, 1, 40);
+        assertEquals(4, _controller.getLastWait(), 0.001);
+        sample(5 * SECOND, 2200, 2200, 0, 1, 40);
+        assertEquals(4, _controller.getLastWait(), 0.001);
+        sample(6 * SECOND, 2300, 2300, 0, 1, 40);
+        sample(7 * SECOND, 2400, 2400, 0, 1, 40);
+
+        verify(_threadPool, never()).setCorePoolSize(anyInt());
+    }
+
+    /**
+     * 测试用例：调小核心线程数 <br/>
+     * 前置条件：
+     * <pre>
+     * 当前核心线程数已经是下限10，等待时间一直为0
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 不调整核心线程数
+     * </pre>
+     */
+    @Test
+    public void testAdjust4Min() {
+        for (int i = 1; i <= 10; i++) {
+            sample(i * SECOND, 0, 0, 0, 0, 10);
+        }
+
+        verify(_threadPool, never()).setCorePoolSize(anyInt());
+    }
+
+    @Test
+    public void testAdjust4Stopped() {
+        _controller.stop();
+        sample(SECOND, 0, 0, 0, 0, 10);
+        sample(2 * SECOND, 1100, 100, 1000, 10, 10);
+
+        verify(_threadPool, never()).setCorePoolSize(anyInt());
+    }
+
+    @Test
+    public void testInit4TargetWaitLessThanOne() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("target wait 0 less than 1 of thread pool test");
+
+        new PoolSizeController("test", _threadPool, 0, 10, 100);
+    }
+
+    @Test
+    public void testInit4InvalidRange() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("invalid core size range [20, 10] of thread pool test");
+
+        new PoolSizeController("test", _threadPool, 5, 20, 10);
+    }
+
+}
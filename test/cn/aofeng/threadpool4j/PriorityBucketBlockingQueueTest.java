@@ -0,0 +1,150 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link PriorityBucketBlockingQueue}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class PriorityBucketBlockingQueueTest {
+
+    /**
+     * 测试用例：按优先级出队 <br/>
+     * 前置条件：
+     * <pre>
+     * 依次入队优先级为3、10、3、普通元素（没有实现Prioritized）、超出范围的优先级20和0
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 出队顺序：10和20（按10处理，先进先出）、普通元素（按5处理）、3（先进先出）、0（按1处理）
+     * </pre>
+     */
+    @Test
+    public void testPriorityOrder() {
+        PriorityBucketBlockingQueue<Object> queue = new PriorityBucketBlockingQueue<Object>(10);
+        Item low1 = new Item("low1", 3);
+        Item high = new Item("high", 10);
+        Item low2 = new Item("low2", 3);
+        Object normal = "normal";
+        Item overflow = new Item("overflow", 20);
+        Item underflow = new Item("underflow", 0);
+        queue.offer(low1);
+        queue.offer(high);
+        queue.offer(low2);
+        queue.offer(normal);
+        queue.offer(overflow);
+        queue.offer(underflow);
+
+        assertEquals(6, queue.size());
+        assertSame(high, queue.peek());
+        List<Object> snapshot = new ArrayList<Object>();
+        for (Object e : queue) {
+            snapshot.add(e);
+        }
+
+        Object[] expected = {high, overflow, normal, low1, low2, underflow};
+        assertArrayEquals(expected, snapshot.toArray());
+        for (Object e : expected) {
+            assertSame(e, queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    /**
+     * 测试用例：有界 <br/>
+     * 前置条件：
+     * <pre>
+     * 容量为2的队列，入队3个元素；删除1个元素后再入队
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 第3个元素入队失败，offer(timeout)超时返回false；删除后入队成功
+     * </pre>
+     */
+    @Test
+    public void testCapacity() throws InterruptedException {
+        PriorityBucketBlockingQueue<Object> queue = new PriorityBucketBlockingQueue<Object>(2);
+        Item item = new Item("a", 8);
+        assertTrue(queue.offer(item));
+        assertTrue(queue.offer("b"));
+        assertFalse(queue.offer("c"));
+        assertFalse(queue.offer("c", 50, TimeUnit.MILLISECONDS));
+        assertEquals(0, queue.remainingCapacity());
+
+        assertTrue(queue.remove(item));
+        assertFalse(queue.remove(item));
+        assertTrue(queue.offer("c"));
+        assertEquals(2, queue.drainTo(new ArrayList<Object>()));
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacity4Zero() {
+        new PriorityBucketBlockingQueue<Object>(0);
+    }
+
+    /**
+     * 测试用例：阻塞出队 <br/>
+     * 前置条件：
+     * <pre>
+     * 空队列调用take，另一个线程延迟入队一个元素
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * take返回入队的元素
+     * </pre>
+     */
+    @Test
+    public void testTake() throws InterruptedException {
+        final PriorityBucketBlockingQueue<Object> queue = new PriorityBucketBlockingQueue<Object>(4);
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+                queue.offer("e");
+            }
+        });
+        producer.start();
+        assertEquals("e", queue.take());
+    }
+
+    private static class Item implements Prioritized {
+
+        private final String _name;
+
+        private final int _priority;
+
+        public Item(String name, int priority) {
+            this._name = name;
+            this._priority = priority;
+        }
+
+        @Override
+        public int getPriority() {
+            return _priority;
+        }
+
+        @Override
+        public String toString() {
+            return _name;
+        }
+
+    }
+
+}
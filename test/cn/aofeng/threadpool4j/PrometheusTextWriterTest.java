@@ -0,0 +1,90 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * {@link PrometheusTextWriter}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class PrometheusTextWriterTest {
+
+    private PrometheusTextWriter _writer = new PrometheusTextWriter(8);
+
+    private String text() {
+        return new String(_writer.buffer(), 0, _writer.size(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testHeader() {
+        _writer.header("threadpool4j_pool_threads", "gauge", "Current number of threads.");
+
+        assertEquals("# HELP threadpool4j_pool_threads Current number of threads.\n"
+                + "# TYPE threadpool4j_pool_threads gauge\n", text());
+    }
+
+    @Test
+    public void testWriteLong() {
+        _writer.write(0L).write(' ').write(-15L).write(' ').write(Long.MAX_VALUE).write(' ').write(Long.MIN_VALUE);
+
+        assertEquals("0 -15 9223372036854775807 -9223372036854775808", text());
+    }
+
+    @Test
+    public void testWriteNanosAsSeconds() {
+        _writer.writeNanosAsSeconds(0).write(' ').writeNanosAsSeconds(1500000).write(' ').writeNanosAsSeconds(12000000001L);
+
+        assertEquals("0.000000000 0.001500000 12.000000001", text());
+    }
+
+    /**
+     * 测试用例：输出标签值 <br/>
+     * 前置条件：
+     * <pre>
+     * 标签值包含反斜杠、双引号、换行符、中文和代理对字符
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、反斜杠、双引号、换行符被转义
+     * 2、中文和代理对字符按UTF-8编码输出
+     * </pre>
+     */
+    @Test
+    public void testWriteLabelValue() {
+        _writer.writeLabelValue("a\\b\"c\nd-线程池-😀");
+
+        assertEquals("a\\\\b\\\"c\\nd-线程池-😀", text());
+    }
+
+    /**
+     * 测试用例：重复使用缓冲区 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、输出超过初始容量的内容，缓冲区扩大
+     * 2、reset后输出较短的内容
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、reset后继续使用扩大后的缓冲区
+     * 2、只输出reset之后的内容
+     * </pre>
+     */
+    @Test
+    public void testReset() {
+        _writer.write("threadpool4j_pool_threads");
+        byte[] buffer = _writer.buffer();
+        assertTrue(buffer.length >= 25);
+
+        _writer.reset();
+        _writer.write("abc");
+        assertSame(buffer, _writer.buffer());
+        assertEquals("abc", text());
+    }
+
+}
@@ -0,0 +1,112 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * {@link ResizableLinkedBlockingQueue}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ResizableLinkedBlockingQueueTest {
+
+    /**
+     * 测试用例：先进先出和有界 <br/>
+     * 前置条件：
+     * <pre>
+     * 容量为2的队列，依次入队a、b、c；删除a后再入队c
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、c入队失败，offer(timeout)超时返回false
+     * 2、删除a后c入队成功，出队顺序为b、c
+     * </pre>
+     */
+    @Test
+    public void testCapacity() throws InterruptedException {
+        ResizableLinkedBlockingQueue<String> queue = new ResizableLinkedBlockingQueue<String>(2);
+        assertTrue(queue.offer("a"));
+        assertTrue(queue.offer("b"));
+        assertFalse(queue.offer("c"));
+        assertFalse(queue.offer("c", 50, TimeUnit.MILLISECONDS));
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals("a", queue.peek());
+
+        assertTrue(queue.remove("a"));
+        assertFalse(queue.remove("a"));
+        assertTrue(queue.offer("c"));
+        List<String> drained = new ArrayList<String>();
+        assertEquals(2, queue.drainTo(drained));
+        assertEquals("[b, c]", drained.toString());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacity4Zero() {
+        new ResizableLinkedBlockingQueue<Object>(0);
+    }
+
+    /**
+     * 测试用例：运行时调整容量 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、容量为2的队列已满，另一个线程调用put阻塞
+     * 2、容量调大为3
+     * 3、容量调小为1
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、容量调大后阻塞的put成功
+     * 2、容量调小后已在队列中的3个元素不丢失，出队到只剩0个元素前不能再入队
+     * </pre>
+     */
+    @Test
+    public void testSetCapacity() throws InterruptedException {
+        final ResizableLinkedBlockingQueue<String> queue = new ResizableLinkedBlockingQueue<String>(2);
+        queue.offer("a");
+        queue.offer("b");
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    queue.put("c");
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        });
+        producer.start();
+        Thread.sleep(100);
+        assertEquals(2, queue.size());
+
+        queue.setCapacity(3);
+        producer.join(1000);
+        assertFalse(producer.isAlive());
+        assertEquals(3, queue.size());
+        assertEquals(3, queue.getCapacity());
+
+        queue.setCapacity(1);
+        assertEquals(3, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertFalse(queue.offer("d"));
+        assertEquals("a", queue.take());
+        assertEquals("b", queue.poll());
+        assertFalse(queue.offer("d"));
+        assertEquals("c", queue.poll());
+        assertTrue(queue.offer("d"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetCapacity4Zero() {
+        new ResizableLinkedBlockingQueue<Object>(1).setCapacity(0);
+    }
+
+}
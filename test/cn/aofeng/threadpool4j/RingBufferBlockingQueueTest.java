@@ -0,0 +1,364 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * {@link RingBufferBlockingQueue}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class RingBufferBlockingQueueTest {
+
+    /**
+     * 测试用例：创建队列 <br/>
+     * 前置条件：
+     * <pre>
+     * 指定的容量分别为1、5、8、100000
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 容量向上取整为2的幂且最小为2：2、8、8、131072
+     * </pre>
+     */
+    @Test
+    public void testCapacity() {
+        assertEquals(2, new RingBufferBlockingQueue<Integer>(1).capacity());
+        assertEquals(8, new RingBufferBlockingQueue<Integer>(5).capacity());
+        assertEquals(8, new RingBufferBlockingQueue<Integer>(8).capacity());
+        assertEquals(131072, new RingBufferBlockingQueue<Integer>(100000).remainingCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacity4Zero() {
+        new RingBufferBlockingQueue<Integer>(0);
+    }
+
+    /**
+     * 测试用例：单线程入队和出队 <br/>
+     * 前置条件：
+     * <pre>
+     * 容量为4的队列，连续入队5个元素（多次绕环），再全部出队
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 第5个元素入队失败；出队顺序与入队顺序一致；队列空时poll返回null
+     * </pre>
+     */
+    @Test
+    public void testOfferPoll() {
+        RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<Integer>(4);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(queue.offer(i));
+            }
+            assertFalse(queue.offer(4));
+            assertEquals(4, queue.size());
+            assertEquals(0, queue.remainingCapacity());
+            assertEquals(Integer.valueOf(0), queue.peek());
+            assertEquals(4, queue.toArray().length);
+
+            for (int i = 0; i < 4; i++) {
+                assertEquals(Integer.valueOf(i), queue.poll());
+            }
+            assertNull(queue.poll());
+            assertNull(queue.peek());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOffer4Null() {
+        new RingBufferBlockingQueue<Integer>(4).offer(null);
+    }
+
+    /**
+     * 测试用例：删除队列中间的元素 <br/>
+     * 前置条件：
+     * <pre>
+     * 容量为4的队列已满，删除第1个和第3个元素，再删除已删除的元素和不存在的元素
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、删除存在的元素返回true，删除已删除和不存在的元素返回false
+     * 2、size不包括被删除的元素，被删除的元素出队跳过之前仍然占用槽位
+     * 3、peek、迭代和出队都跳过被删除的元素，出队后释放的槽位可以继续入队
+     * </pre>
+     */
+    @Test
+    public void testRemove() {
+        RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<Integer>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertTrue(queue.remove(0));
+        assertTrue(queue.remove(2));
+        assertFalse(queue.remove(2));
+        assertFalse(queue.remove(9));
+        assertFalse(queue.remove(null));
+
+        assertEquals(2, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        assertFalse(queue.offer(4));
+        assertEquals(Integer.valueOf(1), queue.peek());
+        assertArrayEquals(new Object[] {1, 3}, queue.toArray());
+
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        assertEquals(4, queue.remainingCapacity());
+        assertTrue(queue.offer(4));
+        assertEquals(Integer.valueOf(4), queue.poll());
+    }
+
+    /**
+     * 测试用例：出队跳过被删除的元素时唤醒等待的生产者 <br/>
+     * 前置条件：
+     * <pre>
+     * 容量为2的队列已满，删除全部元素后，另一个线程put阻塞，当前线程再poll
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * poll释放槽位后put返回，队列中只有put入队的元素
+     * </pre>
+     */
+    @Test
+    public void testRemove4WaitingProducer() throws InterruptedException {
+        final RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<Integer>(2);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertTrue(queue.remove(1));
+        assertTrue(queue.remove(2));
+        final CountDownLatch putLatch = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    queue.put(3);
+                    putLatch.countDown();
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        });
+        producer.start();
+        Thread.sleep(100);
+        assertEquals(1, putLatch.getCount());
+
+        assertNull(queue.poll());
+        assertTrue(putLatch.await(1, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(3), queue.poll());
+    }
+
+    /**
+     * 测试用例：作为ThreadPoolExecutor的工作队列移除排队的任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 1个线程的线程池，线程被第1个任务阻塞，再提交2个任务排队，移除第2个任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * ThreadPoolExecutor.remove返回true，被移除的任务不会执行，另一个排队的任务正常执行
+     * </pre>
+     */
+    @Test
+    public void testRemove4ThreadPoolExecutor() throws InterruptedException {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new RingBufferBlockingQueue<Runnable>(8));
+        try {
+            final CountDownLatch blockLatch = new CountDownLatch(1);
+            final AtomicInteger executed = new AtomicInteger();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        blockLatch.await();
+                    } catch (InterruptedException e) {
+                        // nothing
+                    }
+                }
+            });
+            Runnable removed = new Runnable() {
+                @Override
+                public void run() {
+                    executed.addAndGet(100);
+                }
+            };
+            final CountDownLatch doneLatch = new CountDownLatch(1);
+            executor.execute(removed);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    executed.incrementAndGet();
+                    doneLatch.countDown();
+                }
+            });
+
+            assertTrue(executor.remove(removed));
+            assertEquals(1, executor.getQueue().size());
+            blockLatch.countDown();
+            assertTrue(doneLatch.await(1, TimeUnit.SECONDS));
+            assertEquals(1, executed.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 测试用例：阻塞出队 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、空队列调用poll(timeout)
+     * 2、另一个线程在take阻塞时入队一个元素
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、超时后返回null
+     * 2、take返回入队的元素
+     * </pre>
+     */
+    @Test
+    public void testTakeAndTimedPoll() throws InterruptedException {
+        final RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<Integer>(4);
+        long start = System.nanoTime();
+        assertNull(queue.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+                queue.offer(9);
+            }
+        });
+        producer.start();
+        assertEquals(Integer.valueOf(9), queue.take());
+    }
+
+    /**
+     * 测试用例：阻塞入队 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、满队列调用offer(timeout)
+     * 2、另一个线程在put阻塞时出队一个元素
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、超时后返回false
+     * 2、put成功，队列中的元素为出队后剩下的元素加新元素
+     * </pre>
+     */
+    @Test
+    public void testPutAndTimedOffer() throws InterruptedException {
+        final RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<Integer>(2);
+        queue.put(1);
+        queue.put(2);
+        assertFalse(queue.offer(3, 100, TimeUnit.MILLISECONDS));
+
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+                queue.poll();
+            }
+        });
+        consumer.start();
+        queue.put(3);
+
+        List<Integer> rest = new ArrayList<Integer>();
+        assertEquals(2, queue.drainTo(rest));
+        assertEquals(2, rest.get(0).intValue());
+        assertEquals(3, rest.get(1).intValue());
+    }
+
+    /**
+     * 测试用例：多生产者多消费者 <br/>
+     * 前置条件：
+     * <pre>
+     * 容量为64的队列，4个生产者各put 20000个不同的元素，4个消费者take
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 每个元素都被消费且只被消费1次
+     * </pre>
+     */
+    @Test
+    public void testMultiProducerMultiConsumer() throws InterruptedException {
+        final int producerCount = 4;
+        final int consumerCount = 4;
+        final int countPerProducer = 20000;
+        final RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<Integer>(64);
+        final ConcurrentHashMap<Integer, Integer> consumed = new ConcurrentHashMap<Integer, Integer>();
+        final AtomicInteger duplicated = new AtomicInteger();
+        final CountDownLatch doneLatch = new CountDownLatch(producerCount * countPerProducer);
+
+        for (int i = 0; i < producerCount; i++) {
+            final int base = i * countPerProducer;
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < countPerProducer; j++) {
+                            queue.put(base + j);
+                        }
+                    } catch (InterruptedException e) {
+                        // nothing
+                    }
+                }
+            });
+            producer.start();
+        }
+        for (int i = 0; i < consumerCount; i++) {
+            Thread consumer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while (true) {
+                            Integer e = queue.take();
+                            if (null != consumed.putIfAbsent(e, e)) {
+                                duplicated.incrementAndGet();
+                            }
+                            doneLatch.countDown();
+                        }
+                    } catch (InterruptedException e) {
+                        // nothing
+                    }
+                }
+            });
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+
+        assertTrue(doneLatch.await(30, TimeUnit.SECONDS));
+        assertEquals(producerCount * countPerProducer, consumed.size());
+        assertEquals(0, duplicated.get());
+        assertTrue(queue.isEmpty());
+    }
+
+}
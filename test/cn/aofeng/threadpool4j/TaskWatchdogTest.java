@@ -0,0 +1,137 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import cn.aofeng.common4j.thread.DefaultThreadFactory;
+
+/**
+ * {@link TaskWatchdog}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class TaskWatchdogTest {
+
+    private NamedThreadPoolExecutor _threadPool;
+
+    private CountDownLatch _release = new CountDownLatch(1);
+
+    @Rule
+    public ExpectedException _expectedEx = ExpectedException.none();
+
+    @Before
+    public void setUp() throws Exception {
+        _threadPool = new NamedThreadPoolExecutor("watched", 2, 2, 15, TimeUnit.SECONDS,
+                WorkQueueType.createWorkQueue(WorkQueueType.ARRAY, 10), new DefaultThreadFactory("watched"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _release.countDown();
+        _threadPool.shutdownNow();
+    }
+
+    /**
+     * 测试用例：检查执行时间过长的任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、阈值为50毫秒，不中断
+     * 2、线程池有1个一直在执行的任务，1个很快执行完成的任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、任务执行未超过阈值时检查，没有发现任务
+     * 2、超过阈值后检查，发现1个任务；再次检查不重复报告
+     * 3、任务没有被中断
+     * </pre>
+     */
+    @Test
+    public void testCheck() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final boolean[] interrupted = new boolean[1];
+        _threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    _release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted[0] = true;
+                }
+            }
+        });
+        _threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                // nothing
+            }
+        });
+        started.await(1, TimeUnit.SECONDS);
+
+        TaskWatchdog watchdog = new TaskWatchdog("watched", _threadPool, 50, false);
+        assertEquals(0, watchdog.check());
+        Thread.sleep(100);
+        assertEquals(1, watchdog.check());
+        assertEquals(0, watchdog.check());
+        assertEquals(1, watchdog.getStuckTaskCount());
+
+        _release.countDown();
+        _threadPool.shutdown();
+        assertTrue(_threadPool.awaitTermination(1, TimeUnit.SECONDS));
+        assertFalse(interrupted[0]);
+    }
+
+    /**
+     * 测试用例：中断执行时间过长的任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、阈值为50毫秒，中断
+     * 2、线程池有1个一直在执行的任务，任务响应中断
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 超过阈值后检查，发现1个任务，任务被中断
+     * </pre>
+     */
+    @Test
+    public void testCheck4Interrupt() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        _threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    _release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        started.await(1, TimeUnit.SECONDS);
+
+        TaskWatchdog watchdog = new TaskWatchdog("watched", _threadPool, 50, true);
+        Thread.sleep(100);
+        assertEquals(1, watchdog.check());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testConstruct4InvalidThreshold() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("threshold 0 less than 1 of thread pool watched");
+
+        new TaskWatchdog("watched", _threadPool, 0, false);
+    }
+
+}
@@ -3,10 +3,13 @@ package cn.aofeng.threadpool4j;
 import static org.junit.Assert.*;
 
 import java.util.HashMap;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 /**
  * {@link ThreadPoolConfig}的单元测试用例。
@@ -17,6 +20,9 @@ public class ThreadPoolConfigTest {
 
     private ThreadPoolConfig _threadPoolConfig = new ThreadPoolConfig();
     
+    @Rule
+    public ExpectedException _expectedEx = ExpectedException.none();
+    
     @Before
     public void setUp() throws Exception {
         _threadPoolConfig._configFile = "/biz/threadpool4j.xml";
@@ -244,4 +250,380 @@ public class ThreadPoolConfigTest {
         assertFalse(_threadPoolConfig.containsPool("hello"));
     }
     
+    /**
+     * 测试用例：读取线程池配置文件 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、3.1.0版本的配置文件
+     * 2、线程池default没有配置workQueueType，其他线程池分别配置为linked、transfer（前后有空白字符）、synchronous和ringbuffer
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 线程池default的队列类型为linked（默认），其他线程池的队列类型与配置一致
+     * </pre>
+     */
+    @Test
+    public void testInit43_1_0WorkQueueType() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_workqueuetype.xml";
+        _threadPoolConfig.init();
+        assertEquals(6, _threadPoolConfig._multiThreadPoolInfo.size());
+        
+        assertEquals(WorkQueueType.LINKED, _threadPoolConfig.getThreadPoolConfig("default").getQueueType());
+        assertEquals(WorkQueueType.LINKED, _threadPoolConfig.getThreadPoolConfig("linked").getQueueType());
+        assertEquals(WorkQueueType.TRANSFER, _threadPoolConfig.getThreadPoolConfig("transfer").getQueueType());
+        assertEquals(WorkQueueType.SYNCHRONOUS, _threadPoolConfig.getThreadPoolConfig("synchronous").getQueueType());
+        assertEquals(WorkQueueType.RING_BUFFER, _threadPoolConfig.getThreadPoolConfig("ringbuffer").getQueueType());
+        assertEquals(WorkQueueType.PRIORITY, _threadPoolConfig.getThreadPoolConfig("priority").getQueueType());
+    }
+    
+    /**
+     * 测试用例：读取线程池配置文件 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池default的workQueueType配置为不支持的类型notexists
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 抛出{@link IllegalArgumentException}异常
+     * </pre>
+     */
+    @Test
+    public void testInit43_1_0UnsupportedWorkQueueType() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("unsupported work queue type notexists of thread pool default");
+        
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_unsupported_workqueuetype.xml";
+        _threadPoolConfig.init();
+    }
+    
+    /**
+     * 测试用例：读取线程池配置文件 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、3.1.0版本的配置文件
+     * 2、线程池recursive的类型为forkjoin，并行度为4；线程池tiny的类型为forkjoin，没有配置并行度
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、线程池default的类型为standard
+     * 2、线程池recursive的并行度为4，线程池tiny的并行度为CPU核数
+     * </pre>
+     */
+    @Test
+    public void testInit43_1_0ForkJoin() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_forkjoin.xml";
+        _threadPoolConfig.init();
+        assertEquals(3, _threadPoolConfig._multiThreadPoolInfo.size());
+        
+        assertEquals(ThreadPoolType.STANDARD, _threadPoolConfig.getThreadPoolConfig("default").getType());
+        ThreadPoolInfo recursiveInfo = _threadPoolConfig.getThreadPoolConfig("recursive");
+        assertEquals(ThreadPoolType.FORK_JOIN, recursiveInfo.getType());
+        assertEquals(4, recursiveInfo.getParallelism());
+        ThreadPoolInfo tinyInfo = _threadPoolConfig.getThreadPoolConfig("tiny");
+        assertEquals(ThreadPoolType.FORK_JOIN, tinyInfo.getType());
+        assertEquals(Runtime.getRuntime().availableProcessors(), tinyInfo.getParallelism());
+    }
+    
+    /**
+     * 测试用例：配置虚拟线程池 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、3.1.0版本的配置文件
+     * 2、io线程池配置type="virtual"，maxConcurrency为2；blocking线程池未配置maxConcurrency
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * io线程池的maxConcurrency为2；blocking线程池的maxConcurrency为默认值1000
+     * </pre>
+     */
+    @Test
+    public void testInit43_1_0Virtual() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_virtual.xml";
+        _threadPoolConfig.init();
+        assertEquals(3, _threadPoolConfig._multiThreadPoolInfo.size());
+        
+        ThreadPoolInfo ioInfo = _threadPoolConfig.getThreadPoolConfig("io");
+        assertEquals(ThreadPoolType.VIRTUAL, ioInfo.getType());
+        assertEquals(2, ioInfo.getMaxConcurrency());
+        ThreadPoolInfo blockingInfo = _threadPoolConfig.getThreadPoolConfig("blocking");
+        assertEquals(ThreadPoolType.VIRTUAL, blockingInfo.getType());
+        assertEquals(1000, blockingInfo.getMaxConcurrency());
+    }
+    
+    /**
+     * 测试用例：读取配置文件热加载开关 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、3.2.0版本的配置文件，configreload节点的switch为on，interval为5
+     * 2、1.5.0版本的配置文件，没有configreload节点
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、3.2.0版本：热加载开关为true，检查间隔为5秒
+     * 2、1.5.0版本：热加载开关为false，检查间隔为默认值10秒
+     * </pre>
+     */
+    @Test
+    public void testInit43_2_0ConfigReload() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_reload.xml";
+        _threadPoolConfig.init();
+        assertTrue(_threadPoolConfig.getConfigReloadSwitch());
+        assertEquals(5, _threadPoolConfig.getConfigReloadInterval());
+        
+        ThreadPoolConfig oldConfig = new ThreadPoolConfig();
+        oldConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_1.5.0.xml";
+        oldConfig.init();
+        assertFalse(oldConfig.getConfigReloadSwitch());
+        assertEquals(10, oldConfig.getConfigReloadInterval());
+    }
+    
+    /**
+     * 测试用例：重新读取线程池配置 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、用3.1.0版本的配置文件初始化
+     * 2、配置文件改为3.2.0版本的热加载测试配置文件后调用loadThreadPoolConfig
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、返回新配置文件中的7个线程池配置
+     * 2、当前的配置信息不变（仍为6个线程池，default的corePoolSize仍为10）
+     * </pre>
+     */
+    @Test
+    public void testLoadThreadPoolConfig() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_workqueuetype.xml";
+        _threadPoolConfig.init();
+        
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_reload.xml";
+        Map<String, ThreadPoolInfo> multiThreadPoolInfo = _threadPoolConfig.loadThreadPoolConfig();
+        assertEquals(7, multiThreadPoolInfo.size());
+        assertEquals(2, multiThreadPoolInfo.get("default").getCoreSize());
+        assertTrue(multiThreadPoolInfo.containsKey("added"));
+        
+        assertEquals(6, _threadPoolConfig._multiThreadPoolInfo.size());
+        assertEquals(10, _threadPoolConfig.getThreadPoolConfig("default").getCoreSize());
+    }
+    
+    /**
+     * 测试用例：重新读取线程池配置 <br/>
+     * 前置条件：
+     * <pre>
+     * 配置文件不存在
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 抛出{@link IllegalStateException}异常
+     * </pre>
+     */
+    @Test
+    public void testLoadThreadPoolConfig4FileNotExists() {
+        _expectedEx.expect(IllegalStateException.class);
+        _expectedEx.expectMessage("load config file '/cn/aofeng/threadpool4j/notexists.xml' failed");
+        
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/notexists.xml";
+        _threadPoolConfig.loadThreadPoolConfig();
+    }
+    
+    /**
+     * 测试用例：读取自动调整核心线程数的配置 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池default配置了autosize，目标等待时间为5毫秒；线程池fixed没有配置autosize
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 线程池default的目标等待时间为5，线程池fixed的目标等待时间为0（不自动调整）
+     * </pre>
+     */
+    @Test
+    public void testInit43_2_0AutoSize() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_autosize.xml";
+        _threadPoolConfig.init();
+        
+        assertEquals(5, _threadPoolConfig.getThreadPoolConfig("default").getAutoSizeTargetWait());
+        assertEquals(0, _threadPoolConfig.getThreadPoolConfig("fixed").getAutoSizeTargetWait());
+    }
+    
+    /**
+     * 测试用例：读取watchdog的配置 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池default配置了threshold-ms和interrupt；线程池other只配置了threshold-ms；线程池unwatched没有配置watchdog
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、线程池default的配置与配置文件一致
+     * 2、线程池other的interrupt为默认值false
+     * 3、线程池unwatched的threshold-ms为0（不检查）
+     * </pre>
+     */
+    @Test
+    public void testInit43_2_0Watchdog() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_watchdog.xml";
+        _threadPoolConfig.init();
+        
+        assertEquals(100, _threadPoolConfig.getThreadPoolConfig("default").getWatchdogThreshold());
+        assertTrue(_threadPoolConfig.getThreadPoolConfig("default").isWatchdogInterrupt());
+        assertEquals(60000, _threadPoolConfig.getThreadPoolConfig("other").getWatchdogThreshold());
+        assertFalse(_threadPoolConfig.getThreadPoolConfig("other").isWatchdogInterrupt());
+        assertEquals(0, _threadPoolConfig.getThreadPoolConfig("unwatched").getWatchdogThreshold());
+    }
+    
+    /**
+     * 测试用例：读取自适应并发限制器的配置 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池limited配置了initial-limit、min-limit和max-limit；线程池adaptive只配置了initial-limit；线程池default没有配置limiter
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、线程池limited的配置与配置文件一致
+     * 2、线程池adaptive的min-limit和max-limit为默认值1和1000
+     * 3、线程池default的initial-limit为0（不限制）
+     * </pre>
+     */
+    @Test
+    public void testInit43_2_0Limiter() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_limiter.xml";
+        _threadPoolConfig.init();
+        
+        ThreadPoolInfo limitedInfo = _threadPoolConfig.getThreadPoolConfig("limited");
+        assertEquals(2, limitedInfo.getLimiterInitialLimit());
+        assertEquals(2, limitedInfo.getLimiterMinLimit());
+        assertEquals(2, limitedInfo.getLimiterMaxLimit());
+        ThreadPoolInfo adaptiveInfo = _threadPoolConfig.getThreadPoolConfig("adaptive");
+        assertEquals(20, adaptiveInfo.getLimiterInitialLimit());
+        assertEquals(1, adaptiveInfo.getLimiterMinLimit());
+        assertEquals(1000, adaptiveInfo.getLimiterMaxLimit());
+        assertEquals(0, _threadPoolConfig.getThreadPoolConfig("default").getLimiterInitialLimit());
+    }
+    
+    /**
+     * 测试用例：读取自适应并发限制器的配置 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池adaptive的min-limit大于initial-limit
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 抛出{@link IllegalArgumentException}异常
+     * </pre>
+     */
+    @Test
+    public void testInit43_2_0InvalidLimiter() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("limiter of thread pool adaptive must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+        
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_invalid_limiter.xml";
+        _threadPoolConfig.init();
+    }
+    
+    /**
+     * 测试用例：读取Prometheus指标HTTP服务的配置 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、配置文件threadpool4j_3.2.0_metrics.xml的metrics节点端口为0
+     * 2、配置文件threadpool4j_1.5.0.xml没有metrics节点
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、端口为0
+     * 2、端口为-1（不启动）
+     * </pre>
+     */
+    @Test
+    public void testInit43_2_0Metrics() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_metrics.xml";
+        _threadPoolConfig.init();
+        assertEquals(0, _threadPoolConfig.getMetricsPort());
+        
+        ThreadPoolConfig threadPoolConfig = new ThreadPoolConfig();
+        threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_1.5.0.xml";
+        threadPoolConfig.init();
+        assertEquals(-1, threadPoolConfig.getMetricsPort());
+    }
+    
+    @Test
+    public void testInit43_2_0InvalidMetrics() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("port 70000 of metrics out of range [0, 65535]");
+        
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_invalid_metrics.xml";
+        _threadPoolConfig.init();
+    }
+    
+    /**
+     * 测试用例：读取线程堆栈采样的配置 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、配置文件threadpool4j_3.2.0_stackprofiler.xml的threadstack节点mode为sample，rate为50，depth为32
+     * 2、配置文件threadpool4j_1.5.0.xml没有threadstack节点
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、与配置文件一致
+     * 2、mode为dump，rate和depth为默认值100和64
+     * </pre>
+     */
+    @Test
+    public void testInit43_2_0StackProfiler() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_stackprofiler.xml";
+        _threadPoolConfig.init();
+        assertTrue(_threadPoolConfig.getThreadStackSwitch());
+        assertEquals(30, _threadPoolConfig.getThreadStackInterval());
+        assertEquals(ThreadPoolConfig.THREAD_STACK_MODE_SAMPLE, _threadPoolConfig.getThreadStackMode());
+        assertEquals(50, _threadPoolConfig.getThreadStackRate());
+        assertEquals(32, _threadPoolConfig.getThreadStackDepth());
+        assertEquals("target/profile", _threadPoolConfig.getThreadStackDir());
+        
+        ThreadPoolConfig threadPoolConfig = new ThreadPoolConfig();
+        threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_1.5.0.xml";
+        threadPoolConfig.init();
+        assertEquals(ThreadPoolConfig.THREAD_STACK_MODE_DUMP, threadPoolConfig.getThreadStackMode());
+        assertEquals(100, threadPoolConfig.getThreadStackRate());
+        assertEquals(64, threadPoolConfig.getThreadStackDepth());
+    }
+    
+    /**
+     * 测试用例：读取死锁和锁竞争检测的配置 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、配置文件threadpool4j_3.2.0_deadlock.xml的deadlock节点switch为on，interval为30
+     * 2、配置文件threadpool4j_1.5.0.xml没有deadlock节点
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、与配置文件一致
+     * 2、开关为关，interval为默认值60
+     * </pre>
+     */
+    @Test
+    public void testInit43_2_0Deadlock() {
+        _threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_deadlock.xml";
+        _threadPoolConfig.init();
+        assertTrue(_threadPoolConfig.getDeadlockSwitch());
+        assertEquals(30, _threadPoolConfig.getDeadlockInterval());
+        
+        ThreadPoolConfig threadPoolConfig = new ThreadPoolConfig();
+        threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_1.5.0.xml";
+        threadPoolConfig.init();
+        assertFalse(threadPoolConfig.getDeadlockSwitch());
+        assertEquals(60, threadPoolConfig.getDeadlockInterval());
+    }
+    
 }
@@ -0,0 +1,248 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import cn.aofeng.common4j.thread.DefaultThreadFactory;
+
+/**
+ * {@link ThreadPoolMXBeanImpl}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ThreadPoolMXBeanImplTest {
+
+    private NamedThreadPoolExecutor _threadPool;
+
+    private Map<String, ConcurrencyLimiter> _concurrencyLimiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+
+    private ThreadPoolMXBeanImpl _mxBean;
+
+    @Rule
+    public ExpectedException _expectedEx = ExpectedException.none();
+
+    @Before
+    public void setUp() throws Exception {
+        _threadPool = new NamedThreadPoolExecutor("mxbean", 1, 1, 15, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1), new DefaultThreadFactory("mxbean"));
+        _mxBean = new ThreadPoolMXBeanImpl("mxbean", ThreadPoolType.STANDARD, _threadPool, _concurrencyLimiters);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _mxBean.unregister();
+        _threadPool.shutdownNow();
+    }
+
+    /**
+     * 测试用例：读取standard类型线程池的状态 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池的核心线程数和最大线程数为1，队列容量为1
+     * 2、提交一个阻塞的任务，再提交一个任务进入队列，第三个任务被拒绝
+     * 3、并发限制器拒绝过2个任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、活动线程数为1，队列中有1个任务，队列剩余容量为0
+     * 2、被拒绝的任务数为3（线程池拒绝1个 + 并发限制器拒绝2个）
+     * </pre>
+     */
+    @Test
+    public void testGetState() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        _threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        });
+        started.await(1, TimeUnit.SECONDS);
+        _threadPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                // nothing
+            }
+        });
+        try {
+            _threadPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // nothing
+                }
+            });
+            fail("expect RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("mxbean", 1, 1, 1);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        _concurrencyLimiters.put("mxbean", limiter);
+
+        assertEquals("mxbean", _mxBean.getName());
+        assertEquals(ThreadPoolType.STANDARD, _mxBean.getType());
+        assertEquals(1, _mxBean.getPoolSize());
+        assertEquals(1, _mxBean.getActiveCount());
+        assertEquals(1, _mxBean.getQueueSize());
+        assertEquals(0, _mxBean.getQueueRemainingCapacity());
+        assertEquals(2, _mxBean.getTaskCount());
+        assertEquals(3, _mxBean.getRejectedTaskCount());
+        assertEquals(1, _mxBean.getConcurrencyLimit());
+        release.countDown();
+    }
+
+    /**
+     * 测试用例：统计周期内的速率和延迟百分位数 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、提交10个执行时间为10毫秒的任务，等待执行完成
+     * 2、模拟2秒后计算
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、每秒提交和完成的任务数都约为5
+     * 2、执行时间的50百分位数不小于10毫秒
+     * 3、再模拟1秒后计算（期间没有任务），速率为0，百分位数为0
+     * </pre>
+     */
+    @Test
+    public void testSample() throws Exception {
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            _threadPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(10);
+                    } catch (InterruptedException e) {
+                        // nothing
+                    }
+                }
+            }).get(1, TimeUnit.SECONDS);
+        }
+        Thread.sleep(50);   // 执行时间在任务返回后才记录
+
+        _mxBean.sample(startNanos + TimeUnit.SECONDS.toNanos(2));
+        assertEquals(5, _mxBean.getSubmitRate(), 0.5);
+        assertEquals(5, _mxBean.getCompletionRate(), 0.5);
+        assertTrue(_mxBean.getExecutionP50() >= 10000);
+        assertTrue(_mxBean.getExecutionP999() >= _mxBean.getExecutionP50());
+        assertTrue(_mxBean.getQueueWaitP50() >= 0);
+
+        _mxBean.sample(startNanos + TimeUnit.SECONDS.toNanos(3));
+        assertEquals(0, _mxBean.getSubmitRate(), 0.001);
+        assertEquals(0, _mxBean.getExecutionP99());
+    }
+
+    @Test
+    public void testResize() {
+        _mxBean.resize(4, 8);
+        assertEquals(4, _threadPool.getCorePoolSize());
+        assertEquals(8, _threadPool.getMaximumPoolSize());
+
+        _mxBean.setMaximumPoolSize(2);
+        assertEquals(2, _mxBean.getCorePoolSize());
+        assertEquals(2, _mxBean.getMaximumPoolSize());
+
+        _mxBean.setCorePoolSize(6);
+        assertEquals(6, _mxBean.getCorePoolSize());
+        assertEquals(6, _mxBean.getMaximumPoolSize());
+    }
+
+    @Test
+    public void testResize4CoreGreaterThanMax() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("invalid corePoolSize 5 and maxPoolSize 4 of thread pool mxbean");
+
+        _mxBean.resize(5, 4);
+    }
+
+    @Test
+    public void testResize4ForkJoinPool() {
+        _expectedEx.expect(UnsupportedOperationException.class);
+        _expectedEx.expectMessage("thread pool recursive is a forkjoin thread pool, can not be resized");
+
+        NamedForkJoinPool forkJoinPool = new NamedForkJoinPool("recursive", 2);
+        try {
+            ThreadPoolMXBeanImpl mxBean = new ThreadPoolMXBeanImpl("recursive", ThreadPoolType.FORK_JOIN,
+                    forkJoinPool, _concurrencyLimiters);
+            assertEquals(2, mxBean.getCorePoolSize());
+            assertEquals(-1, mxBean.getTaskCount());
+            assertEquals(-1, mxBean.getConcurrencyLimit());
+            mxBean.resize(4, 4);
+        } finally {
+            forkJoinPool.shutdownNow();
+        }
+    }
+
+    /**
+     * 测试用例：同名的MBean重复注册 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、先后注册两个同名的MBean
+     * 2、注销先注册的MBean，再注销后注册的MBean
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、后注册的替换先注册的
+     * 2、注销先注册的MBean不影响后注册的MBean
+     * </pre>
+     */
+    @Test
+    public void testRegister() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        _mxBean.register();
+        assertTrue(server.isRegistered(_mxBean.getObjectName()));
+        assertEquals(1, server.getAttribute(_mxBean.getObjectName(), "CorePoolSize"));
+
+        NamedThreadPoolExecutor threadPool = new NamedThreadPoolExecutor("mxbean", 3, 3, 15, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1), new DefaultThreadFactory("mxbean"));
+        ThreadPoolMXBeanImpl mxBean = new ThreadPoolMXBeanImpl("mxbean", ThreadPoolType.STANDARD, threadPool, _concurrencyLimiters);
+        try {
+            mxBean.register();
+            assertEquals(3, server.getAttribute(_mxBean.getObjectName(), "CorePoolSize"));
+
+            _mxBean.unregister();
+            assertTrue(server.isRegistered(_mxBean.getObjectName()));
+        } finally {
+            mxBean.unregister();
+            threadPool.shutdownNow();
+        }
+        assertFalse(server.isRegistered(_mxBean.getObjectName()));
+    }
+
+    @Test
+    public void testCreateObjectName() {
+        assertEquals("cn.aofeng.threadpool4j:type=ThreadPool,name=default",
+                ThreadPoolMXBeanImpl.createObjectName("default").toString());
+        assertEquals("cn.aofeng.threadpool4j:type=ThreadPool,name=\"a,b=c\"",
+                ThreadPoolMXBeanImpl.createObjectName("a,b=c").toString());
+    }
+
+}
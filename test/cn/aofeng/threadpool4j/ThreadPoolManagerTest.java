@@ -1,6 +1,12 @@
 package cn.aofeng.threadpool4j;
 
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -51,4 +57,25 @@ public class ThreadPoolManagerTest {
         verify(_mock);
     }
 
+    @Test
+    public void testDestroyWithTimeout() {
+        ThreadPoolImpl mock = createMock(ThreadPoolImpl.class);
+        ThreadPoolManager tpm = new ThreadPoolManager();
+        tpm.setThreadPool(mock);
+        FailHandler<Runnable> failHandler = new FailHandler<Runnable>() {
+            @Override
+            public void execute(Runnable task) {
+                // nothing
+            }
+        };
+        Map<String, DrainInfo> result = Collections.singletonMap("default", new DrainInfo());
+        expect(mock.destroy(5, TimeUnit.SECONDS, failHandler)).andReturn(result).times(1);
+        replay(mock);
+        
+        // 连续调用两次销毁，但内部的线程池应该只执行一次销毁，失败处理器传给线程池
+        assertSame(result, tpm.destroy(5, TimeUnit.SECONDS, failHandler));
+        assertTrue(tpm.destroy(5, TimeUnit.SECONDS, failHandler).isEmpty());
+        verify(mock);
+    }
+
 }
@@ -2,17 +2,39 @@ package cn.aofeng.threadpool4j;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.junit.After;
 import org.junit.Before;
@@ -21,6 +43,9 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
 
+import cn.aofeng.threadpool4j.job.AbstractJob;
+import cn.aofeng.threadpool4j.job.StackProfilerJob;
+
 /**
  * {@link ThreadPoolImpl}的单元测试用例。
  * 
@@ -36,45 +61,1157 @@ public class ThreadPoolTest {
     @Before
     public void setUp() throws Exception {
         _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
-        _threadPool._threadPoolConfig._configFile = ThreadPoolConfig.DEFAULT_CONFIG_FILE;
+        _threadPool._threadPoolConfig._configFile = ThreadPoolConfig.DEFAULT_CONFIG_FILE;
+        _threadPool.init();
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+    }
+    
+    @Test
+    public void testInit() {
+        assertEquals(2, _threadPool._multiThreadPool.size());
+        assertTrue(_threadPool._multiThreadPool.containsKey("default"));
+        assertTrue(_threadPool._multiThreadPool.containsKey("other"));
+        assertTrue(_threadPool._threadPoolConfig._threadStateSwitch);
+        assertEquals(60, _threadPool._threadPoolConfig._threadStateInterval);
+    }
+    
+    @Test
+    public void testDestroy() {
+        // 先销毁加载默认配置的线程池
+        _threadPool.destroy();
+        assertEquals(ThreadPoolStatus.DESTROYED, _threadPool._status);
+        assertNull(_threadPool._threadPoolStateJob);
+        assertNull(_threadPool._threadStateJob);
+        for (Entry<String, ExecutorService> entry : _threadPool._multiThreadPool.entrySet()) {
+            assertTrue(entry.getValue().isShutdown());
+        }
+        
+        // 加载指定配置文件的线程池，初始化后再销毁
+        String configFile = "/cn/aofeng/threadpool4j/threadpool4j_1.5.0_closethreadstate.xml";
+        _threadPool._threadPoolConfig._configFile = configFile;
+        _threadPool.init();
+        _threadPool.destroy();
+        assertEquals(ThreadPoolStatus.DESTROYED, _threadPool._status);
+        assertNull(_threadPool._threadPoolStateJob);
+        assertNull(_threadPool._threadStateJob);
+        for (Entry<String, ExecutorService> entry : _threadPool._multiThreadPool.entrySet()) {
+            assertTrue(entry.getValue().isShutdown());
+        }
+    }
+    
+    /**
+     * 测试用例：按配置的队列类型创建线程池 <br/>
+     * 前置条件：
+     * <pre>
+     * 3.1.0版本的配置文件，线程池分别配置了不同的workQueueType
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 每个线程池的队列是对应类型的实例
+     * </pre>
+     */
+    @Test
+    public void testInit43_1_0WorkQueueType() {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_workqueuetype.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        assertEquals(ResizableLinkedBlockingQueue.class, getWorkQueue("default").getClass());
+        assertEquals(ResizableLinkedBlockingQueue.class, getWorkQueue("linked").getClass());
+        assertEquals(LinkedTransferQueue.class, getWorkQueue("transfer").getClass());
+        assertEquals(SynchronousQueue.class, getWorkQueue("synchronous").getClass());
+        assertEquals(RingBufferBlockingQueue.class, getWorkQueue("ringbuffer").getClass());
+        assertEquals(PriorityBucketBlockingQueue.class, getWorkQueue("priority").getClass());
+        assertEquals(100000, getWorkQueue("linked").remainingCapacity());
+    }
+    
+    /**
+     * 测试用例：按优先级提交任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池priority只有1个线程，队列类型为priority
+     * 2、先提交1个阻塞的任务占住线程，再依次提交优先级为1、5、10、5的任务
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 执行顺序为：10、5（先提交的）、5（后提交的）、1
+     * </pre>
+     */
+    @Test
+    public void testSubmitPriority() throws Exception {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_workqueuetype.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        _threadPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    releaseLatch.await();
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        }, Prioritized.NORM_PRIORITY, "priority");
+        
+        final List<String> result = Collections.synchronizedList(new ArrayList<String>());
+        String[] names = {"1", "5a", "10", "5b"};
+        int[] priorities = {1, 5, 10, 5};
+        List<Future<String>> futures = new ArrayList<Future<String>>();
+        for (int i = 0; i < names.length; i++) {
+            final String name = names[i];
+            futures.add(_threadPool.submit(new Callable<String>() {
+                @Override
+                public String call() throws Exception {
+                    result.add(name);
+                    return name;
+                }
+            }, priorities[i], "priority"));
+        }
+        releaseLatch.countDown();
+        
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(Arrays.asList("10", "5a", "5b", "1"), result);
+    }
+    
+    @Test
+    public void testSubmitPriority4OutOfRange() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("priority 11 out of range [1, 10]");
+        
+        _threadPool.submit(createRunnable(), 11, "default");
+    }
+    
+    /**
+     * 测试用例：提交有超时时间的任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 使用默认配置文件初始化，往线程池default提交：1个执行时间为60秒、超时时间为100毫秒的任务；1个很快完成、超时时间为5秒的任务
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、超时的任务被取消，执行任务的线程被中断，线程池default的超时任务数为1
+     * 2、很快完成的任务返回结果，截止时间从时间轮中取消
+     * </pre>
+     */
+    @Test
+    public void testSubmitWithTimeout() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        Future<?> slow = _threadPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        }, 100, TimeUnit.MILLISECONDS, "default");
+        Future<String> fast = _threadPool.submit(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "fast";
+            }
+        }, 5, TimeUnit.SECONDS, "default");
+        
+        assertEquals("fast", fast.get(1, TimeUnit.SECONDS));
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+        assertTrue(slow.isCancelled());
+        // 中断执行任务的线程之后才计数
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (_threadPool._mxBeans.get("default").getTimeoutTaskCount() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, _threadPool._mxBeans.get("default").getTimeoutTaskCount());
+        assertEquals(0, _threadPool._mxBeans.get("other").getTimeoutTaskCount());
+        assertEquals(0, _threadPool._timingWheel.getPendingCount());
+    }
+    
+    /**
+     * 测试用例：多线程池关闭后提交有超时时间的任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池limited配置了并发限制器
+     * 2、关闭多线程池（时间轮已停止）后，分别用submit(Runnable)和submit(Callable)提交有超时时间的任务
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 都抛出RejectedExecutionException，并发限制器的许可全部归还
+     * </pre>
+     */
+    @Test
+    public void testSubmitWithTimeout4Destroyed() {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_limiter.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        ConcurrencyLimiter limiter = _threadPool._concurrencyLimiters.get("limited");
+        _threadPool.destroy();
+        
+        try {
+            _threadPool.submit(createRunnable(), 1, TimeUnit.SECONDS, "limited");
+            fail("expect RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            assertEquals("thread pool limited was shutdown, can not submit a task with timeout", e.getMessage());
+        }
+        try {
+            _threadPool.submit(createCallable(), 1, TimeUnit.SECONDS, "limited");
+            fail("expect RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(0, limiter.getInFlight());
+    }
+    
+    @Test
+    public void testSubmitWithTimeout4InvalidTimeout() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("timeout less than or equals zero");
+        
+        _threadPool.submit(createRunnable(), 0, TimeUnit.MILLISECONDS, "default");
+    }
+    
+    /**
+     * 测试用例：提交有截止时间的任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、使用默认配置文件初始化，先提交10个阻塞的任务占满线程池default的10个核心线程
+     * 2、再提交截止时间为100毫秒后和60秒后的任务各1个，200毫秒后释放阻塞的任务
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、截止时间为100毫秒后的任务出队时已过期，不执行，被取消并交给FailHandler，线程池default的过期任务数为1
+     * 2、截止时间为60秒后的任务正常执行
+     * </pre>
+     */
+    @Test
+    public void testSubmitWithDeadline() throws Exception {
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        for (int i = 0; i < 10; i++) {
+            _threadPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        releaseLatch.await();
+                    } catch (InterruptedException e) {
+                        // nothing
+                    }
+                }
+            }, "default");
+        }
+        
+        final AtomicInteger executed = new AtomicInteger();
+        final List<Callable<String>> expiredTasks = Collections.synchronizedList(new ArrayList<Callable<String>>());
+        FailHandler<Callable<String>> failHandler = new FailHandler<Callable<String>>() {
+            @Override
+            public void execute(Callable<String> task) {
+                expiredTasks.add(task);
+            }
+        };
+        Callable<String> task = new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                executed.incrementAndGet();
+                return "done";
+            }
+        };
+        Future<String> expired = _threadPool.submitWithDeadline(task, System.currentTimeMillis() + 100, 
+                "default", failHandler);
+        Future<String> live = _threadPool.submitWithDeadline(task, System.currentTimeMillis() + 60000, 
+                "default", failHandler);
+        Thread.sleep(200);
+        releaseLatch.countDown();
+        
+        assertEquals("done", live.get(1, TimeUnit.SECONDS));
+        assertTrue(expired.isCancelled());
+        assertEquals(1, executed.get());
+        assertEquals(1, expiredTasks.size());
+        assertSame(task, expiredTasks.get(0));
+        assertEquals(1, _threadPool._mxBeans.get("default").getExpiredTaskCount());
+        assertEquals(0, _threadPool._mxBeans.get("default").getTimeoutTaskCount());
+    }
+    
+    /**
+     * 测试用例：提交时已超过截止时间 <br/>
+     * 前置条件：
+     * <pre>
+     * 使用默认配置文件初始化，提交截止时间为1毫秒前的任务
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 任务不放入队列，在调用者线程中交给FailHandler，返回已取消的结果，线程池default的过期任务数为1
+     * </pre>
+     */
+    @Test
+    public void testSubmitWithDeadline4AlreadyExpired() {
+        final AtomicReference<Thread> handlerThread = new AtomicReference<Thread>();
+        Future<?> future = _threadPool.submitWithDeadline(createRunnable(), System.currentTimeMillis() - 1, 
+                "default", new FailHandler<Runnable>() {
+            @Override
+            public void execute(Runnable task) {
+                handlerThread.set(Thread.currentThread());
+            }
+        });
+        
+        assertTrue(future.isCancelled());
+        assertSame(Thread.currentThread(), handlerThread.get());
+        assertEquals(0, ((ThreadPoolExecutor) _threadPool._multiThreadPool.get("default")).getTaskCount());
+        assertEquals(1, _threadPool._mxBeans.get("default").getExpiredTaskCount());
+    }
+    
+    /**
+     * 测试用例：使用forkjoin类型的线程池 <br/>
+     * 前置条件：
+     * <pre>
+     * 3.1.0版本的配置文件，线程池recursive的类型为forkjoin，并行度为4
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、线程池recursive是{@link NamedForkJoinPool}的实例，并行度为4
+     * 2、通过submit和invokeAll提交的任务返回正确的执行结果
+     * 3、通过submit和execute提交的任务统计了等待时间和执行时间
+     * </pre>
+     */
+    @Test
+    public void testForkJoinPool() throws InterruptedException, ExecutionException {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_forkjoin.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        ExecutorService pool = _threadPool._multiThreadPool.get("recursive");
+        assertEquals(NamedForkJoinPool.class, pool.getClass());
+        assertEquals(4, ((NamedForkJoinPool) pool).getParallelism());
+        
+        assertEquals(9, _threadPool.submit(createCallable(), "recursive").get().intValue());
+        Collection<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        tasks.add(createCallable());
+        tasks.add(createCallable());
+        int result = 0;
+        for (Future<Integer> future : _threadPool.invokeAll(tasks, 2, TimeUnit.SECONDS, "recursive")) {
+            result += future.get();
+        }
+        assertEquals(18, result);
+        
+        final CountDownLatch latch = new CountDownLatch(1);
+        _threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, "recursive");
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(_threadPool.getQueueWaitLatency("recursive").getTotalCount() >= 2);
+        assertTrue(_threadPool.getExecutionLatency("recursive").getTotalCount() >= 1);
+    }
+    
+    /**
+     * 测试用例：虚拟线程池 <br/>
+     * 前置条件：
+     * <pre>
+     * io线程池配置type="virtual"，maxConcurrency为2
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、运行环境支持虚拟线程时创建{@link VirtualThreadExecutor}；否则退化为核心线程数和最大线程数都为2的普通线程池
+     * 2、任务正常执行，统计了等待时间
+     * </pre>
+     */
+    @Test
+    public void testVirtualThreadPool() throws InterruptedException, ExecutionException {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_virtual.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        ExecutorService pool = _threadPool._multiThreadPool.get("io");
+        if (VirtualThreadExecutor.isSupported()) {
+            assertEquals(VirtualThreadExecutor.class, pool.getClass());
+            assertEquals(2, ((VirtualThreadExecutor) pool).getMaxConcurrency());
+        } else {
+            assertEquals(NamedThreadPoolExecutor.class, pool.getClass());
+            assertEquals(2, ((ThreadPoolExecutor) pool).getCorePoolSize());
+            assertEquals(2, ((ThreadPoolExecutor) pool).getMaximumPoolSize());
+        }
+        
+        assertEquals(9, _threadPool.submit(createCallable(), "io").get().intValue());
+        assertEquals(1, _threadPool.getQueueWaitLatency("io").getTotalCount());
+    }
+    
+    /**
+     * 测试用例：配置文件热加载 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、用3.1.0版本的配置文件初始化，线程池linked的队列中有1个等待执行的任务
+     * 2、配置文件改为3.2.0版本的热加载测试配置文件后调用reload
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、线程池default、linked在原线程池上调整了线程数和keepAliveTime，linked的队列容量调整为500，队列中的任务不丢失
+     * 2、线程池default没有配置队列类型（默认为linked），队列容量调整为200
+     * 3、线程池transfer的队列类型有变化，保持原配置；线程池ringbuffer的队列容量不能在运行时调整，保持原值
+     * 4、线程池priority的队列容量调小为2
+     * 5、新增线程池added
+     * 6、getThreadPoolInfo返回新的配置
+     * </pre>
+     */
+    @Test
+    public void testReload() throws Exception {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_workqueuetype.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        ExecutorService defaultPool = _threadPool._multiThreadPool.get("default");
+        ExecutorService linkedPool = _threadPool._multiThreadPool.get("linked");
+        BlockingQueue<Runnable> linkedQueue = getWorkQueue("linked");
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        };
+        ((ThreadPoolExecutor) linkedPool).setCorePoolSize(1);
+        ((ThreadPoolExecutor) linkedPool).setMaximumPoolSize(1);
+        Future<?> running = _threadPool.submit(task, "linked");
+        Future<?> queued = _threadPool.submit(task, "linked");
+        assertEquals(1, linkedQueue.size());
+        
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_reload.xml";
+        _threadPool.reload();
+        
+        ThreadPoolExecutor defaultExecutor = (ThreadPoolExecutor) _threadPool._multiThreadPool.get("default");
+        assertSame(defaultPool, defaultExecutor);
+        assertEquals(2, defaultExecutor.getCorePoolSize());
+        assertEquals(5, defaultExecutor.getMaximumPoolSize());
+        assertEquals(30, defaultExecutor.getKeepAliveTime(TimeUnit.SECONDS));
+        assertEquals(200, ((ResizableQueue) defaultExecutor.getQueue()).getCapacity());
+        assertEquals(200, _threadPool.getThreadPoolInfo("default").getQueueSize());
+        
+        ThreadPoolExecutor linkedExecutor = (ThreadPoolExecutor) _threadPool._multiThreadPool.get("linked");
+        assertSame(linkedPool, linkedExecutor);
+        assertSame(linkedQueue, linkedExecutor.getQueue());
+        assertEquals(150, linkedExecutor.getCorePoolSize());
+        assertEquals(200, linkedExecutor.getMaximumPoolSize());
+        assertEquals(500, ((ResizableQueue) linkedQueue).getCapacity());
+        
+        assertEquals(10, ((ThreadPoolExecutor) _threadPool._multiThreadPool.get("transfer")).getCorePoolSize());
+        assertEquals(WorkQueueType.TRANSFER, _threadPool.getThreadPoolInfo("transfer").getQueueType());
+        assertEquals(100000, _threadPool.getThreadPoolInfo("ringbuffer").getQueueSize());
+        assertEquals(2, ((ResizableQueue) getWorkQueue("priority")).getCapacity());
+        
+        assertTrue(_threadPool.isExists("added"));
+        assertEquals(3, ((ThreadPoolExecutor) _threadPool._multiThreadPool.get("added")).getCorePoolSize());
+        ThreadPoolInfo linkedInfo = _threadPool.getThreadPoolInfo("linked");
+        assertEquals(150, linkedInfo.getCoreSize());
+        assertEquals(200, linkedInfo.getMaxSize());
+        assertEquals(500, linkedInfo.getQueueSize());
+        
+        latch.countDown();
+        running.get(1, TimeUnit.SECONDS);
+        queued.get(1, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * 测试用例：配置文件热加载 <br/>
+     * 前置条件：
+     * <pre>
+     * 重新加载时配置文件不存在
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 保持原配置，线程池可以正常使用
+     * </pre>
+     */
+    @Test
+    public void testReload4FileNotExists() throws Exception {
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/notexists.xml";
+        _threadPool.reload();
+        
+        assertEquals(2, _threadPool._multiThreadPool.size());
+        assertTrue(_threadPool.isExists("default"));
+        assertNull(_threadPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                // nothing
+            }
+        }).get(1, TimeUnit.SECONDS));
+    }
+    
+    /**
+     * 测试用例：自动调整核心线程数 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池default配置了autosize（目标等待时间5毫秒），核心线程数范围为[1, 4]
+     * 2、提交40个执行50毫秒的任务，间隔200毫秒采样2次
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、只为线程池default创建了控制器，启动了autosize Job
+     * 2、任务在队列中等待的时间超过目标值，核心线程数调大，不超过4
+     * 3、关闭线程池后控制器被清除
+     * </pre>
+     */
+    @Test
+    public void testAutoSize() throws Exception {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_autosize.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        assertEquals(1, _threadPool._poolSizeControllers.size());
+        assertTrue(_threadPool._poolSizeControllers.containsKey("default"));
+        assertNotNull(_threadPool._autoSizeJob);
+        
+        PoolSizeController controller = _threadPool._poolSizeControllers.get("default");
+        ThreadPoolExecutor threadPool = (ThreadPoolExecutor) _threadPool._multiThreadPool.get("default");
+        controller.adjust();
+        for (int i = 0; i < 40; i++) {
+            _threadPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        // nothing
+                    }
+                }
+            });
+        }
+        Thread.sleep(200);
+        controller.adjust();
+        
+        assertTrue(controller.getLastWait() > 5);
+        assertTrue(threadPool.getCorePoolSize() > 1);
+        assertTrue(threadPool.getCorePoolSize() <= 4);
+        
+        _threadPool.destroy();
+        assertTrue(_threadPool._poolSizeControllers.isEmpty());
+        assertNull(_threadPool._autoSizeJob);
+    }
+    
+    /**
+     * 测试用例：自适应并发限制器 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池limited只有1个线程，并发上限固定为2
+     * 2、提交2个阻塞的任务（1个执行，1个排队）后，再用带失败处理器的submit和execute各提交1个任务
+     * 3、取消排队的任务后再提交
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、超过上限的任务立即被拒绝，失败处理器被调用2次
+     * 2、取消排队的任务后归还许可，可以再提交
+     * 3、所有任务完成后许可全部归还
+     * </pre>
+     */
+    @Test
+    public void testConcurrencyLimiter() throws Exception {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_limiter.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        assertEquals(2, _threadPool._concurrencyLimiters.size());
+        ConcurrencyLimiter limiter = _threadPool._concurrencyLimiters.get("limited");
+        final CountDownLatch latch = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        };
+        Future<?> running = _threadPool.submit(task, "limited");
+        Future<?> queued = _threadPool.submit(task, "limited");
+        assertEquals(2, limiter.getInFlight());
+        
+        @SuppressWarnings("unchecked")
+        FailHandler<Runnable> failHandler = Mockito.mock(FailHandler.class);
+        assertNull(_threadPool.submit(task, "limited", failHandler));
+        _threadPool.execute(task, "limited", failHandler);
+        Mockito.verify(failHandler, Mockito.times(2)).execute(task);
+        assertEquals(2, limiter.getRejectedCount());
+        
+        queued.cancel(false);
+        assertEquals(1, limiter.getInFlight());
+        Future<?> next = _threadPool.submit(task, "limited");
+        
+        latch.countDown();
+        running.get(1, TimeUnit.SECONDS);
+        next.get(1, TimeUnit.SECONDS);
+        Thread.sleep(100);   // get返回后才调用done归还许可
+        assertEquals(0, limiter.getInFlight());
+    }
+    
+    /**
+     * 测试用例：任务等待时间和执行时间的分布 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池priority只有1个线程
+     * 2、用submit提交4个执行50毫秒的任务，再用execute和按键提交各1个任务
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、执行时间统计了6个任务，p50不小于50毫秒
+     * 2、等待时间统计了6个任务（包括execute提交的任务和按键提交的车道），最后的任务等待了约200毫秒
+     * </pre>
+     */
+    @Test
+    public void testLatencyHistogram() throws Exception {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.1.0_workqueuetype.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        };
+        final CountDownLatch latch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(_threadPool.submit(task, "priority"));
+        }
+        _threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, "priority");
+        Future<?> keyed = _threadPool.submit(createRunnable(), "key", "priority");
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.SECONDS);
+        }
+        latch.await(1, TimeUnit.SECONDS);
+        keyed.get(1, TimeUnit.SECONDS);
+        Thread.sleep(50);   // 执行时间在任务返回后才记录
+        
+        LatencyHistogram.Snapshot execution = _threadPool.getExecutionLatency("priority");
+        assertEquals(6, execution.getTotalCount());
+        assertTrue(execution.getP50() >= TimeUnit.MILLISECONDS.toNanos(50));
+        LatencyHistogram.Snapshot queueWait = _threadPool.getQueueWaitLatency("priority");
+        assertEquals(6, queueWait.getTotalCount());
+        assertTrue(queueWait.getMax() >= TimeUnit.MILLISECONDS.toNanos(190));
+    }
+    
+    /**
+     * 测试用例：通过JMX读取线程池状态和调整线程池大小 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、使用默认配置初始化，default线程池的核心线程数为10，最大线程数为100
+     * 2、通过MBeanServer调用default线程池MBean的resize操作
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、每个线程池注册了一个MBean
+     * 2、default线程池的核心线程数调整为20，最大线程数调整为50
+     * 3、销毁后MBean被注销
+     * </pre>
+     */
+    @Test
+    public void testMXBean() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (String name : _threadPool._multiThreadPool.keySet()) {
+            assertTrue(server.isRegistered(ThreadPoolMXBeanImpl.createObjectName(name)));
+        }
+        
+        ObjectName objectName = new ObjectName("cn.aofeng.threadpool4j:type=ThreadPool,name=default");
+        assertEquals(10, server.getAttribute(objectName, "CorePoolSize"));
+        assertEquals(100000, server.getAttribute(objectName, "QueueRemainingCapacity"));
+        server.invoke(objectName, "resize", new Object[] {20, 50}, new String[] {"int", "int"});
+        ThreadPoolExecutor threadPool = (ThreadPoolExecutor) _threadPool._multiThreadPool.get("default");
+        assertEquals(20, threadPool.getCorePoolSize());
+        assertEquals(50, threadPool.getMaximumPoolSize());
+        
+        _threadPool.destroy();
+        assertFalse(server.isRegistered(objectName));
+    }
+    
+    /**
+     * 测试用例：通过HTTP获取Prometheus指标 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、配置了metrics节点，端口由系统分配，有default和forkjoin类型的recursive两个线程池
+     * 2、在default线程池执行一个任务后请求http://localhost:端口/metrics
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、返回200，Content-Type为Prometheus文本格式
+     * 2、包含两个线程池的gauge和counter，default线程池的histogram，线程组的线程状态
+     * 3、forkjoin类型线程池不支持的指标不输出
+     * 4、销毁后HTTP服务停止
+     * </pre>
+     */
+    @Test
+    public void testMetricsServer() throws Exception {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_metrics.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        _threadPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                // nothing
+            }
+        }).get(1, TimeUnit.SECONDS);
+        Thread.sleep(50);   // 执行时间在任务返回后才记录
+        
+        int port = _threadPool._metricsServer.getPort();
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/metrics").openConnection();
+        assertEquals(200, connection.getResponseCode());
+        assertEquals(MetricsServer.CONTENT_TYPE, connection.getContentType());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        InputStream input = connection.getInputStream();
+        byte[] buffer = new byte[4096];
+        for (int count; (count = input.read(buffer)) > 0; ) {
+            body.write(buffer, 0, count);
+        }
+        input.close();
+        String text = body.toString("UTF-8");
+        
+        assertTrue(text.contains("# TYPE threadpool4j_pool_tasks_completed_total counter\n"));
+        assertTrue(text.contains("threadpool4j_pool_tasks_completed_total{pool=\"default\"} 1\n"));
+        assertTrue(text.contains("threadpool4j_pool_core_size{pool=\"recursive\"} 2\n"));
+        assertFalse(text.contains("threadpool4j_pool_tasks_completed_total{pool=\"recursive\"}"));
+        assertTrue(text.contains("threadpool4j_pool_queue_wait_seconds_count{pool=\"default\"} 1\n"));
+        assertTrue(text.contains("threadpool4j_pool_execution_seconds_bucket{pool=\"default\",le=\"+Inf\"} 1\n"));
+        assertTrue(text.contains("threadpool4j_thread_group_threads{group=\"main\",state=\"runnable\"}"));
+        
+        _threadPool.destroy();
+        assertNull(_threadPool._metricsServer);
+    }
+    
+    /**
+     * 测试用例：threadstack节点的mode为sample <br/>
+     * 前置条件：
+     * <pre>
+     * 使用配置文件threadpool4j_3.2.0_stackprofiler.xml初始化
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、启动的线程堆栈收集Job为{@link StackProfilerJob}
+     * 2、销毁后Job被停止
+     * </pre>
+     */
+    @Test
+    public void testStackProfiler() {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_stackprofiler.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        assertTrue(_threadPool._threadStackJob instanceof StackProfilerJob);
+        
+        _threadPool.destroy();
+        assertNull(_threadPool._threadStackJob);
+    }
+    
+    /**
+     * 测试用例：开启死锁和锁竞争检测 <br/>
+     * 前置条件：
+     * <pre>
+     * 使用配置文件threadpool4j_3.2.0_deadlock.xml初始化
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、启动了死锁和锁竞争检测Job
+     * 2、销毁后Job被停止
+     * </pre>
+     */
+    @Test
+    public void testDeadlockJob() {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_deadlock.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        assertNotNull(_threadPool._deadlockJob);
+        
+        _threadPool.destroy();
+        assertNull(_threadPool._deadlockJob);
+    }
+    
+    /**
+     * 测试用例：检查执行时间过长的任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、使用配置文件threadpool4j_3.2.0_watchdog.xml初始化，线程池default的阈值为100毫秒并中断，线程池other的阈值为60秒
+     * 2、向线程池default提交1个一直执行直到被中断的任务
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、只为线程池default和other创建了watchdog，启动了watchdog Job
+     * 2、任务被watchdog Job中断
+     * 3、关闭线程池后watchdog被清除
+     * </pre>
+     */
+    @Test
+    public void testWatchdog() throws Exception {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_watchdog.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
         _threadPool.init();
+        
+        assertEquals(2, _threadPool._taskWatchdogs.size());
+        assertTrue(_threadPool._taskWatchdogs.containsKey("default"));
+        assertTrue(_threadPool._taskWatchdogs.containsKey("other"));
+        assertNotNull(_threadPool._watchdogJob);
+        
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        _threadPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        });
+        assertTrue(interrupted.await(3, TimeUnit.SECONDS));
+        assertEquals(1, _threadPool._taskWatchdogs.get("default").getStuckTaskCount());
+        
+        _threadPool.destroy();
+        assertTrue(_threadPool._taskWatchdogs.isEmpty());
+        assertNull(_threadPool._watchdogJob);
     }
     
-    @After
-    public void tearDown() throws Exception {
+    /**
+     * 测试用例：加入自定义的Job <br/>
+     * 前置条件：
+     * <pre>
+     * 使用默认配置文件初始化，加入1个执行间隔为1秒的Job
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、Job在共用的调度线程中执行
+     * 2、销毁线程池后Job被销毁
+     * </pre>
+     */
+    @Test
+    public void testScheduleJob() throws Exception {
+        final CountDownLatch executed = new CountDownLatch(1);
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        final CountDownLatch destroyed = new CountDownLatch(1);
+        AbstractJob job = new AbstractJob() {
+            @Override
+            protected void execute() {
+                threadName.set(Thread.currentThread().getName());
+                executed.countDown();
+            }
+            
+            @Override
+            public long getPeriodNanos() {
+                return TimeUnit.SECONDS.toNanos(1);
+            }
+            
+            @Override
+            public void destroy() {
+                super.destroy();
+                destroyed.countDown();
+            }
+        };
+        _threadPool.scheduleJob("custom", job);
+        assertTrue(executed.await(1, TimeUnit.SECONDS));
+        assertEquals("threadpool4j-scheduler", threadName.get());
+        
+        _threadPool.destroy();
+        assertEquals(0, destroyed.getCount());
+        assertNull(_threadPool._jobScheduler);
     }
     
+    /**
+     * 测试用例：关闭多线程池时在超时时间内排空 <br/>
+     * 前置条件：
+     * <pre>
+     * 使用默认配置文件初始化，往线程池other提交20个执行时间为20毫秒的任务，关闭时的超时时间为5秒
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、所有任务都执行完，返回所有线程池的排空结果，都已终止，没有未执行的任务
+     * 2、再次关闭返回空Map
+     * </pre>
+     */
     @Test
-    public void testInit() {
-        assertEquals(2, _threadPool._multiThreadPool.size());
-        assertTrue(_threadPool._multiThreadPool.containsKey("default"));
-        assertTrue(_threadPool._multiThreadPool.containsKey("other"));
-        assertTrue(_threadPool._threadPoolConfig._threadStateSwitch);
-        assertEquals(60, _threadPool._threadPoolConfig._threadStateInterval);
+    public void testDestroyWithTimeout() throws Exception {
+        final AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            _threadPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    executed.incrementAndGet();
+                }
+            }, "other");
+        }
+        
+        Map<String, DrainInfo> result = _threadPool.destroy(5, TimeUnit.SECONDS);
+        assertEquals(20, executed.get());
+        assertEquals(_threadPool._multiThreadPool.keySet(), result.keySet());
+        for (DrainInfo info : result.values()) {
+            assertTrue(info.isTerminated());
+            assertEquals(0, info.getUnexecutedTaskCount());
+            assertTrue(info.getDrainTime() < 5000);
+        }
+        assertTrue(result.get("other").getDrainTime() >= 20);
+        assertEquals(ThreadPoolStatus.DESTROYED, _threadPool._status);
+        assertTrue(_threadPool.destroy(5, TimeUnit.SECONDS).isEmpty());
     }
     
+    /**
+     * 测试用例：关闭多线程池时超时未执行的按键串行任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 使用默认配置文件初始化，提交10个一直阻塞的任务占满线程池default的10个核心线程，再提交3个键相同的任务，关闭时的超时时间为200毫秒
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 车道中的3个任务交给FailHandler，未执行的任务数为3
+     * </pre>
+     */
     @Test
-    public void testDestroy() {
-        // 先销毁加载默认配置的线程池
-        _threadPool.destroy();
-        assertEquals(ThreadPoolStatus.DESTROYED, _threadPool._status);
-        assertNull(_threadPool._threadPoolStateJob);
-        assertNull(_threadPool._threadStateJob);
-        for (Entry<String, ExecutorService> entry : _threadPool._multiThreadPool.entrySet()) {
-            assertTrue(entry.getValue().isShutdown());
+    public void testDestroyWithTimeout4KeyedTask() throws Exception {
+        final CountDownLatch started = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            _threadPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    started.countDown();
+                    try {
+                        Thread.sleep(60000);
+                    } catch (InterruptedException e) {
+                        // nothing
+                    }
+                }
+            }, "default");
+        }
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        List<Future<?>> keyed = new ArrayList<Future<?>>();
+        for (int i = 0; i < 3; i++) {
+            keyed.add(_threadPool.submit(createRunnable(), "user-1", "default"));
         }
         
-        // 加载指定配置文件的线程池，初始化后再销毁
-        String configFile = "/cn/aofeng/threadpool4j/threadpool4j_1.5.0_closethreadstate.xml";
-        _threadPool._threadPoolConfig._configFile = configFile;
-        _threadPool.init();
+        final List<Runnable> unexecuted = Collections.synchronizedList(new ArrayList<Runnable>());
+        Map<String, DrainInfo> result = _threadPool.destroy(200, TimeUnit.MILLISECONDS, new FailHandler<Runnable>() {
+            @Override
+            public void execute(Runnable task) {
+                unexecuted.add(task);
+            }
+        });
+        assertEquals(3, result.get("default").getUnexecutedTaskCount());
+        assertEquals(keyed, unexecuted);
+    }
+    
+    /**
+     * 测试用例：关闭多线程池时超时未执行的异步任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、3.2.0版本的配置文件，线程池limited只有1个线程，配置了并发限制器（上限为2）
+     * 2、提交1个一直阻塞的任务，再用submitAsync提交1个任务，关闭时的超时时间为200毫秒，不指定FailHandler
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * submitAsync返回的结果以RejectedExecutionException异常完成，并发限制器的许可全部归还
+     * </pre>
+     */
+    @Test
+    public void testDestroyWithTimeout4AsyncTask() throws Exception {
         _threadPool.destroy();
-        assertEquals(ThreadPoolStatus.DESTROYED, _threadPool._status);
-        assertNull(_threadPool._threadPoolStateJob);
-        assertNull(_threadPool._threadStateJob);
-        for (Entry<String, ExecutorService> entry : _threadPool._multiThreadPool.entrySet()) {
-            assertTrue(entry.getValue().isShutdown());
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_limiter.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        final CountDownLatch started = new CountDownLatch(1);
+        _threadPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        }, "limited");
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        CompletableFuture<String> future = _threadPool.submitAsync(new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "done";
+            }
+        }, "limited");
+        ConcurrencyLimiter limiter = _threadPool._concurrencyLimiters.get("limited");
+        
+        Map<String, DrainInfo> result = _threadPool.destroy(200, TimeUnit.MILLISECONDS);
+        assertEquals(1, result.get("limited").getUnexecutedTaskCount());
+        try {
+            future.get(1, TimeUnit.SECONDS);
+            fail("expect ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertTrue(_threadPool._multiThreadPool.get("limited").awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getInFlight());
+    }
+    
+    /**
+     * 测试用例：等待线程池排空时任务的超时时间仍然有效 <br/>
+     * 前置条件：
+     * <pre>
+     * 使用默认配置文件初始化，往线程池default提交1个执行时间为60秒、超时时间为200毫秒的任务，关闭时的超时时间为5秒
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 任务在超时后被中断，线程池default在关闭的超时时间之前终止，时间轮在排空后停止
+     * </pre>
+     */
+    @Test
+    public void testDestroyWithTimeout4TaskTimeout() throws Exception {
+        _threadPool.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+            }
+        }, 200, TimeUnit.MILLISECONDS, "default");
+        
+        Map<String, DrainInfo> result = _threadPool.destroy(5, TimeUnit.SECONDS);
+        DrainInfo info = result.get("default");
+        assertTrue(info.isTerminated());
+        assertTrue(info.getDrainTime() >= 150);
+        assertTrue(info.getDrainTime() < 5000);
+        assertEquals(1, _threadPool._deadlineTaskCounters.get("default").getTimeoutTaskCount());
+        
+        _expectedEx.expect(IllegalStateException.class);
+        _threadPool._timingWheel.newTimeout(createRunnable(), 1, TimeUnit.SECONDS);
+    }
+    
+    /**
+     * 测试用例：关闭多线程池时超时未排空 <br/>
+     * 前置条件：
+     * <pre>
+     * 使用默认配置文件初始化，往线程池default提交10个一直阻塞的任务（占满10个核心线程）和5个在队列中等待的任务，关闭时的超时时间为200毫秒
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、超时后返回，线程池default未终止，队列中的5个任务交给FailHandler，正在执行的10个任务被中断
+     * 2、线程池other已终止
+     * </pre>
+     */
+    @Test
+    public void testDestroyWithTimeout4NotDrained() throws Exception {
+        final CountDownLatch started = new CountDownLatch(10);
+        final CountDownLatch interrupted = new CountDownLatch(10);
+        Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        };
+        for (int i = 0; i < 10; i++) {
+            _threadPool.submit(blocked, "default");
+        }
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        List<Future<?>> queued = new ArrayList<Future<?>>();
+        for (int i = 0; i < 5; i++) {
+            queued.add(_threadPool.submit(blocked, "default"));
         }
+        
+        final List<Runnable> unexecuted = Collections.synchronizedList(new ArrayList<Runnable>());
+        long start = System.nanoTime();
+        Map<String, DrainInfo> result = _threadPool.destroy(200, TimeUnit.MILLISECONDS, new FailHandler<Runnable>() {
+            @Override
+            public void execute(Runnable task) {
+                unexecuted.add(task);
+            }
+        });
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 200);
+        assertTrue(elapsed < 2000);
+        
+        DrainInfo info = result.get("default");
+        assertFalse(info.isTerminated());
+        assertEquals(5, info.getUnexecutedTaskCount());
+        assertTrue(info.getDrainTime() >= 200);
+        assertEquals(5, unexecuted.size());
+        assertTrue(unexecuted.containsAll(queued));
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertTrue(result.get("other").isTerminated());
+    }
+    
+    private BlockingQueue<Runnable> getWorkQueue(String threadpoolName) {
+        return ((ThreadPoolExecutor) _threadPool._multiThreadPool.get(threadpoolName)).getQueue();
     }
     
     /**
@@ -240,38 +1377,183 @@ public class ThreadPoolTest {
         _threadPool.submit(mock, "default");
         Thread.sleep(1000); // 异步操作，需等待一会儿
         
-        Mockito.verify(mock, Mockito.times(1)).run();
+        Mockito.verify(mock, Mockito.times(1)).run();
+    }
+    
+    /**
+     * 测试用例：队列满，执行失败处理器 <br/>
+     * 前置条件：
+     * <pre>
+     * 任务对象为{@link Runnable}，提交给线程池名"default"执行。队列满，抛出{@link RejectedExecutionException}
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 任务对象的run方法被调用1次；失败处理器被执行1次。
+     * </pre>
+     * @throws InterruptedException 
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSubmitRunnableStringFailHandler() throws InterruptedException {
+        String threadpoolName = "defalut";
+        Runnable taskMock = Mockito.mock(Runnable.class);
+        FailHandler<Runnable> handlerMock = Mockito.mock(FailHandler.class);
+        
+        ThreadPoolImpl threadPoolMockImpl = Mockito.spy(_threadPool);
+        Mockito.when(threadPoolMockImpl.getThreadPool(threadpoolName)).thenReturn(Executors.newSingleThreadExecutor());
+        Mockito.when(threadPoolMockImpl.submit(taskMock, threadpoolName)).thenThrow(RejectedExecutionException.class);
+        
+        threadPoolMockImpl.submit(taskMock, threadpoolName, handlerMock);
+        Thread.sleep(1000); // 异步操作，需等待一会儿
+        
+        Mockito.verify(taskMock, Mockito.times(1)).run(); // 期望任务的run方法被调用1次
+        Mockito.verify(handlerMock, Mockito.times(1)).execute(taskMock); // 期望失败处理器的execute方法被调用1次
+    }
+    
+    /**
+     * 测试用例：将一个异步任务交给默认的线程池执行，不创建Future <br/>
+     * 前置条件：
+     * <pre>
+     * 任务对象为null
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 抛出{@link IllegalArgumentException}异常
+     * </pre>
+     */
+    @Test
+    public void testExecute4TaskIsNull() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("task is null");
+        
+        _threadPool.execute(null);
+    }
+    
+    @Test
+    public void testSubmitKey4KeyIsNull() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("key is null");
+        
+        _threadPool.submit(createRunnable(), null, "default");
+    }
+    
+    /**
+     * 测试用例：按键串行执行任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 向线程池"default"交替提交键为"A"和"B"的任务各100个，任务记录自己的序号
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 每个键的任务按提交顺序执行，全部执行完成后没有残留的车道
+     * </pre>
+     */
+    @Test
+    public void testSubmitKey() throws Exception {
+        final List<Integer> resultA = new ArrayList<Integer>();
+        final List<Integer> resultB = new ArrayList<Integer>();
+        Future<?> last = null;
+        for (int i = 0; i < 100; i++) {
+            final int seq = i;
+            _threadPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    resultA.add(seq);
+                }
+            }, "A", "default");
+            last = _threadPool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    resultB.add(seq);
+                }
+            }, "B", "default");
+        }
+        last.get(5, TimeUnit.SECONDS);
+        _threadPool.submit(createRunnable(), "A", "default").get(5, TimeUnit.SECONDS);
+        
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, resultA.get(i).intValue());
+            assertEquals(i, resultB.get(i).intValue());
+        }
+    }
+    
+    /**
+     * 测试用例：将一个异步任务交给指定的线程池执行，不创建Future <br/>
+     * 前置条件：
+     * <pre>
+     * 任务对象为{@link Runnable}；线程池名为"other"且实际存在
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 线程池other的execute方法被调用1次，submit方法没有被调用
+     * </pre>
+     */
+    @Test
+    public void testExecuteString() {
+        ExecutorService mock = Mockito.mock(ExecutorService.class);
+        _threadPool._multiThreadPool.put("other", mock);
+        _threadPool.execute(createRunnable(), "other");
+        
+        Mockito.verify(mock, Mockito.times(1)).execute(Mockito.any(Runnable.class));
+        Mockito.verify(mock, Mockito.never()).submit(Mockito.any(Runnable.class));
+    }
+    
+    /**
+     * 测试用例：队列满，执行失败处理器 <br/>
+     * 前置条件：
+     * <pre>
+     * 任务对象为{@link Runnable}，交给线程池名"other"执行。队列满，抛出{@link RejectedExecutionException}
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 失败处理器被执行1次。
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testExecuteStringFailHandler() {
+        Runnable task = createRunnable();
+        ExecutorService mock = Mockito.mock(ExecutorService.class);
+        Mockito.doThrow(RejectedExecutionException.class).when(mock).execute(task);
+        FailHandler<Runnable> handlerMock = Mockito.mock(FailHandler.class);
+        _threadPool._multiThreadPool.put("other", mock);
+        
+        _threadPool.execute(task, "other", handlerMock);
+        
+        Mockito.verify(handlerMock, Mockito.times(1)).execute(task);
     }
     
     /**
-     * 测试用例：队列满，执行失败处理器 <br/>
+     * 测试用例：任务执行时抛出异常 <br/>
      * 前置条件：
      * <pre>
-     * 任务对象为{@link Runnable}，提交给线程池名"default"执行。队列满，抛出{@link RejectedExecutionException}
+     * 分别通过execute和submit将一个会抛出异常的任务交给线程池"default"执行
      * </pre>
      * 
      * 测试结果：
      * <pre>
-     * 任务对象的run方法被调用1次；失败处理器被执行1次。
+     * 线程池"default"的执行失败任务数为2
      * </pre>
-     * @throws InterruptedException 
      */
-    @SuppressWarnings("unchecked")
     @Test
-    public void testSubmitRunnableStringFailHandler() throws InterruptedException {
-        String threadpoolName = "defalut";
-        Runnable taskMock = Mockito.mock(Runnable.class);
-        FailHandler<Runnable> handlerMock = Mockito.mock(FailHandler.class);
-        
-        ThreadPoolImpl threadPoolMockImpl = Mockito.spy(_threadPool);
-        Mockito.when(threadPoolMockImpl.getThreadPool(threadpoolName)).thenReturn(Executors.newSingleThreadExecutor());
-        Mockito.when(threadPoolMockImpl.submit(taskMock, threadpoolName)).thenThrow(RejectedExecutionException.class);
-        
-        threadPoolMockImpl.submit(taskMock, threadpoolName, handlerMock);
+    public void testFailedTaskCount() throws InterruptedException {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("failed task for test");
+            }
+        };
+        _threadPool.execute(task, "default");
+        _threadPool.submit(task, "default");
         Thread.sleep(1000); // 异步操作，需等待一会儿
         
-        Mockito.verify(taskMock, Mockito.times(1)).run(); // 期望任务的run方法被调用1次
-        Mockito.verify(handlerMock, Mockito.times(1)).execute(taskMock); // 期望失败处理器的execute方法被调用1次
+        NamedThreadPoolExecutor pool = (NamedThreadPoolExecutor) _threadPool._multiThreadPool.get("default");
+        assertEquals(2, pool.getFailedTaskCount());
     }
     
     private void callThreadPool(String threadpoolName) {
@@ -646,6 +1928,454 @@ public class ThreadPoolTest {
         assertTrue(_threadPool.isExists("default"));
     }
     
+    /**
+     * 测试用例：获取线程池句柄 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池"ThreadPoolNotExists"不存在
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 抛出{@link IllegalArgumentException}异常
+     * </pre>
+     */
+    @Test
+    public void testHandle4ThreadpoolNotExists() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("thread pool ThreadPoolNotExists not exists");
+        
+        _threadPool.handle("ThreadPoolNotExists");
+    }
+    
+    /**
+     * 测试用例：通过线程池句柄提交异步任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 获取线程池"other"的句柄后，分别调用submit(Runnable)，submit(Callable)和execute(Runnable)
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 线程池other的submit方法被调用2次，execute方法被调用1次
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testHandle() {
+        ExecutorService mock = Mockito.mock(ExecutorService.class);
+        _threadPool._multiThreadPool.put("other", mock);
+        
+        PoolHandle handle = _threadPool.handle("other");
+        assertEquals("other", handle.getName());
+        handle.submit(createRunnable());
+        handle.submit(createCallable());
+        handle.execute(createRunnable());
+        
+        Mockito.verify(mock, Mockito.times(1)).submit(Mockito.any(Runnable.class));
+        Mockito.verify(mock, Mockito.times(1)).submit(Mockito.any(Callable.class));
+        Mockito.verify(mock, Mockito.times(1)).execute(Mockito.any(Runnable.class));
+    }
+    
+    /**
+     * 测试用例：通过线程池句柄提交任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 任务对象为null
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 与{@link ThreadPool}的提交方法一样，抛出{@link IllegalArgumentException}异常
+     * </pre>
+     */
+    @Test
+    public void testHandle4TaskIsNull() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("task is null");
+        
+        Runnable task = null;
+        _threadPool.handle("other").execute(task);
+    }
+    
+    /**
+     * 测试用例：通过线程池句柄提交任务，经过自适应并发限制器 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池limited只有1个线程，并发上限固定为2
+     * 2、获取线程池limited的句柄，用submit(Runnable)和execute(Runnable)提交2个阻塞的任务后，再用submit(Callable)提交1个任务
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、超过上限的任务抛出RejectedExecutionException，计入被拒绝的任务数
+     * 2、所有任务完成后许可全部归还
+     * </pre>
+     */
+    @Test
+    public void testHandle4ConcurrencyLimiter() throws Exception {
+        _threadPool.destroy();
+        _threadPool._multiThreadPool.clear();
+        _threadPool._threadPoolConfig._configFile = "/cn/aofeng/threadpool4j/threadpool4j_3.2.0_limiter.xml";
+        _threadPool._status = ThreadPoolStatus.UNINITIALIZED;
+        _threadPool.init();
+        
+        ConcurrencyLimiter limiter = _threadPool._concurrencyLimiters.get("limited");
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(2);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    // nothing
+                }
+                finished.countDown();
+            }
+        };
+        PoolHandle handle = _threadPool.handle("limited");
+        assertSame(limiter, _threadPool._concurrencyLimiterRefs.get("limited").get());
+        Future<?> running = handle.submit(task);
+        handle.execute(task);
+        assertEquals(2, limiter.getInFlight());
+        
+        try {
+            handle.submit(createCallable());
+            fail("expect RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+        assertEquals(1, limiter.getRejectedCount());
+        assertEquals(2, limiter.getInFlight());
+        
+        latch.countDown();
+        running.get(1, TimeUnit.SECONDS);
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        Thread.sleep(100);   // 任务结束后才归还许可
+        assertEquals(0, limiter.getInFlight());
+    }
+    
+    /**
+     * 测试用例：提交异步任务，返回CompletableFuture <br/>
+     * 前置条件：
+     * <pre>
+     * 1、向线程池"other"提交1个返回9的任务
+     * 2、在返回的结果上组合thenApply、thenApplyAsync（不指定线程池）
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、结果为9*2+1=19
+     * 2、thenApplyAsync在线程池"other"的线程中执行，后续阶段都是PoolCompletableFuture
+     * </pre>
+     */
+    @Test
+    public void testSubmitAsync() throws Exception {
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        CompletableFuture<Integer> future = _threadPool.submitAsync(createCallable(), "other")
+                .thenApply(new Function<Integer, Integer>() {
+                    @Override
+                    public Integer apply(Integer value) {
+                        return value * 2;
+                    }
+                });
+        assertEquals(PoolCompletableFuture.class, future.getClass());
+        
+        CompletableFuture<Integer> result = future.thenApplyAsync(new Function<Integer, Integer>() {
+            @Override
+            public Integer apply(Integer value) {
+                threadName.set(Thread.currentThread().getName());
+                return value + 1;
+            }
+        });
+        assertEquals(PoolCompletableFuture.class, result.getClass());
+        assertEquals(19, result.get(5, TimeUnit.SECONDS).intValue());
+        assertTrue(threadName.get().startsWith("other-"));
+    }
+    
+    /**
+     * 测试用例：提交异步任务，任务执行时抛出异常 <br/>
+     * 前置条件：
+     * <pre>
+     * 任务抛出IllegalStateException
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * get抛出ExecutionException，原因为IllegalStateException
+     * </pre>
+     */
+    @Test
+    public void testSubmitAsync4TaskThrowsException() throws Exception {
+        CompletableFuture<Integer> future = _threadPool.submitAsync(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                throw new IllegalStateException("failed async task");
+            }
+        }, "default");
+        
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("expect ExecutionException");
+        } catch (ExecutionException e) {
+            assertEquals(IllegalStateException.class, e.getCause().getClass());
+        }
+    }
+    
+    /**
+     * 测试用例：提交异步任务，队列满，执行失败处理器 <br/>
+     * 前置条件：
+     * <pre>
+     * 任务交给线程池名"other"执行。队列满，抛出{@link RejectedExecutionException}
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 失败处理器被执行1次；返回的结果不为null，以RejectedExecutionException异常完成
+     * </pre>
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testSubmitAsyncFailHandler() throws Exception {
+        Callable<Integer> task = createCallable();
+        ExecutorService mock = Mockito.mock(ExecutorService.class);
+        Mockito.doThrow(RejectedExecutionException.class).when(mock).execute(Mockito.any(Runnable.class));
+        FailHandler<Callable<Integer>> handlerMock = Mockito.mock(FailHandler.class);
+        _threadPool._multiThreadPool.put("other", mock);
+        
+        CompletableFuture<Integer> future = _threadPool.submitAsync(task, "other", handlerMock);
+        
+        Mockito.verify(handlerMock, Mockito.times(1)).execute(task);
+        assertNotNull(future);
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+            fail("expect ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+    
+    /**
+     * 测试用例：按完成顺序返回多个异步任务的执行结果 <br/>
+     * 前置条件：
+     * <pre>
+     * 向线程池"other"提交3个任务，分别耗时300、10、100毫秒，整批超时时间为5秒
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 按10、100、300的顺序返回执行结果，之后hasNext返回false
+     * </pre>
+     */
+    @Test
+    public void testInvokeAllStreaming() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        tasks.add(createSleepCallable(300));
+        tasks.add(createSleepCallable(10));
+        tasks.add(createSleepCallable(100));
+        
+        CompletionOrderIterator<Integer> it = _threadPool.invokeAllStreaming(tasks, 5, TimeUnit.SECONDS, "other");
+        List<Integer> result = new ArrayList<Integer>();
+        while (it.hasNext()) {
+            result.add(it.next().get());
+        }
+        assertEquals(Arrays.asList(10, 100, 300), result);
+        assertEquals(0, it.getRemaining());
+    }
+    
+    /**
+     * 测试用例：按完成顺序返回多个异步任务的执行结果，整批任务超时 <br/>
+     * 前置条件：
+     * <pre>
+     * 向线程池"other"提交2个任务，分别耗时10毫秒和5秒，整批超时时间为300毫秒
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 只返回耗时10毫秒的任务结果；超时后hasNext返回false，剩下的1个任务被取消
+     * </pre>
+     */
+    @Test
+    public void testInvokeAllStreaming4Timeout() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        tasks.add(createSleepCallable(5000));
+        tasks.add(createSleepCallable(10));
+        
+        long start = System.nanoTime();
+        CompletionOrderIterator<Integer> it = _threadPool.invokeAllStreaming(tasks, 300, TimeUnit.MILLISECONDS, "other");
+        assertTrue(it.hasNext());
+        assertEquals(10, it.next().get().intValue());
+        assertFalse(it.hasNext());
+        assertEquals(1, it.getRemaining());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+    
+    /**
+     * 测试用例：返回最先成功完成的任务的结果 <br/>
+     * 前置条件：
+     * <pre>
+     * 向线程池"other"提交3个任务：立即抛出异常、耗时50毫秒、耗时5秒
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 返回耗时50毫秒的任务的结果；耗时5秒的任务被中断
+     * </pre>
+     */
+    @Test
+    public void testInvokeAny() throws Exception {
+        final CountDownLatch interruptedLatch = new CountDownLatch(1);
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                throw new IllegalStateException("failed task");
+            }
+        });
+        tasks.add(createSleepCallable(50));
+        tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interruptedLatch.countDown();
+                }
+                return 5000;
+            }
+        });
+        
+        assertEquals(50, _threadPool.invokeAny(tasks, 5, TimeUnit.SECONDS, "other").intValue());
+        assertTrue(interruptedLatch.await(2, TimeUnit.SECONDS));
+    }
+    
+    @Test(expected = TimeoutException.class)
+    public void testInvokeAny4Timeout() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        tasks.add(createSleepCallable(2000));
+        
+        _threadPool.invokeAny(tasks, 100, TimeUnit.MILLISECONDS, "other");
+    }
+    
+    private Callable<Integer> createSleepCallable(final int millis) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                Thread.sleep(millis);
+                return millis;
+            }
+        };
+    }
+    
+    /**
+     * 测试用例：延迟执行任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、提交一个延迟100毫秒的任务给线程池"other"
+     * 2、提交一个延迟1秒的任务后取消
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 1、任务在线程池"other"的线程中执行，执行时间不早于100毫秒
+     * 2、被取消的任务不执行
+     * </pre>
+     */
+    @Test
+    public void testSchedule() throws Exception {
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        final AtomicInteger cancelledRuns = new AtomicInteger();
+        long start = System.nanoTime();
+        ScheduledFuture<?> future = _threadPool.schedule(new Runnable() {
+            @Override
+            public void run() {
+                threadName.set(Thread.currentThread().getName());
+            }
+        }, 100, TimeUnit.MILLISECONDS, "other");
+        ScheduledFuture<?> cancelled = _threadPool.schedule(new Runnable() {
+            @Override
+            public void run() {
+                cancelledRuns.incrementAndGet();
+            }
+        }, 1, TimeUnit.SECONDS, "other");
+        assertTrue(cancelled.cancel(false));
+        
+        future.get(5, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertTrue(threadName.get().startsWith("other-"));
+        assertTrue(cancelled.isCancelled());
+        assertEquals(0, cancelledRuns.get());
+    }
+    
+    /**
+     * 测试用例：关闭线程池时还有未到期的定时任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 提交一个延迟1小时的任务和一个每1小时执行1次的任务，然后关闭线程池
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 两个任务都被取消，等待结果的调用者不会一直阻塞
+     * </pre>
+     */
+    @Test
+    public void testSchedule4Destroy() throws Exception {
+        ScheduledFuture<?> delayed = _threadPool.schedule(createRunnable(), 1, TimeUnit.HOURS, "other");
+        ScheduledFuture<?> periodic = _threadPool.scheduleAtFixedRate(createRunnable(), 1, 1, TimeUnit.HOURS, "other");
+        assertEquals(2, _threadPool._scheduledTasks.size());
+        
+        _threadPool.destroy();
+        assertTrue(delayed.isCancelled());
+        assertTrue(periodic.isCancelled());
+        assertTrue(_threadPool._scheduledTasks.isEmpty());
+    }
+    
+    /**
+     * 测试用例：按固定频率周期执行任务 <br/>
+     * 前置条件：
+     * <pre>
+     * 提交一个延迟50毫秒、每50毫秒执行1次的任务，第5次执行时取消
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 任务执行5次后不再执行
+     * </pre>
+     */
+    @Test
+    public void testScheduleAtFixedRate() throws Exception {
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(5);
+        final AtomicReference<ScheduledFuture<?>> futureRef = new AtomicReference<ScheduledFuture<?>>();
+        ScheduledFuture<?> future = _threadPool.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                if (5 == count.incrementAndGet()) {
+                    futureRef.get().cancel(false);
+                }
+                latch.countDown();
+            }
+        }, 50, 50, TimeUnit.MILLISECONDS, "default");
+        futureRef.set(future);
+        
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        assertEquals(5, count.get());
+        assertTrue(future.isCancelled());
+        assertEquals(0, _threadPool._timingWheel.getPendingCount());
+    }
+    
+    @Test
+    public void testScheduleAtFixedRate4PeriodIsZero() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("period less than or equals zero");
+        
+        _threadPool.scheduleAtFixedRate(createRunnable(), 0, 0, TimeUnit.MILLISECONDS, "default");
+    }
+    
     private Callable<Integer> createCallable() {
         return new Callable<Integer>() {
 
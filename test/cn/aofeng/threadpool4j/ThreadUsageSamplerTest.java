@@ -0,0 +1,132 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cn.aofeng.common4j.thread.DefaultThreadFactory;
+
+/**
+ * {@link ThreadUsageSampler}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ThreadUsageSamplerTest {
+
+    private Map<String, ExecutorService> _multiThreadPool = new HashMap<String, ExecutorService>();
+
+    private AtomicBoolean _run = new AtomicBoolean(true);
+
+    @Before
+    public void setUp() throws Exception {
+        _multiThreadPool.put("busy", new NamedThreadPoolExecutor("busy", 1, 1, 15, TimeUnit.SECONDS,
+                WorkQueueType.createWorkQueue(WorkQueueType.ARRAY, 10), new DefaultThreadFactory("busy")));
+        _multiThreadPool.put("idle", new NamedThreadPoolExecutor("idle", 1, 1, 15, TimeUnit.SECONDS,
+                WorkQueueType.createWorkQueue(WorkQueueType.ARRAY, 10), new DefaultThreadFactory("idle")));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _run.set(false);
+        for (ExecutorService pool : _multiThreadPool.values()) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 测试用例：按线程池统计CPU时间和分配的内存 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池busy的线程一直在计算并分配内存，线程池idle的线程空闲
+     * 2、采样两次，间隔200毫秒
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、第一次采样只记录基准值，返回空集合
+     * 2、第二次采样：线程池busy的CPU使用率大于0，不超过1个核（允许误差），分配的内存大于0（JVM支持时）
+     * 3、线程池idle的CPU使用率远低于线程池busy
+     * </pre>
+     */
+    @Test
+    public void testSample() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        _multiThreadPool.get("busy").execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                List<Object> list = new ArrayList<Object>();
+                while (_run.get()) {
+                    list.add(new byte[128]);
+                    if (list.size() > 1000) {
+                        list.clear();
+                    }
+                }
+            }
+        });
+        _multiThreadPool.get("idle").execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+            }
+        });
+        started.await(1, TimeUnit.SECONDS);
+
+        ThreadUsageSampler sampler = new ThreadUsageSampler(_multiThreadPool);
+        long startNanos = System.nanoTime();
+        assertTrue(sampler.sample(startNanos).isEmpty());
+        Thread.sleep(200);
+        Map<String, ThreadUsageInfo> usageMap = sampler.sample(System.nanoTime());
+
+        ThreadUsageInfo busy = usageMap.get("busy");
+        assertEquals(1, busy.getThreadCount());
+        assertTrue(busy.getElapsedTime() >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(busy.getCpuUsage() > 0);
+        assertTrue(busy.getCpuUsage() <= 110);
+        // 用户态CPU时间按时钟节拍（通常10毫秒）统计，200毫秒内可能比CPU时间多出1个节拍
+        assertTrue(busy.getUserUsage() <= busy.getCpuUsage() + 10);
+        if (busy.getAllocatedBytes() >= 0) {
+            assertTrue(busy.getAllocationRate() > 0);
+        }
+        ThreadUsageInfo idle = usageMap.get("idle");
+        assertEquals(1, idle.getThreadCount());
+        assertTrue(idle.getCpuUsage() < busy.getCpuUsage());
+    }
+
+    /**
+     * 测试用例：JVM不支持统计CPU时间 <br/>
+     * 前置条件：
+     * <pre>
+     * 间隔2秒，CPU时间为-1，用户态CPU时间为1秒，分配的内存为2048字节
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * CPU使用率为-1，用户态CPU使用率为50，每秒分配的内存为1024字节
+     * </pre>
+     */
+    @Test
+    public void testUsage4Unsupported() {
+        ThreadUsageInfo usage = new ThreadUsageInfo();
+        usage.elapsedTime = TimeUnit.SECONDS.toNanos(2);
+        usage.cpuTime = -1;
+        usage.userTime = TimeUnit.SECONDS.toNanos(1);
+        usage.allocatedBytes = 2048;
+
+        assertEquals(-1, usage.getCpuUsage(), 0.001);
+        assertEquals(50, usage.getUserUsage(), 0.001);
+        assertEquals(1024, usage.getAllocationRate(), 0.001);
+    }
+
+}
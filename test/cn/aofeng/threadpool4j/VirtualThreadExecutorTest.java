@@ -0,0 +1,201 @@
+package cn.aofeng.threadpool4j;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cn.aofeng.common4j.thread.DefaultThreadFactory;
+
+/**
+ * {@link VirtualThreadExecutor}的单元测试用例。
+ * <p>
+ * 用平台线程工厂代替虚拟线程工厂，在不支持虚拟线程的运行环境中也能测试并发限制和生命周期。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class VirtualThreadExecutorTest {
+
+    private VirtualThreadExecutor _executor;
+
+    @Before
+    public void setUp() throws Exception {
+        _executor = new VirtualThreadExecutor("virtual-test", 2, new DefaultThreadFactory("virtual-test"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _executor.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor4MaxConcurrencyIsZero() {
+        new VirtualThreadExecutor("virtual-test", 0, new DefaultThreadFactory("virtual-test"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testConstructor4ThreadFactoryIsNull() {
+        new VirtualThreadExecutor("virtual-test", 2, null);
+    }
+
+    /**
+     * 测试用例：限制同时执行的任务数 <br/>
+     * 前置条件：
+     * <pre>
+     * maxConcurrency为2，提交5个阻塞的任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、只有2个任务在执行，其余3个任务在等待信号量
+     * 2、放行后5个任务全部执行完成
+     * </pre>
+     */
+    @Test
+    public void testMaxConcurrency() throws InterruptedException {
+        final CountDownLatch startedLatch = new CountDownLatch(2);
+        final CountDownLatch releaseLatch = new CountDownLatch(1);
+        final AtomicInteger executed = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            _executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    startedLatch.countDown();
+                    try {
+                        releaseLatch.await();
+                    } catch (InterruptedException e) {
+                        // nothing
+                    }
+                    executed.incrementAndGet();
+                }
+            });
+        }
+
+        assertTrue(startedLatch.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(2, _executor.getActiveCount());
+        assertEquals(3, _executor.getWaitingCount());
+        assertEquals(5, _executor.getTaskCount());
+        assertEquals(5, _executor.getThreads().size());
+
+        releaseLatch.countDown();
+        _executor.shutdown();
+        assertTrue(_executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(5, executed.get());
+        assertEquals(5, _executor.getCompletedTaskCount());
+        assertTrue(_executor.getThreads().isEmpty());
+    }
+
+    /**
+     * 测试用例：任务执行失败 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、用execute提交1个抛出异常的任务
+     * 2、用submit提交1个抛出异常的任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 失败任务数只统计execute提交的任务（submit提交的任务异常由Future返回）
+     * </pre>
+     */
+    @Test
+    public void testFailedTaskCount() throws InterruptedException {
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("failed task");
+            }
+        };
+        _executor.execute(task);
+        Future<?> future = _executor.submit(task);
+
+        _executor.shutdown();
+        assertTrue(_executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(future.isDone());
+        assertEquals(1, _executor.getFailedTaskCount());
+        assertEquals(2, _executor.getCompletedTaskCount());
+    }
+
+    /**
+     * 测试用例：关闭线程池 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、没有任务时调用shutdown
+     * 2、关闭后提交任务
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、线程池立即终止
+     * 2、抛出RejectedExecutionException
+     * </pre>
+     */
+    @Test(expected = RejectedExecutionException.class)
+    public void testShutdown() throws InterruptedException {
+        _executor.shutdown();
+        assertTrue(_executor.isShutdown());
+        assertTrue(_executor.awaitTermination(0, TimeUnit.SECONDS));
+        assertTrue(_executor.isTerminated());
+
+        _executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // nothing
+            }
+        });
+    }
+
+    /**
+     * 测试用例：强制关闭线程池 <br/>
+     * 前置条件：
+     * <pre>
+     * 同时执行的最大任务数为2，提交2个一直阻塞的任务，再提交1个等待信号量的任务，然后调用shutdownNow
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、返回等待信号量的任务，该任务不执行
+     * 2、正在执行的任务被中断，线程池终止
+     * </pre>
+     */
+    @Test
+    public void testShutdownNow() throws Exception {
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch interrupted = new CountDownLatch(2);
+        final AtomicInteger executed = new AtomicInteger();
+        Runnable blocked = new Runnable() {
+            @Override
+            public void run() {
+                executed.incrementAndGet();
+                started.countDown();
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+            }
+        };
+        _executor.submit(blocked);
+        _executor.submit(blocked);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        Future<?> queued = _executor.submit(blocked);
+
+        List<Runnable> tasks = _executor.shutdownNow();
+        assertEquals(1, tasks.size());
+        assertSame(queued, tasks.get(0));
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        assertTrue(_executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertEquals(2, executed.get());
+        assertFalse(queued.isDone());
+    }
+
+}
@@ -0,0 +1,177 @@
+package cn.aofeng.threadpool4j.job;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ThreadInfo;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cn.aofeng.common4j.thread.DefaultThreadFactory;
+import cn.aofeng.threadpool4j.NamedThreadPoolExecutor;
+import cn.aofeng.threadpool4j.WorkQueueType;
+import cn.aofeng.threadpool4j.job.DeadlockJob.ContentionInfo;
+import cn.aofeng.threadpool4j.job.DeadlockJob.LockWaiters;
+
+/**
+ * {@link DeadlockJob}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class DeadlockJobTest {
+
+    private Map<String, ExecutorService> _multiThreadPool = new HashMap<String, ExecutorService>();
+
+    private DeadlockJob _job;
+
+    @Before
+    public void setUp() throws Exception {
+        _multiThreadPool.put("contended", new NamedThreadPoolExecutor("contended", 2, 2, 15, TimeUnit.SECONDS,
+                WorkQueueType.createWorkQueue(WorkQueueType.ARRAY, 10), new DefaultThreadFactory("contended")));
+        _job = new DeadlockJob(_multiThreadPool, 60);
+        _job.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _job.destroy();
+        for (ExecutorService pool : _multiThreadPool.values()) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * 测试用例：统计锁竞争 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、当前线程持有锁lock
+     * 2、线程池contended的2个线程都在等待锁lock
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、线程池contended有2个线程，阻塞次数为2
+     * 2、等待线程最多的锁为lock，持有锁的线程为当前线程，等待线程数为2
+     * 3、释放锁后再次统计，阻塞次数为0，没有等待的锁
+     * </pre>
+     */
+    @Test
+    public void testStatContention() throws Exception {
+        final Object lock = new Object();
+        final CountDownLatch finished = new CountDownLatch(2);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    finished.countDown();
+                }
+            }
+        };
+        ExecutorService pool = _multiThreadPool.get("contended");
+        synchronized (lock) {
+            pool.execute(task);
+            pool.execute(task);
+            waitBlocked(2);
+
+            ContentionInfo contention = _job.statContention().get("contended");
+            assertEquals(2, contention.getThreadCount());
+            assertEquals(2, contention.getBlockedCount());
+            List<LockWaiters> locks = contention.getTopLocks(DeadlockJob.TOP_LOCKS);
+            assertEquals(1, locks.size());
+            assertTrue(locks.get(0).getLockName().startsWith(Object.class.getName() + "@"));
+            assertEquals(Thread.currentThread().getName(), locks.get(0).getOwnerName());
+            assertEquals(2, locks.get(0).getWaiters());
+        }
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);   // 等待线程回到队列上等待任务
+
+        ContentionInfo contention = _job.statContention().get("contended");
+        assertEquals(0, contention.getBlockedCount());
+        assertTrue(contention.getTopLocks(DeadlockJob.TOP_LOCKS).isEmpty());
+        assertNull(_job.findDeadlockedThreads());
+    }
+
+    /**
+     * 测试用例：检测死锁 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池contended的2个线程以相反的顺序获取2个{@link ReentrantLock}，形成死锁
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 找到2个死锁线程，每个线程等待的{@link ReentrantLock}被另1个线程持有
+     * </pre>
+     */
+    @Test
+    public void testFindDeadlockedThreads() throws Exception {
+        final ReentrantLock lock1 = new ReentrantLock();
+        final ReentrantLock lock2 = new ReentrantLock();
+        final CountDownLatch locked = new CountDownLatch(2);
+        ExecutorService pool = _multiThreadPool.get("contended");
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                lockInOrder(lock1, lock2, locked);
+            }
+        });
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                lockInOrder(lock2, lock1, locked);
+            }
+        });
+
+        ThreadInfo[] threadInfos = null;
+        for (int i = 0; i < 100 && null == threadInfos; i++) {
+            Thread.sleep(10);
+            threadInfos = _job.findDeadlockedThreads();
+        }
+        assertNotNull(threadInfos);
+        assertEquals(2, threadInfos.length);
+        for (ThreadInfo threadInfo : threadInfos) {
+            assertTrue(threadInfo.getThreadName().startsWith("contended"));
+            assertTrue(threadInfo.getLockName().startsWith(ReentrantLock.class.getName()));
+            assertTrue(threadInfo.getLockOwnerName().startsWith("contended"));
+            assertFalse(threadInfo.getThreadName().equals(threadInfo.getLockOwnerName()));
+        }
+    }
+
+    private void lockInOrder(ReentrantLock first, ReentrantLock second, CountDownLatch locked) {
+        first.lock();
+        try {
+            locked.countDown();
+            locked.await();
+            second.lockInterruptibly();   // 销毁线程池时中断线程解除死锁
+            second.unlock();
+        } catch (InterruptedException e) {
+            // nothing
+        } finally {
+            first.unlock();
+        }
+    }
+
+    /**
+     * 使用另一个Job等待，不影响{@link #_job}记录的上一次统计值。
+     */
+    private void waitBlocked(int expected) throws InterruptedException {
+        DeadlockJob job = new DeadlockJob(_multiThreadPool, 60);
+        for (int i = 0; i < 100; i++) {
+            ContentionInfo contention = job.statContention().get("contended");
+            if (null != contention && contention.getTopLocks(DeadlockJob.TOP_LOCKS).size() > 0
+                    && contention.getTopLocks(DeadlockJob.TOP_LOCKS).get(0).getWaiters() == expected) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package cn.aofeng.threadpool4j.job;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * {@link JobScheduler}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class JobSchedulerTest {
+
+    private JobScheduler _scheduler = new JobScheduler();
+
+    @Rule
+    public ExpectedException _expectedEx = ExpectedException.none();
+
+    @Before
+    public void setUp() throws Exception {
+        _scheduler.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _scheduler.destroy();
+    }
+
+    /**
+     * 测试用例：多个Job共用一个调度线程 <br/>
+     * 前置条件：
+     * <pre>
+     * 2个执行间隔为20毫秒的Job，其中1个每次执行都抛出异常
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、2个Job都在同一个守护线程threadpool4j-scheduler中执行
+     * 2、抛出异常的Job继续按间隔执行
+     * </pre>
+     */
+    @Test
+    public void testSchedule() throws Exception {
+        CountingJob job = new CountingJob(20, 5, false);
+        CountingJob failedJob = new CountingJob(20, 5, true);
+        _scheduler.schedule("counting", job);
+        _scheduler.schedule("failed", failedJob);
+        assertEquals(2, _scheduler.getJobCount());
+
+        assertTrue(job._latch.await(1, TimeUnit.SECONDS));
+        assertTrue(failedJob._latch.await(1, TimeUnit.SECONDS));
+        assertSame(job._thread, failedJob._thread);
+        assertEquals(JobScheduler.THREAD_NAME, job._thread.getName());
+        assertTrue(job._thread.isDaemon());
+    }
+
+    /**
+     * 测试用例：取消Job和销毁调度器 <br/>
+     * 前置条件：
+     * <pre>
+     * 1个执行间隔为60秒的Job，第一次执行后取消；1个执行间隔为60秒的Job，第一次执行后销毁调度器
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、Job立即执行第一次
+     * 2、取消和销毁立即返回，不等待下一次执行，Job被销毁，不再执行
+     * </pre>
+     */
+    @Test
+    public void testCancelAndDestroy() throws Exception {
+        CountingJob job = new CountingJob(60000, 1, false);
+        CountingJob otherJob = new CountingJob(60000, 1, false);
+        _scheduler.schedule("counting", job);
+        _scheduler.schedule("other", otherJob);
+        assertTrue(job._latch.await(1, TimeUnit.SECONDS));
+        assertTrue(otherJob._latch.await(1, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        _scheduler.cancel(job);
+        assertFalse(job._run.get());
+        assertEquals(1, _scheduler.getJobCount());
+        _scheduler.destroy();
+        assertFalse(otherJob._run.get());
+        assertEquals(0, _scheduler.getJobCount());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+        assertEquals(1, job._count.get());
+        assertEquals(1, otherJob._count.get());
+    }
+
+    @Test
+    public void testSchedule4InvalidPeriod() {
+        _expectedEx.expect(IllegalArgumentException.class);
+        _expectedEx.expectMessage("period 0 of job zero less than or equal to 0");
+
+        _scheduler.schedule("zero", new CountingJob(0, 1, false));
+    }
+
+    @Test
+    public void testSchedule4Destroyed() {
+        _expectedEx.expect(IllegalStateException.class);
+        _expectedEx.expectMessage("schedule job counting failed, because the scheduler was not initialized or destroyed");
+
+        _scheduler.destroy();
+        _scheduler.schedule("counting", new CountingJob(20, 1, false));
+    }
+
+    private static class CountingJob extends AbstractJob {
+
+        private long _periodMillis;
+
+        private boolean _fail;
+
+        private AtomicInteger _count = new AtomicInteger();
+
+        private CountDownLatch _latch;
+
+        private volatile Thread _thread;
+
+        public CountingJob(long periodMillis, int expectedCount, boolean fail) {
+            this._periodMillis = periodMillis;
+            this._latch = new CountDownLatch(expectedCount);
+            this._fail = fail;
+        }
+
+        @Override
+        public long getPeriodNanos() {
+            return TimeUnit.MILLISECONDS.toNanos(_periodMillis);
+        }
+
+        @Override
+        protected void execute() {
+            _thread = Thread.currentThread();
+            _count.incrementAndGet();
+            _latch.countDown();
+            if (_fail) {
+                throw new IllegalStateException("failed job for test");
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+package cn.aofeng.threadpool4j.job;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import cn.aofeng.common4j.thread.DefaultThreadFactory;
+import cn.aofeng.threadpool4j.NamedThreadPoolExecutor;
+import cn.aofeng.threadpool4j.WorkQueueType;
+
+/**
+ * {@link StackProfilerJob}的单元测试用例。
+ *
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class StackProfilerJobTest {
+
+    private Map<String, ExecutorService> _multiThreadPool = new HashMap<String, ExecutorService>();
+
+    private File _dir;
+
+    private AtomicBoolean _run = new AtomicBoolean(true);
+
+    @Before
+    public void setUp() throws Exception {
+        _multiThreadPool.put("profiled", new NamedThreadPoolExecutor("profiled", 2, 2, 15, TimeUnit.SECONDS,
+                WorkQueueType.createWorkQueue(WorkQueueType.ARRAY, 10), new DefaultThreadFactory("profiled")));
+        _dir = Files.createTempDirectory("threadpool4j-profiler").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _run.set(false);
+        for (ExecutorService pool : _multiThreadPool.values()) {
+            pool.shutdown();
+        }
+        File[] files = _dir.listFiles();
+        if (null != files) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        _dir.delete();
+    }
+
+    private void busyLoop(CountDownLatch started) {
+        started.countDown();
+        while (_run.get()) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * 测试用例：采样线程池线程的堆栈并输出collapsed stack文件 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池profiled有2个线程，1个线程一直执行busyLoop方法，另1个线程空闲
+     * 2、采样10次后输出文件
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 1、文件中只有执行busyLoop的线程的堆栈（空闲线程不计入），以线程池名称开头，最内层方法在最后，采样次数共10次
+     * 2、输出后清空，再次输出时没有文件
+     * </pre>
+     */
+    @Test
+    public void testSampleAndFlush() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        ExecutorService pool = _multiThreadPool.get("profiled");
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                busyLoop(started);
+            }
+        });
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                // nothing
+            }
+        });
+        started.await(1, TimeUnit.SECONDS);
+        Thread.sleep(50);   // 等待执行空任务的线程回到队列上等待
+
+        StackProfilerJob job = new StackProfilerJob(_multiThreadPool, 100, 128, 60, _dir.getAbsolutePath());
+        for (int i = 0; i < 10; i++) {
+            job.sample(System.nanoTime());
+        }
+        File file = job.flush(new Date());
+
+        assertNotNull(file);
+        assertTrue(file.getName().matches("threadpool4j-\\d{8}-\\d{6}\\.collapsed"));
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        long total = 0;
+        for (String line : lines) {
+            assertTrue(line, line.startsWith("profiled;java.lang.Thread.run;"));
+            assertTrue(line, line.contains(";cn.aofeng.threadpool4j.job.StackProfilerJobTest.busyLoop"));
+            assertFalse(line, line.contains("getTask"));
+            total += Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+        }
+        assertEquals(10, total);
+
+        assertNull(job.flush(new Date()));
+    }
+
+    /**
+     * 测试用例：调度器连续补执行时跳过采样 <br/>
+     * 前置条件：
+     * <pre>
+     * 1、线程池profiled的1个线程一直执行busyLoop方法
+     * 2、每秒采样1次，连续执行10次（模拟固定频率调度的补执行）
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 只有第1次执行采样，输出的采样次数为1
+     * </pre>
+     */
+    @Test
+    public void testExecute4CatchUp() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        _multiThreadPool.get("profiled").execute(new Runnable() {
+            @Override
+            public void run() {
+                busyLoop(started);
+            }
+        });
+        started.await(1, TimeUnit.SECONDS);
+
+        StackProfilerJob job = new StackProfilerJob(_multiThreadPool, 1, 128, 60, _dir.getAbsolutePath());
+        for (int i = 0; i < 10; i++) {
+            job.execute();
+        }
+        File file = job.flush(new Date());
+
+        assertNotNull(file);
+        long total = 0;
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            total += Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+        }
+        assertEquals(1, total);
+    }
+
+    /**
+     * 测试用例：没有线程池线程 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池集合为空
+     * </pre>
+     *
+     * 测试结果：
+     * <pre>
+     * 采样不抛出异常，不输出文件
+     * </pre>
+     */
+    @Test
+    public void testSample4NoPoolThread() {
+        StackProfilerJob job = new StackProfilerJob(new HashMap<String, ExecutorService>(), 100, 64, 60, _dir.getAbsolutePath());
+        job.sample(System.nanoTime());
+
+        assertNull(job.flush(new Date()));
+    }
+
+}
@@ -0,0 +1,60 @@
+package cn.aofeng.threadpool4j.job;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import cn.aofeng.common4j.thread.DefaultThreadFactory;
+import cn.aofeng.threadpool4j.NamedForkJoinPool;
+import cn.aofeng.threadpool4j.NamedThreadPoolExecutor;
+import cn.aofeng.threadpool4j.WorkQueueType;
+
+/**
+ * {@link ThreadPoolStateJob}的单元测试用例。
+ * 
+ * @author <a href="mailto:aofengblog@163.com">聂勇</a>
+ */
+public class ThreadPoolStateJobTest {
+
+    private Map<String, ExecutorService> _multiThreadPool = new HashMap<String, ExecutorService>();
+    
+    @Before
+    public void setUp() throws Exception {
+        _multiThreadPool.put("default", new NamedThreadPoolExecutor("default", 1, 1, 15, TimeUnit.SECONDS, 
+                WorkQueueType.createWorkQueue(WorkQueueType.ARRAY, 10), new DefaultThreadFactory("default")));
+        _multiThreadPool.put("recursive", new NamedForkJoinPool("recursive", 2));
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        for (ExecutorService pool : _multiThreadPool.values()) {
+            pool.shutdown();
+        }
+    }
+    
+    /**
+     * 测试用例：收集线程池状态信息 <br/>
+     * 前置条件：
+     * <pre>
+     * 线程池分别为{@link NamedThreadPoolExecutor}、{@link NamedForkJoinPool}和其他类型的{@link ExecutorService}
+     * </pre>
+     * 
+     * 测试结果：
+     * <pre>
+     * 正常输出，不抛出异常（如：{@link ClassCastException}）
+     * </pre>
+     */
+    @Test
+    public void testExecute() {
+        _multiThreadPool.put("other", Mockito.mock(ExecutorService.class));
+        ThreadPoolStateJob job = new ThreadPoolStateJob(_multiThreadPool, 0);
+        job.execute();
+    }
+
+}